@@ -19,6 +19,7 @@ import com.github.jk1.license.filter.LicenseBundleNormalizer
 import com.github.jk1.license.filter.ReduceDuplicateLicensesFilter
 import com.github.jk1.license.render.InventoryMarkdownReportRenderer
 import com.vanniktech.maven.publish.AndroidMultiVariantLibrary
+import org.jetbrains.kotlin.gradle.tasks.KotlinCompile
 import java.util.Locale
 
 plugins {
@@ -34,6 +35,9 @@ plugins {
     alias(libs.plugins.kover)
 }
 
+val benchmarksRequested = gradle.startParameter.taskNames
+    .any { it.substringAfterLast(':').startsWith("jmh") }
+
 val NAMESPACE: String by project
 val GROUP: String by project
 val POM_SCM_URL: String by project
@@ -80,6 +84,12 @@ android {
     testOptions {
         unitTests {
             isIncludeAndroidResources = true
+            // Budgets of the budget tests, e.g. -Peudi.budget.enforce=true -Peudi.budget.scale=2
+            all { test ->
+                project.properties
+                    .filterKeys { it.startsWith("eudi.budget.") }
+                    .forEach { (key, value) -> test.systemProperty(key, value.toString()) }
+            }
         }
     }
 
@@ -87,6 +97,11 @@ android {
         res.setSrcDirs(files("resources"))
     }
 
+    // JMH benchmarks are compiled only when they are run, see the Benchmarks section
+    if (benchmarksRequested) {
+        sourceSets.getByName("testRelease").java.srcDir("src/benchmark/java")
+    }
+
     packaging {
         resources {
             excludes += listOf("/META-INF/{AL2.0,LGPL2.1}")
@@ -159,6 +174,7 @@ dependencies {
     testImplementation(libs.kotlin.coroutines.test)
     testImplementation(libs.biometric.ktx)
     testImplementation(libs.robolectric)
+    testImplementation(libs.jmh.core)
 
     androidTestImplementation(libs.android.junit)
     androidTestImplementation(libs.mockito.android)
@@ -181,6 +197,71 @@ dependencyCheck {
     nvd.maxRetryCount = 2
 }
 
+// Benchmarks
+//
+// wallet-core is an Android library and the benchmarks use its internal API, so the JMH
+// benchmarks in src/benchmark/java are compiled with the release unit tests, but only when a
+// benchmark task is requested. The unit test builds do not compile them.
+// Run with `./gradlew :wallet-core:jmh`, optionally with `-Pjmh.includes=<regex>` to select
+// benchmarks. The results are written to build/reports/jmh/results.json.
+
+val jmhGenerator: Configuration by configurations.creating
+
+dependencies {
+    jmhGenerator(libs.jmh.generator.bytecode)
+}
+
+val jmhTestClassesDir = tasks.named<KotlinCompile>("compileReleaseUnitTestKotlin")
+    .flatMap { it.destinationDirectory }
+val jmhGeneratedSourcesDir = layout.buildDirectory.dir("generated/jmh/sources")
+val jmhGeneratedResourcesDir = layout.buildDirectory.dir("generated/jmh/resources")
+val jmhClassesDir = layout.buildDirectory.dir("classes/jmh")
+val unitTestClasspath = files(tasks.named<Test>("testReleaseUnitTest").map { it.classpath })
+
+val jmhGenerate = tasks.register<JavaExec>("jmhGenerate") {
+    group = "benchmark"
+    description = "Generates the JMH harness of the wallet-core benchmarks."
+    mainClass.set("org.openjdk.jmh.generators.bytecode.JmhBytecodeGenerator")
+    classpath(jmhGenerator, unitTestClasspath)
+    inputs.dir(jmhTestClassesDir)
+    outputs.dir(jmhGeneratedSourcesDir)
+    outputs.dir(jmhGeneratedResourcesDir)
+    doFirst { delete(jmhGeneratedSourcesDir, jmhGeneratedResourcesDir) }
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(
+            jmhTestClassesDir.get().asFile.path,
+            jmhGeneratedSourcesDir.get().asFile.path,
+            jmhGeneratedResourcesDir.get().asFile.path,
+            "default"
+        )
+    })
+}
+
+val jmhCompile = tasks.register<JavaCompile>("jmhCompile") {
+    group = "benchmark"
+    description = "Compiles the generated JMH harness of the wallet-core benchmarks."
+    source(jmhGenerate.map { jmhGeneratedSourcesDir })
+    classpath = files(jmhGenerator, unitTestClasspath)
+    destinationDirectory.set(jmhClassesDir)
+    sourceCompatibility = libs.versions.java.get()
+    targetCompatibility = libs.versions.java.get()
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks of wallet-core and writes the results as JSON."
+    mainClass.set("org.openjdk.jmh.Main")
+    classpath(jmhCompile, jmhGeneratedResourcesDir, jmhGenerator, unitTestClasspath)
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    outputs.file(resultsFile)
+    outputs.upToDateWhen { false }
+    doFirst { resultsFile.get().asFile.parentFile.mkdirs() }
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf("-rf", "json", "-rff", resultsFile.get().asFile.path)
+    })
+    providers.gradleProperty("jmh.includes").orNull?.let { args(it) }
+}
+
 // Dokka generation
 
 tasks.dokkaGfm.configure {
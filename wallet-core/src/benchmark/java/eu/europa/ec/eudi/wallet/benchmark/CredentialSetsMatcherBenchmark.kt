@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.benchmark
+
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialQuery
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialQueryIds
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialSetQuery
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialSets
+import eu.europa.ec.eudi.openid4vp.dcql.Credentials
+import eu.europa.ec.eudi.openid4vp.dcql.DCQLMetaMsoMdocExtensions
+import eu.europa.ec.eudi.openid4vp.dcql.MsoMdocDocType
+import eu.europa.ec.eudi.openid4vp.dcql.QueryId
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.CredentialSetsCombination
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.CredentialSetsMatcher
+import io.mockk.every
+import io.mockk.mockk
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmarks [CredentialSetsMatcher] for a request with twelve credential queries, grouped in
+ * required and optional credential sets with four alternative options each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class CredentialSetsMatcherBenchmark {
+
+    private val matcher = CredentialSetsMatcher()
+
+    private val queryIds = (0 until QUERY_COUNT).map { QueryId("query_$it") }
+
+    private val credentials = Credentials(
+        queryIds.map { id ->
+            CredentialQuery.mdoc(
+                id = id,
+                msoMdocMeta = DCQLMetaMsoMdocExtensions(doctypeValue = MsoMdocDocType("doc.type.${id.value}"))
+            )
+        }
+    )
+
+    // Four sets of three alternatives, the last two sets are optional
+    private val credentialSets = CredentialSets(
+        queryIds.chunked(3).mapIndexed { index, ids ->
+            CredentialSetQuery(
+                options = ids.map { CredentialQueryIds(listOf(it)) } + CredentialQueryIds(ids.take(2)),
+                required = index < 2
+            )
+        }
+    )
+
+    // The wallet has every other credential
+    private val availableWalletCredentialIds = queryIds.filterIndexed { index, _ -> index % 2 == 0 }.toSet()
+
+    private val matchedDocuments = availableWalletCredentialIds.associateWith { id ->
+        listOf(mockk<IssuedDocument> { every { this@mockk.id } returns "document_${id.value}" })
+    }
+
+    @Benchmark
+    fun determineRequestedDocuments(): Map<QueryId, CredentialQuery> =
+        matcher.determineRequestedDocuments(credentials, credentialSets, availableWalletCredentialIds)
+
+    @Benchmark
+    fun findSatisfyingCombinations(): List<CredentialSetsCombination> =
+        matcher.findSatisfyingCombinations(credentials, credentialSets, matchedDocuments)
+
+    private companion object {
+        const val QUERY_COUNT = 12
+    }
+}
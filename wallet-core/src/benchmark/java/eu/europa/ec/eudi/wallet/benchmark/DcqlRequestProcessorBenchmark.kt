@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.benchmark
+
+import eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor
+import eu.europa.ec.eudi.openid4vp.Client
+import eu.europa.ec.eudi.openid4vp.ResolvedRequestObject
+import eu.europa.ec.eudi.openid4vp.dcql.ClaimPath
+import eu.europa.ec.eudi.openid4vp.dcql.ClaimPathElement
+import eu.europa.ec.eudi.openid4vp.dcql.ClaimsQuery
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialQuery
+import eu.europa.ec.eudi.openid4vp.dcql.Credentials
+import eu.europa.ec.eudi.openid4vp.dcql.DCQL
+import eu.europa.ec.eudi.openid4vp.dcql.DCQLMetaMsoMdocExtensions
+import eu.europa.ec.eudi.openid4vp.dcql.MsoMdocDocType
+import eu.europa.ec.eudi.openid4vp.dcql.QueryId
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpRequest
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.DcqlRequestProcessor
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.ProcessedDcqlRequest
+import io.mockk.coEvery
+import io.mockk.every
+import io.mockk.mockk
+import org.multipaz.credential.SecureAreaBoundCredential
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmarks [DcqlRequestProcessor.process] for a PID and mDL query against synthetic wallets.
+ *
+ * The documents and the document manager are mocks, so each measurement includes a small
+ * constant cost per document for the mocked calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class DcqlRequestProcessorBenchmark {
+
+    /**
+     * The number of documents in the wallet.
+     */
+    @Param("10", "100", "1000")
+    @JvmField
+    var documentCount: Int = 0
+
+    private lateinit var processor: DcqlRequestProcessor
+    private lateinit var request: OpenId4VpRequest
+
+    @Setup
+    fun setup() {
+        val credential = mockk<SecureAreaBoundCredential>()
+        val documents = (0 until documentCount).map { index ->
+            mockk<IssuedDocument> {
+                every { id } returns "document-$index"
+                every { format } returns MsoMdocFormat(DOC_TYPES[index % DOC_TYPES.size])
+                coEvery { findCredential() } returns credential
+            }
+        }
+        val documentManager = mockk<DocumentManager> {
+            every { getDocuments(any()) } returns documents
+        }
+        processor = DcqlRequestProcessor(documentManager, readerTrustStore = null)
+        request = OpenId4VpRequest(
+            mockk<ResolvedRequestObject>(relaxed = true) {
+                every { query } returns pidAndMdlQuery()
+                every { transactionData } returns null
+                every { client } returns mockk<Client.Preregistered>(relaxed = true)
+            }
+        )
+        check(processor.process(request) is ProcessedDcqlRequest) {
+            "Benchmark request is not processed"
+        }
+    }
+
+    @Benchmark
+    fun process(): RequestProcessor.ProcessedRequest = processor.process(request)
+
+    private fun pidAndMdlQuery() = DCQL(
+        credentials = Credentials(
+            listOf(
+                mdocQuery("pid", PID_DOC_TYPE, "family_name", "given_name", "birth_date"),
+                mdocQuery("mdl", MDL_DOC_TYPE, "document_number", "driving_privileges"),
+            )
+        )
+    )
+
+    private fun mdocQuery(id: String, docType: String, vararg identifiers: String) =
+        CredentialQuery.mdoc(
+            id = QueryId(id),
+            msoMdocMeta = DCQLMetaMsoMdocExtensions(doctypeValue = MsoMdocDocType(docType)),
+            claims = identifiers.map { identifier ->
+                ClaimsQuery.mdoc(
+                    path = ClaimPath(
+                        listOf(
+                            ClaimPathElement.Claim(NAMESPACES.getValue(docType)),
+                            ClaimPathElement.Claim(identifier)
+                        )
+                    )
+                )
+            }
+        )
+
+    private companion object {
+        const val PID_DOC_TYPE = "eu.europa.ec.eudi.pid.1"
+        const val MDL_DOC_TYPE = "org.iso.18013.5.1.mDL"
+        val NAMESPACES = mapOf(
+            PID_DOC_TYPE to "eu.europa.ec.eudi.pid.1",
+            MDL_DOC_TYPE to "org.iso.18013.5.1",
+        )
+        val DOC_TYPES = listOf(
+            PID_DOC_TYPE,
+            MDL_DOC_TYPE,
+            "org.iso.23220.photoid.1",
+            "eu.europa.ec.eudi.hiid.1",
+            "eu.europa.ec.eudi.tax.1",
+        )
+    }
+}
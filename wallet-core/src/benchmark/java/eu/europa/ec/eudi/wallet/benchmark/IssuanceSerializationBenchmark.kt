@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.benchmark
+
+import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.IssuanceMetadata
+import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.StoredDeferredContext
+import kotlinx.serialization.encodeToString
+import kotlinx.serialization.json.Json
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmarks the serialization of the issuance metadata and of the stored deferred issuance
+ * context, for a document issued in a batch of ten credentials.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class IssuanceSerializationBenchmark {
+
+    private val keyAliases = (0 until 10).map { "key-alias-$it-3f9c2a7e-5b1d-4e8a-9c6f-0d2b7e4a1c58" }
+
+    private val issuanceMetadata = IssuanceMetadata(
+        credentialIssuerId = ISSUER,
+        credentialConfigurationIdentifier = "eu.europa.ec.eudi.pid_mso_mdoc",
+        credentialEndpoint = "$ISSUER/credential",
+        tokenEndpoint = "$ISSUER/token",
+        authorizationServerId = ISSUER,
+        clientId = "wallet-dev",
+        popKeyAliases = keyAliases,
+        dPoPKeyAlias = "dpop-key-alias",
+        accessToken = ACCESS_TOKEN,
+        accessTokenType = "DPoP",
+        refreshToken = ACCESS_TOKEN.reversed(),
+        tokenTimestamp = 1_700_000_000L,
+        grantType = "authorization_code",
+    )
+    private val issuanceMetadataBytes = issuanceMetadata.toByteArray()
+
+    private val deferredContext = StoredDeferredContext(
+        credentialIssuerId = ISSUER,
+        deferredEndpoint = "$ISSUER/deferred_credential",
+        tokenEndpoint = "$ISSUER/token",
+        authorizationServerId = ISSUER,
+        clientId = "wallet-dev",
+        popKeyAliases = keyAliases,
+        dPoPKeyAlias = "dpop-key-alias",
+        transactionId = "b5a2c6e0-7d1f-4c3a-8e9b-2f4d6a8c0e1b",
+        accessToken = ACCESS_TOKEN,
+        refreshToken = ACCESS_TOKEN.reversed(),
+        credentialConfigurationIdentifier = "eu.europa.ec.eudi.pid_mso_mdoc",
+        credentialEndpoint = "$ISSUER/credential",
+    )
+    private val deferredContextJson = Json.encodeToString(deferredContext)
+
+    @Benchmark
+    fun encodeIssuanceMetadata(): ByteArray = issuanceMetadata.toByteArray()
+
+    @Benchmark
+    fun decodeIssuanceMetadata(): IssuanceMetadata = IssuanceMetadata.fromByteArray(issuanceMetadataBytes)
+
+    @Benchmark
+    fun encodeDeferredContext(): String = Json.encodeToString(deferredContext)
+
+    @Benchmark
+    fun decodeDeferredContext(): StoredDeferredContext =
+        Json.decodeFromString<StoredDeferredContext>(deferredContextJson)
+
+    private companion object {
+        const val ISSUER = "https://issuer.eudiw.dev"
+        val ACCESS_TOKEN = "eyJhbGciOiJFUzI1NiIsInR5cCI6ImF0K2p3dCJ9." + "a".repeat(600) + "." + "b".repeat(86)
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.benchmark
+
+import com.upokecenter.cbor.CBORObject
+import eu.europa.ec.eudi.statium.StatusReference
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.statium.MsoMdocStatusReferenceExtractor
+import io.mockk.coEvery
+import io.mockk.every
+import io.mockk.mockk
+import kotlinx.coroutines.runBlocking
+import org.multipaz.credential.SecureAreaBoundCredential
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmarks [MsoMdocStatusReferenceExtractor] on a PID sized mobile security object.
+ *
+ * The issuer provided data of the credential is synthetic, with an unverified signature, since
+ * the extractor only decodes the issuer signed MSO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class MsoMdocStatusReferenceBenchmark {
+
+    private lateinit var document: IssuedDocument
+    private lateinit var mso: ByteArray
+
+    @Setup
+    fun setup() {
+        mso = mobileSecurityObject()
+        val credential = mockk<SecureAreaBoundCredential> {
+            every { issuerProvidedData } returns staticAuthData(mso)
+        }
+        document = mockk<IssuedDocument> {
+            every { format } returns MsoMdocFormat(DOC_TYPE)
+            coEvery { findCredential() } returns credential
+        }
+        check(runBlocking { MsoMdocStatusReferenceExtractor.extractStatusReference(document) }.isSuccess) {
+            "Benchmark document has no status reference"
+        }
+    }
+
+    @Benchmark
+    fun parseMso(): ByteArray = runBlocking { MsoMdocStatusReferenceExtractor.parseMso(document) }
+
+    @Benchmark
+    fun extractStatusList(): StatusReference = MsoMdocStatusReferenceExtractor.extractStatusList(mso)
+
+    @Benchmark
+    fun extractStatusReference(): Result<StatusReference> =
+        runBlocking { MsoMdocStatusReferenceExtractor.extractStatusReference(document) }
+
+    private fun mobileSecurityObject(): ByteArray {
+        val digests = CBORObject.NewMap().apply {
+            repeat(DIGEST_COUNT) { Add(it, ByteArray(32) { index -> (it + index).toByte() }) }
+        }
+        val deviceKey = CBORObject.NewMap()
+            .Add(1, 2)
+            .Add(-1, 1)
+            .Add(-2, ByteArray(32) { 1 })
+            .Add(-3, ByteArray(32) { 2 })
+        val validityInfo = CBORObject.NewMap()
+            .Add("signed", CBORObject.FromObjectAndTag("2025-01-01T00:00:00Z", 0))
+            .Add("validFrom", CBORObject.FromObjectAndTag("2025-01-01T00:00:00Z", 0))
+            .Add("validUntil", CBORObject.FromObjectAndTag("2026-01-01T00:00:00Z", 0))
+        val status = CBORObject.NewMap().Add(
+            "status_list",
+            CBORObject.NewMap()
+                .Add("idx", 4_242)
+                .Add("uri", "https://issuer.example.com/status-lists/1")
+        )
+        return CBORObject.NewOrderedMap()
+            .Add("version", "1.0")
+            .Add("digestAlgorithm", "SHA-256")
+            .Add("valueDigests", CBORObject.NewMap().Add(DOC_TYPE, digests))
+            .Add("deviceKeyInfo", CBORObject.NewMap().Add("deviceKey", deviceKey))
+            .Add("docType", DOC_TYPE)
+            .Add("validityInfo", validityInfo)
+            .Add("status", status)
+            .EncodeToBytes()
+    }
+
+    private fun staticAuthData(mso: ByteArray): ByteArray {
+        val issuerAuth = CBORObject.NewArray()
+            .Add(CBORObject.NewMap().Add(1, -7).EncodeToBytes())
+            .Add(CBORObject.NewMap())
+            .Add(CBORObject.FromObjectAndTag(CBORObject.FromObject(mso), 24).EncodeToBytes())
+            .Add(ByteArray(64))
+        return CBORObject.NewMap()
+            .Add("digestIdMapping", CBORObject.NewMap())
+            .Add("issuerAuth", issuerAuth)
+            .EncodeToBytes()
+    }
+
+    private companion object {
+        const val DOC_TYPE = "eu.europa.ec.eudi.pid.1"
+        const val DIGEST_COUNT = 40
+    }
+}
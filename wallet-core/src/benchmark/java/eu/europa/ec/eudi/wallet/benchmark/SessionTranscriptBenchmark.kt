@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.benchmark
+
+import eu.europa.ec.eudi.wallet.dcapi.getDCAPIIsoMdocSessionTranscript
+import eu.europa.ec.eudi.wallet.internal.generateSessionTranscript
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmarks the encoding of the OpenID4VP and Digital Credentials API session transcripts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class SessionTranscriptBenchmark {
+
+    private val jwkThumbprint = ByteArray(32) { it.toByte() }
+
+    @Benchmark
+    fun openId4VpSessionTranscript(): ByteArray = generateSessionTranscript(
+        clientId = "x509_san_dns:verifier.example.com",
+        nonce = "exc7gBkxjx1rdc9udRrveKvSsJIq80avlXeLHhGwqtA",
+        jwkThumbprint = jwkThumbprint,
+        responseOrRedirectUri = "https://verifier.example.com/wallet/direct_post"
+    )
+
+    @Benchmark
+    fun dcapiSessionTranscript(): ByteArray = getDCAPIIsoMdocSessionTranscript(
+        encryptionInfoBase64 = ENCRYPTION_INFO,
+        origin = "https://verifier.example.com"
+    )
+
+    private companion object {
+        const val ENCRYPTION_INFO =
+            "gmVkY2FwaaJlbm9uY2VYIL8Xy3yHlZtJtYz3pTpv6b2R5kpl3sMNgqf2W4aE5Zb8cnJlY2lwaWVudFB1YmxpY0tleaQBAiABIVggmgN8Mxu0bVR4V1ywPGCmnK3ZHVtxWZPp4KrGdGxHDT0iWCBMz3z3jvhZmV8BbQd8R1qq2Z6Iu2aAvVEZKhmNL7A6zg"
+    }
+}
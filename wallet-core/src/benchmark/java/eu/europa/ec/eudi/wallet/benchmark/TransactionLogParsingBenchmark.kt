@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.benchmark
+
+import eu.europa.ec.eudi.wallet.document.metadata.IssuerMetadata
+import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLog
+import eu.europa.ec.eudi.wallet.transactionLogging.presentation.PresentationTransactionLog
+import eu.europa.ec.eudi.wallet.transactionLogging.presentation.parsing.getResourceAsByteArray
+import eu.europa.ec.eudi.wallet.transactionLogging.presentation.parsing.getResourceAsByteArrayFromBase64Url
+import eu.europa.ec.eudi.wallet.transactionLogging.presentation.parsing.parsePresentationTransactionLog
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.FORMAT_MSO_MDOC
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.FORMAT_SD_JWT_VC
+import eu.europa.ec.eudi.wallet.util.CBOR
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmarks the parsing of presentation transaction logs, using the device response and the
+ * verifiable presentation of the unit test resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class TransactionLogParsingBenchmark {
+
+    private lateinit var deviceResponse: ByteArray
+    private lateinit var cborLog: TransactionLog
+    private lateinit var jsonLog: TransactionLog
+
+    @Setup
+    fun setup() {
+        deviceResponse = getResourceAsByteArrayFromBase64Url("mso_mdoc_response.txt")
+        cborLog = presentationLog(
+            rawResponse = deviceResponse,
+            dataFormat = TransactionLog.DataFormat.Cbor,
+            metadata = emptyList()
+        )
+        jsonLog = presentationLog(
+            rawResponse = getResourceAsByteArray("vp_response_2.json"),
+            dataFormat = TransactionLog.DataFormat.Json,
+            metadata = listOf(
+                metadata("query-0", FORMAT_SD_JWT_VC, "urn:eu.europa.ec.eudi:pid:1"),
+                metadata("query-1", FORMAT_MSO_MDOC, "org.iso.18013.5.1.mDL"),
+            )
+        )
+    }
+
+    @Benchmark
+    fun parseCborTransactionLog(): PresentationTransactionLog = parsePresentationTransactionLog(cborLog)
+
+    @Benchmark
+    fun parseJsonTransactionLog(): PresentationTransactionLog = parsePresentationTransactionLog(jsonLog)
+
+    @Benchmark
+    fun cborParse(): Any? = CBOR.cborParse(deviceResponse)
+
+    private fun presentationLog(
+        rawResponse: ByteArray,
+        dataFormat: TransactionLog.DataFormat,
+        metadata: List<String>,
+    ) = TransactionLog(
+        timestamp = 1_700_000_000_000L,
+        status = TransactionLog.Status.Completed,
+        type = TransactionLog.Type.Presentation,
+        relyingParty = TransactionLog.RelyingParty(
+            name = "Verifier",
+            isVerified = true,
+            certificateChain = emptyList(),
+            readerAuth = null
+        ),
+        rawRequest = ByteArray(0),
+        rawResponse = rawResponse,
+        dataFormat = dataFormat,
+        sessionTranscript = byteArrayOf(0),
+        metadata = metadata
+    )
+
+    private fun metadata(queryId: String, format: String, configurationIdentifier: String) =
+        TransactionLog.Metadata(
+            index = 0,
+            queryId = queryId,
+            format = format,
+            issuerMetadata = IssuerMetadata(
+                documentConfigurationIdentifier = configurationIdentifier,
+                display = emptyList(),
+                claims = emptyList(),
+                credentialIssuerIdentifier = "http://issuer.example.com",
+                issuerDisplay = null,
+            ).toJson()
+        ).toJson()
+}
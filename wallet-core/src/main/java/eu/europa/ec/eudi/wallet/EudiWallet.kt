@@ -21,7 +21,6 @@ import androidx.annotation.RawRes
 import eu.europa.ec.eudi.iso18013.transfer.TransferManager
 import eu.europa.ec.eudi.iso18013.transfer.engagement.BleRetrievalMethod
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
-import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStoreImpl
 import eu.europa.ec.eudi.statium.Status
 import eu.europa.ec.eudi.wallet.dcapi.DCAPIManager
 import eu.europa.ec.eudi.wallet.dcapi.DCAPIRegistration
@@ -31,22 +30,38 @@ import eu.europa.ec.eudi.wallet.dcapi.getDefaultPrivilegedUserAgents
 import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.DocumentManagerWithMetadataCleanup
 import eu.europa.ec.eudi.wallet.document.DocumentId
 import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.DocumentsDeletionResult
 import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.deleteDocumentsOneByOne
+import eu.europa.ec.eudi.wallet.document.search.DocumentClaimIndex
+import eu.europa.ec.eudi.wallet.document.search.DocumentManagerWithClaimIndex
+import eu.europa.ec.eudi.wallet.internal.DocumentManagerWithParsedSdJwtCache
+import eu.europa.ec.eudi.wallet.internal.ParsedSdJwtCache
 import eu.europa.ec.eudi.wallet.internal.LogPrinterImpl
+import eu.europa.ec.eudi.wallet.internal.WalletStorage
 import eu.europa.ec.eudi.wallet.internal.i
 import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager
 import eu.europa.ec.eudi.wallet.logging.Logger
 import eu.europa.ec.eudi.wallet.presentation.PresentationManager
 import eu.europa.ec.eudi.wallet.presentation.PresentationManagerImpl
+import eu.europa.ec.eudi.wallet.provider.DefaultWalletKeyManager
 import eu.europa.ec.eudi.wallet.provider.WalletAttestationsProvider
 import eu.europa.ec.eudi.wallet.provider.WalletKeyManager
 import eu.europa.ec.eudi.wallet.statium.DocumentStatusResolver
+import eu.europa.ec.eudi.wallet.statium.DocumentStatusResolverWithTelemetry
+import eu.europa.ec.eudi.wallet.telemetry.WalletMetrics
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
+import eu.europa.ec.eudi.wallet.telemetry.WalletTracer
 import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLogger
 import eu.europa.ec.eudi.wallet.transactionLogging.presentation.TransactionsDecorator
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpManager
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.DcqlRequestProcessor
+import eu.europa.ec.eudi.wallet.trust.IndexedReaderTrustStore
+import eu.europa.ec.eudi.wallet.trust.withTrustCache
 import io.ktor.client.HttpClient
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
 import org.multipaz.context.initializeApplication
 import org.multipaz.securearea.AndroidKeystoreSecureArea
 import org.multipaz.securearea.SecureArea
@@ -106,7 +121,8 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
     /**
      * Sets the reader trust store with the given list of raw resource IDs. This method is useful
      * when the reader trust store is not set in the configuration object, or when the reader trust
-     * store needs to be updated at runtime.
+     * store needs to be updated at runtime. The parsed certificates are cached, so the resources
+     * are parsed only once per app version.
      *
      * @param rawRes the list of raw resource IDs
      * @return this [EudiWallet] instance
@@ -132,6 +148,27 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
         ktorHttpClientFactory: (() -> HttpClient)? = null,
     ): OpenId4VciManager
 
+    /**
+     * Deletes the documents with the given ids.
+     *
+     * Unlike calling [deleteDocumentById] for each document, the issuance metadata of all the
+     * documents is deleted in a single operation and the Digital Credentials API credentials are
+     * registered again only once. The documents are deleted on the IO dispatcher. The default
+     * implementation deletes the documents one by one with [deleteDocumentById].
+     *
+     * @param documentIds the ids of the documents
+     * @return the result with the deleted and the failed documents
+     */
+    suspend fun deleteDocuments(documentIds: List<DocumentId>): DocumentsDeletionResult =
+        withContext(Dispatchers.IO) { deleteDocumentsOneByOne(documentIds) }
+
+    /**
+     * The index of the claim values and the validity of the issued documents, if it is enabled
+     * with [Builder.withClaimIndex], otherwise null
+     */
+    val claimIndex: DocumentClaimIndex?
+        get() = null
+
     /**
      * Resolve the status of the document with the given [documentId]
      *
@@ -187,6 +224,9 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
      * @property documentStatusResolver the document status resolver to use if you want to provide a custom implementation
      * @property dcapiRegistration the DCAPI registration to use if you want to provide a custom implementation, by default
      * it will be [DCAPIIsoMdocRegistration] when the DCAPI is enabled in the configuration
+     * @property metrics the metrics of the stages of the wallet flows, if you want to measure them
+     * @property tracer the tracer of the stages of the wallet flows, if you want to trace them
+     * @property claimIndexStorage the storage of the claim index, if you want to search the documents by their claims
      */
     class Builder(
         context: Context,
@@ -206,6 +246,9 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
         var dcapiRegistration: DCAPIRegistration? = null
 
         var walletKeyManager: WalletKeyManager? = null
+        var metrics: WalletMetrics? = null
+        var tracer: WalletTracer? = null
+        var claimIndexStorage: Storage? = null
 
         /**
          * Configure with the given [SecureArea] implementations to use for documents' keys management.
@@ -244,6 +287,8 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
          * Configure with the given [ReaderTrustStore] to use for performing reader authentication.
          * If not set, the default reader trust store will be used which is initialized with the certificates
          * provided in the [EudiWalletConfig.configureReaderTrustStore] methods.
+         * In both cases, the trust store results are cached as configured with
+         * [EudiWalletConfig.configureReaderTrustCache].
          *
          * @param readerTrustStore the reader trust store
          * @return this [Builder] instance
@@ -326,6 +371,39 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
             this.walletKeyManager = walletKeyManager
         }
 
+        /**
+         * Configure with the given [WalletMetrics] to receive the duration of each stage of the
+         * issuance, presentation and status flows, and counters such as the number of secure area
+         * signatures. If not set, no metrics are recorded.
+         *
+         * @param metrics the metrics
+         * @return this [Builder] instance
+         */
+        fun withMetrics(metrics: WalletMetrics) = apply { this.metrics = metrics }
+
+        /**
+         * Configure with the given [WalletTracer] to create a span for each stage of the issuance,
+         * presentation and status flows. Use [WalletTracer.sampled] to trace only a sample of the
+         * stages. If not set, no spans are created.
+         *
+         * @param tracer the tracer
+         * @return this [Builder] instance
+         */
+        fun withTracer(tracer: WalletTracer) = apply { this.tracer = tracer }
+
+        /**
+         * Configure with the given [Storage] to keep a [DocumentClaimIndex] of the issued documents,
+         * available as [EudiWallet.claimIndex], to search them by claim value or validity.
+         * If not set, the documents are not indexed.
+         *
+         * **Note**: the index stores the claim values in plaintext, so the [storage] must be
+         * protected like the storage of the documents.
+         *
+         * @param storage the storage of the index
+         * @return this [Builder] instance
+         */
+        fun withClaimIndex(storage: Storage) = apply { this.claimIndexStorage = storage }
+
         /**
          * Build the [EudiWallet] instance
          *
@@ -360,17 +438,33 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
             ensureStrongBoxIsSupported(loggerToUse)
             ensureUserAuthIsSupported(loggerToUse)
 
-            // Create shared issuance metadata storage (used by both the wrapper and OpenId4VciManager)
-            val issuanceMetadataStorage = config.openId4VciConfig?.issuanceMetadataStorage ?: run {
-                val storagePath = File(
-                    context.noBackupFilesDir,
-                    "issuance_metadata.db"
-                ).absolutePath
-                AndroidStorage(storagePath)
+            // With the shared profile, every wallet-core table lives in the storage of the documents
+            val sharedStorage = when (config.storageProfile) {
+                EudiWalletConfig.StorageProfile.SHARED -> storage ?: defaultStorage
+                EudiWalletConfig.StorageProfile.SEPARATE -> null
             }
 
+            // Create shared issuance metadata storage (used by both the wrapper and OpenId4VciManager)
+            val issuanceMetadataStorage = config.openId4VciConfig?.issuanceMetadataStorage
+                ?: sharedStorage
+                ?: WalletStorage.open(context, WalletStorage.ISSUANCE_METADATA_DATABASE)
+
+            var claimIndex: DocumentClaimIndex? = null
             val documentManagerToUse =
-                (documentManager ?: getDefaultDocumentManager(storage, secureAreas))
+                (documentManager ?: getDefaultDocumentManager(sharedStorage ?: storage, secureAreas))
+                    .let { manager ->
+                        DocumentManagerWithParsedSdJwtCache(
+                            delegate = manager,
+                            parsedSdJwtCache = parsedSdJwtCache
+                        )
+                    }
+                    .let { manager ->
+                        claimIndexStorage?.let { storage ->
+                            val index = DocumentClaimIndex(manager, storage, loggerToUse)
+                            claimIndex = index
+                            DocumentManagerWithClaimIndex(delegate = manager, claimIndex = index)
+                        } ?: manager
+                    }
                     .let { manager ->
                         DocumentManagerWithMetadataCleanup(
                             delegate = manager,
@@ -388,7 +482,8 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
                         } else manager
                     }
 
-            val readerTrustStoreToUse = readerTrustStore ?: defaultReaderTrustStore
+            val readerTrustStoreToUse = (readerTrustStore ?: defaultReaderTrustStore)
+                ?.withTrustCache(config.readerTrustCacheTtl)
 
             val transferManager = getTransferManager(documentManagerToUse, readerTrustStoreToUse)
 
@@ -399,7 +494,10 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
                 loggerObj = loggerToUse
             ).wrapWithTrasactionLogger(documentManagerToUse, loggerToUse)
 
-            val documentStatusResolverToUse = getDocumentStatusResolver()
+            val documentStatusResolverToUse = getDocumentStatusResolver().let { resolver ->
+                if (telemetry.isEnabled) DocumentStatusResolverWithTelemetry(resolver, telemetry)
+                else resolver
+            }
 
             return EudiWalletImpl(
                 context = context,
@@ -408,12 +506,16 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
                 presentationManager = presentationManagerToUse,
                 transferManager = transferManager,
                 walletProvider = walletProvider,
-                walletKeyManager = walletKeyManager ?: WalletKeyManager.getDefault(context),
+                walletKeyManager = walletKeyManager ?: DefaultWalletKeyManager(context, sharedStorage),
                 logger = loggerToUse,
                 documentStatusResolver = documentStatusResolverToUse,
                 transactionLogger = transactionLogger,
                 ktorHttpClientFactory = ktorHttpClientFactory,
-                issuanceMetadataStorage = issuanceMetadataStorage
+                issuanceMetadataStorage = issuanceMetadataStorage,
+                metrics = metrics,
+                tracer = tracer,
+                claimIndex = claimIndex,
+                walletStorage = sharedStorage,
             )
         }
 
@@ -437,10 +539,13 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
                     requestProcessor = DcqlRequestProcessor(
                         documentManager,
                         readerTrustStore
-                    ),
+                    ).also {
+                        it.telemetry = telemetry
+                        it.parsedSdJwtCache = parsedSdJwtCache
+                    },
                     logger = loggerObj,
                     ktorHttpClientFactory = ktorHttpClientFactory
-                )
+                ).also { it.telemetry = telemetry }
             }
             val dcapiManager = config.dcapiConfig?.takeIf { it.enabled }?.let { dcapiConfig ->
                 val privilegedAllowlist =
@@ -464,6 +569,24 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
             )
         }
 
+        /**
+         * The [ParsedSdJwtCache] of the wallet, shared by the default [DcqlRequestProcessor] and the
+         * document manager wrapper that evicts it when documents are stored or deleted
+         */
+        @get:JvmSynthetic
+        internal val parsedSdJwtCache: ParsedSdJwtCache by lazy { ParsedSdJwtCache() }
+
+        /**
+         * The [WalletTelemetry] of the configured [metrics] and [tracer]
+         */
+        @get:JvmSynthetic
+        internal val telemetry: WalletTelemetry by lazy {
+            WalletTelemetry(
+                metrics = metrics ?: WalletMetrics.NoOp,
+                tracer = tracer ?: WalletTracer.NoOp
+            )
+        }
+
         @get:JvmSynthetic
         internal val defaultStoragePath: String
             get() = File(
@@ -472,13 +595,15 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
             ).absolutePath
 
         /**
-         * Get the default [ReaderTrustStore] instance based on the certificates provided in the configuration
+         * Get the default [ReaderTrustStore] instance based on the certificates provided in the configuration.
+         * The certificates are indexed with an [IndexedReaderTrustStore], so that each reader chain is
+         * validated only against the anchors that can have issued it
          * @return the default [ReaderTrustStore] instance
          */
         @get:JvmSynthetic
         internal val defaultReaderTrustStore: ReaderTrustStore?
             get() = config.readerTrustedCertificates?.let { certificates ->
-                ReaderTrustStoreImpl(certificates, profileValidation = { _, _ -> true })
+                IndexedReaderTrustStore(certificates)
             }
 
         /**
@@ -491,9 +616,7 @@ interface EudiWallet : DocumentManager, PresentationManager, DocumentStatusResol
             get() {
                 val documentsStoragePathToUse = config.documentsStoragePath
                     ?: defaultStoragePath
-                return AndroidStorage(
-                    databasePath = documentsStoragePathToUse
-                )
+                return WalletStorage.open(documentsStoragePathToUse)
             }
 
         /**
@@ -24,10 +24,11 @@ import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
 import eu.europa.ec.eudi.wallet.EudiWalletConfig.Companion.DEFAULT_DOCUMENT_MANAGER_IDENTIFIER
 import eu.europa.ec.eudi.wallet.dcapi.DCAPIConfig
 import eu.europa.ec.eudi.wallet.document.DocumentExtensions.getDefaultCreateDocumentSettings
-import eu.europa.ec.eudi.wallet.internal.getCertificate
 import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager
 import eu.europa.ec.eudi.wallet.logging.Logger
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpConfig
+import eu.europa.ec.eudi.wallet.trust.CachingReaderTrustStore
+import eu.europa.ec.eudi.wallet.trust.ParsedCertificateCache
 import org.multipaz.mdoc.zkp.ZkSystemRepository
 import java.security.cert.X509Certificate
 import kotlin.time.Duration
@@ -114,6 +115,7 @@ import kotlin.time.Duration.Companion.minutes
  * @property logLevel the log level
  * @property logSizeLimit the log size limit
  * @property readerTrustedCertificates the reader trusted certificates
+ * @property readerTrustCacheTtl how long the results of the reader trust store are cached
  * @property userAuthenticationRequired whether user authentication is required
  * @property userAuthenticationTimeout the user authentication timeout
  * @property useStrongBoxForKeys whether to use the strong box for keys
@@ -339,14 +341,35 @@ class EudiWalletConfig {
     /**
      * Configure the built-in [ReaderTrustStore].
      * This allows to set the reader trusted certificates for the reader trust store.
-     * The certificates are loaded from the raw resources.
+     * The certificates are loaded from the raw resources. The parsed certificates are cached,
+     * so the resources are parsed only once per app version.
      *
      * @param context the context
      * @param certificateRes the reader trusted certificates raw resources
      * @return the [EudiWalletConfig] instance
      */
     fun configureReaderTrustStore(context: Context, @RawRes vararg certificateRes: Int) = apply {
-        this.readerTrustedCertificates = certificateRes.map { context.getCertificate(it) }
+        this.readerTrustedCertificates = ParsedCertificateCache.getInstance(context)
+            .getCertificates(context, *certificateRes, logger = Logger(this))
+    }
+
+    var readerTrustCacheTtl: Duration = CachingReaderTrustStore.DEFAULT_TTL
+        private set
+
+    /**
+     * Configure how long the results of the reader trust store are cached. Successful validations
+     * of a reader certificate chain are reused for the given duration, or until a certificate of the
+     * chain expires, by the proximity, OpenID4VP and DCAPI presentations.
+     *
+     * The default value is [CachingReaderTrustStore.DEFAULT_TTL]. Setting it to [Duration.ZERO]
+     * disables the cache.
+     *
+     * @param ttl the maximum time a trust result is cached
+     * @return the [EudiWalletConfig] instance
+     */
+    fun configureReaderTrustCache(ttl: Duration) = apply {
+        require(!ttl.isNegative()) { "Reader trust cache ttl must not be negative" }
+        this.readerTrustCacheTtl = ttl
     }
 
     var userAuthenticationRequired: Boolean = false
@@ -404,6 +427,28 @@ class EudiWalletConfig {
         this.documentStatusResolverClockSkew = clockSkewInMinutes.minutes
     }
 
+    var storageProfile: StorageProfile = StorageProfile.SEPARATE
+        private set
+
+    /**
+     * Configure how the state of wallet-core is distributed in databases.
+     *
+     * With [StorageProfile.SHARED] the documents, the issuance metadata and the keys of DPoP and
+     * of the wallet attestation are all kept in the storage of the documents, either the
+     * [org.multipaz.storage.Storage] given to [EudiWallet.Builder.withStorage] or the database at
+     * [documentsStoragePath], so that they share a single connection. Storages configured
+     * explicitly, such as [OpenId4VciManager.Config.issuanceMetadataStorage], are still used.
+     *
+     * The profile should not be changed once the wallet has stored data, since the data in the
+     * databases of the other profile is not migrated.
+     *
+     * @param storageProfile the storage profile
+     * @return the [EudiWalletConfig] instance
+     */
+    fun configureStorageProfile(storageProfile: StorageProfile) = apply {
+        this.storageProfile = storageProfile
+    }
+
     var zkSystemRepository: ZkSystemRepository? = null
         private set
 
@@ -417,6 +462,17 @@ class EudiWalletConfig {
         this.zkSystemRepository = zkSystemRepository
     }
 
+    /**
+     * The distribution of the wallet-core state in databases.
+     */
+    enum class StorageProfile {
+        /** Each component keeps its state in its own database */
+        SEPARATE,
+
+        /** All the components keep their state in the storage of the documents */
+        SHARED,
+    }
+
     companion object {
 
         const val DEFAULT_DOCUMENT_MANAGER_IDENTIFIER = "EudiWalletDocumentManager"
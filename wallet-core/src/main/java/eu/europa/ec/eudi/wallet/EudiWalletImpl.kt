@@ -20,15 +20,23 @@ import android.content.Context
 import eu.europa.ec.eudi.iso18013.transfer.TransferManager
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStoreAware
+import eu.europa.ec.eudi.wallet.document.DocumentId
 import eu.europa.ec.eudi.wallet.document.DocumentManager
-import eu.europa.ec.eudi.wallet.internal.getCertificate
+import eu.europa.ec.eudi.wallet.document.DocumentsDeletionResult
+import eu.europa.ec.eudi.wallet.document.deleteDocumentsInBulk
+import eu.europa.ec.eudi.wallet.document.search.DocumentClaimIndex
 import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager
 import eu.europa.ec.eudi.wallet.logging.Logger
 import eu.europa.ec.eudi.wallet.presentation.PresentationManager
 import eu.europa.ec.eudi.wallet.provider.WalletAttestationsProvider
 import eu.europa.ec.eudi.wallet.provider.WalletKeyManager
 import eu.europa.ec.eudi.wallet.statium.DocumentStatusResolver
+import eu.europa.ec.eudi.wallet.telemetry.WalletMetrics
+import eu.europa.ec.eudi.wallet.telemetry.WalletTracer
 import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLogger
+import eu.europa.ec.eudi.wallet.trust.IndexedReaderTrustStore
+import eu.europa.ec.eudi.wallet.trust.ParsedCertificateCache
+import eu.europa.ec.eudi.wallet.trust.withTrustCache
 import io.ktor.client.HttpClient
 import org.multipaz.storage.Storage
 import java.security.cert.X509Certificate
@@ -44,6 +52,11 @@ import java.security.cert.X509Certificate
  * @property transactionLogger the transaction logger
  * @property ktorHttpClientFactory the ktor http client factory for use in the OpenId4VciManager and OpenId4VpManager
  * @property logger the logger
+ * @property metrics the metrics of the wallet flows, for use in the OpenId4VciManager
+ * @property tracer the tracer of the wallet flows, for use in the OpenId4VciManager
+ * @property claimIndex the index of the claims of the documents, if it is enabled
+ * @property walletStorage the storage all the wallet-core state is kept in, with the shared
+ * storage profile, for use in the OpenId4VciManager
  */
 class EudiWalletImpl internal constructor(
     val context: Context,
@@ -58,21 +71,31 @@ class EudiWalletImpl internal constructor(
     val transactionLogger: TransactionLogger?,
     val ktorHttpClientFactory: (() -> HttpClient)?,
     val issuanceMetadataStorage: Storage?,
+    val metrics: WalletMetrics? = null,
+    val tracer: WalletTracer? = null,
+    override val claimIndex: DocumentClaimIndex? = null,
+    val walletStorage: Storage? = null,
 ) : EudiWallet, DocumentManager by documentManager, PresentationManager by presentationManager,
     DocumentStatusResolver by documentStatusResolver {
 
     override fun setReaderTrustStore(readerTrustStore: ReaderTrustStore) = apply {
-        (this as PresentationManager).readerTrustStore = readerTrustStore
+        // A new cache is created for the new trust store, so results of the previous anchors are dropped
+        val readerTrustStoreToUse = readerTrustStore.withTrustCache(config.readerTrustCacheTtl)
+        (this as PresentationManager).readerTrustStore = readerTrustStoreToUse
         if (transferManager is ReaderTrustStoreAware) {
-            transferManager.readerTrustStore = readerTrustStore
+            transferManager.readerTrustStore = readerTrustStoreToUse
         }
     }
 
     override fun setTrustedReaderCertificates(trustedReaderCertificates: List<X509Certificate>) =
-        setReaderTrustStore(ReaderTrustStore.getDefault(trustedReaderCertificates))
+        setReaderTrustStore(IndexedReaderTrustStore(trustedReaderCertificates) { anchors ->
+            ReaderTrustStore.getDefault(anchors)
+        })
 
     override fun setTrustedReaderCertificates(vararg rawRes: Int) =
-        setReaderTrustStore(ReaderTrustStore.getDefault(rawRes.map { context.getCertificate(it) }))
+        setTrustedReaderCertificates(
+            ParsedCertificateCache.getInstance(context).getCertificates(context, *rawRes, logger = logger)
+        )
 
     /**
      * Creates an instance of [OpenId4VciManager] for interacting with the OpenID for Verifiable Credential Issuance protocol.
@@ -109,9 +132,15 @@ class EudiWalletImpl internal constructor(
             this@EudiWalletImpl.walletProvider?.let { walletAttestationsProvider(it) }
             config(configWithStorage)
             logger(this@EudiWalletImpl.logger)
+            this@EudiWalletImpl.metrics?.let { metrics(it) }
+            this@EudiWalletImpl.tracer?.let { tracer(it) }
+            walletStorage = this@EudiWalletImpl.walletStorage
             if (httpClientFactory != null) {
                 ktorHttpClientFactory(httpClientFactory)
             }
         }
     }
+
+    override suspend fun deleteDocuments(documentIds: List<DocumentId>): DocumentsDeletionResult =
+        documentManager.deleteDocumentsInBulk(documentIds)
 }
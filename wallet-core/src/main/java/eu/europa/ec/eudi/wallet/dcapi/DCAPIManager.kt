@@ -18,9 +18,6 @@
 package eu.europa.ec.eudi.wallet.dcapi
 
 import android.content.Intent
-import androidx.credentials.ExperimentalDigitalCredentialApi
-import androidx.credentials.GetDigitalCredentialOption
-import androidx.credentials.provider.ProviderGetCredentialRequest
 import com.google.android.gms.identitycredentials.IntentHelper
 import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
@@ -28,12 +25,11 @@ import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStoreAware
 import eu.europa.ec.eudi.iso18013.transfer.response.Request
 import eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor
 import eu.europa.ec.eudi.iso18013.transfer.response.Response
+import eu.europa.ec.eudi.wallet.internal.TransferEventDispatcher
 import eu.europa.ec.eudi.wallet.internal.d
 import eu.europa.ec.eudi.wallet.internal.e
 import eu.europa.ec.eudi.wallet.logging.Logger
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.asExecutor
-import org.json.JSONObject
+import kotlinx.coroutines.flow.SharedFlow
 import java.util.concurrent.Executor
 
 /**
@@ -43,12 +39,14 @@ import java.util.concurrent.Executor
  * @property requestProcessor The processor that handles the requests.
  * @property logger Optional logger for logging events.
  * @property listenersExecutor Optional executor for running listener callbacks.
+ * @param eventsBufferCapacity the number of events buffered for slow collectors of [events]
  */
 
 class DCAPIManager(
     private val requestProcessor: RequestProcessor,
     var logger: Logger? = null,
     var listenersExecutor: Executor? = null,
+    eventsBufferCapacity: Int = TransferEventDispatcher.DEFAULT_BUFFER_CAPACITY,
 ) : TransferEvent.Listenable, ReaderTrustStoreAware {
 
     override var readerTrustStore: ReaderTrustStore?
@@ -57,29 +55,38 @@ class DCAPIManager(
             if (requestProcessor is ReaderTrustStoreAware) requestProcessor.readerTrustStore = value
         }
 
-    private val transferEventListeners: MutableList<TransferEvent.Listener> = mutableListOf()
+    private val transferEvents = TransferEventDispatcher(
+        executor = { listenersExecutor },
+        bufferCapacity = eventsBufferCapacity,
+    )
+
+    /**
+     * The transfer events of the manager, as a hot flow.
+     */
+    val events: SharedFlow<TransferEvent>
+        get() = transferEvents.events
 
     override fun addTransferEventListener(listener: TransferEvent.Listener) = apply {
-        transferEventListeners.add(listener)
+        transferEvents.add(listener)
     }
 
     override fun removeTransferEventListener(listener: TransferEvent.Listener) = apply {
-        transferEventListeners.remove(listener)
+        transferEvents.remove(listener)
     }
 
     override fun removeAllTransferEventListeners() = apply {
-        transferEventListeners.clear()
+        transferEvents.clear()
     }
 
     fun resolveRequest(request: Request) {
         require(request is DCAPIRequest) { "Request must be an DCAPIRequest" }
         logger?.d(TAG, "Resolving DCAPI request")
-        when (val protocol = request.providerGetCredentialRequest.getProtocol()) {
+        when (val protocol = request.parsed.protocol) {
             DC_API_PROTOCOL_ORG_ISO_MDOC -> {
                 try {
                     logger?.d(TAG, "Processing request for protocol: $protocol")
                     val processedRequest = requestProcessor.process(request)
-                    transferEventListeners.onTransferEvent(
+                    transferEvents.dispatch(
                         TransferEvent.RequestReceived(
                             processedRequest = processedRequest,
                             request = request
@@ -87,7 +94,7 @@ class DCAPIManager(
                     )
                 } catch (e: Exception) {
                     logger?.e(TAG, "Error processing request for protocol: $protocol", e)
-                    transferEventListeners.onTransferEvent(
+                    transferEvents.dispatch(
                         TransferEvent.Error(
                             DCAPIException("Error processing request for protocol: $protocol", e)
                         )
@@ -97,7 +104,7 @@ class DCAPIManager(
 
             else -> {
                 logger?.e(TAG, "Unsupported protocol: $protocol")
-                transferEventListeners.onTransferEvent(
+                transferEvents.dispatch(
                     TransferEvent.Error(
                         DCAPIException("Unsupported protocol: $protocol")
                     )
@@ -108,22 +115,7 @@ class DCAPIManager(
 
     fun sendResponse(response: Response) {
         require(response is DCAPIResponse) { "Response must be an DCAPIResponse" }
-        transferEventListeners.onTransferEvent(TransferEvent.IntentToSend(response.intent))
-    }
-
-    @OptIn(ExperimentalDigitalCredentialApi::class)
-    private fun ProviderGetCredentialRequest.getProtocol(): String {
-        val option = this.credentialOptions[0] as GetDigitalCredentialOption
-        val requestJson = JSONObject(option.requestJson)
-        val firstRequest = requestJson.getJSONArray(REQUESTS).getJSONObject(0)
-        return firstRequest.getString(PROTOCOL)
-    }
-
-    private fun List<TransferEvent.Listener>.onTransferEvent(
-        event: TransferEvent,
-    ) {
-        val executor = listenersExecutor ?: Dispatchers.Main.asExecutor()
-        transferEventListeners.forEach { executor.execute { it.onTransferEvent(event) } }
+        transferEvents.dispatch(TransferEvent.IntentToSend(response.intent))
     }
 
     companion object {
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2024-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.dcapi
+
+import androidx.credentials.provider.CallingAppInfo
+import java.security.MessageDigest
+
+/**
+ * Resolves the origin of the callers of DCAPI requests.
+ *
+ * Privileged callers, such as trusted browsers, may act on behalf of another verifier by setting
+ * an origin, which is returned only when the package name and the signing certificate of the
+ * caller match the allowlist. The origin set by a browser is the one of the website that made the
+ * request, so it is resolved for every request and never reused. Other callers are Android apps,
+ * with an origin derived from their signing certificate, and the allowlist is not parsed for them.
+ *
+ * See https://developer.android.com/identity/digital-credentials/credential-holder/credential-holder#check-verifier-origin
+ *
+ * @property privilegedAllowlist the allowlist of the privileged browsers and apps
+ */
+internal class DCAPIOriginResolver(
+    private val privilegedAllowlist: String,
+) {
+
+    /**
+     * Returns the origin of the caller.
+     *
+     * @param callingAppInfo the information of the caller
+     * @return the origin
+     */
+    fun resolve(callingAppInfo: CallingAppInfo): String {
+        if (callingAppInfo.isOriginPopulated()) {
+            callingAppInfo.getOrigin(privilegedAllowlist)?.let { return it }
+        }
+        val certificateHash = MessageDigest.getInstance(SHA_256_ALGORITHM)
+            .digest(callingAppInfo.signingInfoCompat.signingCertificateHistory[0].toByteArray())
+        return getAppOriginFromHash(certificateHash)
+    }
+
+    private companion object {
+        private const val SHA_256_ALGORITHM = "SHA-256"
+    }
+}
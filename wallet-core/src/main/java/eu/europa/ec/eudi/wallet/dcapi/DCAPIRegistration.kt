@@ -21,13 +21,15 @@ import android.content.Context
 import android.graphics.BitmapFactory
 import com.google.android.gms.identitycredentials.IdentityCredentialManager
 import com.google.android.gms.identitycredentials.RegistrationRequest
-import com.upokecenter.cbor.CBORObject
 import eu.europa.ec.eudi.wallet.document.DocumentManager
 import eu.europa.ec.eudi.wallet.document.IssuedDocument
 import eu.europa.ec.eudi.wallet.document.format.MsoMdocData
 import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.internal.CborReader
+import eu.europa.ec.eudi.wallet.internal.CborWriter
 import eu.europa.ec.eudi.wallet.internal.d
 import eu.europa.ec.eudi.wallet.internal.e
+import eu.europa.ec.eudi.wallet.internal.encodeCbor
 import eu.europa.ec.eudi.wallet.logging.Logger
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Dispatchers
@@ -99,57 +101,63 @@ class DCAPIIsoMdocRegistration(
     }
 
     private suspend fun List<IssuedDocument>.toCBORBytes(context: Context): ByteArray {
-        val docsBuilder = CBORObject.NewArray()
-        forEach { document ->
-            val docType = (document.data.format as MsoMdocFormat).docType
-            logger?.d(
-                TAG,
-                "Issued Document with id: ${document.id}, type: $docType is being added as a credential"
-            )
+        val documents = this
+        val credentialBytes = encodeCbor {
+            writeArrayHeader(documents.size)
+            documents.forEach { document ->
+                val docType = (document.data.format as MsoMdocFormat).docType
+                logger?.d(
+                    TAG,
+                    "Issued Document with id: ${document.id}, type: $docType is being added as a credential"
+                )
 
-            // Try to get document logo provided by issuer else use an empty byte array
-            val bitmapBytes = document.issuerMetadata?.display?.find {
-                it.locale?.language == context.getLocale().language
-            }?.logo?.uri?.let { uri ->
-                getLogo(uri.toURL())?.let { logoBytes ->
-                    BitmapFactory.decodeByteArray(logoBytes, 0, logoBytes.size).getIconBytes()
-                }
-            } ?: byteArrayOf(0)
+                // Try to get document logo provided by issuer else use an empty byte array
+                val bitmapBytes = document.issuerMetadata?.display?.find {
+                    it.locale?.language == context.getLocale().language
+                }?.logo?.uri?.let { uri ->
+                    getLogo(uri.toURL())?.let { logoBytes ->
+                        BitmapFactory.decodeByteArray(logoBytes, 0, logoBytes.size).getIconBytes()
+                    }
+                } ?: byteArrayOf(0)
 
-            docsBuilder.Add(CBORObject.NewMap().apply {
-                Add(TITLE, document.name)
-                Add(SUBTITLE, context.getAppName())
-                 Add(BITMAP, bitmapBytes)
-                Add(MDOC, CBORObject.NewMap().apply {
-                    Add(ID, document.id)
-                    Add(DOC_TYPE, docType)
-                    Add(NAMESPACES, CBORObject.NewMap().apply {
-                        (document.data as MsoMdocData).claims.groupBy { it.nameSpace }
-                            .forEach { (nameSpace, elements) ->
-                                val namespaceBuilder = CBORObject.NewMap()
-                                elements.forEach { element ->
-                                    val displayName = element.issuerMetadata?.display?.find {
-                                        it.locale?.language == context.getLocale().language
-                                    }?.name ?: element.identifier
-                                    val displayedValue =
-                                        if (Cbor.toDiagnostics(element.rawValue).startsWith("h'")) {
-                                            "${element.rawValue.size} bytes"
-                                        } else {
-                                            Cbor.toDiagnostics(element.rawValue)
-                                        }
-                                    val elementBuilder = CBORObject.NewArray().apply {
-                                        Add(displayName)
-                                        Add(displayedValue)
-                                    }
-                                    namespaceBuilder.Add(element.identifier, elementBuilder)
-                                }
-                                Add(nameSpace, namespaceBuilder)
+                writeMapHeader(4)
+                writeString(TITLE)
+                writeString(document.name)
+                writeString(SUBTITLE)
+                writeString(context.getAppName())
+                writeString(BITMAP)
+                writeBytes(bitmapBytes)
+                writeString(MDOC)
+                writeMapHeader(3)
+                writeString(ID)
+                writeString(document.id)
+                writeString(DOC_TYPE)
+                writeString(docType)
+                writeString(NAMESPACES)
+                val nameSpaces = (document.data as MsoMdocData).claims.groupBy { it.nameSpace }
+                writeMapHeader(nameSpaces.size)
+                nameSpaces.forEach { (nameSpace, elements) ->
+                    writeString(nameSpace)
+                    writeMapHeader(elements.size)
+                    elements.forEach { element ->
+                        val displayName = element.issuerMetadata?.display?.find {
+                            it.locale?.language == context.getLocale().language
+                        }?.name ?: element.identifier
+                        // Byte strings, e.g. portraits, are not converted to diagnostic notation
+                        val displayedValue =
+                            if (CborReader(element.rawValue).peekMajorType() == CborWriter.MAJOR_TYPE_BYTE_STRING) {
+                                "${element.rawValue.size} bytes"
+                            } else {
+                                Cbor.toDiagnostics(element.rawValue)
                             }
-                    })
-                })
-            })
+                        writeString(element.identifier)
+                        writeArrayHeader(2)
+                        writeString(displayName)
+                        writeString(displayedValue)
+                    }
+                }
+            }
         }
-        val credentialBytes = docsBuilder.EncodeToBytes()
         logger?.d(TAG, "Register documents with bytes: ${Hex.toHexString(credentialBytes)}")
         return credentialBytes
     }
@@ -16,8 +16,11 @@
 
 package eu.europa.ec.eudi.wallet.dcapi
 
+import androidx.credentials.ExperimentalDigitalCredentialApi
+import androidx.credentials.GetDigitalCredentialOption
 import androidx.credentials.provider.ProviderGetCredentialRequest
 import eu.europa.ec.eudi.iso18013.transfer.response.Request
+import org.json.JSONObject
 
 /**
  * Represents a request for the Digital Credential API (DCAPI).
@@ -27,4 +30,43 @@ import eu.europa.ec.eudi.iso18013.transfer.response.Request
 
 data class DCAPIRequest(
     val providerGetCredentialRequest: ProviderGetCredentialRequest
-): Request
\ No newline at end of file
+): Request {
+
+    /**
+     * The request JSON, parsed on first access and shared by the manager, the request processor
+     * and the processed request.
+     */
+    @get:JvmSynthetic
+    internal val parsed: ParsedDCAPIRequest by lazy {
+        ParsedDCAPIRequest.parse(providerGetCredentialRequest)
+    }
+}
+
+/**
+ * The fields of the first request of a DCAPI request JSON.
+ *
+ * @property protocol the protocol of the request
+ * @property deviceRequestBase64 the base64url encoded device request, for the protocol `org-iso-mdoc`
+ * @property encryptionInfoBase64 the base64url encoded encryption info, for the protocol `org-iso-mdoc`
+ */
+internal data class ParsedDCAPIRequest(
+    val protocol: String,
+    val deviceRequestBase64: String?,
+    val encryptionInfoBase64: String?,
+) {
+    companion object {
+        @OptIn(ExperimentalDigitalCredentialApi::class)
+        fun parse(request: ProviderGetCredentialRequest): ParsedDCAPIRequest {
+            val option = request.credentialOptions[0] as GetDigitalCredentialOption
+            val firstRequest = JSONObject(option.requestJson).getJSONArray(REQUESTS).getJSONObject(0)
+            val protocol = firstRequest.getString(PROTOCOL)
+            val data = firstRequest.optJSONObject(DATA)
+                ?.takeIf { protocol == DC_API_PROTOCOL_ORG_ISO_MDOC }
+            return ParsedDCAPIRequest(
+                protocol = protocol,
+                deviceRequestBase64 = data?.optString(DEVICE_REQUEST)?.takeIf { it.isNotEmpty() },
+                encryptionInfoBase64 = data?.optString(ENCRYPTION_INFO)?.takeIf { it.isNotEmpty() },
+            )
+        }
+    }
+}
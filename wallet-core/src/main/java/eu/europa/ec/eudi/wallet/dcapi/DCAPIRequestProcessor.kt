@@ -16,9 +16,6 @@
 
 package eu.europa.ec.eudi.wallet.dcapi
 
-import androidx.credentials.ExperimentalDigitalCredentialApi
-import androidx.credentials.GetDigitalCredentialOption
-import androidx.credentials.provider.ProviderGetCredentialRequest
 import androidx.credentials.registry.provider.selectedEntryId
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStoreAware
@@ -32,7 +29,6 @@ import eu.europa.ec.eudi.wallet.document.DocumentManager
 import eu.europa.ec.eudi.wallet.internal.d
 import eu.europa.ec.eudi.wallet.internal.e
 import eu.europa.ec.eudi.wallet.logging.Logger
-import org.json.JSONObject
 import org.multipaz.mdoc.zkp.ZkSystemRepository
 
 /**
@@ -64,7 +60,7 @@ internal class DCAPIRequestProcessor(
         logger?.d(TAG, "Processing DCAPI request")
 
         val credRequest = request.providerGetCredentialRequest
-        val (deviceRequest, origin) = credRequest.toDeviceRequest()
+        val (deviceRequest, origin) = request.toDeviceRequest()
         val processedDeviceRequest = DeviceRequestProcessor(
             documentManager = documentManager,
             readerTrustStore = readerTrustStore,
@@ -97,37 +93,27 @@ internal class DCAPIRequestProcessor(
             origin = origin,
             requestedDocuments = RequestedDocuments(filteredRequestedDocuments),
             logger = logger
-        )
+        ).also { it.parsedRequest = request.parsed }
     }
 
-    @OptIn(ExperimentalDigitalCredentialApi::class)
-    private fun ProviderGetCredentialRequest.toDeviceRequest(): Pair<DeviceRequest, String> {
+    private val originResolver = DCAPIOriginResolver(privilegedAllowlist)
+
+    private fun DCAPIRequest.toDeviceRequest(): Pair<DeviceRequest, String> {
         // Resolve the origin according to:
         // https://developer.android.com/identity/digital-credentials/credential-holder/credential-holder#check-verifier-origin
         //
-        // Privileged callers, such as trusted browsers, may act on behalf of another verifier
-        // by setting an origin. CallingAppInfo.getOrigin() returns this origin only when the
-        // caller's package name and signing certificate match the provided allowlist.
-        //
-        // If a trusted origin is returned, use it in the response.
-        //
-        // If origin is empty, the request is from an Android native app.
-        // and derive the origin from the caller's signing certificate in the form:
+        // If a trusted origin is returned for a privileged caller, use it in the response.
+        // Otherwise the request is from an Android native app, with an origin derived from the
+        // caller's signing certificate in the form:
         // 'android:apk-key-hash:<encoded SHA 256 fingerprint>'
-        val callingOrigin = this.callingAppInfo.getOrigin(privilegedAllowlist)
-            ?: getAppOrigin(callingAppInfo.signingInfoCompat.signingCertificateHistory[0].toByteArray())
+        val callingOrigin = originResolver.resolve(providerGetCredentialRequest.callingAppInfo)
         logger?.d(TAG, "Origin: $callingOrigin")
 
-        val option = this.credentialOptions[0] as GetDigitalCredentialOption
-        val requestJson = JSONObject(option.requestJson)
-        val firstRequest = requestJson.getJSONArray(REQUESTS).getJSONObject(0)
-        val protocol = firstRequest[PROTOCOL] as String
-
+        val protocol = parsed.protocol
         require(protocol == DC_API_PROTOCOL_ORG_ISO_MDOC) { "Unsupported protocol: $protocol" }
 
-        val data = firstRequest[DATA] as JSONObject
-        val deviceRequestBase64 = data[DEVICE_REQUEST] as String
-        val encryptionInfoBase64 = data.getString(ENCRYPTION_INFO)
+        val deviceRequestBase64 = requireNotNull(parsed.deviceRequestBase64) { "Missing $DEVICE_REQUEST" }
+        val encryptionInfoBase64 = requireNotNull(parsed.encryptionInfoBase64) { "Missing $ENCRYPTION_INFO" }
         val deviceRequestBytes = deviceRequestBase64.fromBase64()
         val sessionTranscriptBytes =
             getDCAPIIsoMdocSessionTranscript(encryptionInfoBase64, callingOrigin)
@@ -143,4 +129,4 @@ internal class DCAPIRequestProcessor(
             sessionTranscriptBytes = sessionTranscriptBytes
         ) to callingOrigin
     }
-}
\ No newline at end of file
+}
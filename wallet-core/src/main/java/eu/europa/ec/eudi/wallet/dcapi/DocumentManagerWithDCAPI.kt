@@ -16,13 +16,16 @@
 
 package eu.europa.ec.eudi.wallet.dcapi
 
+import eu.europa.ec.eudi.wallet.document.BulkDocumentDeletion
 import eu.europa.ec.eudi.wallet.document.DocumentId
 import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.DocumentsDeletionResult
 import eu.europa.ec.eudi.wallet.document.IssuedDocument
 import eu.europa.ec.eudi.wallet.document.Outcome
 import eu.europa.ec.eudi.wallet.document.ProofOfDeletion
 import eu.europa.ec.eudi.wallet.document.UnsignedDocument
 import eu.europa.ec.eudi.wallet.document.credential.IssuerProvidedCredential
+import eu.europa.ec.eudi.wallet.document.deleteDocumentsInBulk
 import eu.europa.ec.eudi.wallet.logging.Logger
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -43,7 +46,7 @@ internal class DocumentManagerWithDCAPI(
     private val delegate: DocumentManager,
     private val logger: Logger? = null,
     private val dcapiRegistration: DCAPIRegistration ? = null
-    ) : DocumentManager by delegate {
+    ) : DocumentManager by delegate, BulkDocumentDeletion {
 
     private val registration: DCAPIRegistration by lazy {
         dcapiRegistration ?: DCAPIIsoMdocRegistration(
@@ -68,6 +71,12 @@ internal class DocumentManagerWithDCAPI(
         }
     }
 
+    override suspend fun deleteDocuments(documentIds: List<DocumentId>): DocumentsDeletionResult {
+        return delegate.deleteDocumentsInBulk(documentIds).also {
+            if (it.deleted.isNotEmpty()) updateDCAPICredentials()
+        }
+    }
+
     private fun updateDCAPICredentials() {
         CoroutineScope(Dispatchers.IO).launch {
             registration.registerCredentials()
@@ -20,21 +20,24 @@ import android.content.Intent
 import androidx.credentials.DigitalCredential
 import androidx.credentials.ExperimentalDigitalCredentialApi
 import androidx.credentials.GetCredentialResponse
-import androidx.credentials.GetDigitalCredentialOption
 import androidx.credentials.provider.PendingIntentHandler
 import androidx.credentials.provider.ProviderGetCredentialRequest
-import com.upokecenter.cbor.CBORObject
-import com.upokecenter.cbor.CBORType
 import eu.europa.ec.eudi.iso18013.transfer.response.DisclosedDocuments
 import eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor
 import eu.europa.ec.eudi.iso18013.transfer.response.RequestedDocuments
 import eu.europa.ec.eudi.iso18013.transfer.response.ResponseResult
 import eu.europa.ec.eudi.iso18013.transfer.response.device.DeviceResponse
 import eu.europa.ec.eudi.iso18013.transfer.response.device.ProcessedDeviceRequest
+import eu.europa.ec.eudi.wallet.internal.CborReader
+import eu.europa.ec.eudi.wallet.internal.CborWriter
 import eu.europa.ec.eudi.wallet.internal.d
 import eu.europa.ec.eudi.wallet.internal.e
+import eu.europa.ec.eudi.wallet.internal.encodeCbor
 import eu.europa.ec.eudi.wallet.logging.Logger
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
 import org.bouncycastle.util.encoders.Hex
 import org.json.JSONObject
 import org.multipaz.cbor.Cbor
@@ -61,33 +64,64 @@ class ProcessedDCPAPIRequest(
     requestedDocuments: RequestedDocuments
 ): RequestProcessor.ProcessedRequest.Success(requestedDocuments) {
 
-    @OptIn(ExperimentalDigitalCredentialApi::class)
+    /**
+     * The parsed request, when processed by the [DCAPIRequestProcessor]; otherwise the request
+     * JSON of the [providerGetCredentialRequest] is parsed when the response is generated.
+     */
+    @get:JvmSynthetic
+    @set:JvmSynthetic
+    internal var parsedRequest: ParsedDCAPIRequest? = null
+
+    /**
+     * Generates the response, blocking the calling thread until it is signed and encrypted.
+     *
+     * This overrides the synchronous method of [RequestProcessor.ProcessedRequest.Success], while
+     * the HPKE encryption is suspending, so it must not be called from a coroutine; use
+     * [eu.europa.ec.eudi.wallet.presentation.PresentationManager.generateResponse] or
+     * [generateEncryptedResponse] instead.
+     */
     override fun generateResponse(
         disclosedDocuments: DisclosedDocuments,
         signatureAlgorithm: Algorithm?
-    ): ResponseResult {
-        try {
-            val option =
-                providerGetCredentialRequest.credentialOptions[0] as GetDigitalCredentialOption
-            val json = JSONObject(option.requestJson)
-            val firstRequest = json.getJSONArray(REQUESTS).getJSONObject(0)
+    ): ResponseResult = runBlocking {
+        generateEncryptedResponse(disclosedDocuments, signatureAlgorithm)
+    }
 
-            val protocol = firstRequest[PROTOCOL] as String
+    /**
+     * Generates the response and encrypts it for the verifier on the IO dispatcher, suspending
+     * instead of blocking the calling thread.
+     *
+     * @param disclosedDocuments the documents to disclose
+     * @param signatureAlgorithm the algorithm of the device signature
+     * @return the result with the [DCAPIResponse], or the failure
+     */
+    suspend fun generateEncryptedResponse(
+        disclosedDocuments: DisclosedDocuments,
+        signatureAlgorithm: Algorithm? = null
+    ): ResponseResult = withContext(Dispatchers.IO) {
+        try {
+            val request = parsedRequest ?: ParsedDCAPIRequest.parse(providerGetCredentialRequest)
+            val protocol = request.protocol
             require(protocol == DC_API_PROTOCOL_ORG_ISO_MDOC) { "Unsupported protocol: $protocol" }
 
-            val data = firstRequest[DATA] as JSONObject
-            val request = JSONObject(data.toString())
-            val encryptionInfoBase64 = request.getString(ENCRYPTION_INFO)
+            val encryptionInfoBase64 = request.encryptionInfoBase64
+                ?: throw DCAPIException("Request is missing $ENCRYPTION_INFO")
 
-            val encryptionInfo = CBORObject.DecodeFromBytes(encryptionInfoBase64.fromBase64Url())
-            if (encryptionInfo.type != CBORType.Array) {
-                logger?.e(TAG, "EncryptionInfo should be an array: $encryptionInfo")
-                throw DCAPIException("EncryptionInfo should be an array but was: ${encryptionInfo.type}")
+            // EncryptionInfo = ["dcapi", EncryptionParameters]
+            val encryptionInfo = CborReader(encryptionInfoBase64.fromBase64Url())
+            if (encryptionInfo.peekMajorType() != CborWriter.MAJOR_TYPE_ARRAY) {
+                logger?.e(TAG, "EncryptionInfo should be an array")
+                throw DCAPIException(
+                    "EncryptionInfo should be an array but was major type: ${encryptionInfo.peekMajorType()}"
+                )
+            }
+            encryptionInfo.readArrayHeader()
+            encryptionInfo.skip()
+            if (!encryptionInfo.findInMap(RECIPIENT_PUBLIC_KEY)) {
+                throw DCAPIException("EncryptionInfo is missing $RECIPIENT_PUBLIC_KEY")
             }
             val recipientPublicKey =
-                Cbor.decode(
-                    encryptionInfo[1][RECIPIENT_PUBLIC_KEY].EncodeToBytes()
-                ).asCoseKey.ecPublicKey
+                Cbor.decode(encryptionInfo.readRaw()).asCoseKey.ecPublicKey
 
             val deviceResponse = processedDeviceRequest.generateResponse(
                 disclosedDocuments,
@@ -100,33 +134,32 @@ class ProcessedDCPAPIRequest(
             )
 
             // Encrypt the device response using HPKE
-            val (cipherText, encapsulatedPublicKey) = runBlocking {
-                val encrypter = Hpke.getEncrypter(
-                    cipherSuite = Hpke.CipherSuite.DHKEM_P256_HKDF_SHA256_HKDF_SHA256_AES_128_GCM,
-                    receiverPublicKey = recipientPublicKey,
-                    info = deviceResponse.sessionTranscriptBytes
-                )
-                val cipherText = encrypter.encrypt(
-                    plaintext = deviceResponse.deviceResponseBytes,
-                    aad = ByteArray(0)
-                )
-                val encapsulatedPublicKey = encrypter.encapsulatedKey.toByteArray()
-                Pair(cipherText, encapsulatedPublicKey)
+            val encrypter = Hpke.getEncrypter(
+                cipherSuite = Hpke.CipherSuite.DHKEM_P256_HKDF_SHA256_HKDF_SHA256_AES_128_GCM,
+                receiverPublicKey = recipientPublicKey,
+                info = deviceResponse.sessionTranscriptBytes
+            )
+            val cipherText = encrypter.encrypt(
+                plaintext = deviceResponse.deviceResponseBytes,
+                aad = ByteArray(0)
+            )
+            val encapsulatedPublicKey = encrypter.encapsulatedKey.toByteArray()
+
+            val encryptedResponse = encodeCbor {
+                writeArrayHeader(2)
+                writeString(DCAPI)
+                writeMapHeader(2)
+                writeString(ENC)
+                writeBytes(encapsulatedPublicKey)
+                writeString(CIPHER_TEXT)
+                writeBytes(cipherText)
             }
 
-            val encryptedResponse = CBORObject.NewArray().apply {
-                Add(DCAPI)
-                Add(CBORObject.NewMap().apply {
-                    Add(ENC, encapsulatedPublicKey)
-                    Add(CIPHER_TEXT, cipherText)
-                })
-            }.EncodeToBytes()
-
             val response = JSONObject()
             response.put(RESPONSE, encryptedResponse.toBase64())
             logger?.d(TAG, "Response JSON: $response")
 
-            return ResponseResult.Success(
+            ResponseResult.Success(
                 DCAPIResponse(
                     deviceResponseBytes = deviceResponse.deviceResponseBytes,
                     intent = createResponseIntent(
@@ -136,9 +169,11 @@ class ProcessedDCPAPIRequest(
                     documentIds = deviceResponse.documentIds
                 )
             )
+        } catch (e: CancellationException) {
+            throw e
         } catch (e: Exception) {
             logger?.e(TAG, "Error generating response: ${e.message}", e)
-            return ResponseResult.Failure(
+            ResponseResult.Failure(
                 DCAPIException(
                     message = "Error generating response: ${e.message}",
                     cause = e
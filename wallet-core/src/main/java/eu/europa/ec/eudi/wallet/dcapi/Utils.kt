@@ -19,12 +19,12 @@ package eu.europa.ec.eudi.wallet.dcapi
 
 import android.content.Context
 import android.graphics.Bitmap
-import com.upokecenter.cbor.CBORObject
 import java.io.ByteArrayOutputStream
 import java.security.MessageDigest
 import java.util.Locale
 import kotlin.io.encoding.ExperimentalEncodingApi
 import androidx.core.graphics.scale
+import eu.europa.ec.eudi.wallet.internal.encodeCbor
 import org.multipaz.util.toBase64
 
 private const val SHA_256_ALGORITHM = "SHA-256"
@@ -87,22 +87,21 @@ internal fun ByteArray.toBase64():  String = kotlin.io.encoding.Base64.UrlSafe.e
  */
 
 internal fun getDCAPIIsoMdocSessionTranscript(encryptionInfoBase64: String, origin: String) : ByteArray {
-    val dcapiInfo =
-        CBORObject.NewArray().apply {
-            Add(encryptionInfoBase64)
-            Add(origin)
-        }.EncodeToBytes()
-    val dcapiInfoHash = MessageDigest.getInstance(SHA_256_ALGORITHM).digest(dcapiInfo)
-    val dcapiIsoMdocHandover = CBORObject.NewArray().apply {
-        Add(DCAPI)
-        Add(dcapiInfoHash)
+    val dcapiInfo = encodeCbor {
+        writeArrayHeader(2)
+        writeString(encryptionInfoBase64)
+        writeString(origin)
     }
-    val sessionTranscript = CBORObject.NewArray().apply {
-        Add(CBORObject.Null)
-        Add(CBORObject.Null)
-        Add(dcapiIsoMdocHandover)
+    val dcapiInfoHash = MessageDigest.getInstance(SHA_256_ALGORITHM).digest(dcapiInfo)
+    return encodeCbor {
+        writeArrayHeader(3)
+        writeNull()
+        writeNull()
+        // DCAPIHandover
+        writeArrayHeader(2)
+        writeString(DCAPI)
+        writeBytes(dcapiInfoHash)
     }
-    return sessionTranscript.EncodeToBytes()
 }
 
 /**
@@ -110,11 +109,9 @@ internal fun getDCAPIIsoMdocSessionTranscript(encryptionInfoBase64: String, orig
  * in the form "android:apk-key-hash:<encoded SHA 256 fingerprint>"
  * https://developer.android.com/identity/digital-credentials/credential-holder/credential-holder#check-verifier-origin
  *
- * @param appSigningInfo the signing information for the native Android app
+ * @param appSigningInfoHash the SHA-256 hash of the signing certificate of the app
  * @return the origin as a string
  */
-internal fun getAppOrigin(appSigningInfo: ByteArray): String {
-    val digest = MessageDigest.getInstance(SHA_256_ALGORITHM)
-    val appSigningInfoHash = digest.digest(appSigningInfo).toBase64()
-    return "android:apk-key-hash:$appSigningInfoHash"
-}
+internal fun getAppOriginFromHash(appSigningInfoHash: ByteArray): String =
+    "android:apk-key-hash:${appSigningInfoHash.toBase64()}"
+
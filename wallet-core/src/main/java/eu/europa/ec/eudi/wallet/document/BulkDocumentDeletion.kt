@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.document
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+
+/**
+ * The result of deleting several documents at once.
+ *
+ * @property deleted the deleted documents with their proof of deletion, if any
+ * @property failed the documents that could not be deleted with the cause of the failure
+ */
+data class DocumentsDeletionResult(
+    val deleted: Map<DocumentId, ProofOfDeletion?>,
+    val failed: Map<DocumentId, Throwable>,
+) {
+    /**
+     * Whether all the documents were deleted.
+     */
+    val isSuccess: Boolean
+        get() = failed.isEmpty()
+}
+
+/**
+ * A [DocumentManager] that deletes several documents at once and runs the side effects of the
+ * deletion, like cache invalidation, once for all of them.
+ */
+internal interface BulkDocumentDeletion {
+
+    /**
+     * Deletes the documents with the given ids.
+     *
+     * @param documentIds the ids of the documents
+     * @return the aggregated result
+     */
+    suspend fun deleteDocuments(documentIds: List<DocumentId>): DocumentsDeletionResult
+}
+
+/**
+ * Deletes the documents with the given ids on the IO dispatcher, at once if the manager supports
+ * it, or one by one.
+ *
+ * @param documentIds the ids of the documents
+ * @return the aggregated result
+ */
+@JvmSynthetic
+internal suspend fun DocumentManager.deleteDocumentsInBulk(documentIds: List<DocumentId>): DocumentsDeletionResult =
+    withContext(Dispatchers.IO) {
+        when (this@deleteDocumentsInBulk) {
+            is BulkDocumentDeletion -> deleteDocuments(documentIds.distinct())
+            else -> deleteDocumentsOneByOne(documentIds)
+        }
+    }
+
+/**
+ * Deletes the documents with the given ids one by one with [DocumentManager.deleteDocumentById].
+ *
+ * @param documentIds the ids of the documents
+ * @return the aggregated result
+ */
+@JvmSynthetic
+internal fun DocumentManager.deleteDocumentsOneByOne(documentIds: List<DocumentId>): DocumentsDeletionResult =
+    documentIds.distinct()
+        .map { documentId -> documentId to runCatching { deleteDocumentById(documentId).kotlinResult.getOrThrow() } }
+        .let { results ->
+            DocumentsDeletionResult(
+                deleted = results.filter { it.second.isSuccess }
+                    .associate { (documentId, result) -> documentId to result.getOrNull() },
+                failed = results.mapNotNull { (documentId, result) ->
+                    result.exceptionOrNull()?.let { documentId to it }
+                }.toMap(),
+            )
+        }
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.document.search
+
+import eu.europa.ec.eudi.wallet.document.DocumentId
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocClaim
+import eu.europa.ec.eudi.wallet.document.format.SdJwtVcClaim
+import eu.europa.ec.eudi.wallet.internal.d
+import eu.europa.ec.eudi.wallet.logging.Logger
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.io.bytestring.ByteString
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.Json
+import org.multipaz.storage.Storage
+import org.multipaz.storage.StorageTable
+import org.multipaz.storage.StorageTableSpec
+import java.math.BigDecimal
+import java.text.Normalizer
+import java.time.Instant
+import java.time.LocalDate
+import java.util.Locale
+import java.util.TreeMap
+import java.util.concurrent.ConcurrentLinkedQueue
+
+/**
+ * A persistent index of the claim values and the validity of the issued documents, for searching
+ * the documents without reading all of their claims.
+ *
+ * Claims are identified by their path: the namespace and element identifier for mso_mdoc
+ * documents, e.g. `["eu.europa.ec.eudi.pid.1", "nationality"]`, and the claim names for SD-JWT VC
+ * documents, e.g. `["address", "country"]`. Nested values are indexed under the path of their
+ * parent extended with their keys, and each element of an array under the path of the array.
+ *
+ * Values are indexed as normalised text: Unicode NFKC, trimmed and lower case. Dates are indexed in
+ * ISO-8601 form, so range queries over dates compare them chronologically. Numbers are also
+ * indexed by their numeric value, so queries with numbers compare them numerically, e.g. `9` is
+ * less than `10`; other values are compared as text. Byte strings, like portraits, are not
+ * indexed.
+ *
+ * The index is kept up to date by the [DocumentManager] it is created for and is persisted in
+ * [storage], so it is not rebuilt from the documents when the app restarts.
+ *
+ * **Note**: the index stores the normalised claim values in plaintext, so [storage] holds the same
+ * personal data as the documents, e.g. names, birth dates and addresses. It must be protected at
+ * least as well as the storage of the documents, and must not be a storage that is backed up or
+ * shared with other apps. The entries of a document are removed when the document is deleted.
+ *
+ * @param documentManager the manager of the indexed documents
+ * @param storage the storage of the index
+ * @param logger the logger
+ */
+class DocumentClaimIndex internal constructor(
+    private val documentManager: DocumentManager,
+    private val storage: Storage,
+    private val logger: Logger? = null,
+) {
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val mutex = Mutex()
+    private val pendingUpdates = ConcurrentLinkedQueue<Update>()
+    private var index: InvertedIndex? = null
+
+    /**
+     * Returns the documents with a claim equal to the given value.
+     *
+     * @param path the path of the claim, or null to search all the claims
+     * @param value the value, compared numerically if it is a number, otherwise after
+     * normalisation
+     * @return the ids of the matching documents
+     */
+    suspend fun findByValue(path: List<String>?, value: Any): Set<DocumentId> = query { index ->
+        numberOf(value)?.let { return@query index.findNumber(path, it) }
+        index.find(path, normalize(value) ?: return@query emptySet())
+    }
+
+    /**
+     * Returns the documents with a claim starting with the given prefix.
+     *
+     * @param path the path of the claim, or null to search all the claims
+     * @param prefix the prefix, compared after normalisation
+     * @return the ids of the matching documents
+     */
+    suspend fun findByPrefix(path: List<String>?, prefix: String): Set<DocumentId> = query { index ->
+        val normalized = normalize(prefix) ?: return@query emptySet()
+        index.findRange(path, normalized, normalized + Char.MAX_VALUE)
+    }
+
+    /**
+     * Returns the documents with a claim within the given inclusive range. When the bounds are
+     * numbers, only numeric claims are compared, by their numeric value; otherwise the claims are
+     * compared as normalised text.
+     *
+     * @param path the path of the claim, or null to search all the claims
+     * @param from the lower bound, or null for no lower bound
+     * @param to the upper bound, or null for no upper bound
+     * @return the ids of the matching documents
+     */
+    suspend fun findByRange(path: List<String>?, from: Any?, to: Any?): Set<DocumentId> = query { index ->
+        val fromNumber = from?.let { numberOf(it) }
+        val toNumber = to?.let { numberOf(it) }
+        if ((from != null || to != null) && (from == null || fromNumber != null) && (to == null || toNumber != null)) {
+            index.findNumberRange(path, fromNumber, toNumber)
+        } else {
+            index.findRange(path, from?.let { normalize(it) }, to?.let { normalize(it) })
+        }
+    }
+
+    /**
+     * Returns the documents that expire within the given inclusive range, e.g. this month.
+     *
+     * @param from the lower bound, or null for no lower bound
+     * @param to the upper bound, or null for no upper bound
+     * @return the ids of the matching documents
+     */
+    suspend fun findExpiringBetween(from: Instant?, to: Instant?): Set<DocumentId> = query { index ->
+        index.findValidUntil(from?.toEpochMilli(), to?.toEpochMilli())
+    }
+
+    /**
+     * Returns the documents that are valid at the given instant.
+     *
+     * @param instant the instant
+     * @return the ids of the matching documents
+     */
+    suspend fun findValidAt(instant: Instant): Set<DocumentId> = query { index ->
+        index.findValidAt(instant.toEpochMilli())
+    }
+
+    /**
+     * Rebuilds the index from all the issued documents.
+     */
+    suspend fun rebuild() = mutex.withLock {
+        pendingUpdates.clear()
+        val table = storage.getTable(STORAGE_TABLE_SPEC)
+        table.deleteAll()
+        index = InvertedIndex().also { index ->
+            documentManager.getDocuments().filterIsInstance<IssuedDocument>().forEach { document ->
+                store(table, index, document)
+            }
+        }
+    }
+
+    /**
+     * Indexes the given document, replacing its previous entries. The index is updated in the
+     * background, but queries always see the update.
+     */
+    @JvmSynthetic
+    internal fun onDocumentStored(document: IssuedDocument) = update(Update.Store(document))
+
+    /**
+     * Removes the given documents from the index. The index is updated in the background, but
+     * queries always see the update.
+     */
+    @JvmSynthetic
+    internal fun onDocumentsDeleted(documentIds: Collection<DocumentId>) {
+        if (documentIds.isNotEmpty()) update(Update.Delete(documentIds.toList()))
+    }
+
+    private fun update(update: Update) {
+        pendingUpdates += update
+        scope.launch {
+            runCatching { mutex.withLock { loadedIndex() } }
+                .onFailure { logger?.d(TAG, "Failed to update the claim index: ${it.message}") }
+        }
+    }
+
+    private suspend fun <T> query(block: (InvertedIndex) -> T): T = mutex.withLock {
+        block(loadedIndex())
+    }
+
+    /**
+     * Returns the index, loading it from the storage on first use, with all the pending updates
+     * applied. Must be called while holding the [mutex].
+     */
+    private suspend fun loadedIndex(): InvertedIndex {
+        val table = storage.getTable(STORAGE_TABLE_SPEC)
+        val index = index ?: load(table).also { index = it }
+        while (true) {
+            when (val update = pendingUpdates.poll() ?: break) {
+                is Update.Store -> store(table, index, update.document)
+                is Update.Delete -> update.documentIds.forEach { documentId ->
+                    table.delete(documentId)
+                    index.remove(documentId)
+                }
+            }
+        }
+        return index
+    }
+
+    /**
+     * Loads the index from the storage and indexes the issued documents that are missing from it,
+     * e.g. the documents stored before the index was enabled.
+     */
+    private suspend fun load(table: StorageTable): InvertedIndex {
+        val index = InvertedIndex()
+        table.enumerate().forEach { documentId ->
+            val indexed = table.get(documentId)
+                ?.let { runCatching { IndexedDocument.fromByteArray(it.toByteArray()) }.getOrNull() }
+            // unreadable entries and entries of an older version are indexed again from the document
+            if (indexed?.version == IndexedDocument.VERSION) index.add(documentId, indexed)
+            else table.delete(documentId)
+        }
+        val documents = documentManager.getDocuments()
+            .filterIsInstance<IssuedDocument>()
+            .associateBy { it.id }
+        (index.documentIds - documents.keys).forEach { documentId ->
+            table.delete(documentId)
+            index.remove(documentId)
+        }
+        (documents.keys - index.documentIds).forEach { documentId ->
+            store(table, index, documents.getValue(documentId))
+        }
+        logger?.d(TAG, "Loaded the claim index of ${index.documentIds.size} documents")
+        return index
+    }
+
+    private suspend fun store(table: StorageTable, index: InvertedIndex, document: IssuedDocument) {
+        val indexed = indexedDocumentOf(document)
+        table.delete(document.id)
+        table.insert(key = document.id, data = ByteString(indexed.toByteArray()))
+        index.remove(document.id)
+        index.add(document.id, indexed)
+    }
+
+    private suspend fun indexedDocumentOf(document: IssuedDocument): IndexedDocument {
+        val claims = document.data.claims.flatMap { claim ->
+            when (claim) {
+                is MsoMdocClaim -> flatten(listOf(claim.nameSpace, claim.identifier), claim.value)
+                is SdJwtVcClaim -> flatten(emptyList(), claim)
+                else -> emptyList()
+            }
+        }.distinct()
+        val credential = runCatching { document.findCredential() }.getOrNull()
+        return IndexedDocument(
+            claims = claims,
+            validFrom = credential?.validFrom?.toEpochMilliseconds(),
+            validUntil = credential?.validUntil?.toEpochMilliseconds(),
+            version = IndexedDocument.VERSION,
+        )
+    }
+
+    private fun flatten(parentPath: List<String>, claim: SdJwtVcClaim): List<IndexedClaim> {
+        val path = parentPath + claim.identifier
+        return if (claim.children.isNotEmpty()) {
+            claim.children.flatMap { flatten(path, it) }
+        } else {
+            flatten(path, claim.value)
+        }
+    }
+
+    private fun flatten(path: List<String>, value: Any?): List<IndexedClaim> = when (value) {
+        null -> emptyList()
+        is Map<*, *> -> value.flatMap { (key, nested) -> flatten(path + key.toString(), nested) }
+        is Iterable<*> -> value.flatMap { flatten(path, it) }
+        is Array<*> -> value.flatMap { flatten(path, it) }
+        else -> normalize(value)?.let { listOf(IndexedClaim(path, it, numeric = numberOf(value) != null)) }
+            ?: emptyList()
+    }
+
+    /**
+     * A change of the documents to apply to the index.
+     */
+    private sealed interface Update {
+        class Store(val document: IssuedDocument) : Update
+        class Delete(val documentIds: List<DocumentId>) : Update
+    }
+
+    /**
+     * The in-memory inverted index, from the normalised values, and the numeric values of the
+     * numbers, to the paths and the documents that have them.
+     */
+    private class InvertedIndex {
+        private val documents = HashMap<DocumentId, IndexedDocument>()
+        private val byValue = TreeMap<String, MutableMap<String, MutableSet<DocumentId>>>()
+        private val byNumber = TreeMap<BigDecimal, MutableMap<String, MutableSet<DocumentId>>>()
+        private val byValidUntil = TreeMap<Long, MutableSet<DocumentId>>()
+
+        val documentIds: Set<DocumentId>
+            get() = documents.keys.toSet()
+
+        fun add(documentId: DocumentId, document: IndexedDocument) {
+            documents[documentId] = document
+            document.claims.forEach { claim ->
+                byValue.add(claim.value, pathKey(claim.path), documentId)
+                if (claim.numeric) byNumber.add(BigDecimal(claim.value), pathKey(claim.path), documentId)
+            }
+            document.validUntil?.let { byValidUntil.getOrPut(it) { HashSet() }.add(documentId) }
+        }
+
+        fun remove(documentId: DocumentId) {
+            val document = documents.remove(documentId) ?: return
+            document.claims.forEach { claim ->
+                byValue.remove(claim.value, pathKey(claim.path), documentId)
+                if (claim.numeric) byNumber.remove(BigDecimal(claim.value), pathKey(claim.path), documentId)
+            }
+            document.validUntil?.let { validUntil ->
+                byValidUntil[validUntil]?.let { ids ->
+                    ids.remove(documentId)
+                    if (ids.isEmpty()) byValidUntil.remove(validUntil)
+                }
+            }
+        }
+
+        fun find(path: List<String>?, value: String): Set<DocumentId> =
+            byValue[value]?.let { matching(path, it) } ?: emptySet()
+
+        fun findRange(path: List<String>?, from: String?, to: String?): Set<DocumentId> {
+            val values = when {
+                from != null && to != null -> if (from > to) return emptySet() else byValue.subMap(from, true, to, true)
+                from != null -> byValue.tailMap(from, true)
+                to != null -> byValue.headMap(to, true)
+                else -> byValue
+            }
+            return values.values.flatMapTo(HashSet()) { matching(path, it) }
+        }
+
+        fun findNumber(path: List<String>?, value: BigDecimal): Set<DocumentId> =
+            byNumber[value]?.let { matching(path, it) } ?: emptySet()
+
+        fun findNumberRange(path: List<String>?, from: BigDecimal?, to: BigDecimal?): Set<DocumentId> {
+            val values = when {
+                from != null && to != null -> if (from > to) return emptySet() else byNumber.subMap(from, true, to, true)
+                from != null -> byNumber.tailMap(from, true)
+                to != null -> byNumber.headMap(to, true)
+                else -> byNumber
+            }
+            return values.values.flatMapTo(HashSet()) { matching(path, it) }
+        }
+
+        fun findValidUntil(from: Long?, to: Long?): Set<DocumentId> {
+            val values = when {
+                from != null && to != null -> if (from > to) return emptySet() else byValidUntil.subMap(from, true, to, true)
+                from != null -> byValidUntil.tailMap(from, true)
+                to != null -> byValidUntil.headMap(to, true)
+                else -> byValidUntil
+            }
+            return values.values.flatMapTo(HashSet()) { it }
+        }
+
+        fun findValidAt(instant: Long): Set<DocumentId> = documents.filterValues { document ->
+            (document.validFrom == null || document.validFrom <= instant) &&
+                    (document.validUntil == null || instant <= document.validUntil)
+        }.keys.toSet()
+
+        private fun matching(path: List<String>?, paths: Map<String, Set<DocumentId>>): Set<DocumentId> =
+            if (path == null) paths.values.flatMapTo(HashSet()) { it }
+            else paths[pathKey(path)] ?: emptySet()
+
+        private fun pathKey(path: List<String>) = path.joinToString(PATH_SEPARATOR)
+
+        private fun <K> TreeMap<K, MutableMap<String, MutableSet<DocumentId>>>.add(
+            value: K,
+            pathKey: String,
+            documentId: DocumentId,
+        ) {
+            getOrPut(value) { HashMap() }.getOrPut(pathKey) { HashSet() }.add(documentId)
+        }
+
+        private fun <K> TreeMap<K, MutableMap<String, MutableSet<DocumentId>>>.remove(
+            value: K,
+            pathKey: String,
+            documentId: DocumentId,
+        ) {
+            val paths = this[value] ?: return
+            paths[pathKey]?.let { ids ->
+                ids.remove(documentId)
+                if (ids.isEmpty()) paths.remove(pathKey)
+            }
+            if (paths.isEmpty()) this.remove(value)
+        }
+    }
+
+    /**
+     * The indexed claims and validity of a document, as persisted in the storage.
+     */
+    @Serializable
+    internal data class IndexedDocument(
+        val claims: List<IndexedClaim>,
+        val validFrom: Long? = null,
+        val validUntil: Long? = null,
+        val version: Int = 0,
+    ) {
+        fun toByteArray(): ByteArray = Json.encodeToString(this).toByteArray(Charsets.UTF_8)
+
+        companion object {
+            /**
+             * The version of the indexed claims, increased when the way they are indexed changes.
+             */
+            const val VERSION = 1
+
+            fun fromByteArray(bytes: ByteArray): IndexedDocument =
+                Json.decodeFromString<IndexedDocument>(bytes.toString(Charsets.UTF_8))
+        }
+    }
+
+    /**
+     * A normalised claim value and its path, and whether the value is a number.
+     */
+    @Serializable
+    internal data class IndexedClaim(val path: List<String>, val value: String, val numeric: Boolean = false)
+
+    companion object {
+        private const val TAG = "DocumentClaimIndex"
+        private const val PATH_SEPARATOR = "\u001F"
+
+        /**
+         * [StorageTableSpec] of the claim index table.
+         */
+        internal val STORAGE_TABLE_SPEC = StorageTableSpec(
+            name = "claim_index",
+            supportPartitions = false,
+            supportExpiration = false
+        )
+
+        /**
+         * Returns the normalised text of the given value, or null if it is not indexed.
+         */
+        @JvmSynthetic
+        internal fun normalize(value: Any): String? = when (value) {
+            is ByteArray -> null
+            is LocalDate -> value.toString()
+            is Instant -> value.toString()
+            is Number -> numberOf(value)?.toPlainString() ?: value.toString()
+            else -> Normalizer.normalize(value.toString(), Normalizer.Form.NFKC)
+                .trim()
+                .lowercase(Locale.ROOT)
+                .takeIf { it.isNotEmpty() }
+        }
+
+        /**
+         * Returns the numeric value of the given value, if it is a finite number.
+         */
+        private fun numberOf(value: Any): BigDecimal? =
+            (value as? Number)?.toString()?.toBigDecimalOrNull()?.stripTrailingZeros()
+    }
+}
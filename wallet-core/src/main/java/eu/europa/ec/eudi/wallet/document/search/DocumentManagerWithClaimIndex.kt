@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.document.search
+
+import eu.europa.ec.eudi.wallet.document.BulkDocumentDeletion
+import eu.europa.ec.eudi.wallet.document.DocumentId
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.DocumentsDeletionResult
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.Outcome
+import eu.europa.ec.eudi.wallet.document.ProofOfDeletion
+import eu.europa.ec.eudi.wallet.document.UnsignedDocument
+import eu.europa.ec.eudi.wallet.document.credential.IssuerProvidedCredential
+import eu.europa.ec.eudi.wallet.document.deleteDocumentsInBulk
+
+/**
+ * [DocumentManagerWithClaimIndex] is a wrapper around [DocumentManager] that keeps the
+ * [DocumentClaimIndex] up to date after storing or deleting documents.
+ *
+ * @property delegate The delegate [DocumentManager] instance.
+ * @property claimIndex The claim index to update.
+ */
+internal class DocumentManagerWithClaimIndex(
+    private val delegate: DocumentManager,
+    private val claimIndex: DocumentClaimIndex,
+) : DocumentManager by delegate, BulkDocumentDeletion {
+
+    override fun storeIssuedDocument(
+        unsignedDocument: UnsignedDocument,
+        issuerProvidedData: List<IssuerProvidedCredential>
+    ): Outcome<IssuedDocument> {
+        return delegate.storeIssuedDocument(unsignedDocument, issuerProvidedData).also {
+            it.kotlinResult.onSuccess { document -> claimIndex.onDocumentStored(document) }
+        }
+    }
+
+    override fun deleteDocumentById(documentId: DocumentId): Outcome<ProofOfDeletion?> {
+        return delegate.deleteDocumentById(documentId).also {
+            it.kotlinResult.onSuccess { claimIndex.onDocumentsDeleted(listOf(documentId)) }
+        }
+    }
+
+    override suspend fun deleteDocuments(documentIds: List<DocumentId>): DocumentsDeletionResult {
+        return delegate.deleteDocumentsInBulk(documentIds).also {
+            claimIndex.onDocumentsDeleted(it.deleted.keys)
+        }
+    }
+}
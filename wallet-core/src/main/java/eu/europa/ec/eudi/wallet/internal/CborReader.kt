@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import eu.europa.ec.eudi.wallet.internal.CborWriter.Companion.MAJOR_TYPE_ARRAY
+import eu.europa.ec.eudi.wallet.internal.CborWriter.Companion.MAJOR_TYPE_BYTE_STRING
+import eu.europa.ec.eudi.wallet.internal.CborWriter.Companion.MAJOR_TYPE_MAP
+import eu.europa.ec.eudi.wallet.internal.CborWriter.Companion.MAJOR_TYPE_NEGATIVE_INT
+import eu.europa.ec.eudi.wallet.internal.CborWriter.Companion.MAJOR_TYPE_TAG
+import eu.europa.ec.eudi.wallet.internal.CborWriter.Companion.MAJOR_TYPE_TEXT_STRING
+import eu.europa.ec.eudi.wallet.internal.CborWriter.Companion.MAJOR_TYPE_UNSIGNED_INT
+import eu.europa.ec.eudi.wallet.internal.CborWriter.Companion.SIMPLE_NULL
+import java.io.ByteArrayOutputStream
+
+/**
+ * Pull-style CBOR decoder that reads data items directly from a byte array.
+ *
+ * The caller reads the items in the order they are encoded and skips the ones it is not
+ * interested in, so only the values that are actually needed are materialized. Arrays and maps
+ * are read as a header followed by their elements, or with [readArray] and [readMap], which also
+ * handle the indefinite length items terminated by a break.
+ *
+ * @param data the encoded data items
+ * @param offset the position of the first item
+ * @throws IllegalArgumentException when reading an item of an unexpected type or malformed data
+ */
+internal class CborReader(private val data: ByteArray, offset: Int = 0) {
+
+    /**
+     * The position of the next item.
+     */
+    var position: Int = offset
+        private set
+
+    /**
+     * Whether there are more bytes to read.
+     */
+    val hasMore: Boolean
+        get() = position < data.size
+
+    /**
+     * Returns the major type of the next item without consuming it.
+     */
+    fun peekMajorType(): Int = (byteAt(position).toInt() and 0xFF) ushr 5
+
+    /**
+     * Returns true if the next item is null, without consuming it.
+     */
+    fun peekNull(): Boolean = hasMore && data[position] == SIMPLE_NULL
+
+    /**
+     * Reads the header of an array and returns the number of its elements, or [INDEFINITE] if
+     * the elements are terminated by a break, which is read with [readBreak].
+     */
+    fun readArrayHeader(): Int = readLength(MAJOR_TYPE_ARRAY)
+
+    /**
+     * Reads the header of a map and returns the number of its entries, or [INDEFINITE] if the
+     * entries are terminated by a break, which is read with [readBreak].
+     */
+    fun readMapHeader(): Int = readLength(MAJOR_TYPE_MAP)
+
+    /**
+     * Reads the break that terminates an indefinite length item, if it is the next byte.
+     *
+     * @return true if the break was read, false if there is another item before it
+     */
+    fun readBreak(): Boolean {
+        if (byteAt(position) != BREAK) return false
+        position++
+        return true
+    }
+
+    /**
+     * Reads an array of definite or indefinite length, calling [readElement] for each element.
+     *
+     * @param readElement reads or skips exactly one item
+     */
+    fun readArray(readElement: () -> Unit) = readItems(readArrayHeader(), readElement)
+
+    /**
+     * Reads a map of definite or indefinite length, calling [readEntry] for each entry.
+     *
+     * @param readEntry reads or skips exactly the key and the value of one entry
+     */
+    fun readMap(readEntry: () -> Unit) = readItems(readMapHeader(), readEntry)
+
+    private fun readItems(size: Int, readItem: () -> Unit) {
+        if (size == INDEFINITE) {
+            while (!readBreak()) readItem()
+        } else {
+            repeat(size) { readItem() }
+        }
+    }
+
+    /**
+     * Reads a tag and returns its number.
+     */
+    fun readTag(): Long = readArgument(MAJOR_TYPE_TAG)
+
+    /**
+     * Reads a text string.
+     */
+    fun readString(): String = readStringBytes(MAJOR_TYPE_TEXT_STRING).decodeToString()
+
+    /**
+     * Reads a byte string.
+     */
+    fun readBytes(): ByteArray = readStringBytes(MAJOR_TYPE_BYTE_STRING)
+
+    /**
+     * Reads an unsigned or negative integer.
+     */
+    fun readLong(): Long = when (peekMajorType()) {
+        MAJOR_TYPE_UNSIGNED_INT -> readArgument(MAJOR_TYPE_UNSIGNED_INT).also {
+            require(it >= 0) { "Integer out of range" }
+        }
+
+        MAJOR_TYPE_NEGATIVE_INT -> readArgument(MAJOR_TYPE_NEGATIVE_INT).also {
+            require(it >= 0) { "Integer out of range" }
+        }.let { -1 - it }
+
+        else -> throw IllegalArgumentException("Expected an integer but was major type ${peekMajorType()}")
+    }
+
+    /**
+     * Reads null.
+     */
+    fun readNull() {
+        require(peekNull()) { "Expected null" }
+        position++
+    }
+
+    /**
+     * Skips the next item, including all its nested items.
+     *
+     * @throws IllegalArgumentException when the items are nested deeper than [MAX_DEPTH]
+     */
+    fun skip() = skip(depth = 0)
+
+    private fun skip(depth: Int) {
+        require(depth < MAX_DEPTH) { "Items nested deeper than $MAX_DEPTH levels" }
+        val majorType = peekMajorType()
+        val additionalInfo = byteAt(position).toInt() and 0x1F
+        if (additionalInfo == INDEFINITE_LENGTH && majorType in MAJOR_TYPE_BYTE_STRING..MAJOR_TYPE_MAP) {
+            position++
+            while (byteAt(position) != BREAK) {
+                skip(depth + 1)
+            }
+            position++
+            return
+        }
+        val argument = readArgument(majorType)
+        when (majorType) {
+            MAJOR_TYPE_BYTE_STRING, MAJOR_TYPE_TEXT_STRING -> advance(argument)
+            MAJOR_TYPE_ARRAY -> repeat(argument.toIntLength()) { skip(depth + 1) }
+            MAJOR_TYPE_MAP -> repeat(argument.toIntLength() * 2) { skip(depth + 1) }
+            MAJOR_TYPE_TAG -> skip(depth + 1)
+        }
+    }
+
+    /**
+     * Reads the next item, including all its nested items, and returns its encoding.
+     */
+    fun readRaw(): ByteArray {
+        val start = position
+        skip()
+        return data.copyOfRange(start, position)
+    }
+
+    /**
+     * Reads the header of the map at the current position and moves to the value of the entry
+     * with the given text string key. Entries with other keys are skipped.
+     *
+     * @param key the key of the entry
+     * @return true if the entry was found and the reader is positioned at its value, false if
+     * the map has no such entry, in which case the reader is positioned after the map
+     */
+    fun findInMap(key: String): Boolean {
+        val size = readMapHeader()
+        var remaining = size
+        while (if (size == INDEFINITE) !readBreak() else remaining-- > 0) {
+            if (peekMajorType() == MAJOR_TYPE_TEXT_STRING) {
+                if (readString() == key) return true
+            } else {
+                skip()
+            }
+            skip()
+        }
+        return false
+    }
+
+    private fun readStringBytes(majorType: Int): ByteArray {
+        require(peekMajorType() == majorType) {
+            "Expected major type $majorType but was ${peekMajorType()}"
+        }
+        if (byteAt(position).toInt() and 0x1F == INDEFINITE_LENGTH) {
+            position++
+            val chunks = ByteArrayOutputStream()
+            while (byteAt(position) != BREAK) {
+                // The chunks of an indefinite length string are definite length strings
+                require(byteAt(position).toInt() and 0x1F != INDEFINITE_LENGTH) {
+                    "Nested indefinite length string"
+                }
+                chunks.write(readStringBytes(majorType))
+            }
+            position++
+            return chunks.toByteArray()
+        }
+        val length = readArgument(majorType).toIntLength()
+        val start = position
+        advance(length.toLong())
+        return data.copyOfRange(start, start + length)
+    }
+
+    private fun readLength(majorType: Int): Int {
+        if (byteAt(position).toInt() and 0x1F == INDEFINITE_LENGTH) {
+            require(peekMajorType() == majorType) {
+                "Expected major type $majorType but was ${peekMajorType()}"
+            }
+            position++
+            return INDEFINITE
+        }
+        return readArgument(majorType).toIntLength()
+    }
+
+    private fun readArgument(majorType: Int): Long {
+        val initialByte = byteAt(position).toInt() and 0xFF
+        require(initialByte ushr 5 == majorType) {
+            "Expected major type $majorType but was ${initialByte ushr 5}"
+        }
+        position++
+        val additionalInfo = initialByte and 0x1F
+        val size = when {
+            additionalInfo < 24 -> return additionalInfo.toLong()
+            additionalInfo == 24 -> 1
+            additionalInfo == 25 -> 2
+            additionalInfo == 26 -> 4
+            additionalInfo == 27 -> 8
+            else -> throw IllegalArgumentException("Invalid additional information $additionalInfo")
+        }
+        var value = 0L
+        repeat(size) { value = (value shl 8) or (byteAt(position++).toLong() and 0xFF) }
+        return value
+    }
+
+    private fun advance(length: Long) {
+        require(length >= 0 && position + length <= data.size) { "Unexpected end of data" }
+        position += length.toInt()
+    }
+
+    private fun byteAt(index: Int): Byte {
+        require(index < data.size) { "Unexpected end of data" }
+        return data[index]
+    }
+
+    private fun Long.toIntLength(): Int {
+        require(this in 0..Int.MAX_VALUE) { "Length out of range" }
+        return toInt()
+    }
+
+    companion object {
+        /**
+         * The maximum nesting depth of the items that are skipped.
+         */
+        const val MAX_DEPTH = 128
+
+        /**
+         * The size returned for the headers of indefinite length arrays and maps.
+         */
+        const val INDEFINITE = -1
+
+        private const val INDEFINITE_LENGTH = 31
+        private const val BREAK: Byte = 0xFF.toByte()
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import kotlinx.io.Buffer
+import kotlinx.io.Sink
+import kotlinx.io.readByteArray
+
+/**
+ * Streaming CBOR encoder that writes data items directly to a [Sink].
+ *
+ * Items are written in the order of the calls; arrays and maps are written as a header followed
+ * by their elements, so no intermediate object tree is built. Only definite length encoding with
+ * the shortest form of the arguments is produced, which is the deterministic encoding required by
+ * ISO/IEC 18013-5 for the session transcript.
+ *
+ * @param sink the sink the encoded items are written to
+ */
+internal class CborWriter(private val sink: Sink = Buffer()) {
+
+    /**
+     * Writes the header of an array with the given number of elements.
+     */
+    fun writeArrayHeader(size: Int) = apply { writeHeader(MAJOR_TYPE_ARRAY, size.toLong()) }
+
+    /**
+     * Writes the header of a map with the given number of entries.
+     */
+    fun writeMapHeader(size: Int) = apply { writeHeader(MAJOR_TYPE_MAP, size.toLong()) }
+
+    /**
+     * Writes a tag, which applies to the next item.
+     */
+    fun writeTag(tag: Long) = apply { writeHeader(MAJOR_TYPE_TAG, tag) }
+
+    /**
+     * Writes a text string.
+     */
+    fun writeString(value: String) = apply {
+        val bytes = value.encodeToByteArray()
+        writeHeader(MAJOR_TYPE_TEXT_STRING, bytes.size.toLong())
+        sink.write(bytes)
+    }
+
+    /**
+     * Writes a byte string.
+     */
+    fun writeBytes(value: ByteArray) = apply {
+        writeHeader(MAJOR_TYPE_BYTE_STRING, value.size.toLong())
+        sink.write(value)
+    }
+
+    /**
+     * Writes an integer, as an unsigned or negative integer depending on its sign.
+     */
+    fun writeLong(value: Long) = apply {
+        if (value >= 0) writeHeader(MAJOR_TYPE_UNSIGNED_INT, value)
+        else writeHeader(MAJOR_TYPE_NEGATIVE_INT, -1 - value)
+    }
+
+    /**
+     * Writes a double precision float.
+     */
+    fun writeDouble(value: Double) = apply {
+        sink.writeByte(FLOAT_64)
+        sink.writeLong(value.toRawBits())
+    }
+
+    /**
+     * Writes a boolean.
+     */
+    fun writeBoolean(value: Boolean) = apply {
+        sink.writeByte(if (value) SIMPLE_TRUE else SIMPLE_FALSE)
+    }
+
+    /**
+     * Writes null.
+     */
+    fun writeNull() = apply { sink.writeByte(SIMPLE_NULL) }
+
+    /**
+     * Writes a byte string, or null if the value is null.
+     */
+    fun writeBytesOrNull(value: ByteArray?) = apply {
+        if (value == null) writeNull() else writeBytes(value)
+    }
+
+    /**
+     * Writes an already encoded data item as is.
+     *
+     * @param encoded the encoded data item
+     */
+    fun writeRaw(encoded: ByteArray) = apply { sink.write(encoded) }
+
+    /**
+     * Returns the encoded items. Only available when the writer was created without a sink.
+     *
+     * @throws IllegalStateException if the writer writes to an external sink
+     */
+    fun toByteArray(): ByteArray {
+        check(sink is Buffer) { "Encoded bytes are only available for the default buffer" }
+        return sink.readByteArray()
+    }
+
+    private fun writeHeader(majorType: Int, argument: Long) {
+        val initialByte = majorType shl 5
+        when {
+            argument < 0 -> throw IllegalArgumentException("Argument must not be negative")
+            argument < 24 -> sink.writeByte((initialByte or argument.toInt()).toByte())
+            argument <= 0xFF -> {
+                sink.writeByte((initialByte or 24).toByte())
+                sink.writeByte(argument.toByte())
+            }
+
+            argument <= 0xFFFF -> {
+                sink.writeByte((initialByte or 25).toByte())
+                sink.writeShort(argument.toShort())
+            }
+
+            argument <= 0xFFFFFFFFL -> {
+                sink.writeByte((initialByte or 26).toByte())
+                sink.writeInt(argument.toInt())
+            }
+
+            else -> {
+                sink.writeByte((initialByte or 27).toByte())
+                sink.writeLong(argument)
+            }
+        }
+    }
+
+    companion object {
+        const val MAJOR_TYPE_UNSIGNED_INT = 0
+        const val MAJOR_TYPE_NEGATIVE_INT = 1
+        const val MAJOR_TYPE_BYTE_STRING = 2
+        const val MAJOR_TYPE_TEXT_STRING = 3
+        const val MAJOR_TYPE_ARRAY = 4
+        const val MAJOR_TYPE_MAP = 5
+        const val MAJOR_TYPE_TAG = 6
+        const val MAJOR_TYPE_SIMPLE = 7
+
+        const val SIMPLE_FALSE: Byte = 0xF4.toByte()
+        const val SIMPLE_TRUE: Byte = 0xF5.toByte()
+        const val SIMPLE_NULL: Byte = 0xF6.toByte()
+        const val FLOAT_64: Byte = 0xFB.toByte()
+    }
+}
+
+/**
+ * Encodes the items written by [block] into a byte array.
+ *
+ * @param block writes the items
+ * @return the encoded items
+ */
+@JvmSynthetic
+internal inline fun encodeCbor(block: CborWriter.() -> Unit): ByteArray =
+    CborWriter().apply(block).toByteArray()
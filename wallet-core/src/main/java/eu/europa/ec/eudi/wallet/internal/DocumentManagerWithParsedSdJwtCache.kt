@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import eu.europa.ec.eudi.wallet.document.BulkDocumentDeletion
+import eu.europa.ec.eudi.wallet.document.DocumentId
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.DocumentsDeletionResult
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.Outcome
+import eu.europa.ec.eudi.wallet.document.ProofOfDeletion
+import eu.europa.ec.eudi.wallet.document.UnsignedDocument
+import eu.europa.ec.eudi.wallet.document.credential.IssuerProvidedCredential
+import eu.europa.ec.eudi.wallet.document.deleteDocumentsInBulk
+
+/**
+ * [DocumentManagerWithParsedSdJwtCache] is a wrapper around [DocumentManager] that evicts the
+ * parsed SD-JWTs of a document from the [ParsedSdJwtCache] of the wallet when its credentials
+ * are stored or the document is deleted.
+ *
+ * @property delegate The delegate [DocumentManager] instance.
+ * @property parsedSdJwtCache The cache to evict the parsed SD-JWTs from.
+ */
+internal class DocumentManagerWithParsedSdJwtCache(
+    private val delegate: DocumentManager,
+    private val parsedSdJwtCache: ParsedSdJwtCache,
+) : DocumentManager by delegate, BulkDocumentDeletion {
+
+    override fun storeIssuedDocument(
+        unsignedDocument: UnsignedDocument,
+        issuerProvidedData: List<IssuerProvidedCredential>
+    ): Outcome<IssuedDocument> {
+        parsedSdJwtCache.evictDocument(unsignedDocument.id)
+        return delegate.storeIssuedDocument(unsignedDocument, issuerProvidedData)
+    }
+
+    override fun deleteDocumentById(documentId: DocumentId): Outcome<ProofOfDeletion?> {
+        parsedSdJwtCache.evictDocument(documentId)
+        return delegate.deleteDocumentById(documentId)
+    }
+
+    override suspend fun deleteDocuments(documentIds: List<DocumentId>): DocumentsDeletionResult {
+        documentIds.forEach { parsedSdJwtCache.evictDocument(it) }
+        return delegate.deleteDocumentsInBulk(documentIds)
+    }
+}
@@ -19,6 +19,8 @@ package eu.europa.ec.eudi.wallet.internal
 import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager.Companion.TAG
 import eu.europa.ec.eudi.wallet.logging.Logger
 import io.ktor.client.HttpClient
+import io.ktor.client.plugins.cache.HttpCache
+import io.ktor.client.plugins.cache.storage.CacheStorage
 import io.ktor.client.plugins.contentnegotiation.ContentNegotiation
 import io.ktor.client.plugins.logging.LogLevel
 import io.ktor.client.plugins.logging.Logging
@@ -69,4 +71,24 @@ internal fun (() -> HttpClient).wrappedWithContentNegotiation(): (() -> HttpClie
             }
         }
     }
-}
\ No newline at end of file
+}
+
+/**
+ * Wraps the [HttpClient] with an HTTP cache that follows the `Cache-Control`, `Expires` and
+ * validator (`ETag`, `Last-Modified`) headers of the responses.
+ * @receiver the [HttpClient] factory
+ * @param storage the storage of the cached responses, shared by all the clients of the factory
+ * @return the wrapped [HttpClient] factory
+ */
+@JvmSynthetic
+internal fun (() -> HttpClient).wrappedWithHttpCache(storage: CacheStorage): (() -> HttpClient) {
+    return {
+        this().let { client ->
+            client.config {
+                install(HttpCache) {
+                    publicStorage(storage)
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import io.ktor.client.plugins.cache.storage.CacheStorage
+import io.ktor.client.plugins.cache.storage.CachedResponseData
+import io.ktor.http.ContentType
+import io.ktor.http.HttpHeaders
+import io.ktor.http.Url
+
+/**
+ * Bounded [CacheStorage] for the metadata of the verifiers, i.e. client metadata and JWKS.
+ *
+ * Only JSON responses are stored. Request objects are JWTs
+ * (`application/oauth-authz-req+jwt`) that carry a nonce and must be used once, so they are never
+ * stored and every `request_uri` is fetched from the verifier. When more than [maxEntries] URLs
+ * are stored, the least recently used one is evicted.
+ *
+ * @property maxEntries the maximum number of URLs with stored responses
+ */
+internal class MetadataCacheStorage(
+    private val maxEntries: Int = DEFAULT_MAX_ENTRIES,
+) : CacheStorage by CacheStorage.Disabled {
+
+    init {
+        require(maxEntries > 0) { "maxEntries must be positive" }
+    }
+
+    private val entries = object : LinkedHashMap<Url, List<CachedResponseData>>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Url, List<CachedResponseData>>) =
+            size > maxEntries
+    }
+
+    override suspend fun store(url: Url, data: CachedResponseData) {
+        if (!data.isMetadata()) return
+        synchronized(entries) {
+            entries[url] = entries[url].orEmpty().filter { it.varyKeys != data.varyKeys } + data
+        }
+    }
+
+    override suspend fun find(url: Url, varyKeys: Map<String, String>): CachedResponseData? =
+        synchronized(entries) { entries[url]?.firstOrNull { it.varyKeys == varyKeys } }
+
+    override suspend fun findAll(url: Url): Set<CachedResponseData> =
+        synchronized(entries) { entries[url].orEmpty().toSet() }
+
+    private fun CachedResponseData.isMetadata(): Boolean {
+        val contentType = headers[HttpHeaders.ContentType]
+            ?.let { runCatching { ContentType.parse(it) }.getOrNull() }
+            ?: return false
+        return contentType.contentType == "application" &&
+                (contentType.contentSubtype == "json" || contentType.contentSubtype.endsWith("+json"))
+    }
+
+    companion object {
+        const val DEFAULT_MAX_ENTRIES = 32
+    }
+}
@@ -29,13 +29,6 @@ package eu.europa.ec.eudi.wallet.internal
 
 import com.nimbusds.jose.JWEAlgorithm
 import com.nimbusds.jose.JWSAlgorithm
-import com.nimbusds.jose.JWSHeader
-import com.nimbusds.jose.JWSSigner
-import com.nimbusds.jose.jca.JCAContext
-import com.nimbusds.jose.jwk.AsymmetricJWK
-import com.nimbusds.jose.jwk.JWK
-import com.nimbusds.jose.util.Base64URL
-import com.upokecenter.cbor.CBORObject
 import eu.europa.ec.eudi.iso18013.transfer.SessionTranscriptBytes
 import eu.europa.ec.eudi.iso18013.transfer.response.DisclosedDocument
 import eu.europa.ec.eudi.iso18013.transfer.response.DisclosedDocuments
@@ -59,7 +52,6 @@ import eu.europa.ec.eudi.sdjwt.DefaultSdJwtOps.present
 import eu.europa.ec.eudi.sdjwt.DefaultSdJwtOps.serialize
 import eu.europa.ec.eudi.sdjwt.DefaultSdJwtOps.serializeWithKeyBinding
 import eu.europa.ec.eudi.sdjwt.JwtAndClaims
-import eu.europa.ec.eudi.sdjwt.NimbusSdJwtOps
 import eu.europa.ec.eudi.sdjwt.SdJwt
 import eu.europa.ec.eudi.sdjwt.vc.ClaimPath
 import eu.europa.ec.eudi.sdjwt.vc.ClaimPathElement
@@ -67,7 +59,7 @@ import eu.europa.ec.eudi.wallet.document.DocumentManager
 import eu.europa.ec.eudi.wallet.document.IssuedDocument
 import eu.europa.ec.eudi.wallet.document.credential.CredentialIssuedData
 import eu.europa.ec.eudi.wallet.document.credential.getIssuedData
-import eu.europa.ec.eudi.wallet.issue.openid4vci.toJoseEncoded
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.ClientIdScheme
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.EncryptionAlgorithm
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.EncryptionMethod
@@ -75,12 +67,10 @@ import eu.europa.ec.eudi.wallet.transfer.openId4vp.Format
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpConfig
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpReaderTrust
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.SdJwtVcItem
-import kotlinx.coroutines.runBlocking
-import kotlinx.coroutines.withContext
+import kotlinx.coroutines.CancellationException
 import org.multipaz.credential.SecureAreaBoundCredential
 import org.multipaz.crypto.Algorithm
 import org.multipaz.securearea.KeyUnlockData
-import org.multipaz.securearea.UnlockReason
 import java.security.MessageDigest
 import java.security.SecureRandom
 import java.util.Base64
@@ -135,45 +125,47 @@ internal fun generateSessionTranscript(
     val openID4VPHandover =
         generateOpenId4VpHandover(clientId, nonce, jwkThumbprint, responseOrRedirectUri)
 
-    val sessionTranscriptBytes =
-        CBORObject.NewArray().apply {
-            Add(CBORObject.Null)
-            Add(CBORObject.Null)
-            Add(openID4VPHandover)
-        }.EncodeToBytes()
+    val sessionTranscriptBytes = encodeCbor {
+        writeArrayHeader(3)
+        writeNull()
+        writeNull()
+        writeRaw(openID4VPHandover)
+    }
 
     return sessionTranscriptBytes
 }
 
 /**
- * Generates the OpenID4VP handover CBOR object
+ * Generates the encoded OpenID4VP handover
  *
  * @param clientId The client identifier.
  * @param nonce The nonce value.
  * @param jwkThumbprint The JWK thumbprint as a byte array.
  * @param responseOrRedirectUri The response URI or redirect URI.
- * @return The CBOR object representing the OpenID4VP handover.
+ * @return The CBOR encoding of the OpenID4VP handover.
  */
 internal fun generateOpenId4VpHandover(
     clientId: String,
     nonce: String,
     jwkThumbprint: ByteArray?,
     responseOrRedirectUri: String,
-): CBORObject {
-
-    val openID4VPHandoverInfoBytes = CBORObject.NewArray().apply {
-        Add(clientId)
-        Add(nonce)
-        Add(jwkThumbprint ?: CBORObject.Null)
-        Add(responseOrRedirectUri)
-    }.EncodeToBytes()
+): ByteArray {
+
+    val openID4VPHandoverInfoBytes = encodeCbor {
+        writeArrayHeader(4)
+        writeString(clientId)
+        writeString(nonce)
+        writeBytesOrNull(jwkThumbprint)
+        writeString(responseOrRedirectUri)
+    }
 
     val openID4VPHandoverInfoHash = MessageDigest.getInstance(SHA_256_ALGORITHM)
         .digest(openID4VPHandoverInfoBytes)
 
-    val openID4VPHandover = CBORObject.NewArray().apply {
-        Add("OpenID4VPHandover")
-        Add(openID4VPHandoverInfoHash)
+    val openID4VPHandover = encodeCbor {
+        writeArrayHeader(2)
+        writeString("OpenID4VPHandover")
+        writeBytes(openID4VPHandoverInfoHash)
     }
 
     return openID4VPHandover
@@ -314,6 +306,7 @@ internal val EncryptionMethod.nimbus: com.nimbusds.jose.EncryptionMethod
 
 /**
  * Serializes an SD-JWT with key binding using the provided credential and signing information.
+ * The key binding JWT is signed with [SdJwtKeyBindingSigner], without blocking the calling thread.
  *
  * @receiver The SD-JWT to serialize.
  * @param credential The credential used for signing.
@@ -322,6 +315,7 @@ internal val EncryptionMethod.nimbus: com.nimbusds.jose.EncryptionMethod
  * @param nonce The nonce for the session.
  * @param signatureAlgorithm The algorithm to use for signing.
  * @param issueDate The date of issuance.
+ * @param telemetry The telemetry of the key binding signature.
  * @return The serialized SD-JWT as a string.
  */
 internal suspend fun SdJwt<JwtAndClaims>.serializeWithKeyBinding(
@@ -331,35 +325,22 @@ internal suspend fun SdJwt<JwtAndClaims>.serializeWithKeyBinding(
     nonce: String,
     signatureAlgorithm: Algorithm,
     issueDate: Date,
+    telemetry: WalletTelemetry = WalletTelemetry.Disabled,
 ): String {
-    val algorithm = JWSAlgorithm.parse((signatureAlgorithm).joseAlgorithmIdentifier)
-    val publicKey = credential.secureArea.getKeyInfo(credential.alias).publicKey
-    val provider = keyUnlockData.asProvider()
-    val buildKbJwt = NimbusSdJwtOps.kbJwtIssuer(
-        signer = object : JWSSigner {
-            override fun getJCAContext(): JCAContext = JCAContext()
-            override fun supportedJWSAlgorithms(): Set<JWSAlgorithm> = setOf(algorithm)
-            override fun sign(header: JWSHeader, signingInput: ByteArray): Base64URL {
-                val signature = runBlocking {
-                    withContext(provider) {
-                        credential.secureArea.sign(
-                            alias = credential.alias,
-                            dataToSign = signingInput,
-                            unlockReason = UnlockReason.Unspecified
-                        )
-                    }
-                }
-                return Base64URL.encode(signature.toJoseEncoded(algorithm))
-            }
-        },
-        signAlgorithm = algorithm,
-        publicKey = JWK.parseFromPEMEncodedObjects(publicKey.toPem()) as AsymmetricJWK
-    ) {
-        audience(clientId.clientId)
-        claim("nonce", nonce)
-        issueTime(issueDate)
-    }
-    return serializeWithKeyBinding(buildKbJwt).getOrThrow()
+    val signer = SdJwtKeyBindingSigner(credential, keyUnlockData, signatureAlgorithm, telemetry)
+    return serializeWithKeyBinding { sdJwtDigest ->
+        runCatching {
+            signer.sign(
+                sdHash = sdJwtDigest.value,
+                audience = clientId.clientId,
+                nonce = nonce,
+                issueDate = issueDate,
+            )
+        }.onFailure { e ->
+            // The cancellation of the presentation is not a failure of the signature
+            if (e is CancellationException) throw e
+        }
+    }.getOrThrow()
 }
 
 /**
@@ -369,6 +350,9 @@ internal suspend fun SdJwt<JwtAndClaims>.serializeWithKeyBinding(
  * @param document The issued document containing the credential.
  * @param disclosedDocument The document with disclosed claims.
  * @param signatureAlgorithm The algorithm to use for signing.
+ * @param telemetry The telemetry of the key binding signature.
+ * @param parsedSdJwtCache The cache of the parsed SD-JWTs of the wallet, or null to parse the
+ * SD-JWT of the credential. The entry of a consumed credential that is deleted is evicted.
  * @return The constructed [VerifiablePresentation.Generic].
  * @throws IllegalArgumentException if no claims are disclosed or presentation creation fails.
  */
@@ -377,11 +361,14 @@ internal suspend fun verifiablePresentationForSdJwtVc(
     document: IssuedDocument,
     disclosedDocument: DisclosedDocument,
     signatureAlgorithm: Algorithm,
+    telemetry: WalletTelemetry = WalletTelemetry.Disabled,
+    parsedSdJwtCache: ParsedSdJwtCache? = null,
 ): VerifiablePresentation.Generic {
+    var consumedCredentialIdentifier: String? = null
     return document.consumingCredential {
-        val credentialIssuedData =
-            getIssuedData<CredentialIssuedData.SdJwtVc>()
-        val issuedSdJwt = credentialIssuedData.getOrThrow().issuedSdJwt
+        consumedCredentialIdentifier = identifier
+        val issuedSdJwt = parsedSdJwtCache?.get(document.id, this)?.getOrThrow()
+            ?: getIssuedData<CredentialIssuedData.SdJwtVc>().getOrThrow().issuedSdJwt
 
         val query = disclosedDocument.disclosedItems
             .filterIsInstance<SdJwtVcItem>()
@@ -407,13 +394,22 @@ internal suspend fun verifiablePresentationForSdJwtVc(
                 clientId = resolvedRequestObject.client.id,
                 nonce = resolvedRequestObject.nonce,
                 signatureAlgorithm = signatureAlgorithm,
-                issueDate = Date()
+                issueDate = Date(),
+                telemetry = telemetry,
             )
         } else {
             presentation.serialize()
         }
 
         VerifiablePresentation.Generic(serialized)
+    }.also {
+        // A credential with one time use is deleted when it is consumed
+        val consumed = consumedCredentialIdentifier
+        if (parsedSdJwtCache != null && consumed != null &&
+            document.getCredentials().none { it.identifier == consumed }
+        ) {
+            parsedSdJwtCache.evictCredential(consumed)
+        }
     }.getOrThrow()
 }
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import eu.europa.ec.eudi.sdjwt.DefaultSdJwtOps
+import eu.europa.ec.eudi.sdjwt.JwtAndClaims
+import eu.europa.ec.eudi.sdjwt.SdJwt
+import eu.europa.ec.eudi.wallet.document.DocumentId
+import org.multipaz.credential.Credential
+
+/**
+ * Bounded cache of the parsed SD-JWTs of the credentials, so that presenting a credential or
+ * extracting its status reference repeatedly does not parse the SD-JWT and its disclosures each
+ * time.
+ *
+ * Each wallet has its own cache, so the parsed claims of the credentials of a wallet are never
+ * kept for another one.
+ *
+ * Entries are keyed by the identifier of the credential and also compare the issuer provided
+ * data, so a replaced credential is never served from a stale entry. Entries of a document are
+ * evicted with [evictDocument] when the document is deleted or replaced, the entry of a
+ * credential is evicted with [evictCredential] when the credential is consumed and deleted, and
+ * the least recently used entries are evicted when the cache is full.
+ *
+ * @param maxEntries the maximum number of parsed SD-JWTs to keep
+ */
+internal class ParsedSdJwtCache(private val maxEntries: Int = DEFAULT_MAX_ENTRIES) {
+
+    private class Entry(
+        val documentId: DocumentId,
+        val issuerProvidedData: ByteArray,
+        val sdJwt: SdJwt<JwtAndClaims>,
+    )
+
+    private val entries = object : LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>?): Boolean =
+            size > maxEntries
+    }
+
+    /**
+     * Returns the parsed SD-JWT of the given credential, parsing it if it is not cached.
+     *
+     * @param documentId the id of the document of the credential
+     * @param credential the credential, whose issuer provided data is the issued SD-JWT
+     * @return the parsed SD-JWT
+     */
+    fun get(documentId: DocumentId, credential: Credential): Result<SdJwt<JwtAndClaims>> {
+        val issuerProvidedData = credential.issuerProvidedData
+        synchronized(entries) {
+            entries[credential.identifier]
+                ?.takeIf { it.issuerProvidedData.contentEquals(issuerProvidedData) }
+                ?.let { return Result.success(it.sdJwt) }
+        }
+        return DefaultSdJwtOps.unverifiedIssuanceFrom(String(issuerProvidedData, Charsets.US_ASCII))
+            .onSuccess { sdJwt ->
+                synchronized(entries) {
+                    entries[credential.identifier] = Entry(documentId, issuerProvidedData, sdJwt)
+                }
+            }
+    }
+
+    /**
+     * Evicts the parsed SD-JWTs of the credentials of the given document.
+     *
+     * @param documentId the id of the document
+     */
+    fun evictDocument(documentId: DocumentId) {
+        synchronized(entries) {
+            entries.values.removeAll { it.documentId == documentId }
+        }
+    }
+
+    /**
+     * Evicts the parsed SD-JWT of the given credential.
+     *
+     * @param credentialIdentifier the identifier of the credential
+     */
+    fun evictCredential(credentialIdentifier: String) {
+        synchronized(entries) { entries.remove(credentialIdentifier) }
+    }
+
+    /**
+     * Evicts all the parsed SD-JWTs.
+     */
+    fun clear() {
+        synchronized(entries) { entries.clear() }
+    }
+
+    companion object {
+        const val DEFAULT_MAX_ENTRIES = 32
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import com.nimbusds.jose.JOSEObjectType
+import com.nimbusds.jose.JWSAlgorithm
+import com.nimbusds.jose.JWSHeader
+import com.nimbusds.jose.util.Base64URL
+import com.nimbusds.jwt.JWTClaimsSet
+import eu.europa.ec.eudi.wallet.issue.openid4vci.toJoseEncoded
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
+import kotlinx.coroutines.withContext
+import org.multipaz.credential.SecureAreaBoundCredential
+import org.multipaz.crypto.Algorithm
+import org.multipaz.securearea.KeyUnlockData
+import org.multipaz.securearea.UnlockReason
+import java.util.Date
+
+/**
+ * Signs the key binding JWT of an SD-JWT VC presentation with the key of the credential.
+ *
+ * The JWT is assembled and signed here instead of through a Nimbus [com.nimbusds.jose.JWSSigner],
+ * whose synchronous `sign` can only reach the suspending secure area by blocking a thread. The
+ * signature is created in the calling coroutine, and the public key of the credential is not
+ * needed, since the key binding JWT does not carry it.
+ *
+ * @param credential the credential whose key signs the JWT
+ * @param keyUnlockData the unlock data of the key, if it requires user authentication
+ * @param signatureAlgorithm the signature algorithm
+ * @param telemetry the telemetry of the signature
+ */
+internal class SdJwtKeyBindingSigner(
+    private val credential: SecureAreaBoundCredential,
+    private val keyUnlockData: KeyUnlockData?,
+    signatureAlgorithm: Algorithm,
+    private val telemetry: WalletTelemetry = WalletTelemetry.Disabled,
+) {
+
+    private val algorithm = JWSAlgorithm.parse(signatureAlgorithm.joseAlgorithmIdentifier)
+
+    /**
+     * Creates the serialized key binding JWT.
+     *
+     * @param sdHash the digest of the presented SD-JWT, for the `sd_hash` claim
+     * @param audience the client id of the verifier
+     * @param nonce the nonce of the request
+     * @param issueDate the issuance time of the JWT
+     * @return the serialized JWT
+     */
+    suspend fun sign(sdHash: String, audience: String, nonce: String, issueDate: Date): String {
+        val header = JWSHeader.Builder(algorithm)
+            .type(JOSEObjectType(KB_JWT_TYPE))
+            .build()
+        val claims = JWTClaimsSet.Builder()
+            .audience(audience)
+            .claim("nonce", nonce)
+            .issueTime(issueDate)
+            .claim("sd_hash", sdHash)
+            .build()
+        val signingInput = "${header.toBase64URL()}.${Base64URL.encode(claims.toString())}"
+        val signature = telemetry.sign {
+            withContext(keyUnlockData.asProvider()) {
+                credential.secureArea.sign(
+                    alias = credential.alias,
+                    dataToSign = signingInput.encodeToByteArray(),
+                    unlockReason = UnlockReason.Unspecified
+                )
+            }
+        }
+        return "$signingInput.${Base64URL.encode(signature.toJoseEncoded(algorithm))}"
+    }
+
+    private companion object {
+        const val KB_JWT_TYPE = "kb+jwt"
+    }
+}
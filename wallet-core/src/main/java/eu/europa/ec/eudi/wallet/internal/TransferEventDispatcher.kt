@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.asExecutor
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.asSharedFlow
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executor
+
+/**
+ * Registry of [TransferEvent.Listener]s that can be modified from any thread, and dispatcher of
+ * the events to them and to a [SharedFlow].
+ *
+ * Each event is handed to the executor once, and the listeners are notified one after the other
+ * on it, so a busy session posts one task per event instead of one per listener. Listeners added
+ * or removed while an event is being dispatched take effect from the next event.
+ *
+ * @param executor returns the executor of the listeners, or null for the main thread
+ * @param bufferCapacity the number of events buffered for slow collectors of [events]; the
+ * oldest events are dropped when the buffer is full
+ */
+internal class TransferEventDispatcher(
+    private val executor: () -> Executor? = { null },
+    bufferCapacity: Int = DEFAULT_BUFFER_CAPACITY,
+) {
+
+    private val listeners = CopyOnWriteArrayList<TransferEvent.Listener>()
+
+    private val mutableEvents = MutableSharedFlow<TransferEvent>(
+        extraBufferCapacity = bufferCapacity.coerceAtLeast(1),
+        onBufferOverflow = BufferOverflow.DROP_OLDEST,
+    )
+
+    /**
+     * The dispatched events, as a hot flow that does not replay past events.
+     */
+    val events: SharedFlow<TransferEvent> = mutableEvents.asSharedFlow()
+
+    fun add(listener: TransferEvent.Listener) {
+        listeners.add(listener)
+    }
+
+    fun remove(listener: TransferEvent.Listener) {
+        listeners.remove(listener)
+    }
+
+    fun clear() {
+        listeners.clear()
+    }
+
+    /**
+     * Emits the event to [events] and notifies the listeners on the executor.
+     */
+    fun dispatch(event: TransferEvent) {
+        mutableEvents.tryEmit(event)
+        if (listeners.isEmpty()) return
+        (executor() ?: mainExecutor).execute { notifyListeners(event) }
+    }
+
+    /**
+     * Emits the event to [events] and notifies the listeners on the calling thread.
+     */
+    fun dispatchNow(event: TransferEvent) {
+        mutableEvents.tryEmit(event)
+        notifyListeners(event)
+    }
+
+    private fun notifyListeners(event: TransferEvent) {
+        for (listener in listeners) listener.onTransferEvent(event)
+    }
+
+    companion object {
+        const val DEFAULT_BUFFER_CAPACITY = 64
+
+        private val mainExecutor: Executor by lazy { Dispatchers.Main.asExecutor() }
+    }
+}
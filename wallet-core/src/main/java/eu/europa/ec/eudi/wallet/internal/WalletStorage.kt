@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2024-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import android.content.Context
+import org.multipaz.storage.Storage
+import org.multipaz.storage.android.AndroidStorage
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Opens the databases of the wallet-core state.
+ *
+ * Each database file is opened once per process, so that the components that use the same file
+ * share a single [Storage] and its connection. With the
+ * [eu.europa.ec.eudi.wallet.EudiWalletConfig.StorageProfile.SHARED] profile, the storage of the
+ * wallet is passed to the components instead, and these databases are not opened.
+ */
+internal object WalletStorage {
+
+    /**
+     * The file name of the default database of the issuance metadata.
+     */
+    const val ISSUANCE_METADATA_DATABASE = "issuance_metadata.db"
+
+    private val storages = ConcurrentHashMap<String, Storage>()
+
+    /**
+     * Returns the storage of the database with the given file name, in the no backup files
+     * directory of the application.
+     *
+     * @param context the context of the application
+     * @param fileName the file name of the database
+     * @return the storage
+     */
+    fun open(context: Context, fileName: String): Storage =
+        open(File(context.noBackupFilesDir, fileName).absolutePath)
+
+    /**
+     * Returns the storage of the database at the given path, opening it on first use.
+     *
+     * @param databasePath the path of the database
+     * @return the storage
+     */
+    fun open(databasePath: String): Storage =
+        storages.computeIfAbsent(File(databasePath).absolutePath) { AndroidStorage(it) }
+}
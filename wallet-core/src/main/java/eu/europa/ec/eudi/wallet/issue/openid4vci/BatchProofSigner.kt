@@ -22,6 +22,8 @@ import eu.europa.ec.eudi.openid4vci.BatchSigner
 import eu.europa.ec.eudi.openid4vci.JwtBindingKey
 import eu.europa.ec.eudi.openid4vci.SignOperation
 import eu.europa.ec.eudi.wallet.document.credential.ProofOfPossessionSigner
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import kotlinx.coroutines.runBlocking
 import org.multipaz.securearea.KeyLockedException
 import org.multipaz.securearea.KeyUnlockData
@@ -41,6 +43,8 @@ class BatchProofSigner(
     var keyLockedException: KeyLockedException? = null
         private set
 
+    internal var telemetry: WalletTelemetry = WalletTelemetry.Disabled
+
     override suspend fun authenticate(): BatchSignOperation<JwtBindingKey> {
         return BatchSignOperation(signers.map { signer ->
             val jwk = JWK.parse(signer.getKeyInfo().publicKey.toJwk().toString())
@@ -48,7 +52,9 @@ class BatchProofSigner(
             SignOperation(
                 function = { input ->
                     try {
-                        signer.signPoP(input, keyUnlockData).toDerEncoded()
+                        telemetry.trace(WalletStage.ISSUANCE_PROOF_SIGNING) {
+                            telemetry.sign { signer.signPoP(input, keyUnlockData) }
+                        }.toDerEncoded()
                     } catch (e: KeyLockedException) {
                         keyLockedException = e
                         throw e
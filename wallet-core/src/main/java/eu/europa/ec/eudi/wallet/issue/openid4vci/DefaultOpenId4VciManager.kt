@@ -19,11 +19,13 @@ package eu.europa.ec.eudi.wallet.issue.openid4vci
 import android.content.Context
 import android.net.Uri
 import androidx.core.net.toUri
+import eu.europa.ec.eudi.openid4vci.AuthorizedRequest
 import eu.europa.ec.eudi.openid4vci.CredentialConfigurationIdentifier
 import eu.europa.ec.eudi.openid4vci.CredentialIssuanceError
 import eu.europa.ec.eudi.openid4vci.CredentialIssuerId
 import eu.europa.ec.eudi.openid4vci.CredentialIssuerMetadata
 import eu.europa.ec.eudi.openid4vci.CredentialIssuerMetadataResolver
+import eu.europa.ec.eudi.openid4vci.DeferredCredentialQueryOutcome
 import eu.europa.ec.eudi.openid4vci.DeferredIssuer
 import eu.europa.ec.eudi.openid4vci.Issuer
 import eu.europa.ec.eudi.openid4vci.IssuerMetadataPolicy
@@ -31,8 +33,10 @@ import eu.europa.ec.eudi.openid4vci.SubmissionOutcome
 import eu.europa.ec.eudi.wallet.document.DeferredDocument
 import eu.europa.ec.eudi.wallet.document.DocumentId
 import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.UnsignedDocument
 import eu.europa.ec.eudi.wallet.document.format.DocumentFormat
 import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.internal.WalletStorage
 import eu.europa.ec.eudi.wallet.internal.d
 import eu.europa.ec.eudi.wallet.internal.e
 import eu.europa.ec.eudi.wallet.internal.mainExecutor
@@ -47,18 +51,26 @@ import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.ReissuanceIssuer
 import eu.europa.ec.eudi.wallet.logging.Logger
 import eu.europa.ec.eudi.wallet.provider.WalletAttestationsProvider
 import eu.europa.ec.eudi.wallet.provider.WalletKeyManager
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import io.ktor.client.HttpClient
 import io.ktor.client.plugins.contentnegotiation.ContentNegotiation
 import io.ktor.serialization.kotlinx.json.json
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
 import kotlinx.coroutines.cancel
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
 import kotlinx.serialization.json.Json
 import org.multipaz.storage.Storage
-import org.multipaz.storage.android.AndroidStorage
-import java.io.File
 import java.util.concurrent.Executor
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.seconds
 
 /**
  * Default implementation of [OpenId4VciManager].
@@ -68,6 +80,10 @@ import java.util.concurrent.Executor
  * @param context The context.
  * @param documentManager The document manager.
  * @param config The configuration.
+ * @param telemetry The telemetry of the issuance stages.
+ * @param walletStorage The storage all the wallet-core state is kept in, with the
+ * [eu.europa.ec.eudi.wallet.EudiWalletConfig.StorageProfile.SHARED] profile, or null to use the
+ * default databases.
  * @see OpenId4VciManager
  */
 internal class DefaultOpenId4VciManager(
@@ -78,6 +94,8 @@ internal class DefaultOpenId4VciManager(
     var config: OpenId4VciManager.Config,
     var logger: Logger? = null,
     var ktorHttpClientFactory: (() -> HttpClient)? = null,
+    private val telemetry: WalletTelemetry = WalletTelemetry.Disabled,
+    private val walletStorage: Storage? = null,
 ) : OpenId4VciManager {
 
     internal val httpClientFactory
@@ -89,7 +107,15 @@ internal class DefaultOpenId4VciManager(
         OfferResolver(httpClientFactory)
     }
     private val issuerCreator: IssuerCreator by lazy {
-        IssuerCreator(context, config, httpClientFactory, walletProvider, walletAttestationKeyManager, logger)
+        IssuerCreator(
+            context,
+            config,
+            httpClientFactory,
+            walletProvider,
+            walletAttestationKeyManager,
+            logger,
+            dpopStorage = walletStorage
+        )
     }
     private val issuerAuthorization: IssuerAuthorization by lazy {
         val handler = config.authorizationHandler ?: BrowserAuthorizationHandler(context, logger)
@@ -98,24 +124,23 @@ internal class DefaultOpenId4VciManager(
 
     /**
      * Storage for issuance metadata.
-     * If not configured in [config], uses a default AndroidStorage with a separate database file.
+     * If not configured in [config], uses the [walletStorage] if set, or else the default issuance
+     * metadata database.
      */
     private val issuanceMetadataStorage: Storage by lazy {
-        config.issuanceMetadataStorage ?: run {
-            val storagePath = File(
-                context.noBackupFilesDir,
-                "issuance_metadata.db"
-            ).absolutePath
-            AndroidStorage(storagePath)
-        }
+        config.issuanceMetadataStorage
+            ?: walletStorage
+            ?: WalletStorage.open(context, WalletStorage.ISSUANCE_METADATA_DATABASE)
     }
 
     override suspend fun getIssuerMetadata(): Result<CredentialIssuerMetadata> {
-        return CredentialIssuerId(config.issuerUrl).mapCatching {
-            CredentialIssuerMetadataResolver(httpClientFactory()).resolve(
-                issuer = it,
-                policy = IssuerMetadataPolicy.IgnoreSigned
-            ).getOrThrow()
+        return telemetry.traceResult(WalletStage.ISSUANCE_METADATA_FETCH) {
+            CredentialIssuerId(config.issuerUrl).mapCatching {
+                CredentialIssuerMetadataResolver(httpClientFactory()).resolve(
+                    issuer = it,
+                    policy = IssuerMetadataPolicy.IgnoreSigned
+                ).getOrThrow()
+            }
         }
     }
 
@@ -142,10 +167,12 @@ internal class DefaultOpenId4VciManager(
     ) {
         launch(executor, onIssueEvent) { coroutineScope, listener ->
             try {
-                val issuer = issuerCreator.createIssuer(
-                    config.issuerUrl,
-                    credentialConfigurationIds.map{ id -> CredentialConfigurationIdentifier(id) }
-                )
+                val issuer = telemetry.trace(WalletStage.ISSUANCE_METADATA_FETCH) {
+                    issuerCreator.createIssuer(
+                        config.issuerUrl,
+                        credentialConfigurationIds.map { id -> CredentialConfigurationIdentifier(id) }
+                    )
+                }
                 doIssue(issuer, Offer(issuer.credentialOffer), txCode, listener)
             } catch (e: Throwable) {
                 listener(failure(e))
@@ -162,7 +189,9 @@ internal class DefaultOpenId4VciManager(
     ) {
         launch(executor, onIssueEvent) { coroutineScope, listener ->
             try {
-                val issuer = issuerCreator.createIssuer(config.issuerUrl, format)
+                val issuer = telemetry.trace(WalletStage.ISSUANCE_METADATA_FETCH) {
+                    issuerCreator.createIssuer(config.issuerUrl, format)
+                }
                 val offer = Offer(issuer.credentialOffer)
                 doIssue(issuer, offer, txCode, listener)
             } catch (e: Throwable) {
@@ -197,7 +226,9 @@ internal class DefaultOpenId4VciManager(
     ) {
         launch(executor, onIssueEvent) { coroutineScope, listener ->
             try {
-                val issuer = issuerCreator.createIssuer(offer)
+                val issuer = telemetry.trace(WalletStage.ISSUANCE_METADATA_FETCH) {
+                    issuerCreator.createIssuer(offer)
+                }
                 doIssue(issuer, offer, txCode, listener)
             } catch (e: Throwable) {
                 listener(failure(e))
@@ -215,8 +246,12 @@ internal class DefaultOpenId4VciManager(
     ) {
         launch(executor, onIssueEvent) { coroutineScope, listener ->
             try {
-                val offer = offerResolver.resolve(offerUri).getOrThrow()
-                val issuer = issuerCreator.createIssuer(offer)
+                val offer = telemetry.traceResult(WalletStage.ISSUANCE_OFFER_RESOLUTION) {
+                    offerResolver.resolve(offerUri)
+                }.getOrThrow()
+                val issuer = telemetry.trace(WalletStage.ISSUANCE_METADATA_FETCH) {
+                    issuerCreator.createIssuer(offer)
+                }
                 doIssue(issuer, offer, txCode, listener)
             } catch (e: Throwable) {
                 listener(failure(e))
@@ -232,52 +267,7 @@ internal class DefaultOpenId4VciManager(
     ) {
         launch(executor, onIssueResult) { coroutineScope, callback ->
             try {
-
-                // Resolve DPopConfig so DeferredContext can recreate the DPoP signer
-                val resolvedDpopConfig = when (val cfg = config.dpopConfig) {
-                    DPopConfig.Disabled -> null
-                    DPopConfig.Default -> DPopConfig.Default.make(context)
-                    is DPopConfig.Custom -> cfg
-                }
-
-                val deferredContext = DeferredContext.fromBytes(
-                    deferredDocument.relatedData,
-                    walletAttestationKeyManager,
-                    dpopConfig = resolvedDpopConfig,
-                    logger = logger,
-                )
-                val clientAttestationPopKeyId = deferredContext.clientAttestationPopKeyId
-                when {
-                    deferredContext.issuanceContext.hasExpired -> callback(
-                        DeferredIssueResult.DocumentExpired(deferredDocument)
-                    )
-
-                    else -> {
-                        val (ctx, outcome) = DeferredIssuer.queryForDeferredCredential(
-                            ctx = deferredContext.issuanceContext,
-                            httpClient = httpClientFactory(),
-                            responseEncryptionKey = null // TODO handle encrypted responses
-                        ).getOrThrow()
-
-                        ProcessDeferredOutcome(
-                            documentManager = documentManager,
-                            callback = callback,
-                            deferredContext = ctx?.let {
-                                DeferredContext(
-                                    issuanceContext = it,
-                                    keyAliases = deferredContext.keyAliases,
-                                    clientAttestationPopKeyId = clientAttestationPopKeyId,
-                                    dPoPKeyAlias = deferredContext.dPoPKeyAlias,
-                                    credentialConfigurationIdentifier = deferredContext.credentialConfigurationIdentifier,
-                                    credentialEndpoint = deferredContext.credentialEndpoint,
-                                    replacesDocumentId = deferredContext.replacesDocumentId,
-                                )
-                            } ?: deferredContext,
-                            logger = logger,
-                            issuanceMetadataStorage = issuanceMetadataStorage,
-                        ).process(deferredDocument, deferredContext.keyAliases, outcome)
-                    }
-                }
+                queryDeferredDocument(deferredDocument, httpClientFactory(), callback)
             } catch (e: Throwable) {
                 callback(DeferredIssueResult.DocumentFailed(deferredDocument, e))
                 coroutineScope.cancel("issueDeferredDocument failed", e)
@@ -286,6 +276,71 @@ internal class DefaultOpenId4VciManager(
 
     }
 
+    /**
+     * Queries the issuer of the given [DeferredDocument] for its credentials and reports the
+     * result to [callback].
+     *
+     * @param deferredDocument the deferred document
+     * @param httpClient the client used to query the issuer
+     * @param callback the callback of the result
+     * @return the interval the issuer asked the wallet to wait before querying again, if the
+     * document is still pending and the issuer returned one
+     */
+    @JvmSynthetic
+    internal suspend fun queryDeferredDocument(
+        deferredDocument: DeferredDocument,
+        httpClient: HttpClient,
+        callback: OpenId4VciManager.OnResult<DeferredIssueResult>,
+    ): Duration? {
+        // Expired contexts are reported without creating their signers
+        val storedContext = LazyDeferredContext(deferredDocument.relatedData)
+        if (storedContext.hasExpired) {
+            callback(DeferredIssueResult.DocumentExpired(deferredDocument))
+            return null
+        }
+
+        // Resolve DPopConfig so DeferredContext can recreate the DPoP signer
+        val resolvedDpopConfig = when (val cfg = config.dpopConfig) {
+            DPopConfig.Disabled -> null
+            DPopConfig.Default -> DPopConfig.Default.make(context, storage = walletStorage)
+            is DPopConfig.Custom -> cfg
+        }
+
+        val deferredContext = storedContext.materialize(
+            walletAttestationKeyManager,
+            dpopConfig = resolvedDpopConfig,
+            logger = logger,
+        )
+        val clientAttestationPopKeyId = deferredContext.clientAttestationPopKeyId
+
+        val (ctx, outcome) = DeferredIssuer.queryForDeferredCredential(
+            ctx = deferredContext.issuanceContext,
+            httpClient = httpClient,
+            responseEncryptionKey = null // TODO handle encrypted responses
+        ).getOrThrow()
+
+        ProcessDeferredOutcome(
+            documentManager = documentManager,
+            callback = callback,
+            deferredContext = ctx?.let {
+                DeferredContext(
+                    issuanceContext = it,
+                    keyAliases = deferredContext.keyAliases,
+                    clientAttestationPopKeyId = clientAttestationPopKeyId,
+                    dPoPKeyAlias = deferredContext.dPoPKeyAlias,
+                    credentialConfigurationIdentifier = deferredContext.credentialConfigurationIdentifier,
+                    credentialEndpoint = deferredContext.credentialEndpoint,
+                    replacesDocumentId = deferredContext.replacesDocumentId,
+                )
+            } ?: deferredContext,
+            logger = logger,
+            issuanceMetadataStorage = issuanceMetadataStorage,
+            telemetry = telemetry,
+        ).process(deferredDocument, deferredContext.keyAliases, outcome)
+
+        return (outcome as? DeferredCredentialQueryOutcome.IssuancePending)?.interval?.seconds
+    }
+
     override fun resolveDocumentOffer(
         offerUri: String,
         executor: Executor?,
@@ -293,7 +348,9 @@ internal class DefaultOpenId4VciManager(
     ) {
         launch(executor, onResolvedOffer) { coroutineScope, callback ->
             try {
-                val offer = offerResolver.resolve(offerUri, useCache = false).getOrThrow()
+                val offer = telemetry.traceResult(WalletStage.ISSUANCE_OFFER_RESOLUTION) {
+                    offerResolver.resolve(offerUri, useCache = false)
+                }.getOrThrow()
                 callback(OfferResult.Success(offer))
                 coroutineScope.cancel("resolveDocumentOffer succeeded")
             } catch (e: Throwable) {
@@ -329,18 +386,22 @@ internal class DefaultOpenId4VciManager(
                 //  Create Issuer using IssuerCreator (resolves issuer metadata)
                 //  Pass existing DPoP key alias so the same key is reused
                 //  (access token is bound to original key's thumbprint)
-                val issuer = issuerCreator.createIssuer(
-                    issuanceMetadata.credentialIssuerId,
-                    listOf(CredentialConfigurationIdentifier(issuanceMetadata.credentialConfigurationIdentifier)),
-                    existingDpopKeyAlias = issuanceMetadata.dPoPKeyAlias
-                )
+                val issuer = telemetry.trace(WalletStage.ISSUANCE_METADATA_FETCH) {
+                    issuerCreator.createIssuer(
+                        issuanceMetadata.credentialIssuerId,
+                        listOf(CredentialConfigurationIdentifier(issuanceMetadata.credentialConfigurationIdentifier)),
+                        existingDpopKeyAlias = issuanceMetadata.dPoPKeyAlias
+                    )
+                }
 
                 //  Refresh the access token using the stored refresh token.
                 //  If the refresh token is also expired (400 invalid_grant from /token),
                 //  fall back to full OAuth authorization when allowed.
                 var updatedAuthorizedRequest = try {
-                    with(issuer) {
-                        authorizedRequest.refresh().getOrThrow()
+                    telemetry.trace(WalletStage.ISSUANCE_AUTHORIZATION) {
+                        with(issuer) {
+                            authorizedRequest.refresh().getOrThrow()
+                        }
                     }
                 } catch (e: Throwable) {
                     if (!allowAuthorizationFallback) {
@@ -350,7 +411,9 @@ internal class DefaultOpenId4VciManager(
                         )
                     }
                     logger?.d(TAG, "Refresh token expired for $documentId, falling back to full authorization")
-                    issuerAuthorization.authorize(issuer, null)
+                    telemetry.trace(WalletStage.ISSUANCE_AUTHORIZATION) {
+                        issuerAuthorization.authorize(issuer, null)
+                    }
                 }
 
                 val offer = Offer(issuer.credentialOffer)
@@ -363,13 +426,15 @@ internal class DefaultOpenId4VciManager(
                     listener = listener,
                     logger = logger
                 )
-                val requestMap = documentCreator.createDocuments(offer)
+                val requestMap = telemetry.trace(WalletStage.ISSUANCE_KEY_CREATION) {
+                    documentCreator.createDocuments(offer)
+                }
 
                 listener(IssueEvent.Started(requestMap.size))
 
                 //  Submit the issuance request using stored AuthorizedRequest
                 //  (skips the authorization flow - uses refresh token instead)
-                val submit = SubmitRequest(config, walletProvider, issuer, updatedAuthorizedRequest)
+                val submit = SubmitRequest(config, walletProvider, issuer, updatedAuthorizedRequest, telemetry)
                 var response = submit.request(requestMap).also {
                     authorizedRequest = submit.authorizedRequest
                 }
@@ -384,8 +449,10 @@ internal class DefaultOpenId4VciManager(
                         )
                     }
                     logger?.d(TAG, "Re-issuance token expired for $documentId, falling back to full authorization")
-                    authorizedRequest = issuerAuthorization.authorize(issuer, null)
-                    val retrySubmit = SubmitRequest(config, walletProvider, issuer, authorizedRequest)
+                    authorizedRequest = telemetry.trace(WalletStage.ISSUANCE_AUTHORIZATION) {
+                        issuerAuthorization.authorize(issuer, null)
+                    }
+                    val retrySubmit = SubmitRequest(config, walletProvider, issuer, authorizedRequest, telemetry)
                     response = retrySubmit.request(requestMap).also {
                         authorizedRequest = retrySubmit.authorizedRequest
                     }
@@ -409,6 +476,7 @@ internal class DefaultOpenId4VciManager(
                     issuanceMetadataStorage = issuanceMetadataStorage,
                     clientAuthentication = issuerCreator.clientAuthentication,
                     replacesDocumentId = documentId,
+                    telemetry = telemetry,
                 ).process(response)
 
                 //  If new document(s) issued successfully, delete the old document.
@@ -430,6 +498,191 @@ internal class DefaultOpenId4VciManager(
         }
     }
 
+    override fun reissueDocuments(
+        documentIds: List<DocumentId>,
+        executor: Executor?,
+        onIssueEvent: OpenId4VciManager.OnIssueEvent
+    ) {
+        launch(executor, onIssueEvent) { coroutineScope, listener ->
+            try {
+                val ids = documentIds.distinct()
+                listener(IssueEvent.Started(ids.size))
+                val issuedDocumentIds = mutableListOf<DocumentId>()
+                val deferredDocumentIds = mutableListOf<DocumentId>()
+
+                val documents = ids.mapNotNull { documentId ->
+                    runCatching {
+                        val issuanceMetadata = loadIssuanceMetadata(documentId)
+                            ?: throw IllegalStateException("No issuance metadata found for document $documentId")
+                        ReissuedDocument(documentId, issuanceMetadata)
+                    }.onFailure { listener(IssueEvent.DocumentReissueFailed(documentId, it)) }
+                        .getOrNull()
+                }
+
+                // Groups are re-issued one after the other, since the issuer creator keeps
+                // the DPoP and client attestation state of the last created issuer
+                documents.groupBy { it.groupKey }.forEach { (groupKey, group) ->
+                    try {
+                        reissueGroup(group, listener, issuedDocumentIds, deferredDocumentIds)
+                    } catch (e: CancellationException) {
+                        throw e
+                    } catch (e: Throwable) {
+                        logger?.e(TAG, "Re-issuance failed for issuer ${groupKey.credentialIssuerId}", e)
+                        group.forEach { listener(IssueEvent.DocumentReissueFailed(it.documentId, e)) }
+                    }
+                }
+
+                listener(IssueEvent.Finished(issuedDocumentIds + deferredDocumentIds))
+            } catch (e: Throwable) {
+                logger?.e(TAG, "Something went wrong with reissuance of $documentIds", e)
+                listener(failure(e))
+                coroutineScope.cancel("reissueDocuments failed", e)
+            }
+        }
+    }
+
+    /**
+     * Re-issues documents of the same credential issuer, authorization server and DPoP key.
+     *
+     * The issuer is created once for the group and each stored authorization is refreshed once.
+     * The new documents are created one after the other, since creating a document may ask the
+     * app for its settings, and their credential requests are then submitted concurrently.
+     */
+    private suspend fun reissueGroup(
+        group: List<ReissuedDocument>,
+        listener: OpenId4VciManager.OnResult<IssueEvent>,
+        issuedDocumentIds: MutableList<DocumentId>,
+        deferredDocumentIds: MutableList<DocumentId>,
+    ) {
+        val groupKey = group.first().groupKey
+        val issuer = telemetry.trace(WalletStage.ISSUANCE_METADATA_FETCH) {
+            issuerCreator.createIssuer(
+                groupKey.credentialIssuerId,
+                group.map { CredentialConfigurationIdentifier(it.issuanceMetadata.credentialConfigurationIdentifier) }
+                    .distinct(),
+                existingDpopKeyAlias = groupKey.dPoPKeyAlias
+            )
+        }
+        val offeredDocuments = Offer(issuer.credentialOffer).offeredDocuments
+            .associateBy { it.configurationIdentifier.value }
+
+        // Refresh each stored authorization once, documents issued together share it
+        val refreshedAuthorizations = group.groupBy { it.issuanceMetadata.refreshToken }
+            .mapValues { (_, documents) ->
+                try {
+                    val authorizedRequest = ReissuanceIssuer()
+                        .reconstructAuthorizedRequest(documents.first().issuanceMetadata)
+                    Result.success(telemetry.trace(WalletStage.ISSUANCE_AUTHORIZATION) {
+                        with(issuer) { authorizedRequest.refresh().getOrThrow() }
+                    })
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Throwable) {
+                    Result.failure(
+                        ReissuanceAuthorizationException(
+                            "Re-issuance requires user authorization (refresh token expired)",
+                            cause = e
+                        )
+                    )
+                }
+            }
+
+        val documentCreator = DocumentCreator(
+            documentManager = documentManager,
+            listener = listener,
+            logger = logger
+        )
+        val requests = group.mapNotNull { document ->
+            runCatching {
+                val authorizedRequest = refreshedAuthorizations
+                    .getValue(document.issuanceMetadata.refreshToken)
+                    .getOrThrow()
+                val offeredDocument = requireNotNull(
+                    offeredDocuments[document.issuanceMetadata.credentialConfigurationIdentifier]
+                ) { "Credential configuration ${document.issuanceMetadata.credentialConfigurationIdentifier} is no longer offered" }
+                val unsignedDocument = telemetry.trace(WalletStage.ISSUANCE_KEY_CREATION) {
+                    documentCreator.createDocument(offeredDocument)
+                }
+                ReissuanceRequest(document.documentId, unsignedDocument, offeredDocument, authorizedRequest)
+            }.onFailure { e ->
+                if (e is CancellationException) throw e
+                listener(IssueEvent.DocumentReissueFailed(document.documentId, e))
+            }.getOrNull()
+        }
+
+        val concurrentRequests = Semaphore(MAX_CONCURRENT_REISSUANCE_REQUESTS)
+        val responses = coroutineScope {
+            requests.map { request ->
+                async {
+                    concurrentRequests.withPermit {
+                        val submit = SubmitRequest(config, walletProvider, issuer, request.authorizedRequest, telemetry)
+                        val response = submit.request(mapOf(request.unsignedDocument to request.offeredDocument))
+                        Triple(request, response, submit.authorizedRequest)
+                    }
+                }
+            }.awaitAll()
+        }
+
+        responses.forEach { (request, response, authorizedRequest) ->
+            val issuedBefore = issuedDocumentIds.size
+            ProcessResponse(
+                documentManager = documentManager,
+                deferredContextFactory = DeferredContextFactory(issuer, authorizedRequest, issuerCreator.dpopKeyAlias),
+                clientAttestationPopKeyId = issuerCreator.clientAttestationPopKeyId,
+                listener = listener,
+                issuedDocumentIds = issuedDocumentIds,
+                deferredDocumentIds = deferredDocumentIds,
+                logger = logger,
+                authorizedRequest = authorizedRequest,
+                issuer = issuer,
+                documentToConfigurationMap = mapOf(request.unsignedDocument to request.offeredDocument),
+                dpopKeyAlias = issuerCreator.dpopKeyAlias,
+                issuanceMetadataStorage = issuanceMetadataStorage,
+                clientAuthentication = issuerCreator.clientAuthentication,
+                replacesDocumentId = request.documentId,
+                telemetry = telemetry,
+            ).process(response)
+
+            if (issuedDocumentIds.size > issuedBefore) {
+                documentManager.deleteDocumentById(request.documentId)
+                logger?.d(TAG, "Deleted old document ${request.documentId} after re-issuance")
+            }
+        }
+    }
+
+    /**
+     * A stored document to re-issue with its issuance metadata.
+     */
+    private class ReissuedDocument(
+        val documentId: DocumentId,
+        val issuanceMetadata: IssuanceMetadata,
+    ) {
+        val groupKey = ReissuanceGroupKey(
+            credentialIssuerId = issuanceMetadata.credentialIssuerId,
+            authorizationServerId = issuanceMetadata.authorizationServerId,
+            dPoPKeyAlias = issuanceMetadata.dPoPKeyAlias,
+        )
+    }
+
+    /**
+     * The documents with the same key are re-issued with the same [Issuer].
+     */
+    private data class ReissuanceGroupKey(
+        val credentialIssuerId: String,
+        val authorizationServerId: String,
+        val dPoPKeyAlias: String?,
+    )
+
+    /**
+     * The credential request of a new document that replaces the stored document [documentId].
+     */
+    private class ReissuanceRequest(
+        val documentId: DocumentId,
+        val unsignedDocument: UnsignedDocument,
+        val offeredDocument: Offer.OfferedDocument,
+        val authorizedRequest: AuthorizedRequest,
+    )
+
     /**
      * Checks if a submission response contains an authentication failure,
      * indicating the stored access token is no longer valid and fresh
@@ -477,7 +730,9 @@ internal class DefaultOpenId4VciManager(
         txCode: String?,
         listener: OpenId4VciManager.OnResult<IssueEvent>,
     ) {
-        var authorizedRequest = issuerAuthorization.authorize(issuer, txCode)
+        var authorizedRequest = telemetry.trace(WalletStage.ISSUANCE_AUTHORIZATION) {
+            issuerAuthorization.authorize(issuer, txCode)
+        }
         listener(IssueEvent.Started(offer.offeredDocuments.size))
         val issuedDocumentIds = mutableListOf<DocumentId>()
         val deferredDocumentIds = mutableListOf<DocumentId>()
@@ -486,9 +741,11 @@ internal class DefaultOpenId4VciManager(
             listener = listener,
             logger = logger
         )
-        val requestMap = documentCreator.createDocuments(offer)
+        val requestMap = telemetry.trace(WalletStage.ISSUANCE_KEY_CREATION) {
+            documentCreator.createDocuments(offer)
+        }
 
-        val submit = SubmitRequest(config, walletProvider, issuer, authorizedRequest)
+        val submit = SubmitRequest(config, walletProvider, issuer, authorizedRequest, telemetry)
         val response = submit.request(requestMap).also {
             authorizedRequest = submit.authorizedRequest
         }
@@ -506,6 +763,7 @@ internal class DefaultOpenId4VciManager(
             dpopKeyAlias = issuerCreator.dpopKeyAlias,
             issuanceMetadataStorage = issuanceMetadataStorage,
             clientAuthentication = issuerCreator.clientAuthentication,
+            telemetry = telemetry,
         ).process(response)
         listener(IssueEvent.Finished(issuedDocumentIds + deferredDocumentIds))
     }
@@ -531,6 +789,11 @@ internal class DefaultOpenId4VciManager(
     }
 
     companion object {
+        /**
+         * The maximum number of credential requests submitted concurrently by [reissueDocuments].
+         */
+        private const val MAX_CONCURRENT_REISSUANCE_REQUESTS = 4
+
         private val DefaultHttpClientFactory: () -> HttpClient = {
             HttpClient {
                 install(ContentNegotiation) {
@@ -41,7 +41,6 @@ import eu.europa.ec.eudi.wallet.issue.openid4vci.dpop.SecureAreaDpopSigner
 import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.StoredDeferredContext
 import eu.europa.ec.eudi.wallet.logging.Logger
 import eu.europa.ec.eudi.wallet.provider.WalletKeyManager
-import kotlinx.coroutines.runBlocking
 import kotlinx.serialization.encodeToString
 import kotlinx.serialization.json.Json
 import java.net.URI
@@ -110,95 +109,141 @@ internal data class DeferredContext(
     companion object
 }
 
-internal fun DeferredContext.Companion.fromBytes(
+/**
+ * Recreates a [DeferredContext] from its stored form, creating its signers.
+ *
+ * @see LazyDeferredContext to read the stored context without creating the signers
+ */
+internal suspend fun DeferredContext.Companion.fromBytes(
     bytes: ByteArray,
     walletKeyManager: WalletKeyManager,
     dpopConfig: DPopConfig.Custom? = null,
     logger: Logger? = null,
-): DeferredContext {
-    val dto = Json.decodeFromString<StoredDeferredContext>(String(bytes, Charsets.UTF_8))
+): DeferredContext = LazyDeferredContext(bytes).materialize(walletKeyManager, dpopConfig, logger)
 
-    // Recreate client authentication
-    val clientAuthentication =
-        if (dto.clientAttestationJwt != null && dto.clientAttestationPopKeyId != null) {
-            val jwt = runCatching {
-                ClientAttestationJWT(SignedJWT.parse(dto.clientAttestationJwt))
-            }.getOrNull() ?: error("Invalid client attestation JWT in stored context")
+/**
+ * A stored [DeferredContext] whose signers are created only when needed.
+ *
+ * Only the stored JSON is parsed when created, so the cheap fields, like the transaction and
+ * whether the context [hasExpired], can be read without creating the client attestation and
+ * DPoP signers or parsing the encryption keys, which happens in [materialize].
+ *
+ * @param bytes the stored context, as created by [DeferredContext.toBytes]
+ */
+internal class LazyDeferredContext(bytes: ByteArray) {
 
-            val popSigner = createSignerAdapter(walletKeyManager, dto.clientAttestationPopKeyId)
-            val popSpec = ClientAttestationPoPJWTSpec(signer = popSigner)
-            ClientAuthentication.AttestationBased(jwt, popSpec)
+    private val stored = Json.decodeFromString<StoredDeferredContext>(String(bytes, Charsets.UTF_8))
+
+    val credentialIssuerId: String get() = stored.credentialIssuerId
+    val transactionId: String get() = stored.transactionId
+    val keyAliases: List<String> get() = stored.popKeyAliases
+    val clientAttestationPopKeyId: String? get() = stored.clientAttestationPopKeyId
+    val dPoPKeyAlias: String? get() = stored.dPoPKeyAlias
+    val replacesDocumentId: String? get() = stored.replacesDocumentId
+
+    /**
+     * The authorized transaction of the context, which does not need any signer.
+     */
+    val authorizedTransaction: AuthorizedTransaction by lazy {
+        val accessToken = if (stored.accessTokenType == "DPoP") {
+            AccessToken.DPoP(stored.accessToken, null)
         } else {
-            ClientAuthentication.None(dto.clientId)
+            AccessToken.Bearer(stored.accessToken, null)
         }
+        AuthorizedTransaction(
+            authorizedRequest = AuthorizedRequest(
+                accessToken = accessToken,
+                refreshToken = stored.refreshToken?.let { RefreshToken(it) },
+                credentialIdentifiers = emptyMap(),
+                timestamp = Instant.now(),
+                grant = Grant.AuthorizationCode,
+                authorizationServerDpopNonce = null,
+                resourceServerDpopNonce = null,
+            ),
+            transactionId = TransactionId(stored.transactionId)
+        )
+    }
+
+    /**
+     * Whether the context has expired and the issuer can no longer be queried.
+     */
+    val hasExpired: Boolean
+        get() = authorizedTransaction.authorizedRequest.hasExpired
+
+    /**
+     * Creates the [DeferredContext] with its signers.
+     *
+     * @param walletKeyManager the key manager of the client attestation PoP key
+     * @param dpopConfig the DPoP configuration, or null if DPoP is not used
+     * @param logger the logger
+     */
+    suspend fun materialize(
+        walletKeyManager: WalletKeyManager,
+        dpopConfig: DPopConfig.Custom?,
+        logger: Logger? = null,
+    ): DeferredContext {
+        val dto = stored
+
+        // Recreate client authentication
+        val clientAuthentication =
+            if (dto.clientAttestationJwt != null && dto.clientAttestationPopKeyId != null) {
+                val jwt = runCatching {
+                    ClientAttestationJWT(SignedJWT.parse(dto.clientAttestationJwt))
+                }.getOrNull() ?: error("Invalid client attestation JWT in stored context")
 
-    // Recreate DPoP signer from the SecureArea using the stored key alias.
-    // DPoP keys are managed by SecureArea (not WalletKeyManager), so we use
-    // SecureAreaDpopSigner.fromExistingKey() which looks up the key by alias.
-    val dPoPSigner = if (dto.dPoPKeyAlias != null && dpopConfig != null) {
-        runBlocking {
+                val popSigner = createSignerAdapter(walletKeyManager, dto.clientAttestationPopKeyId)
+                val popSpec = ClientAttestationPoPJWTSpec(signer = popSigner)
+                ClientAuthentication.AttestationBased(jwt, popSpec)
+            } else {
+                ClientAuthentication.None(dto.clientId)
+            }
+
+        // Recreate DPoP signer from the SecureArea using the stored key alias.
+        // DPoP keys are managed by SecureArea (not WalletKeyManager), so we use
+        // SecureAreaDpopSigner.fromExistingKey() which looks up the key by alias.
+        val dPoPSigner = if (dto.dPoPKeyAlias != null && dpopConfig != null) {
             runCatching {
                 SecureAreaDpopSigner.fromExistingKey(dpopConfig, dto.dPoPKeyAlias, logger)
             }.getOrNull()
-        }
-    } else null
-
-    // Recreate encryption spec
-    val reqEncSpec =
-        if (dto.requestEncryptionKeyJwk != null && dto.requestEncryptionMethod != null) {
-            EncryptionSpec(
-                recipientKey = JWK.parse(dto.requestEncryptionKeyJwk),
-                encryptionMethod = EncryptionMethod.parse(dto.requestEncryptionMethod)
-            )
         } else null
 
-    val respEncParams = dto.responseEncryptionMethod?.let {
-        EncryptionMethod.parse(it) to null
-    }
-
-    // Build configuration
-    val config = DeferredIssuerConfig(
-        credentialIssuerId = CredentialIssuerId(dto.credentialIssuerId).getOrThrow(),
-        clientAuthentication = clientAuthentication,
-        deferredEndpoint = URI(dto.deferredEndpoint).toURL(),
-        authorizationServerId = URI(dto.authorizationServerId).toURL(),
-        challengeEndpoint = dto.challengeEndpoint?.let { URI(it).toURL() },
-        tokenEndpoint = URI(dto.tokenEndpoint).toURL(),
-        requestEncryptionSpec = reqEncSpec,
-        responseEncryptionParams = respEncParams,
-        dPoPSigner = dPoPSigner,
-        clock = Clock.systemUTC()
-    )
+        // Recreate encryption spec
+        val reqEncSpec =
+            if (dto.requestEncryptionKeyJwk != null && dto.requestEncryptionMethod != null) {
+                EncryptionSpec(
+                    recipientKey = JWK.parse(dto.requestEncryptionKeyJwk),
+                    encryptionMethod = EncryptionMethod.parse(dto.requestEncryptionMethod)
+                )
+            } else null
 
-    // Build transaction
-    val accessToken = if (dto.accessTokenType == "DPoP") {
-        AccessToken.DPoP(dto.accessToken, null)
-    } else {
-        AccessToken.Bearer(dto.accessToken, null)
-    }
+        val respEncParams = dto.responseEncryptionMethod?.let {
+            EncryptionMethod.parse(it) to null
+        }
 
-    val transaction = AuthorizedTransaction(
-        authorizedRequest = AuthorizedRequest(
-            accessToken = accessToken,
-            refreshToken = dto.refreshToken?.let { RefreshToken(it) },
-            credentialIdentifiers = emptyMap(),
-            timestamp = Instant.now(),
-            grant = Grant.AuthorizationCode,
-            authorizationServerDpopNonce = null,
-            resourceServerDpopNonce = null,
-        ),
-        transactionId = TransactionId(dto.transactionId)
-    )
+        // Build configuration
+        val config = DeferredIssuerConfig(
+            credentialIssuerId = CredentialIssuerId(dto.credentialIssuerId).getOrThrow(),
+            clientAuthentication = clientAuthentication,
+            deferredEndpoint = URI(dto.deferredEndpoint).toURL(),
+            authorizationServerId = URI(dto.authorizationServerId).toURL(),
+            challengeEndpoint = dto.challengeEndpoint?.let { URI(it).toURL() },
+            tokenEndpoint = URI(dto.tokenEndpoint).toURL(),
+            requestEncryptionSpec = reqEncSpec,
+            responseEncryptionParams = respEncParams,
+            dPoPSigner = dPoPSigner,
+            clock = Clock.systemUTC()
+        )
 
-    return DeferredContext(
-        issuanceContext = DeferredIssuanceContext(config, transaction),
-        keyAliases = dto.popKeyAliases,
-        clientAttestationPopKeyId = dto.clientAttestationPopKeyId,
-        dPoPKeyAlias = dto.dPoPKeyAlias,
-        credentialConfigurationIdentifier = dto.credentialConfigurationIdentifier,
-        credentialEndpoint = dto.credentialEndpoint,
-        replacesDocumentId = dto.replacesDocumentId,
-    )
+        return DeferredContext(
+            issuanceContext = DeferredIssuanceContext(config, authorizedTransaction),
+            keyAliases = dto.popKeyAliases,
+            clientAttestationPopKeyId = dto.clientAttestationPopKeyId,
+            dPoPKeyAlias = dto.dPoPKeyAlias,
+            credentialConfigurationIdentifier = dto.credentialConfigurationIdentifier,
+            credentialEndpoint = dto.credentialEndpoint,
+            replacesDocumentId = dto.replacesDocumentId,
+        )
+    }
 }
 
 internal fun DeferredContext.toBytes(): ByteArray {
@@ -237,10 +282,9 @@ internal fun DeferredContext.toBytes(): ByteArray {
     return Json.encodeToString(dto).toByteArray(Charsets.UTF_8)
 }
 
-private fun createSignerAdapter(walletKeyManager: WalletKeyManager, keyAlias: String): Signer<JWK> {
-    val key = runBlocking {
-        walletKeyManager.getWalletAttestationKey(keyAlias)
-    } ?: error("Key alias '$keyAlias' not found in WalletKeyManager")
+private suspend fun createSignerAdapter(walletKeyManager: WalletKeyManager, keyAlias: String): Signer<JWK> {
+    val key = walletKeyManager.getWalletAttestationKey(keyAlias)
+        ?: error("Key alias '$keyAlias' not found in WalletKeyManager")
 
     return object : Signer<JWK> {
         override val javaAlgorithm: String = key.keyInfo.algorithm.javaAlgorithm
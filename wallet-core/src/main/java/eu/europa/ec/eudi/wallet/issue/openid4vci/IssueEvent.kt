@@ -73,6 +73,17 @@ sealed interface IssueEvent : OpenId4VciResult {
         DocumentDetails by DocumentDetails(document),
         OpenId4VciResult.Erroneous
 
+    /**
+     * Re-issuance of a stored document failed before a new document was created, e.g. because
+     * its issuance metadata is missing or its tokens could not be refreshed.
+     * @property documentId the id of the stored document
+     * @property cause the error that caused the failure
+     */
+    data class DocumentReissueFailed(
+        val documentId: DocumentId,
+        override val cause: Throwable,
+    ) : IssueEvent, OpenId4VciResult.Erroneous
+
     /**
      * Issuing requires [CreateDocumentSettings] to create the document that will be issued
      * for the [offeredDocument].
@@ -46,10 +46,14 @@ import eu.europa.ec.eudi.wallet.provider.WalletAttestationsProvider
 import eu.europa.ec.eudi.wallet.provider.WalletKeyManager
 import io.ktor.client.HttpClient
 import org.multipaz.crypto.Algorithm
+import org.multipaz.storage.Storage
 import java.net.URI
 
 /**
  * Creates an [Issuer] from the given [Offer].
+ *
+ * @property dpopStorage the storage of the keys of [DPopConfig.Default], or null to use the
+ * default DPoP database
  */
 internal class IssuerCreator(
     private val context: Context,
@@ -58,6 +62,7 @@ internal class IssuerCreator(
     private val walletProvider: WalletAttestationsProvider?,
     private val walletAttestationKeyManager: WalletKeyManager,
     private val logger: Logger?,
+    private val dpopStorage: Storage? = null,
 ) {
 
     internal var clientAttestationPopKeyId: String? = null
@@ -213,7 +218,7 @@ internal class IssuerCreator(
                 // Re-issuance: reuse existing DPoP key bound to the access token
                 val resolvedConfig = when (val cfg = dpopConfig) {
                     DPopConfig.Disabled -> null
-                    DPopConfig.Default -> DPopConfig.Default.make(context)
+                    DPopConfig.Default -> DPopConfig.Default.make(context, storage = dpopStorage)
                     is DPopConfig.Custom -> cfg
                 }
                 resolvedConfig?.let { cfg ->
@@ -227,7 +232,8 @@ internal class IssuerCreator(
                     context = context,
                     config = dpopConfig,
                     authorizationServerMetadata = authorizationServerMetadata,
-                    logger = logger
+                    logger = logger,
+                    storage = dpopStorage
                 )
                     .onSuccess { signer ->
                         // Track DPoP key alias for re-issuance metadata
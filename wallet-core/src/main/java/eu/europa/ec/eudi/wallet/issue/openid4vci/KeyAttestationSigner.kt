@@ -21,6 +21,8 @@ import eu.europa.ec.eudi.openid4vci.Nonce
 import eu.europa.ec.eudi.openid4vci.SignOperation
 import eu.europa.ec.eudi.openid4vci.Signer
 import eu.europa.ec.eudi.wallet.document.credential.ProofOfPossessionSigner
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import eu.europa.ec.eudi.wallet.provider.WalletAttestationsProvider
 import org.multipaz.securearea.KeyLockedException
 import org.multipaz.securearea.KeyUnlockData
@@ -35,12 +37,16 @@ class KeyAttestationSigner internal constructor(
     var keyLockedException: KeyLockedException? = null
         private set
 
+    internal var telemetry: WalletTelemetry = WalletTelemetry.Disabled
+
     override suspend fun acquire(): SignOperation<KeyAttestationJWT> {
 
         return SignOperation(
             function = { input ->
                 try {
-                    signer.signPoP(input, keyUnlockData).toDerEncoded()
+                    telemetry.trace(WalletStage.ISSUANCE_PROOF_SIGNING) {
+                        telemetry.sign { signer.signPoP(input, keyUnlockData) }
+                    }.toDerEncoded()
                 } catch (e: KeyLockedException) {
                     keyLockedException = e
                     throw e
@@ -33,6 +33,9 @@ import eu.europa.ec.eudi.wallet.logging.Logger
 import org.multipaz.storage.Storage
 import eu.europa.ec.eudi.wallet.provider.WalletAttestationsProvider
 import eu.europa.ec.eudi.wallet.provider.WalletKeyManager
+import eu.europa.ec.eudi.wallet.telemetry.WalletMetrics
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
+import eu.europa.ec.eudi.wallet.telemetry.WalletTracer
 import io.ktor.client.HttpClient
 import java.util.concurrent.Executor
 
@@ -198,6 +201,33 @@ interface OpenId4VciManager {
         onIssueEvent: OnIssueEvent,
     )
 
+    /**
+     * Re-issue several previously issued documents using their stored authorization context.
+     *
+     * The documents are grouped by credential issuer, authorization server and DPoP key. The
+     * issuer metadata is resolved once per group, and the access token is refreshed once per
+     * stored refresh token. The credential requests of a group are submitted concurrently.
+     *
+     * No authorization fallback is performed: documents whose tokens cannot be refreshed fail
+     * with a [eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.ReissuanceAuthorizationException].
+     * Failures of documents that fail before a new document is created are reported with
+     * [IssueEvent.DocumentReissueFailed]; the other documents are still re-issued.
+     *
+     * The events are reported in this order: [IssueEvent.Started] with the number of documents,
+     * then the events of each document, and [IssueEvent.Finished] with the ids of the new
+     * documents. Old documents are deleted once their new document is issued.
+     *
+     * @param documentIds the IDs of the documents to re-issue
+     * @param executor the executor defines the thread on which the callback will be called. If null, the callback will be called on the main thread
+     * @param onIssueEvent the callback to be called during the re-issuance process
+     * @see reissueDocument to re-issue a single document
+     */
+    fun reissueDocuments(
+        documentIds: List<DocumentId>,
+        executor: Executor? = null,
+        onIssueEvent: OnIssueEvent,
+    )
+
     /**
      * Resolve an offer using OpenId4Vci protocol
      *
@@ -303,6 +333,8 @@ interface OpenId4VciManager {
      * @property walletKeyManager the [WalletKeyManager] to use
      * @property walletAttestationsProvider the [WalletAttestationsProvider] to use
      * requires user authentication
+     * @property metrics the [WalletMetrics] of the issuance stages
+     * @property tracer the [WalletTracer] of the issuance stages
      */
     class Builder(private val context: Context) {
         var config: Config? = null
@@ -311,6 +343,15 @@ interface OpenId4VciManager {
         var ktorHttpClientFactory: (() -> HttpClient)? = null
         var walletKeyManager: WalletKeyManager? = null
         var walletAttestationsProvider: WalletAttestationsProvider? = null
+        var metrics: WalletMetrics? = null
+        var tracer: WalletTracer? = null
+
+        /**
+         * The storage all the wallet-core state is kept in, set by the wallet with the
+         * [eu.europa.ec.eudi.wallet.EudiWalletConfig.StorageProfile.SHARED] profile
+         */
+        @JvmSynthetic
+        internal var walletStorage: Storage? = null
 
         /**
          * Set the [Config] to use
@@ -365,6 +406,20 @@ interface OpenId4VciManager {
             this.walletAttestationsProvider = provider
         }
 
+        /**
+         * Set the [WalletMetrics] that receives the duration of the issuance stages
+         * @param metrics the metrics
+         * @return this builder
+         */
+        fun metrics(metrics: WalletMetrics) = apply { this.metrics = metrics }
+
+        /**
+         * Set the [WalletTracer] that creates the spans of the issuance stages
+         * @param tracer the tracer
+         * @return this builder
+         */
+        fun tracer(tracer: WalletTracer) = apply { this.tracer = tracer }
+
         /**
          * Build the [OpenId4VciManager]
          * @return the [OpenId4VciManager]
@@ -387,7 +442,12 @@ interface OpenId4VciManager {
                 logger = logger,
                 ktorHttpClientFactory = ktorHttpClientFactory,
                 walletProvider = walletAttestationsProvider,
-                walletAttestationKeyManager = walletKeyManager
+                walletAttestationKeyManager = walletKeyManager,
+                telemetry = WalletTelemetry(
+                    metrics = metrics ?: WalletMetrics.NoOp,
+                    tracer = tracer ?: WalletTracer.NoOp
+                ),
+                walletStorage = walletStorage
             )
         }
     }
@@ -25,6 +25,9 @@ import eu.europa.ec.eudi.wallet.internal.d
 import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager.Companion.TAG
 import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.IssuanceMetadata
 import eu.europa.ec.eudi.wallet.logging.Logger
+import eu.europa.ec.eudi.wallet.telemetry.WalletMetrics
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
@@ -37,6 +40,7 @@ internal class ProcessDeferredOutcome(
     val deferredContext: DeferredContext?,
     val logger: Logger? = null,
     val issuanceMetadataStorage: Storage? = null,
+    val telemetry: WalletTelemetry = WalletTelemetry.Disabled,
 ) {
 
     fun process(
@@ -77,9 +81,12 @@ internal class ProcessDeferredOutcome(
 
                 is DeferredCredentialQueryOutcome.Issued -> {
                     val credentials = outcome.credentials.map { it.credential }.zip(keyAliases)
-                    documentManager.storeIssuedDocument(deferredDocument, credentials) {
-                        logger?.d(TAG, message = it)
+                    telemetry.traceResult(WalletStage.ISSUANCE_STORAGE) {
+                        documentManager.storeIssuedDocument(deferredDocument, credentials) {
+                            logger?.d(TAG, message = it)
+                        }
                     }.onSuccess { document ->
+                        telemetry.increment(WalletMetrics.COUNTER_CREDENTIALS_ISSUED, credentials.size.toLong())
                         // If this deferred credential replaces an old document (deferred re-issuance),
                         // delete the old document now that the new one is successfully issued.
                         deferredContext?.replacesDocumentId?.let { oldDocId ->
@@ -29,6 +29,9 @@ import eu.europa.ec.eudi.wallet.issue.openid4vci.IssueEvent.Companion.failure
 import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager.Companion.TAG
 import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.IssuanceMetadata
 import eu.europa.ec.eudi.wallet.logging.Logger
+import eu.europa.ec.eudi.wallet.telemetry.WalletMetrics
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
@@ -53,6 +56,7 @@ internal class ProcessResponse(
     val issuanceMetadataStorage: Storage,
     val clientAuthentication: ClientAuthentication,
     val replacesDocumentId: DocumentId? = null,
+    val telemetry: WalletTelemetry = WalletTelemetry.Disabled,
 ) {
 
     suspend fun process(response: SubmitRequest.Response) {
@@ -109,11 +113,14 @@ internal class ProcessResponse(
         when (outcome) {
             is SubmissionOutcome.Success -> runCatching {
                 val credentials = outcome.credentials.map { it.credential }.zip(keyAliases)
-                documentManager.storeIssuedDocument(unsignedDocument, credentials) { message ->
-                    logger?.d(TAG, message)
+                telemetry.traceResult(WalletStage.ISSUANCE_STORAGE) {
+                    documentManager.storeIssuedDocument(unsignedDocument, credentials) { message ->
+                        logger?.d(TAG, message)
+                    }
                 }.getOrThrow()
             }.onSuccess { document ->
                 issuedDocumentIds.add(document.id)
+                telemetry.increment(WalletMetrics.COUNTER_CREDENTIALS_ISSUED, outcome.credentials.size.toLong())
 
                 // Store issuance metadata in background coroutine
                 CoroutineScope(Dispatchers.IO).launch {
@@ -27,6 +27,8 @@ import eu.europa.ec.eudi.openid4vci.SubmissionOutcome
 import eu.europa.ec.eudi.wallet.document.UnsignedDocument
 import eu.europa.ec.eudi.wallet.document.credential.ProofOfPossessionSigner
 import eu.europa.ec.eudi.wallet.provider.WalletAttestationsProvider
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import kotlinx.coroutines.runBlocking
 import org.multipaz.securearea.KeyUnlockData
 
@@ -35,6 +37,7 @@ internal class SubmitRequest(
     val walletAttestationsProvider: WalletAttestationsProvider?,
     val issuer: Issuer,
     authorizedRequest: AuthorizedRequest,
+    val telemetry: WalletTelemetry = WalletTelemetry.Disabled,
 ) {
     var authorizedRequest: AuthorizedRequest = authorizedRequest
         private set
@@ -42,7 +45,9 @@ internal class SubmitRequest(
     suspend fun request(offeredDocuments: Map<UnsignedDocument, Offer.OfferedDocument>): Response {
         return Response(offeredDocuments.mapValues { (unsignedDocument, offeredDocument) ->
             try {
-                val (keyAliases, outcome) = submitRequest(unsignedDocument, offeredDocument)
+                val (keyAliases, outcome) = telemetry.trace(WalletStage.ISSUANCE_CREDENTIAL_REQUEST) {
+                    submitRequest(unsignedDocument, offeredDocument)
+                }
                 ResponseResult(
                     keyAliases = keyAliases,
                     outcome = Result.success(outcome)
@@ -208,7 +213,10 @@ internal class SubmitRequest(
                 val factory = KeyAttestationSigner.Factory(
                     signers, keyIndex, walletAttestationsProvider, keyUnlockData
                 )
-                factory(nonce).getOrThrow().also { proofSigner = it }
+                factory(nonce).getOrThrow().also {
+                    it.telemetry = telemetry
+                    proofSigner = it
+                }
             },
             keyIndex = keyIndex,
         )
@@ -247,7 +255,7 @@ internal class SubmitRequest(
         var proofSigner: BatchProofSigner? = null
         try {
             proofSigner =
-                BatchProofSigner(signers, keyUnlockData)
+                BatchProofSigner(signers, keyUnlockData).also { it.telemetry = telemetry }
             val proofsSpecification = ProofsSpecification.JwtProofs.NoKeyAttestation(proofSigner)
             return with(issuer) {
                 request(payload, proofsSpecification)
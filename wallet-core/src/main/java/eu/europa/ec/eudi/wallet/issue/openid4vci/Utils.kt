@@ -18,6 +18,7 @@ package eu.europa.ec.eudi.wallet.issue.openid4vci
 
 import com.nimbusds.jose.JWSAlgorithm
 import com.nimbusds.jose.crypto.impl.ECDSA
+import eu.europa.ec.eudi.openid4vci.AuthorizedRequest
 import eu.europa.ec.eudi.openid4vci.Credential
 import eu.europa.ec.eudi.openid4vci.DeferredIssuanceContext
 import eu.europa.ec.eudi.wallet.document.CreateDocumentSettings
@@ -156,9 +157,13 @@ internal inline fun <reified V : OpenId4VciResult> OpenId4VciManager.OnResult<V>
 
 @get:JvmSynthetic
 internal val DeferredIssuanceContext.hasExpired: Boolean
-    get() = with(authorizedTransaction.authorizedRequest) {
+    get() = authorizedTransaction.authorizedRequest.hasExpired
+
+@get:JvmSynthetic
+internal val AuthorizedRequest.hasExpired: Boolean
+    get() {
         val now = Instant.now()
-        accessToken.isExpired(timestamp, now) && (refreshToken == null)
+        return accessToken.isExpired(timestamp, now) && (refreshToken == null)
     }
 
 @JvmSynthetic
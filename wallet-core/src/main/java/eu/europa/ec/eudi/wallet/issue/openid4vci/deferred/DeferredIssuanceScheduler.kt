@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.issue.openid4vci.deferred
+
+import eu.europa.ec.eudi.wallet.document.DeferredDocument
+import eu.europa.ec.eudi.wallet.document.DocumentId
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.internal.d
+import eu.europa.ec.eudi.wallet.internal.e
+import eu.europa.ec.eudi.wallet.issue.openid4vci.DefaultOpenId4VciManager
+import eu.europa.ec.eudi.wallet.issue.openid4vci.DeferredIssueResult
+import eu.europa.ec.eudi.wallet.issue.openid4vci.LazyDeferredContext
+import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager
+import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager.Companion.TAG
+import eu.europa.ec.eudi.wallet.logging.Logger
+import io.ktor.client.HttpClient
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withTimeoutOrNull
+import kotlinx.io.bytestring.ByteString
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.Json
+import org.multipaz.storage.Storage
+import org.multipaz.storage.StorageTable
+import org.multipaz.storage.StorageTableSpec
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import kotlin.coroutines.resume
+import kotlin.math.pow
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.hours
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.Duration.Companion.minutes
+
+/**
+ * Polls the credential issuers of all pending [DeferredDocument]s until their credentials are
+ * issued.
+ *
+ * Each document is polled again after the interval returned by its issuer, or, when the issuer
+ * does not return one or the query fails, after an exponential backoff starting at
+ * [Policy.initialInterval] and capped at [Policy.maxInterval]. When a document of an issuer is
+ * due, the other documents of the same issuer that are due within [Policy.coalesceWindow] are
+ * polled with it, reusing one HTTP client per issuer.
+ *
+ * The schedule is persisted in [scheduleStorage], so a restarted process resumes polling where
+ * it stopped instead of querying all the issuers at once. Documents that are issued, expired or
+ * deleted are removed from the schedule.
+ *
+ * ```kotlin
+ * val scheduler = DeferredIssuanceScheduler(
+ *     openId4VciManager = wallet.createOpenId4VciManager(),
+ *     documentManager = wallet,
+ *     scheduleStorage = storage,
+ * ) { result ->
+ *     // handle the DeferredIssueResult
+ * }
+ * scheduler.start()
+ * ```
+ *
+ * @param openId4VciManager the manager that queries the issuers
+ * @param documentManager the manager of the deferred documents
+ * @param scheduleStorage the storage of the schedule
+ * @param policy the polling policy
+ * @param executor the executor the results are delivered on, or null to deliver them on a
+ * background thread
+ * @param logger the logger
+ * @param onResult the callback of the result of each poll
+ */
+class DeferredIssuanceScheduler internal constructor(
+    private val documentManager: DocumentManager,
+    private val scheduleStorage: Storage,
+    val policy: Policy,
+    private val executor: Executor?,
+    private val logger: Logger?,
+    private val httpClientFactory: (() -> HttpClient)?,
+    private val query: DeferredDocumentQuery,
+    private val clock: () -> Long,
+    private val onResult: OpenId4VciManager.OnDeferredIssueResult,
+) {
+
+    constructor(
+        openId4VciManager: OpenId4VciManager,
+        documentManager: DocumentManager,
+        scheduleStorage: Storage,
+        policy: Policy = Policy(),
+        executor: Executor? = null,
+        logger: Logger? = null,
+        onResult: OpenId4VciManager.OnDeferredIssueResult,
+    ) : this(
+        documentManager = documentManager,
+        scheduleStorage = scheduleStorage,
+        policy = policy,
+        executor = executor,
+        logger = logger,
+        httpClientFactory = (openId4VciManager as? DefaultOpenId4VciManager)
+            ?.let { manager -> { manager.httpClientFactory() } },
+        query = DeferredDocumentQuery(openId4VciManager),
+        clock = System::currentTimeMillis,
+        onResult = onResult,
+    )
+
+    /**
+     * The polling policy.
+     *
+     * @property initialInterval the interval before polling a document again when its issuer did
+     * not return one
+     * @property maxInterval the maximum backoff interval
+     * @property backoffMultiplier the factor the backoff interval grows with after each poll
+     * @property coalesceWindow the documents of an issuer that are due within this window are
+     * polled together with a due document of the same issuer
+     */
+    data class Policy(
+        val initialInterval: Duration = 1.minutes,
+        val maxInterval: Duration = 6.hours,
+        val backoffMultiplier: Double = 2.0,
+        val coalesceWindow: Duration = 1.minutes,
+    ) {
+        init {
+            require(initialInterval.isPositive()) { "initialInterval must be positive" }
+            require(maxInterval >= initialInterval) { "maxInterval must not be less than initialInterval" }
+            require(backoffMultiplier >= 1.0) { "backoffMultiplier must be at least 1" }
+            require(!coalesceWindow.isNegative()) { "coalesceWindow must not be negative" }
+        }
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val mutex = Mutex()
+    private val wakeUp = Channel<Unit>(Channel.CONFLATED)
+    private val httpClients = ConcurrentHashMap<String, HttpClient>()
+    private var job: Job? = null
+
+    /**
+     * Starts polling in the background. Does nothing if already started.
+     */
+    @Synchronized
+    fun start() {
+        if (job?.isActive == true) return
+        job = scope.launch {
+            while (true) {
+                val nextPoll = try {
+                    pollDueDocuments()
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Throwable) {
+                    logger?.e(TAG, "Deferred issuance polling failed", e)
+                    policy.initialInterval
+                }
+                withTimeoutOrNull(nextPoll ?: policy.maxInterval) { wakeUp.receive() }
+            }
+        }
+    }
+
+    /**
+     * Stops polling and closes the HTTP clients. The schedule is kept for the next [start].
+     */
+    @Synchronized
+    fun stop() {
+        job?.cancel()
+        job = null
+        httpClients.values.forEach { it.close() }
+        httpClients.clear()
+    }
+
+    /**
+     * Polls all the pending documents now, e.g. after a new deferred document has been stored.
+     * Has no effect unless the scheduler is started.
+     */
+    fun pollNow() {
+        scope.launch {
+            mutex.withLock {
+                val table = scheduleStorage.getTable(STORAGE_TABLE_SPEC)
+                val now = clock()
+                loadSchedule(table).forEach { (documentId, entry) ->
+                    if (entry.nextPollAtMillis > now) {
+                        saveEntry(table, documentId, entry.copy(nextPollAtMillis = now))
+                    }
+                }
+            }
+            wakeUp.trySend(Unit)
+        }
+    }
+
+    /**
+     * Polls the documents that are due and reschedules them.
+     *
+     * @return the time until the next document is due, or null if no document is pending
+     */
+    @JvmSynthetic
+    internal suspend fun pollDueDocuments(): Duration? = mutex.withLock {
+        val table = scheduleStorage.getTable(STORAGE_TABLE_SPEC)
+        val documents = documentManager.getDocuments()
+            .filterIsInstance<DeferredDocument>()
+            .associateBy { it.id }
+        val schedule = syncSchedule(table, documents)
+
+        val now = clock()
+        val dueIssuers = schedule.values
+            .filter { it.nextPollAtMillis <= now }
+            .map { it.credentialIssuerId }
+            .toSet()
+        val coalesceUntil = now + policy.coalesceWindow.inWholeMilliseconds
+
+        schedule.entries
+            .filter { (_, entry) -> entry.credentialIssuerId in dueIssuers && entry.nextPollAtMillis <= coalesceUntil }
+            .groupBy({ it.value.credentialIssuerId }, { it.key to it.value })
+            .forEach { (credentialIssuerId, entries) ->
+                val httpClient = httpClientFactory?.let { factory ->
+                    httpClients.getOrPut(credentialIssuerId) { factory() }
+                }
+                logger?.d(TAG, "Polling ${entries.size} deferred document(s) of $credentialIssuerId")
+                entries.forEach { (documentId, entry) ->
+                    val next = poll(documents.getValue(documentId), entry, httpClient)
+                    if (next == null) {
+                        table.delete(documentId)
+                        schedule.remove(documentId)
+                    } else {
+                        saveEntry(table, documentId, next)
+                        schedule[documentId] = next
+                    }
+                }
+            }
+
+        schedule.values.minOfOrNull { it.nextPollAtMillis }
+            ?.let { (it - clock()).coerceAtLeast(0).milliseconds }
+    }
+
+    /**
+     * Polls a document and returns its next schedule, or null if it is no longer pending.
+     */
+    private suspend fun poll(
+        document: DeferredDocument,
+        entry: ScheduleEntry,
+        httpClient: HttpClient?,
+    ): ScheduleEntry? {
+        var result: DeferredIssueResult? = null
+        val issuerInterval = try {
+            query.query(document, httpClient) { result = it }
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Throwable) {
+            result = DeferredIssueResult.DocumentFailed(document, e)
+            null
+        }
+        result?.let { deliver(it) }
+
+        return when (result) {
+            is DeferredIssueResult.DocumentIssued, is DeferredIssueResult.DocumentExpired -> null
+            else -> entry.copy(
+                nextPollAtMillis = clock() + (issuerInterval ?: backoff(entry.attempts)).inWholeMilliseconds,
+                attempts = entry.attempts + 1,
+            )
+        }
+    }
+
+    private fun backoff(attempts: Int): Duration {
+        val interval = policy.initialInterval * policy.backoffMultiplier.pow(attempts)
+        return if (interval > policy.maxInterval) policy.maxInterval else interval
+    }
+
+    private fun deliver(result: DeferredIssueResult) {
+        executor?.execute { onResult.onResult(result) } ?: onResult.onResult(result)
+    }
+
+    /**
+     * Loads the schedule, removes the documents that are no longer pending and adds the new
+     * pending documents as due now.
+     */
+    private suspend fun syncSchedule(
+        table: StorageTable,
+        documents: Map<DocumentId, DeferredDocument>,
+    ): MutableMap<DocumentId, ScheduleEntry> {
+        val schedule = loadSchedule(table)
+        (schedule.keys - documents.keys).forEach { documentId ->
+            table.delete(documentId)
+            schedule.remove(documentId)
+        }
+        (documents.keys - schedule.keys).forEach { documentId ->
+            val entry = ScheduleEntry(
+                credentialIssuerId = credentialIssuerIdOf(documents.getValue(documentId)),
+                nextPollAtMillis = clock(),
+            )
+            saveEntry(table, documentId, entry)
+            schedule[documentId] = entry
+        }
+        return schedule
+    }
+
+    private suspend fun loadSchedule(table: StorageTable): MutableMap<DocumentId, ScheduleEntry> =
+        table.enumerate().mapNotNull { documentId ->
+            table.get(documentId)
+                ?.let { runCatching { ScheduleEntry.fromByteArray(it.toByteArray()) }.getOrNull() }
+                ?.let { documentId to it }
+        }.toMap(mutableMapOf())
+
+    private suspend fun saveEntry(table: StorageTable, documentId: DocumentId, entry: ScheduleEntry) {
+        table.delete(documentId)
+        table.insert(key = documentId, data = ByteString(entry.toByteArray()))
+    }
+
+    /**
+     * Reads the credential issuer of a document from its stored deferred context, without
+     * creating the signers of the context.
+     */
+    private fun credentialIssuerIdOf(document: DeferredDocument): String = runCatching {
+        LazyDeferredContext(document.relatedData).credentialIssuerId
+    }.getOrDefault("")
+
+    /**
+     * The persisted schedule of a deferred document.
+     *
+     * @property credentialIssuerId the credential issuer of the document
+     * @property nextPollAtMillis the time of the next poll in epoch milliseconds
+     * @property attempts the number of polls so far
+     */
+    @Serializable
+    internal data class ScheduleEntry(
+        val credentialIssuerId: String,
+        val nextPollAtMillis: Long,
+        val attempts: Int = 0,
+    ) {
+        fun toByteArray(): ByteArray = Json.encodeToString(this).toByteArray(Charsets.UTF_8)
+
+        companion object {
+            fun fromByteArray(bytes: ByteArray): ScheduleEntry =
+                Json.decodeFromString<ScheduleEntry>(bytes.toString(Charsets.UTF_8))
+        }
+    }
+
+    companion object {
+        /**
+         * [StorageTableSpec] of the schedule table.
+         */
+        internal val STORAGE_TABLE_SPEC = StorageTableSpec(
+            name = "deferred_issuance_schedule",
+            supportPartitions = false,
+            supportExpiration = false
+        )
+    }
+}
+
+/**
+ * Queries the issuer of a deferred document with the given HTTP client, if any, reports the
+ * result to the callback and returns the interval the issuer asked to wait, if any.
+ */
+internal fun interface DeferredDocumentQuery {
+    suspend fun query(
+        document: DeferredDocument,
+        httpClient: HttpClient?,
+        callback: OpenId4VciManager.OnResult<DeferredIssueResult>,
+    ): Duration?
+}
+
+/**
+ * Creates the [DeferredDocumentQuery] of the given manager. Managers other than the default one
+ * are queried with [OpenId4VciManager.issueDeferredDocument], which uses their own HTTP client
+ * and does not return the interval of the issuer.
+ */
+internal fun DeferredDocumentQuery(openId4VciManager: OpenId4VciManager): DeferredDocumentQuery =
+    when (openId4VciManager) {
+        is DefaultOpenId4VciManager -> DeferredDocumentQuery { document, httpClient, callback ->
+            openId4VciManager.queryDeferredDocument(
+                document,
+                httpClient ?: openId4VciManager.httpClientFactory(),
+                callback
+            )
+        }
+
+        else -> DeferredDocumentQuery { document, _, callback ->
+            suspendCancellableCoroutine { continuation ->
+                openId4VciManager.issueDeferredDocument(document, { it.run() }) { result ->
+                    callback(result)
+                    if (continuation.isActive) continuation.resume(null)
+                }
+            }
+        }
+    }
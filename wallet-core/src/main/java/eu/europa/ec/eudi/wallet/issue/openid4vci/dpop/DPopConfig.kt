@@ -1,6 +1,6 @@
 package eu.europa.ec.eudi.wallet.issue.openid4vci.dpop
 
-import java.io.File
+import eu.europa.ec.eudi.wallet.internal.WalletStorage
 import java.security.SecureRandom
 import kotlinx.io.bytestring.ByteString
 import org.multipaz.context.initializeApplication
@@ -11,7 +11,7 @@ import org.multipaz.securearea.CreateKeySettings
 import org.multipaz.securearea.KeyUnlockData
 import org.multipaz.securearea.SecureArea
 import org.multipaz.securearea.UserAuthenticationType
-import org.multipaz.storage.android.AndroidStorage
+import org.multipaz.storage.Storage
 import kotlin.time.Duration
 
 /**
@@ -103,18 +103,19 @@ sealed interface DPopConfig {
          * @param context The Android context for initializing storage and secure area
          * @param attestationChallenge Optional 16-byte challenge for key attestation.
          *        If null, a random challenge is generated.
+         * @param storage Optional storage of the keys. If null, the `dpop_metadata` database
+         *        in the no-backup directory is used.
          * @return A [Custom] configuration with Android Keystore secure area and default settings
          */
         internal suspend fun make(
             context: android.content.Context,
-            attestationChallenge: ByteArray? = null
+            attestationChallenge: ByteArray? = null,
+            storage: Storage? = null,
         ): Custom {
             initializeApplication(context)
-            val storage = AndroidStorage(
-                databasePath = File(context.noBackupFilesDir, "dpop_metadata").path
-            )
+            val keyStorage = storage ?: WalletStorage.open(context, "dpop_metadata")
             val capabilities = AndroidKeystoreSecureArea.Capabilities()
-            val secureArea = AndroidKeystoreSecureArea.create(storage = storage)
+            val secureArea = AndroidKeystoreSecureArea.create(storage = keyStorage)
             val attestationChallengeBytes = ByteString(attestationChallenge ?: ByteArray(16).also {
                 SecureRandom().nextBytes(it)
             })
@@ -5,6 +5,7 @@ import com.nimbusds.jose.jwk.JWK
 import eu.europa.ec.eudi.openid4vci.CIAuthorizationServerMetadata
 import eu.europa.ec.eudi.openid4vci.Signer
 import eu.europa.ec.eudi.wallet.logging.Logger
+import org.multipaz.storage.Storage
 
 /**
  * Signer interface for DPoP (Demonstrating Proof-of-Possession) in OpenID4VCI flows.
@@ -126,6 +127,8 @@ interface DPopSigner : Signer<JWK> {
          *        field with at least one algorithm
          * @param logger Optional logger for debugging. If provided, it's passed to the
          *        [SecureAreaDpopSigner] to log DPoP key creation details
+         * @param storage Optional storage of the keys when using [DPopConfig.Default]. If null,
+         *        the default DPoP database is used
          * @return A [Result] containing:
          *         - [Result.success] with a [DPopSigner] instance if DPoP is supported
          *         - [Result.failure] with [IllegalStateException] if DPoP is disabled,
@@ -135,12 +138,13 @@ interface DPopSigner : Signer<JWK> {
             context: Context,
             config: DPopConfig,
             authorizationServerMetadata: CIAuthorizationServerMetadata,
-            logger: Logger? = null
+            logger: Logger? = null,
+            storage: Storage? = null,
         ): Result<DPopSigner> = runCatching {
 
             val config = when (config) {
                 DPopConfig.Disabled -> throw IllegalStateException("DPoP is disabled in the configuration")
-                DPopConfig.Default -> DPopConfig.Default.make(context)
+                DPopConfig.Default -> DPopConfig.Default.make(context, storage = storage)
                 is DPopConfig.Custom -> config
             }
 
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.issue.openid4vci.reissue
+
+import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
+import eu.europa.ec.eudi.wallet.document.CreateDocumentSettings.CredentialPolicy
+import eu.europa.ec.eudi.wallet.document.DeferredDocument
+import eu.europa.ec.eudi.wallet.document.DocumentId
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.internal.d
+import eu.europa.ec.eudi.wallet.issue.openid4vci.CreateDocumentSettingsProvider
+import eu.europa.ec.eudi.wallet.issue.openid4vci.IssueEvent
+import eu.europa.ec.eudi.wallet.issue.openid4vci.LazyDeferredContext
+import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager
+import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager.Companion.TAG
+import eu.europa.ec.eudi.wallet.logging.Logger
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.launch
+import org.multipaz.storage.Storage
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.minutes
+
+/**
+ * Re-issues batch-issued documents in the background when they run low on unused credentials.
+ *
+ * The remaining usable credentials of a document are its credentials that have not been used
+ * yet. Only documents with the [CredentialPolicy.OneTimeUse] policy run low, since the
+ * credentials of [CredentialPolicy.RotateUse] documents are used again and are never replenished.
+ * When they drop to [Policy.lowWatermark] or below, the document is re-issued with
+ * [OpenId4VciManager.reissueDocument] using the refresh token of its stored [IssuanceMetadata],
+ * without authorization fallback, so the user is never asked to authorize or unlock keys; if the
+ * refresh token has expired, the re-issuance fails and is retried later. Documents without a
+ * refresh token are never re-issued.
+ *
+ * Re-issuance runs in the background and presentations never wait for it. At most one
+ * re-issuance runs per document, and each credential issuer is contacted at most once per
+ * [Policy.minIssuerInterval]. A document whose re-issuance was deferred by the issuer is not
+ * re-issued again while the [DeferredDocument] that replaces it is pending.
+ *
+ * Register it as a [TransferEvent.Listener] of the wallet to check the documents after each
+ * presentation, or call [checkDocuments] or [checkDocument] directly:
+ *
+ * ```kotlin
+ * val replenisher = CredentialReplenisher(
+ *     openId4VciManager = wallet.createOpenId4VciManager(),
+ *     documentManager = wallet,
+ *     issuanceMetadataStorage = storage,
+ *     createDocumentSettingsProvider = { offeredDocument -> settingsFor(offeredDocument) },
+ * )
+ * wallet.addTransferEventListener(replenisher)
+ * ```
+ *
+ * Call [close] when the replenisher is no longer used, to cancel its pending checks.
+ *
+ * @param openId4VciManager the manager that re-issues the documents
+ * @param documentManager the manager of the documents
+ * @param issuanceMetadataStorage the storage of the [IssuanceMetadata] of the documents, the
+ * same one the [openId4VciManager] uses
+ * @param createDocumentSettingsProvider provides the settings of the re-issued documents
+ * @param policy the replenishment policy
+ * @param logger the logger
+ */
+class CredentialReplenisher(
+    private val openId4VciManager: OpenId4VciManager,
+    private val documentManager: DocumentManager,
+    private val issuanceMetadataStorage: Storage,
+    private val createDocumentSettingsProvider: CreateDocumentSettingsProvider,
+    val policy: Policy = Policy(),
+    private val logger: Logger? = null,
+) : TransferEvent.Listener {
+
+    /**
+     * The replenishment policy.
+     *
+     * @property lowWatermark the number of remaining usable credentials at or below which a
+     * document is re-issued
+     * @property minIssuerInterval the minimum interval between two re-issuances with the same
+     * credential issuer
+     */
+    data class Policy(
+        val lowWatermark: Int = 1,
+        val minIssuerInterval: Duration = 15.minutes,
+    ) {
+        init {
+            require(lowWatermark >= 0) { "lowWatermark must not be negative" }
+        }
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val inFlightDocuments = ConcurrentHashMap.newKeySet<DocumentId>()
+    private val lastIssuerAttempts = ConcurrentHashMap<String, Long>()
+
+    /**
+     * Checks all the documents after a presentation has been sent.
+     */
+    override fun onTransferEvent(event: TransferEvent) {
+        if (event is TransferEvent.ResponseSent) checkDocuments()
+    }
+
+    /**
+     * Checks all the issued documents in the background and re-issues the ones that are low on
+     * credentials.
+     */
+    fun checkDocuments() {
+        scope.launch { replenishLowDocuments() }
+    }
+
+    @JvmSynthetic
+    internal suspend fun replenishLowDocuments() {
+        val documents = documentManager.getDocuments()
+        val pendingReplacements = pendingReplacementsOf(documents.filterIsInstance<DeferredDocument>())
+        documents.filterIsInstance<IssuedDocument>()
+            .filterNot { it.id in pendingReplacements }
+            .forEach { replenishIfLow(it) }
+    }
+
+    /**
+     * Checks the given document in the background and re-issues it if it is low on credentials.
+     *
+     * @param documentId the id of the document
+     */
+    fun checkDocument(documentId: DocumentId) {
+        scope.launch {
+            val document = documentManager.getDocumentById(documentId) as? IssuedDocument
+                ?: return@launch
+            val pendingReplacements = pendingReplacementsOf(
+                documentManager.getDocuments().filterIsInstance<DeferredDocument>()
+            )
+            if (document.id !in pendingReplacements) replenishIfLow(document)
+        }
+    }
+
+    /**
+     * Cancels the checks and re-issuances started by this replenisher. Re-issuances already
+     * handed to the [openId4VciManager] are not cancelled.
+     */
+    fun close() {
+        scope.cancel()
+    }
+
+    private suspend fun replenishIfLow(document: IssuedDocument) {
+        val remaining = runCatching { remainingCredentials(document) }.getOrNull() ?: return
+        if (remaining > policy.lowWatermark) return
+
+        val metadata = loadIssuanceMetadata(document.id) ?: return
+        if (metadata.refreshToken == null) return
+        if (!inFlightDocuments.add(document.id)) return
+        if (!tryAcquireIssuer(metadata.credentialIssuerId)) {
+            inFlightDocuments.remove(document.id)
+            return
+        }
+
+        logger?.d(TAG, "Replenishing document ${document.id}, $remaining usable credentials left")
+        openId4VciManager.reissueDocument(
+            documentId = document.id,
+            allowAuthorizationFallback = false,
+            executor = DirectExecutor,
+        ) { event ->
+            when (event) {
+                is IssueEvent.DocumentRequiresCreateSettings -> runCatching {
+                    createDocumentSettingsProvider.provideSettings(event.offeredDocument)
+                }.onSuccess { event.resume(it) }
+                    .onFailure { event.cancel(it.message) }
+
+                is IssueEvent.DocumentRequiresUserAuth ->
+                    event.cancel("Background re-issuance cannot unlock keys")
+
+                is IssueEvent.Finished -> {
+                    logger?.d(TAG, "Replenished document ${document.id}")
+                    inFlightDocuments.remove(document.id)
+                }
+
+                is IssueEvent.Failure -> {
+                    logger?.d(TAG, "Replenishment of document ${document.id} failed: ${event.cause.message}")
+                    inFlightDocuments.remove(document.id)
+                }
+
+                else -> Unit
+            }
+        }
+    }
+
+    /**
+     * Returns the number of credentials of the document that have not been used, or null for
+     * documents that do not consume their credentials.
+     */
+    private suspend fun remainingCredentials(document: IssuedDocument): Int? =
+        if (document.credentialPolicy == CredentialPolicy.OneTimeUse) {
+            document.getCredentials().count { it.usageCount == 0 }
+        } else null
+
+    /**
+     * Returns the ids of the documents that are replaced by the given pending deferred documents.
+     */
+    private fun pendingReplacementsOf(deferredDocuments: List<DeferredDocument>): Set<DocumentId> =
+        deferredDocuments.mapNotNullTo(HashSet()) { document ->
+            runCatching { LazyDeferredContext(document.relatedData).replacesDocumentId }.getOrNull()
+        }
+
+    private fun tryAcquireIssuer(credentialIssuerId: String): Boolean {
+        val now = System.currentTimeMillis()
+        var acquired = false
+        lastIssuerAttempts.compute(credentialIssuerId) { _, last ->
+            if (last == null || now - last >= policy.minIssuerInterval.inWholeMilliseconds) {
+                acquired = true
+                now
+            } else last
+        }
+        return acquired
+    }
+
+    private suspend fun loadIssuanceMetadata(documentId: DocumentId): IssuanceMetadata? =
+        runCatching {
+            issuanceMetadataStorage.getTable(IssuanceMetadata.STORAGE_TABLE_SPEC)
+                .get(documentId)
+                ?.let { IssuanceMetadata.fromByteArray(it.toByteArray()) }
+        }.getOrNull()
+
+    private object DirectExecutor : Executor {
+        override fun execute(command: Runnable) = command.run()
+    }
+}
@@ -16,10 +16,13 @@
 
 package eu.europa.ec.eudi.wallet.issue.openid4vci.reissue
 
+import eu.europa.ec.eudi.wallet.document.BulkDocumentDeletion
 import eu.europa.ec.eudi.wallet.document.DocumentId
 import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.DocumentsDeletionResult
 import eu.europa.ec.eudi.wallet.document.Outcome
 import eu.europa.ec.eudi.wallet.document.ProofOfDeletion
+import eu.europa.ec.eudi.wallet.document.deleteDocumentsInBulk
 import eu.europa.ec.eudi.wallet.internal.d
 import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager.Companion.TAG
 import eu.europa.ec.eudi.wallet.logging.Logger
@@ -43,7 +46,7 @@ internal class DocumentManagerWithMetadataCleanup(
     private val delegate: DocumentManager,
     private val issuanceMetadataStorage: Storage,
     private val logger: Logger? = null,
-) : DocumentManager by delegate {
+) : DocumentManager by delegate, BulkDocumentDeletion {
 
     override fun deleteDocumentById(documentId: DocumentId): Outcome<ProofOfDeletion?> {
         return delegate.deleteDocumentById(documentId).also {
@@ -51,10 +54,26 @@ internal class DocumentManagerWithMetadataCleanup(
         }
     }
 
+    /**
+     * Deletes the documents and then the issuance metadata of the deleted ones in a single
+     * operation, which has completed when this method resumes.
+     */
+    override suspend fun deleteDocuments(documentIds: List<DocumentId>): DocumentsDeletionResult {
+        return delegate.deleteDocumentsInBulk(documentIds).also {
+            if (it.deleted.isNotEmpty()) removeIssuanceMetadata(it.deleted.keys)
+        }
+    }
+
     private fun deleteIssuanceMetadata(documentId: DocumentId) {
-        CoroutineScope(Dispatchers.IO).launch {
+        CoroutineScope(Dispatchers.IO).launch { removeIssuanceMetadata(setOf(documentId)) }
+    }
+
+    private suspend fun removeIssuanceMetadata(documentIds: Collection<DocumentId>) {
+        val table = runCatching { issuanceMetadataStorage.getTable(IssuanceMetadata.STORAGE_TABLE_SPEC) }
+            .onFailure { error -> logger?.d(TAG, "Failed to open issuance metadata: ${error.message}") }
+            .getOrNull() ?: return
+        documentIds.forEach { documentId ->
             runCatching {
-                val table = issuanceMetadataStorage.getTable(IssuanceMetadata.STORAGE_TABLE_SPEC)
                 table.delete(documentId)
                 logger?.d(TAG, "Deleted issuance metadata for old document $documentId")
             }.onFailure { error ->
@@ -22,9 +22,17 @@ import androidx.activity.ComponentActivity
 import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
 import eu.europa.ec.eudi.iso18013.transfer.engagement.NfcEngagementService
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStoreAware
+import eu.europa.ec.eudi.iso18013.transfer.response.DisclosedDocuments
+import eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor
 import eu.europa.ec.eudi.iso18013.transfer.response.Response
+import eu.europa.ec.eudi.iso18013.transfer.response.ResponseResult
 import eu.europa.ec.eudi.wallet.EudiWallet
 import eu.europa.ec.eudi.wallet.presentation.SessionTerminationFlag.Companion.SEND_SESSION_TERMINATION_MESSAGE
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpSession
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import org.multipaz.crypto.Algorithm
 
 /**
  * The PresentationManager is responsible for managing the presentation of the wallet's documents
@@ -36,8 +44,8 @@ import eu.europa.ec.eudi.wallet.presentation.SessionTerminationFlag.Companion.SE
  *
  * This interface extends [TransferEvent.Listenable] that allows to listen to the transfer events
  * through which it receives the requests from the verifier. After receiving the [eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor.ProcessedRequest]
- * the wallet can generate the response with [eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor.ProcessedRequest.Success.generateResponse]
- * and send it back to the verifier by calling [sendResponse] method.
+ * the wallet can generate the response with [generateResponse], or with [eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor.ProcessedRequest.Success.generateResponse]
+ * outside of a coroutine, and send it back to the verifier by calling [sendResponse] method.
  *
  * It also extends [ReaderTrustStoreAware] that allows to set the [ReaderTrustStore] that is used
  * to verify the authenticity of the reader.
@@ -50,6 +58,23 @@ interface PresentationManager : TransferEvent.Listenable, ReaderTrustStoreAware
 
     val nfcEngagementServiceClass: Class<out NfcEngagementService>?
 
+    /**
+     * The transfer events of all the presentations, as a flow. It can be collected instead of, or
+     * along with, registering a [TransferEvent.Listener].
+     *
+     * By default, a listener is registered for each collector while it is collecting.
+     */
+    val transferEvents: Flow<TransferEvent>
+        get() = callbackFlow {
+            val listener = object : TransferEvent.Listener {
+                override fun onTransferEvent(event: TransferEvent) {
+                    trySend(event)
+                }
+            }
+            addTransferEventListener(listener)
+            awaitClose { removeTransferEventListener(listener) }
+        }
+
     /**
      * Starts the proximity presentation.
      * The QR code is available through the [TransferEvent.QrEngagementReady] event which is triggered
@@ -77,6 +102,28 @@ interface PresentationManager : TransferEvent.Listenable, ReaderTrustStoreAware
      */
     fun startRemotePresentation(uri: Uri, refererUrl: String? = null)
 
+    /**
+     * Prefetch a remote presentation with the given URI, before [startRemotePresentation] is
+     * called. The request and the verifier artifacts are fetched in the background, without
+     * emitting any event, so that [startRemotePresentation] with the same URI completes faster.
+     * URIs with an unsupported scheme are ignored.
+     * @param uri the URI
+     */
+    fun prefetchRemotePresentation(uri: Uri) {}
+
+    /**
+     * Opens a session for the remote presentation of the OpenId4Vp request with the given URI.
+     * Unlike [startRemotePresentation], several sessions can be open at the same time; the events
+     * of a session are emitted only to the given listener and to the listeners of the session,
+     * and its response is sent with [OpenId4VpSession.sendResponse].
+     * @param uri the URI
+     * @param listener the listener of the events of the session
+     * @return the session
+     * @throws IllegalStateException if the scheme of the URI is not supported or too many
+     * sessions are open
+     */
+    fun openRemotePresentationSession(uri: Uri, listener: TransferEvent.Listener): OpenId4VpSession
+
     /**
      * Start a remote presentation with the given intent
      * The intent.data could either contain the URI of
@@ -115,11 +162,28 @@ interface PresentationManager : TransferEvent.Listenable, ReaderTrustStoreAware
      */
     fun startDCAPIPresentation(intent: Intent)
 
+    /**
+     * Generates the response of the given processed request on the IO dispatcher, suspending
+     * instead of blocking the calling thread while the documents are signed and, for DCAPI
+     * requests, while the response is encrypted.
+     *
+     * @param processedRequest the processed request received with [TransferEvent.RequestReceived]
+     * @param disclosedDocuments the documents to disclose
+     * @param signatureAlgorithm the algorithm of the device signature
+     * @return the result with the response, or the failure
+     */
+    suspend fun generateResponse(
+        processedRequest: RequestProcessor.ProcessedRequest.Success,
+        disclosedDocuments: DisclosedDocuments,
+        signatureAlgorithm: Algorithm? = null,
+    ): ResponseResult
+
     /**
      * Send a response to verifier
      *
-     * The response should be generated through the [eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor.ProcessedRequest.Success.generateResponse]
-     * method and sent back to the verifier by calling this method.
+     * The response should be generated through [generateResponse], or the
+     * [eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor.ProcessedRequest.Success.generateResponse]
+     * method outside of a coroutine, and sent back to the verifier by calling this method.
      *
      * @param response the response
      */
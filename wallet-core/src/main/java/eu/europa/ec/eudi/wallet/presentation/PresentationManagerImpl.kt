@@ -25,30 +25,62 @@ import eu.europa.ec.eudi.iso18013.transfer.TransferManager
 import eu.europa.ec.eudi.iso18013.transfer.engagement.NfcEngagementService
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStoreAware
+import eu.europa.ec.eudi.iso18013.transfer.response.DisclosedDocuments
+import eu.europa.ec.eudi.iso18013.transfer.response.RequestProcessor
 import eu.europa.ec.eudi.iso18013.transfer.response.Response
+import eu.europa.ec.eudi.iso18013.transfer.response.ResponseResult
 import eu.europa.ec.eudi.iso18013.transfer.response.device.DeviceResponse
 import eu.europa.ec.eudi.wallet.dcapi.DCAPIManager
 import eu.europa.ec.eudi.wallet.dcapi.DCAPIRequest
 import eu.europa.ec.eudi.wallet.dcapi.DCAPIResponse
+import eu.europa.ec.eudi.wallet.dcapi.ProcessedDCPAPIRequest
+import eu.europa.ec.eudi.wallet.internal.TransferEventDispatcher
 import eu.europa.ec.eudi.wallet.presentation.SessionTerminationFlag.Companion.SEND_SESSION_TERMINATION_MESSAGE
 import eu.europa.ec.eudi.wallet.presentation.SessionTerminationFlag.Companion.USE_TRANSPORT_SPECIFIC_SESSION_TERMINATION
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpManager
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpResponse
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpSession
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.withContext
 import org.jetbrains.annotations.VisibleForTesting
+import org.multipaz.crypto.Algorithm
 
 /**
  * Implementation of the [PresentationManager] interface based on the [TransferManager],
  * [OpenId4VpManager], [DCAPIManager] implementations.
+ *
+ * The listeners are kept by the presentation manager, which registers a single listener to each
+ * of the underlying managers and forwards their events to all of them on the thread the event
+ * was delivered on.
+ *
  * @property nfcEngagementServiceClass the NFC engagement service class
  * @property readerTrustStore the reader trust store
+ * @param eventsBufferCapacity the number of events buffered for slow collectors of [transferEvents]
  */
 class PresentationManagerImpl @JvmOverloads constructor(
     @VisibleForTesting internal val transferManager: TransferManager,
     @VisibleForTesting internal val openId4vpManager: OpenId4VpManager? = null,
     @VisibleForTesting internal val dcapiManager: DCAPIManager? = null,
     override val nfcEngagementServiceClass: Class<out NfcEngagementService>? = null,
+    eventsBufferCapacity: Int = TransferEventDispatcher.DEFAULT_BUFFER_CAPACITY,
 ) : PresentationManager {
 
+    private val listeners = TransferEventDispatcher(bufferCapacity = eventsBufferCapacity)
+
+    private val forwardingListener = object : TransferEvent.Listener {
+        override fun onTransferEvent(event: TransferEvent) = listeners.dispatchNow(event)
+    }
+
+    init {
+        transferManager.addTransferEventListener(forwardingListener)
+        openId4vpManager?.addTransferEventListener(forwardingListener)
+        dcapiManager?.addTransferEventListener(forwardingListener)
+    }
+
+    override val transferEvents: SharedFlow<TransferEvent>
+        get() = listeners.events
+
     private var _readerTrustStore: ReaderTrustStore? = null
     override var readerTrustStore: ReaderTrustStore?
         get() = _readerTrustStore
@@ -62,21 +94,15 @@ class PresentationManagerImpl @JvmOverloads constructor(
         }
 
     override fun addTransferEventListener(listener: TransferEvent.Listener) = apply {
-        transferManager.addTransferEventListener(listener)
-        openId4vpManager?.addTransferEventListener(listener)
-        dcapiManager?.addTransferEventListener(listener)
+        listeners.add(listener)
     }
 
     override fun removeAllTransferEventListeners() = apply {
-        transferManager.removeAllTransferEventListeners()
-        openId4vpManager?.removeAllTransferEventListeners()
-        dcapiManager?.removeAllTransferEventListeners()
+        listeners.clear()
     }
 
     override fun removeTransferEventListener(listener: TransferEvent.Listener) = apply {
-        transferManager.removeTransferEventListener(listener)
-        openId4vpManager?.removeTransferEventListener(listener)
-        dcapiManager?.removeTransferEventListener(listener)
+        listeners.remove(listener)
     }
 
     override fun startProximityPresentation() {
@@ -101,6 +127,20 @@ class PresentationManagerImpl @JvmOverloads constructor(
             ?: error("Not supported scheme")
     }
 
+    override fun prefetchRemotePresentation(uri: Uri) {
+        openId4vpManager
+            ?.takeIf { it.config.schemes.contains(uri.scheme) }
+            ?.prefetchRequestUri(uri.toString())
+    }
+
+    override fun openRemotePresentationSession(
+        uri: Uri,
+        listener: TransferEvent.Listener,
+    ): OpenId4VpSession = openId4vpManager
+        ?.takeIf { it.config.schemes.contains(uri.scheme) }
+        ?.openSession(uri.toString(), listener)
+        ?: error("Not supported scheme")
+
     override fun startDCAPIPresentation(intent: Intent) {
         dcapiManager?.let {
             val request =
@@ -121,6 +161,19 @@ class PresentationManagerImpl @JvmOverloads constructor(
         NfcEngagementService.disable(activity)
     }
 
+    override suspend fun generateResponse(
+        processedRequest: RequestProcessor.ProcessedRequest.Success,
+        disclosedDocuments: DisclosedDocuments,
+        signatureAlgorithm: Algorithm?,
+    ): ResponseResult = when (processedRequest) {
+        is ProcessedDCPAPIRequest ->
+            processedRequest.generateEncryptedResponse(disclosedDocuments, signatureAlgorithm)
+
+        else -> withContext(Dispatchers.IO) {
+            processedRequest.generateResponse(disclosedDocuments, signatureAlgorithm)
+        }
+    }
+
     override fun sendResponse(response: Response) {
         when (response) {
             is DeviceResponse -> transferManager.sendResponse(response)
@@ -17,25 +17,28 @@
 package eu.europa.ec.eudi.wallet.provider
 
 import android.content.Context
+import eu.europa.ec.eudi.wallet.internal.WalletStorage
 import kotlinx.coroutines.sync.Mutex
 import kotlinx.coroutines.sync.withLock
 import kotlinx.io.bytestring.ByteString
 import org.multipaz.crypto.Algorithm
 import org.multipaz.securearea.AndroidKeystoreCreateKeySettings
 import org.multipaz.securearea.AndroidKeystoreSecureArea
-import org.multipaz.storage.android.AndroidStorage
+import org.multipaz.storage.Storage
 import java.security.SecureRandom
 
 /**
  * The default Android implementation of [WalletKeyManager].
  *
  * This class handles the initialization of an [AndroidKeystoreSecureArea] backed by
- * a dedicated file storage in the application's `noBackupFilesDir`.
+ * a dedicated file storage in the application's `noBackupFilesDir`, or by the given [storage].
  *
  * @param context The Android Application Context.
+ * @param storage The storage of the keys, or null to use the dedicated file storage.
  */
-class DefaultWalletKeyManager(
+class DefaultWalletKeyManager @JvmOverloads constructor(
     private val context: Context,
+    private val storage: Storage? = null,
 ) : WalletKeyManager {
 
 
@@ -60,8 +63,8 @@ class DefaultWalletKeyManager(
         return secureAreaBased ?: mutex.withLock {
             // another thread may have initialized secureAreaBased while we were acquiring mutex.
             secureAreaBased ?.let { return it }
-            val storage = AndroidStorage("${context.noBackupFilesDir.path}/wallet-attest.bin")
-            val secureArea = AndroidKeystoreSecureArea.create(storage)
+            val keyStorage = storage ?: WalletStorage.open(context, "wallet-attest.bin")
+            val secureArea = AndroidKeystoreSecureArea.create(keyStorage)
 
             SecureAreaWalletKeyManager(secureArea, createKeySettingsProvider = { algorithm ->
                 val challenge = ByteArray(32).also { SecureRandom().nextBytes(it) }
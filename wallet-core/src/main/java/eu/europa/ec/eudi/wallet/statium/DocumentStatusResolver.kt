@@ -19,12 +19,16 @@ package eu.europa.ec.eudi.wallet.statium
 import eu.europa.ec.eudi.statium.GetStatus
 import eu.europa.ec.eudi.statium.GetStatusListToken
 import eu.europa.ec.eudi.statium.Status
+import eu.europa.ec.eudi.statium.StatusReference
 import eu.europa.ec.eudi.statium.VerifyStatusListTokenJwtSignature
 import eu.europa.ec.eudi.wallet.document.IssuedDocument
 import io.ktor.client.HttpClient
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.time.Clock
 import kotlin.time.Duration
 
@@ -82,6 +86,7 @@ interface DocumentStatusResolver {
      * @property ktorHttpClientFactory a factory function to create an [HttpClient]; default is [HttpClient]
      * @property allowedClockSkew the allowed clock skew for the verification; default is [Duration.ZERO]
      * @property extractor an instance of [StatusReferenceExtractor] to extract the status reference from the document; default is [DefaultStatusReferenceExtractor]
+     * @property statusListStore the local store of the status lists, if the status lists should be kept on disk; default is null
      */
     class Builder {
 
@@ -89,6 +94,7 @@ interface DocumentStatusResolver {
         var ktorHttpClientFactory: () -> HttpClient = { HttpClient() }
         var allowedClockSkew: Duration = Duration.ZERO
         var extractor: StatusReferenceExtractor = DefaultStatusReferenceExtractor
+        var statusListStore: StatusListStore? = null
 
         /**
          * Sets the function to verify the status list token signature
@@ -126,6 +132,17 @@ interface DocumentStatusResolver {
             this.extractor = extractor
         }
 
+        /**
+         * Sets the [StatusListStore] to keep the fetched status lists in, so that the statuses
+         * are read from the stored lists instead of fetching and decompressing a status list for
+         * each resolution
+         * @param statusListStore the status list store
+         * @return the builder instance
+         */
+        fun withStatusListStore(statusListStore: StatusListStore) = apply {
+            this.statusListStore = statusListStore
+        }
+
         /**
          * Builds the [DocumentStatusResolver] instance
          */
@@ -134,7 +151,8 @@ interface DocumentStatusResolver {
                 verifySignature,
                 allowedClockSkew,
                 ktorHttpClientFactory,
-                extractor
+                extractor,
+                statusListStore = statusListStore
             )
         }
     }
@@ -147,20 +165,36 @@ interface DocumentStatusResolver {
  * @param allowedClockSkew the allowed clock skew for the verification
  * @param ktorHttpClientFactory a factory function to create an [HttpClient]
  * @param extractor an instance of [StatusReferenceExtractor] to extract the status reference from the document
+ * @param statusListStore the local store of the status lists, if any
  */
 class DocumentStatusResolverImpl(
     internal val verifySignature: VerifyStatusListTokenJwtSignature,
     internal val allowedClockSkew: Duration,
     internal val ktorHttpClientFactory: () -> HttpClient,
     internal val extractor: StatusReferenceExtractor = DefaultStatusReferenceExtractor,
-    private val ioDispatcher: CoroutineDispatcher = Dispatchers.IO
+    private val ioDispatcher: CoroutineDispatcher = Dispatchers.IO,
+    internal val statusListStore: StatusListStore? = null,
 ) : DocumentStatusResolver {
 
+    private val statusListTokenFetcher by lazy {
+        StatusListTokenFetcher(ktorHttpClientFactory, verifySignature, allowedClockSkew)
+    }
+
+    /**
+     * The locks that serialize the fetching of each status list into the [statusListStore], by
+     * status list URI, so that a status list needed by concurrent resolutions is fetched once,
+     * while different status lists are fetched concurrently.
+     */
+    private val statusListFetchLocks = ConcurrentHashMap<String, Mutex>()
 
     override suspend fun resolveStatus(document: IssuedDocument): Result<Status> = runCatching {
         withContext(ioDispatcher) {
             val statusReference = extractor.extractStatusReference(document).getOrThrow()
 
+            statusListStore?.let { store ->
+                return@withContext store.statusOf(statusReference)
+            }
+
             val getStatusListToken = GetStatusListToken.usingJwt(
                 clock = Clock.System,
                 httpClient = ktorHttpClientFactory(),
@@ -172,4 +206,14 @@ class DocumentStatusResolverImpl(
             }
         }
     }
+
+    private suspend fun StatusListStore.statusOf(statusReference: StatusReference): Status {
+        val uri = statusReference.uri
+        val statusList = find(uri, Clock.System.now())
+            ?: statusListFetchLocks.getOrPut(uri) { Mutex() }.withLock {
+                find(uri, Clock.System.now())
+                    ?: put(uri, statusListTokenFetcher.fetch(uri), Clock.System.now())
+            }
+        return statusList.status(statusReference.index)
+    }
 }
\ No newline at end of file
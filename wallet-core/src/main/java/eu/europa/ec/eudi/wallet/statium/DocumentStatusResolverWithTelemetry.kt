@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2023-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.statium
+
+import eu.europa.ec.eudi.statium.Status
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
+
+/**
+ * [DocumentStatusResolverWithTelemetry] is a wrapper around [DocumentStatusResolver] that measures
+ * each resolution as the [WalletStage.STATUS_FETCH] stage.
+ *
+ * @property delegate The delegate [DocumentStatusResolver] instance.
+ * @property telemetry The telemetry of the wallet.
+ */
+internal class DocumentStatusResolverWithTelemetry(
+    private val delegate: DocumentStatusResolver,
+    private val telemetry: WalletTelemetry,
+) : DocumentStatusResolver {
+
+    override suspend fun resolveStatus(document: IssuedDocument): Result<Status> {
+        return telemetry.traceResult(WalletStage.STATUS_FETCH) { span ->
+            span.setAttribute("format", document.format::class.simpleName ?: "unknown")
+            delegate.resolveStatus(document)
+        }
+    }
+}
@@ -18,8 +18,6 @@ package eu.europa.ec.eudi.wallet.statium
 
 import COSE.Message
 import COSE.MessageTag
-import com.upokecenter.cbor.CBORObject
-import com.upokecenter.cbor.CBORType
 import eu.europa.ec.eudi.statium.StatusIndex
 import eu.europa.ec.eudi.statium.StatusReference
 import eu.europa.ec.eudi.statium.TokenStatusListSpec.IDX
@@ -28,6 +26,8 @@ import eu.europa.ec.eudi.statium.TokenStatusListSpec.STATUS_LIST
 import eu.europa.ec.eudi.statium.TokenStatusListSpec.URI
 import eu.europa.ec.eudi.wallet.document.IssuedDocument
 import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.internal.CborReader
+import eu.europa.ec.eudi.wallet.internal.CborWriter
 import org.multipaz.mdoc.mso.StaticAuthDataParser
 
 
@@ -53,10 +53,10 @@ object MsoMdocStatusReferenceExtractor : StatusReferenceExtractor {
      * Parses the MSO document and extracts the MSO data.
      *
      * @param document The issued document to parse.
-     * @return The parsed MSO data as a [CBORObject].
+     * @return The encoded MSO data.
      */
 
-    internal suspend fun parseMso(document: IssuedDocument): CBORObject {
+    internal suspend fun parseMso(document: IssuedDocument): ByteArray {
         require(document.format is MsoMdocFormat) {
             "Document format is not MsoMdocFormat"
         }
@@ -73,31 +73,49 @@ object MsoMdocStatusReferenceExtractor : StatusReferenceExtractor {
 
         val issuerAuthSign1 = Message.DecodeFromBytes(issuerAuthBytes, MessageTag.Sign1)
 
-        return issuerAuthSign1
-            .GetContent()
-            .let { CBORObject.DecodeFromBytes(it) }
-            .GetByteString()
-            .let { CBORObject.DecodeFromBytes(it) }
+        // MobileSecurityObjectBytes = #6.24(bstr .cbor MobileSecurityObject)
+        val content = CborReader(issuerAuthSign1.GetContent())
+        if (content.peekMajorType() == CborWriter.MAJOR_TYPE_TAG) {
+            content.readTag()
+        }
+        return content.readBytes()
     }
 
     /**
-     * Extracts the status reference from the MSO data.
+     * Extracts the status reference from the MSO data. Only the `status` entry of the MSO is
+     * decoded, the other entries are skipped.
      *
-     * @param mso The MSO data as a [CBORObject].
+     * @param mso The encoded MSO data.
      * @return The extracted [StatusReference].
      */
-    internal fun extractStatusList(mso: CBORObject): StatusReference {
-        require(mso.type == CBORType.Map) {
+    internal fun extractStatusList(mso: ByteArray): StatusReference {
+        val reader = CborReader(mso)
+        require(reader.peekMajorType() == CborWriter.MAJOR_TYPE_MAP) {
             "MSO is not a CBOR map"
         }
+        require(reader.findInMap(STATUS)) { "MSO has no $STATUS" }
+        require(reader.findInMap(STATUS_LIST)) { "MSO has no $STATUS_LIST" }
+
+        var uri: String? = null
+        var idx: Int? = null
+        reader.readMap {
+            when (reader.peekMajorType()) {
+                CborWriter.MAJOR_TYPE_TEXT_STRING -> when (reader.readString()) {
+                    URI -> uri = reader.readString()
+                    IDX -> idx = Math.toIntExact(reader.readLong())
+                    else -> reader.skip()
+                }
 
-        val statusList = mso[STATUS][STATUS_LIST]
-        val uri = statusList[URI].AsString()
-        val idx = statusList[IDX].AsInt32()
+                else -> {
+                    reader.skip()
+                    reader.skip()
+                }
+            }
+        }
 
         return StatusReference(
-            uri = uri,
-            index = StatusIndex(idx),
+            uri = requireNotNull(uri) { "Status list has no $URI" },
+            index = StatusIndex(requireNotNull(idx) { "Status list has no $IDX" }),
         )
     }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2023-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.statium
+
+import eu.europa.ec.eudi.statium.Status
+import eu.europa.ec.eudi.statium.StatusIndex
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.InflaterInputStream
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.hours
+import kotlin.time.Instant
+
+/**
+ * A local store of status lists, that keeps the decompressed bitstring of each status list in a
+ * memory-mapped file per status list URI.
+ *
+ * A status list is decompressed once, when its token is fetched, directly to the file. The
+ * status of an index is then read from the mapped file at its bit offset, so a lookup takes
+ * constant time, does not allocate and does not load the list on the heap, however large it is.
+ *
+ * A stored status list is used until the time to live of its token, the expiration time of its
+ * token or [defaultTimeToLive] after it was fetched, whichever comes first. It is replaced when a
+ * token with a different issuance time is fetched.
+ *
+ * @property directory the directory of the status list files, e.g. in the cache directory of the
+ * application
+ * @property defaultTimeToLive how long a status list is used when its token has neither a time to
+ * live nor an expiration time
+ */
+class StatusListStore @JvmOverloads constructor(
+    private val directory: File,
+    private val defaultTimeToLive: Duration = DEFAULT_TIME_TO_LIVE,
+) {
+
+    private val lists = ConcurrentHashMap<String, StoredStatusList>()
+
+    /**
+     * Removes all the stored status lists.
+     */
+    @Synchronized
+    fun clear() {
+        lists.clear()
+        directory.listFiles { file -> file.name.endsWith(FILE_EXTENSION) }?.forEach { it.delete() }
+    }
+
+    /**
+     * Returns the stored status list of the given URI, if it can still be used at the given time.
+     *
+     * @param uri the URI of the status list
+     * @param at the time of the lookup
+     * @return the status list, or null if it must be fetched
+     */
+    @JvmSynthetic
+    internal fun find(uri: String, at: Instant): StoredStatusList? =
+        (lists[uri] ?: load(uri))?.takeIf { at < it.refreshAt }
+
+    /**
+     * Stores the status list of the given token, decompressing it to the file of its URI.
+     *
+     * @param uri the URI of the status list
+     * @param token the fetched status list token
+     * @param fetchedAt when the token was fetched
+     * @return the stored status list
+     */
+    @JvmSynthetic
+    @Synchronized
+    internal fun put(uri: String, token: StatusListToken, fetchedAt: Instant): StoredStatusList {
+        val refreshAt = listOfNotNull(
+            fetchedAt + (token.timeToLive ?: defaultTimeToLive),
+            token.expiresAt,
+        ).min()
+        val file = fileOf(uri)
+        val current = lists[uri] ?: load(uri)
+        if (current != null && current.bits == token.bits && current.issuedAt == token.issuedAt) {
+            // Same version of the list, only the time it can be used until changes
+            RandomAccessFile(file, "rw").use { it.seek(REFRESH_AT_OFFSET.toLong()); it.writeLong(refreshAt.toEpochMilliseconds()) }
+            return current.copy(refreshAt = refreshAt).also { lists[uri] = it }
+        }
+
+        directory.mkdirs()
+        val tmp = File(directory, "${file.name}.tmp")
+        tmp.outputStream().buffered(BUFFER_SIZE).use { output ->
+            output.write(
+                ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN)
+                    .putInt(MAGIC)
+                    .putInt(token.bits)
+                    .putLong(token.issuedAt.epochSeconds)
+                    .putLong(refreshAt.toEpochMilliseconds())
+                    .array()
+            )
+            InflaterInputStream(token.compressedList.inputStream()).use { it.copyTo(output, BUFFER_SIZE) }
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete()
+            check(tmp.renameTo(file)) { "Could not store the status list of $uri" }
+        }
+        return map(file)!!.also { lists[uri] = it }
+    }
+
+    private fun load(uri: String): StoredStatusList? =
+        runCatching { map(fileOf(uri)) }.getOrNull()?.also { lists[uri] = it }
+
+    private fun map(file: File): StoredStatusList? {
+        if (!file.exists()) return null
+        return RandomAccessFile(file, "r").use { raf ->
+            // The mapping stays valid after the channel is closed
+            val buffer = raf.channel.map(FileChannel.MapMode.READ_ONLY, 0, raf.length())
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) return null
+            StoredStatusList(
+                bits = buffer.getInt(BITS_OFFSET),
+                issuedAt = Instant.fromEpochSeconds(buffer.getLong(ISSUED_AT_OFFSET)),
+                refreshAt = Instant.fromEpochMilliseconds(buffer.getLong(REFRESH_AT_OFFSET)),
+                buffer = buffer,
+            )
+        }
+    }
+
+    private fun fileOf(uri: String): File {
+        val hash = MessageDigest.getInstance("SHA-256").digest(uri.toByteArray())
+            .joinToString("") { "%02x".format(it) }
+        return File(directory, "$hash$FILE_EXTENSION")
+    }
+
+    companion object {
+        /**
+         * The default time a status list is used when its token has neither a time to live nor
+         * an expiration time
+         */
+        val DEFAULT_TIME_TO_LIVE: Duration = 1.hours
+
+        private const val FILE_EXTENSION = ".statuslist"
+        private const val MAGIC = 0x53544c31 // "STL1"
+        private const val BITS_OFFSET = 4
+        private const val ISSUED_AT_OFFSET = 8
+        private const val REFRESH_AT_OFFSET = 16
+        private const val HEADER_SIZE = 24
+        private const val BUFFER_SIZE = 8 * 1024
+    }
+
+    /**
+     * A status list token, as needed to store its status list.
+     *
+     * @property bits the number of bits per status, 1, 2, 4 or 8
+     * @property compressedList the DEFLATE compressed status list, in the ZLIB format
+     * @property issuedAt the issuance time of the token
+     * @property expiresAt the expiration time of the token, if any
+     * @property timeToLive the time to live of the token, if any
+     */
+    internal class StatusListToken(
+        val bits: Int,
+        val compressedList: ByteArray,
+        val issuedAt: Instant,
+        val expiresAt: Instant?,
+        val timeToLive: Duration?,
+    ) {
+        init {
+            require(bits in setOf(1, 2, 4, 8)) { "Invalid bits per status: $bits" }
+        }
+    }
+
+    /**
+     * A stored status list, read from its memory-mapped file.
+     *
+     * @property bits the number of bits per status
+     * @property issuedAt the issuance time of the token of the list
+     * @property refreshAt the time until the list can be used
+     */
+    internal data class StoredStatusList(
+        val bits: Int,
+        val issuedAt: Instant,
+        val refreshAt: Instant,
+        private val buffer: MappedByteBuffer,
+    ) {
+        /**
+         * The number of statuses of the list.
+         */
+        val size: Long
+            get() = (buffer.limit() - HEADER_SIZE).toLong() * 8 / bits
+
+        /**
+         * Returns the status at the given index.
+         *
+         * @throws IndexOutOfBoundsException if the list has no such index
+         */
+        fun status(index: StatusIndex): Status {
+            val bitOffset = index.value.toLong() * bits
+            val byteOffset = HEADER_SIZE + bitOffset / 8
+            if (index.value < 0 || byteOffset >= buffer.limit()) {
+                throw IndexOutOfBoundsException("Status index ${index.value} is out of the status list")
+            }
+            val byte = buffer.get(byteOffset.toInt()).toInt() and 0xFF
+            val value = (byte ushr (bitOffset % 8).toInt()) and ((1 shl bits) - 1)
+            return when (value) {
+                0x00 -> Status.Valid
+                0x01 -> Status.Invalid
+                0x02 -> Status.Suspended
+                0x03, in 0x0C..0x0F -> Status.ApplicationSpecific(value.toByte())
+                else -> Status.Reserved(value.toByte())
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2023-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.statium
+
+import com.nimbusds.jwt.SignedJWT
+import eu.europa.ec.eudi.statium.VerifyStatusListTokenJwtSignature
+import eu.europa.ec.eudi.wallet.statium.StatusListStore.StatusListToken
+import io.ktor.client.HttpClient
+import io.ktor.client.request.get
+import io.ktor.client.request.header
+import io.ktor.client.statement.bodyAsText
+import io.ktor.http.HttpHeaders
+import io.ktor.http.isSuccess
+import java.util.Base64
+import kotlin.time.Clock
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.seconds
+import kotlin.time.Instant
+
+/**
+ * Fetches and verifies the status list tokens in JWT format, for the [StatusListStore].
+ *
+ * @param ktorHttpClientFactory a factory function to create an [HttpClient]
+ * @param verifySignature a function to verify the status list token signature
+ * @param allowedClockSkew the allowed clock skew for the verification
+ * @param clock the clock of the verification
+ */
+internal class StatusListTokenFetcher(
+    private val ktorHttpClientFactory: () -> HttpClient,
+    private val verifySignature: VerifyStatusListTokenJwtSignature,
+    private val allowedClockSkew: Duration,
+    private val clock: Clock = Clock.System,
+) {
+
+    /**
+     * Fetches the status list token of the given URI.
+     *
+     * @param uri the URI of the status list
+     * @return the verified token
+     * @throws IllegalStateException if the token cannot be fetched, is not valid, or has expired
+     */
+    suspend fun fetch(uri: String): StatusListToken {
+        val jwt = ktorHttpClientFactory().use { httpClient ->
+            val response = httpClient.get(uri) {
+                header(HttpHeaders.Accept, MEDIA_TYPE_STATUS_LIST_JWT)
+            }
+            check(response.status.isSuccess()) { "Failed to fetch status list token: ${response.status}" }
+            response.bodyAsText()
+        }
+        val now = clock.now()
+        verifySignature(jwt, now).getOrThrow()
+
+        val signedJwt = SignedJWT.parse(jwt)
+        check(signedJwt.header.type?.type == TYPE_STATUS_LIST_JWT) { "Invalid status list token type" }
+        val claims = signedJwt.jwtClaimsSet
+        check(claims.subject == uri) { "Status list token subject does not match $uri" }
+        val issuedAt = checkNotNull(claims.issueTime) { "Status list token has no iat" }
+            .let { Instant.fromEpochMilliseconds(it.time) }
+        check(issuedAt <= now + allowedClockSkew) { "Status list token is issued in the future" }
+        val expiresAt = claims.expirationTime?.let { Instant.fromEpochMilliseconds(it.time) }
+        check(expiresAt == null || now - allowedClockSkew < expiresAt) { "Status list token has expired" }
+
+        val statusList = checkNotNull(claims.getJSONObjectClaim(STATUS_LIST)) { "Status list token has no $STATUS_LIST" }
+        return StatusListToken(
+            bits = (statusList[BITS] as Number).toInt(),
+            compressedList = Base64.getUrlDecoder().decode(statusList[LIST] as String),
+            issuedAt = issuedAt,
+            expiresAt = expiresAt,
+            timeToLive = claims.getLongClaim(TIME_TO_LIVE)?.seconds,
+        )
+    }
+
+    private companion object {
+        const val MEDIA_TYPE_STATUS_LIST_JWT = "application/statuslist+jwt"
+        const val TYPE_STATUS_LIST_JWT = "statuslist+jwt"
+        const val STATUS_LIST = "status_list"
+        const val BITS = "bits"
+        const val LIST = "lst"
+        const val TIME_TO_LIVE = "ttl"
+    }
+}
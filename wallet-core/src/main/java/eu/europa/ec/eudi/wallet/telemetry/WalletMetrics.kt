@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2023-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.telemetry
+
+/**
+ * Receives the measurements of the wallet flows, e.g. to aggregate them into percentiles per
+ * stage and report them to a monitoring service.
+ *
+ * The methods are called on the threads of the flows, so implementations must be thread safe,
+ * fast and must not throw; exceptions are ignored.
+ *
+ * Configure it with [eu.europa.ec.eudi.wallet.EudiWallet.Builder.withMetrics].
+ */
+interface WalletMetrics {
+
+    /**
+     * Records the duration of a stage.
+     *
+     * @param stage the stage
+     * @param durationNanos the duration of the stage in nanoseconds
+     * @param success whether the stage completed successfully
+     */
+    fun recordDuration(stage: WalletStage, durationNanos: Long, success: Boolean)
+
+    /**
+     * Increments a counter.
+     *
+     * @param name the name of the counter, one of the counters of the companion object
+     * @param amount the amount to add
+     */
+    fun incrementCounter(name: String, amount: Long = 1)
+
+    companion object {
+
+        /**
+         * The number of credentials issued.
+         */
+        const val COUNTER_CREDENTIALS_ISSUED = "issuance.credentials_issued"
+
+        /**
+         * The number of documents that match a presentation request.
+         */
+        const val COUNTER_DOCUMENTS_MATCHED = "presentation.documents_matched"
+
+        /**
+         * The number of signatures with keys of a secure area.
+         */
+        const val COUNTER_SECURE_AREA_SIGNATURES = "secure_area.signatures"
+
+        /**
+         * [WalletMetrics] that ignores all the measurements. This is the default.
+         */
+        @JvmField
+        val NoOp: WalletMetrics = object : WalletMetrics {
+            override fun recordDuration(stage: WalletStage, durationNanos: Long, success: Boolean) = Unit
+            override fun incrementCounter(name: String, amount: Long) = Unit
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2023-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.telemetry
+
+/**
+ * The stages of the wallet flows that are measured with [WalletMetrics] and traced with
+ * [WalletTracer].
+ *
+ * @property id the stable identifier of the stage, suitable as a metric or span name
+ */
+enum class WalletStage(val id: String) {
+
+    /**
+     * Resolution of a credential offer URI, including the fetch of the offer and of the issuer
+     * metadata it refers to.
+     */
+    ISSUANCE_OFFER_RESOLUTION("issuance.offer_resolution"),
+
+    /**
+     * Fetch of the credential issuer and authorization server metadata.
+     */
+    ISSUANCE_METADATA_FETCH("issuance.metadata_fetch"),
+
+    /**
+     * Authorization with the issuer, including the user interaction of the authorization code
+     * flow.
+     */
+    ISSUANCE_AUTHORIZATION("issuance.authorization"),
+
+    /**
+     * Creation of the unsigned documents and their keys.
+     */
+    ISSUANCE_KEY_CREATION("issuance.key_creation"),
+
+    /**
+     * Signing of a proof of possession of a key.
+     */
+    ISSUANCE_PROOF_SIGNING("issuance.proof_signing"),
+
+    /**
+     * The credential request of a document, including the proof signing.
+     */
+    ISSUANCE_CREDENTIAL_REQUEST("issuance.credential_request"),
+
+    /**
+     * Storage of an issued document.
+     */
+    ISSUANCE_STORAGE("issuance.storage"),
+
+    /**
+     * Resolution of an OpenID4VP request URI, including the fetch of the request object and the
+     * validation of the verifier.
+     */
+    PRESENTATION_REQUEST_RESOLUTION("presentation.request_resolution"),
+
+    /**
+     * Validation of the certificate chain of a verifier against the reader trust store.
+     */
+    PRESENTATION_TRUST_VALIDATION("presentation.trust_validation"),
+
+    /**
+     * Matching of a DCQL query against the documents of the wallet.
+     */
+    PRESENTATION_DCQL_MATCHING("presentation.dcql_matching"),
+
+    /**
+     * Generation of the verifiable presentations of the disclosed documents.
+     */
+    PRESENTATION_VP_GENERATION("presentation.vp_generation"),
+
+    /**
+     * Dispatch of the response to the verifier.
+     */
+    PRESENTATION_DISPATCH("presentation.dispatch"),
+
+    /**
+     * Resolution of the status of a document, including the fetch of its status list.
+     */
+    STATUS_FETCH("status.fetch"),
+
+    /**
+     * A signature with a key of a secure area.
+     */
+    SECURE_AREA_SIGN("secure_area.sign"),
+}
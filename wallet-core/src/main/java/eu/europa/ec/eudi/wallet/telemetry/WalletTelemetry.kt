@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2023-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.telemetry
+
+/**
+ * Measures the stages of the wallet flows with the configured [WalletMetrics] and [WalletTracer].
+ *
+ * When neither is configured, the stages run without any measurement. Exceptions of the
+ * configured implementations are ignored, so they never fail a flow.
+ *
+ * @param metrics the metrics of the stages
+ * @param tracer the tracer of the stages
+ */
+internal class WalletTelemetry(
+    private val metrics: WalletMetrics = WalletMetrics.NoOp,
+    private val tracer: WalletTracer = WalletTracer.NoOp,
+) {
+
+    /**
+     * Whether metrics or a tracer are configured.
+     */
+    val isEnabled: Boolean = metrics !== WalletMetrics.NoOp || tracer !== WalletTracer.NoOp
+
+    /**
+     * Runs [block] as the given stage. The stage fails if [block] throws.
+     *
+     * @param stage the stage
+     * @param block the stage, with its span
+     * @return the result of [block]
+     */
+    inline fun <T> trace(stage: WalletStage, block: (WalletSpan) -> T): T =
+        trace(stage, failureOf = { null }, block)
+
+    /**
+     * Runs [block] as the given stage. The stage fails if [block] throws or if [failureOf]
+     * returns the error of its result, e.g. for results that report failures without throwing.
+     *
+     * @param stage the stage
+     * @param failureOf returns the error of a failed result, or null if the result is successful
+     * @param block the stage, with its span
+     * @return the result of [block]
+     */
+    inline fun <T> trace(
+        stage: WalletStage,
+        failureOf: (T) -> Throwable?,
+        block: (WalletSpan) -> T,
+    ): T {
+        val measurement = start(stage)
+        val result = try {
+            block(measurement.span)
+        } catch (e: Throwable) {
+            measurement.end(e)
+            throw e
+        }
+        measurement.end(failureOf(result))
+        return result
+    }
+
+    /**
+     * Runs [block] as the given stage. The stage fails if [block] throws or returns a failure.
+     *
+     * @param stage the stage
+     * @param block the stage, with its span
+     * @return the result of [block]
+     */
+    inline fun <T> traceResult(stage: WalletStage, block: (WalletSpan) -> Result<T>): Result<T> =
+        trace(stage, failureOf = { it.exceptionOrNull() }, block)
+
+    /**
+     * Runs [block], which signs with a secure area key, as the [WalletStage.SECURE_AREA_SIGN]
+     * stage and counts the signature.
+     *
+     * @param block the signing operation
+     * @return the result of [block]
+     */
+    inline fun <T> sign(block: () -> T): T =
+        trace(WalletStage.SECURE_AREA_SIGN) { block() }
+            .also { increment(WalletMetrics.COUNTER_SECURE_AREA_SIGNATURES) }
+
+    /**
+     * Increments the counter with the given name.
+     *
+     * @param name the name of the counter
+     * @param amount the amount to add
+     */
+    fun increment(name: String, amount: Long = 1) {
+        if (isEnabled && amount > 0) {
+            runCatching { metrics.incrementCounter(name, amount) }
+        }
+    }
+
+    @PublishedApi
+    internal fun start(stage: WalletStage): Measurement {
+        if (!isEnabled) return Measurement.Disabled
+        val span = runCatching { tracer.startSpan(stage) }.getOrDefault(WalletSpan.NoOp)
+        return Measurement(stage, span, System.nanoTime(), metrics)
+    }
+
+    /**
+     * A running measurement of a stage.
+     */
+    @PublishedApi
+    internal class Measurement(
+        private val stage: WalletStage?,
+        val span: WalletSpan,
+        private val startNanos: Long,
+        private val metrics: WalletMetrics,
+    ) {
+        fun end(error: Throwable?) {
+            if (stage == null) return
+            val durationNanos = System.nanoTime() - startNanos
+            runCatching { metrics.recordDuration(stage, durationNanos, error == null) }
+            runCatching { span.end(error) }
+        }
+
+        companion object {
+            val Disabled = Measurement(null, WalletSpan.NoOp, 0L, WalletMetrics.NoOp)
+        }
+    }
+
+    companion object {
+
+        /**
+         * [WalletTelemetry] that measures nothing.
+         */
+        val Disabled = WalletTelemetry()
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2023-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.telemetry
+
+import kotlin.random.Random
+
+/**
+ * Creates the spans of the stages of the wallet flows, e.g. to bridge them to a tracing library.
+ *
+ * The methods are called on the threads of the flows, so implementations must be thread safe,
+ * fast and must not throw; exceptions are ignored.
+ *
+ * Configure it with [eu.europa.ec.eudi.wallet.EudiWallet.Builder.withTracer].
+ */
+fun interface WalletTracer {
+
+    /**
+     * Starts the span of a stage. The span is ended with [WalletSpan.end] when the stage
+     * completes.
+     *
+     * @param stage the stage
+     * @return the span
+     */
+    fun startSpan(stage: WalletStage): WalletSpan
+
+    companion object {
+
+        /**
+         * [WalletTracer] that creates no spans. This is the default.
+         */
+        @JvmField
+        val NoOp: WalletTracer = WalletTracer { WalletSpan.NoOp }
+
+        /**
+         * Returns a [WalletTracer] that creates spans with [delegate] for a random sample of the
+         * stages and no spans for the others.
+         *
+         * @param delegate the tracer of the sampled stages
+         * @param sampleRate the fraction of the stages to trace, between 0 and 1
+         * @return the sampling tracer
+         */
+        @JvmStatic
+        fun sampled(delegate: WalletTracer, sampleRate: Double): WalletTracer {
+            require(sampleRate in 0.0..1.0) { "sampleRate must be between 0 and 1" }
+            return when (sampleRate) {
+                0.0 -> NoOp
+                1.0 -> delegate
+                else -> WalletTracer { stage ->
+                    if (Random.nextDouble() < sampleRate) delegate.startSpan(stage) else WalletSpan.NoOp
+                }
+            }
+        }
+    }
+}
+
+/**
+ * The span of a stage, created by [WalletTracer.startSpan].
+ */
+interface WalletSpan {
+
+    /**
+     * Sets an attribute of the span, e.g. the number of documents of a stage.
+     *
+     * @param key the key of the attribute
+     * @param value the value of the attribute
+     */
+    fun setAttribute(key: String, value: String)
+
+    /**
+     * Ends the span.
+     *
+     * @param error the error the stage failed with, or null if it completed successfully
+     */
+    fun end(error: Throwable?)
+
+    companion object {
+
+        /**
+         * [WalletSpan] that records nothing.
+         */
+        @JvmField
+        val NoOp: WalletSpan = object : WalletSpan {
+            override fun setAttribute(key: String, value: String) = Unit
+            override fun end(error: Throwable?) = Unit
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.transactionLogging
+
+import eu.europa.ec.eudi.wallet.document.format.DocumentFormat
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.document.format.SdJwtVcFormat
+import eu.europa.ec.eudi.wallet.internal.CborWriter
+import eu.europa.ec.eudi.wallet.internal.encodeCbor
+import eu.europa.ec.eudi.wallet.transactionLogging.presentation.PresentationTransactionLog
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.withContext
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.JsonArray
+import kotlinx.serialization.json.JsonElement
+import kotlinx.serialization.json.JsonNull
+import kotlinx.serialization.json.JsonObject
+import kotlinx.serialization.json.JsonPrimitive
+import java.io.OutputStream
+import java.util.Base64
+
+/**
+ * Exports the transaction history to an [OutputStream], one record at a time.
+ *
+ * The transactions are read from the [reader] in pages of [pageSize], each one after the last
+ * transaction of the previous page, and each one is written as soon as it is read, so only a page
+ * of transactions is kept in memory regardless of the size of the history. The output stream is neither buffered nor closed by the exporter.
+ *
+ * Each record contains the fields of the [TransactionLog], with the binary fields encoded as
+ * byte strings in CBOR and as base64url strings in JSON. When the responses are decoded, the
+ * records of presentations also contain the presented `documents`, or the `decodingError` if the
+ * response could not be decoded.
+ *
+ * @property reader the reader of the logged transactions
+ * @property pageSize the number of transactions read at a time
+ * @property dispatcher the dispatcher the transactions are read and written on
+ */
+class TransactionLogExporter @JvmOverloads constructor(
+    private val reader: TransactionLogReader,
+    private val pageSize: Int = DEFAULT_PAGE_SIZE,
+    private val dispatcher: CoroutineDispatcher = Dispatchers.IO,
+) {
+
+    init {
+        require(pageSize > 0) { "Page size must be positive" }
+    }
+
+    /**
+     * The format of the export.
+     */
+    enum class Format {
+        /** Newline delimited JSON, one JSON object per line */
+        NDJSON,
+
+        /** CBOR sequence (RFC 8742), one CBOR map per transaction */
+        CBOR_SEQUENCE,
+    }
+
+    /**
+     * Exports the transactions with a timestamp in the given range, in ascending order of
+     * timestamp. The export stops, leaving the records written so far, when the coroutine is
+     * cancelled.
+     *
+     * @param output the stream the records are written to
+     * @param format the format of the records
+     * @param fromTimestamp the start of the range, inclusive
+     * @param toTimestamp the end of the range, exclusive
+     * @param decodeResponses whether the responses of the presentations are decoded
+     * @return the number of exported transactions
+     */
+    suspend fun export(
+        output: OutputStream,
+        format: Format,
+        fromTimestamp: Long = 0L,
+        toTimestamp: Long = Long.MAX_VALUE,
+        decodeResponses: Boolean = false,
+    ): Int = withContext(dispatcher) {
+        var exported = 0
+        var after: TransactionLogReader.Cursor? = null
+        while (true) {
+            ensureActive()
+            val page = reader.readTransactions(fromTimestamp, toTimestamp, after, pageSize)
+            for (entry in page) {
+                ensureActive()
+                val record = entry.transaction.toRecord(decodeResponses)
+                output.write(
+                    when (format) {
+                        Format.NDJSON -> encodeJsonLine(record)
+                        Format.CBOR_SEQUENCE -> encodeCbor { writeValue(record) }
+                    }
+                )
+                exported++
+            }
+            if (page.size < pageSize) break
+            after = page.last().let { TransactionLogReader.Cursor(it.transaction.timestamp, it.key) }
+        }
+        output.flush()
+        exported
+    }
+
+    companion object {
+        const val DEFAULT_PAGE_SIZE = 50
+
+        private val base64 = Base64.getUrlEncoder().withoutPadding()
+
+        /**
+         * Returns the record of the transaction, as a map with values that are null, strings,
+         * numbers, booleans, byte arrays, lists or maps.
+         */
+        @JvmSynthetic
+        internal fun TransactionLog.toRecord(decodeResponse: Boolean): Map<String, Any?> =
+            buildMap {
+                put("timestamp", timestamp)
+                put("status", status.name)
+                put("type", type.name)
+                put("relyingParty", relyingParty?.let {
+                    mapOf(
+                        "name" to it.name,
+                        "isVerified" to it.isVerified,
+                        "certificateChain" to it.certificateChain,
+                        "readerAuth" to it.readerAuth,
+                    )
+                })
+                put("dataFormat", dataFormat?.name)
+                put("rawRequest", rawRequest)
+                put("rawResponse", rawResponse)
+                put("sessionTranscript", sessionTranscript)
+                put("metadata", metadata)
+                if (decodeResponse && type == TransactionLog.Type.Presentation) {
+                    PresentationTransactionLog.fromTransactionLog(this@toRecord)
+                        .onSuccess { decoded ->
+                            put("documents", decoded.documents.map { document ->
+                                mapOf(
+                                    "format" to document.format.toRecordValue(),
+                                    "claims" to document.claims.map { claim ->
+                                        mapOf("path" to claim.path, "value" to claim.value)
+                                    },
+                                )
+                            })
+                        }
+                        .onFailure { put("decodingError", it.message ?: it.toString()) }
+                }
+            }
+
+        private fun DocumentFormat.toRecordValue(): Map<String, Any?> = when (this) {
+            is MsoMdocFormat -> mapOf("type" to "mso_mdoc", "docType" to docType)
+            is SdJwtVcFormat -> mapOf("type" to "dc+sd-jwt", "vct" to vct)
+            else -> mapOf("type" to toString())
+        }
+
+        private fun encodeJsonLine(record: Map<String, Any?>): ByteArray =
+            (Json.encodeToString(JsonElement.serializer(), record.toJsonElement()) + "\n")
+                .toByteArray(Charsets.UTF_8)
+
+        private fun Any?.toJsonElement(): JsonElement = when (this) {
+            null -> JsonNull
+            is String -> JsonPrimitive(this)
+            is Boolean -> JsonPrimitive(this)
+            is Number -> JsonPrimitive(this)
+            is ByteArray -> JsonPrimitive(base64.encodeToString(this))
+            is Map<*, *> -> JsonObject(entries.associate { (k, v) -> k.toString() to v.toJsonElement() })
+            is Collection<*> -> JsonArray(map { it.toJsonElement() })
+            is Array<*> -> JsonArray(map { it.toJsonElement() })
+            else -> JsonPrimitive(toString())
+        }
+
+        private fun CborWriter.writeValue(value: Any?): CborWriter = when (value) {
+            null -> writeNull()
+            is String -> writeString(value)
+            is Boolean -> writeBoolean(value)
+            is Float, is Double -> writeDouble((value as Number).toDouble())
+            is Number -> writeLong(value.toLong())
+            is ByteArray -> writeBytes(value)
+            is Map<*, *> -> apply {
+                writeMapHeader(value.size)
+                value.forEach { (k, v) ->
+                    writeString(k.toString())
+                    writeValue(v)
+                }
+            }
+
+            is Collection<*> -> apply {
+                writeArrayHeader(value.size)
+                value.forEach { writeValue(it) }
+            }
+
+            is Array<*> -> writeValue(value.asList())
+            else -> writeString(value.toString())
+        }
+    }
+}
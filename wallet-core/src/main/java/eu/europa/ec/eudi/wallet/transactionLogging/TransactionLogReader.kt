@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.transactionLogging
+
+/**
+ * A reader of the transactions logged by a [TransactionLogger].
+ *
+ * Implementations read from the same persistent storage the logger writes to, one page at a
+ * time, so that the whole history never has to be loaded in memory. Pages are read with a keyset
+ * [Cursor] rather than an offset, so each page is a range read, e.g.
+ * `WHERE timestamp > ? OR (timestamp = ? AND id > ?) ORDER BY timestamp, id LIMIT ?`, and
+ * transactions logged during the reading are neither skipped nor read twice.
+ */
+fun interface TransactionLogReader {
+
+    /**
+     * A logged transaction with its key.
+     *
+     * @property key the key of the transaction in the storage, e.g. its row id, which orders the
+     * transactions with the same timestamp
+     * @property transaction the transaction
+     */
+    data class Entry(val key: Long, val transaction: TransactionLog)
+
+    /**
+     * The position of a transaction in the order of the reader.
+     *
+     * @property timestamp the timestamp of the transaction
+     * @property key the key of the transaction
+     */
+    data class Cursor(val timestamp: Long, val key: Long)
+
+    /**
+     * Reads a page of the logged transactions with a timestamp in the given range, ordered by
+     * timestamp and then by key in ascending order.
+     *
+     * @param fromTimestamp the start of the range, inclusive
+     * @param toTimestamp the end of the range, exclusive
+     * @param after the position of the last transaction of the previous page, exclusive, or null
+     * to read the first page
+     * @param limit the maximum number of transactions to return
+     * @return the transactions, fewer than [limit] only if there are no more in the range
+     */
+    fun readTransactions(fromTimestamp: Long, toTimestamp: Long, after: Cursor?, limit: Int): List<Entry>
+}
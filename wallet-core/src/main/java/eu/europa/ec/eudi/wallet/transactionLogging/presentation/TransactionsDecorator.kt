@@ -16,11 +16,14 @@
 
 package eu.europa.ec.eudi.wallet.transactionLogging.presentation
 
+import android.net.Uri
+import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
 import eu.europa.ec.eudi.iso18013.transfer.response.Response
 import eu.europa.ec.eudi.wallet.document.DocumentManager
 import eu.europa.ec.eudi.wallet.logging.Logger
 import eu.europa.ec.eudi.wallet.presentation.PresentationManager
 import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLogger
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpSession
 
 /**
  * Decorator for [PresentationManager] that adds transaction logging capabilities.
@@ -28,6 +31,8 @@ import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLogger
  * This class wraps an existing [PresentationManager] instance and intercepts
  * key operations like sending responses and stopping presentations to ensure
  * that all relevant transaction details are logged via a [TransactionsListener].
+ * Each session opened with [openRemotePresentationSession] is logged by its own
+ * [TransactionsListener].
  *
  * @property delegate The underlying [PresentationManager] instance that this decorator wraps.
  * @param documentManager The manager for accessing document details, passed to the [TransactionsListener].
@@ -36,9 +41,9 @@ import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLogger
  */
 class TransactionsDecorator(
     private val delegate: PresentationManager,
-    documentManager: DocumentManager,
-    transactionLogger: TransactionLogger,
-    logger: Logger? = null
+    private val documentManager: DocumentManager,
+    private val transactionLogger: TransactionLogger,
+    private val logger: Logger? = null
 ) : PresentationManager by delegate {
 
     /**
@@ -76,6 +81,31 @@ class TransactionsDecorator(
         }
     }
 
+    /**
+     * Opens a remote presentation session using the delegate [PresentationManager], logging the
+     * transaction of the session with a [TransactionsListener] of its own, so that concurrent
+     * sessions do not share a transaction log.
+     *
+     * @param uri The URI of the request.
+     * @param listener The listener of the events of the session.
+     * @return The session.
+     */
+    override fun openRemotePresentationSession(
+        uri: Uri,
+        listener: TransferEvent.Listener,
+    ): OpenId4VpSession {
+        val sessionListener = TransactionsListener(transactionLogger, documentManager, logger)
+        val listeners = object : TransferEvent.Listener {
+            override fun onTransferEvent(event: TransferEvent) {
+                sessionListener.onTransferEvent(event)
+                listener.onTransferEvent(event)
+            }
+        }
+        return delegate.openRemotePresentationSession(uri, listeners).also { session ->
+            session.invokeOnResponse { response -> sessionListener.logResponse(response) }
+        }
+    }
+
     /**
      * Stops the proximity presentation using the delegate [PresentationManager]
      * and ensures the transaction logging is appropriately finalized by calling [TransactionsListener.logStopped].
@@ -62,6 +62,8 @@ import java.net.URI
  * @property encryptionMethods List of supported encryption methods for content encryption
  * @property schemes URI schemes supported for OpenID4VP requests (default: "mdoc-openid4vp")
  * @property formats Supported credential formats (mDL/mDoc, SD-JWT VC, etc.)
+ * @property maxConcurrentSessions Maximum number of sessions opened with [OpenId4VpManager.openSession]
+ *   that are open at the same time (default: 4)
  *
  * @see ClientIdScheme
  * @see EncryptionAlgorithm
@@ -85,6 +87,9 @@ class OpenId4VpConfig private constructor(private val builder: Builder) {
 
     val formats: List<Format> = builder.formats
 
+    val maxConcurrentSessions: Int
+        get() = builder.maxConcurrentSessions
+
     /**
      * Builder for constructing [OpenId4VpConfig] instances with validation and sensible defaults.
      *
@@ -96,6 +101,7 @@ class OpenId4VpConfig private constructor(private val builder: Builder) {
      * - **Encryption Algorithms**: All supported algorithms from [EncryptionAlgorithm.SUPPORTED_ENCRYPTION_ALGORITHMS]
      * - **Encryption Methods**: All supported methods from [EncryptionMethod.SUPPORTED_ENCRYPTION_METHODS]
      * - **Schemes**: ["mdoc-openid4vp"]
+     * - **Max Concurrent Sessions**: 4
      *
      * ## Validation Rules:
      * - Client ID schemes list cannot be empty and must be initialized
@@ -104,6 +110,7 @@ class OpenId4VpConfig private constructor(private val builder: Builder) {
      * - Schemes list cannot be empty
      * - Encryption algorithms and methods lists cannot be empty
      * - Formats list cannot be empty and cannot contain duplicate format types
+     * - Max concurrent sessions must be positive
      * - SD-JWT VC formats must have non-empty algorithm lists
      *
      * @property clientIdSchemes List of supported client identifier schemes (must be initialized)
@@ -111,6 +118,7 @@ class OpenId4VpConfig private constructor(private val builder: Builder) {
      * @property encryptionMethods List of supported encryption methods (defaults to all supported)
      * @property schemes List of URI schemes for OpenID4VP (defaults to "mdoc-openid4vp")
      * @property formats List of supported credential formats (must be initialized)
+     * @property maxConcurrentSessions Maximum number of sessions open at the same time (defaults to 4)
      */
     class Builder {
         lateinit var clientIdSchemes: List<ClientIdScheme>
@@ -213,6 +221,21 @@ class OpenId4VpConfig private constructor(private val builder: Builder) {
         fun withFormats(vararg formats: Format) =
             withFormats(formats.toList())
 
+        var maxConcurrentSessions: Int = DEFAULT_MAX_CONCURRENT_SESSIONS
+            private set
+
+        /**
+         * Sets the maximum number of sessions opened with [OpenId4VpManager.openSession] that are
+         * open at the same time, including the sessions waiting for the consent of the user. A
+         * session is open until it is completed, failed or cancelled. By default, 4 sessions are
+         * allowed.
+         *
+         * @param maxConcurrentSessions the maximum number of sessions
+         */
+        fun withMaxConcurrentSessions(maxConcurrentSessions: Int) = apply {
+            this.maxConcurrentSessions = maxConcurrentSessions
+        }
+
         /**
          * Builds the [OpenId4VpConfig].
          * @return the [OpenId4VpConfig]
@@ -227,6 +250,8 @@ class OpenId4VpConfig private constructor(private val builder: Builder) {
             require(encryptionAlgorithms.isNotEmpty()) { "OpenId4VpConfig: encryptionAlgorithms must be initialized with a not empty list" }
             require(encryptionMethods.isNotEmpty()) { "OpenId4VpConfig: encryptionMethods must be initialized with a not empty list" }
 
+            require(maxConcurrentSessions > 0) { "OpenId4VpConfig: maxConcurrentSessions must be positive" }
+
             require(this.formats.isNotEmpty()) { "OpenId4VpConfig: formats must be initialized with a not empty list" }
             this.formats.groupBy { it.toString() }
                 .forEach { (format, instances) ->
@@ -242,6 +267,10 @@ class OpenId4VpConfig private constructor(private val builder: Builder) {
 
             return OpenId4VpConfig(this)
         }
+
+        companion object {
+            const val DEFAULT_MAX_CONCURRENT_SESSIONS = 4
+        }
     }
 }
 
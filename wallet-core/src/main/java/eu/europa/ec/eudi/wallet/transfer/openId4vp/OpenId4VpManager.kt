@@ -34,12 +34,17 @@ import eu.europa.ec.eudi.openid4vp.ResolvedRequestObject
 import eu.europa.ec.eudi.openid4vp.asException
 import eu.europa.ec.eudi.wallet.internal.d
 import eu.europa.ec.eudi.wallet.internal.e
+import eu.europa.ec.eudi.wallet.internal.TransferEventDispatcher
 import eu.europa.ec.eudi.wallet.internal.generateJarmNonce
 import eu.europa.ec.eudi.wallet.internal.i
 import eu.europa.ec.eudi.wallet.internal.makeOpenId4VPConfig
+import eu.europa.ec.eudi.wallet.internal.MetadataCacheStorage
 import eu.europa.ec.eudi.wallet.internal.wrappedWithContentNegotiation
+import eu.europa.ec.eudi.wallet.internal.wrappedWithHttpCache
 import eu.europa.ec.eudi.wallet.internal.wrappedWithLogging
 import eu.europa.ec.eudi.wallet.logging.Logger
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.DcqlRequestProcessor
 import io.ktor.client.HttpClient
 import io.ktor.client.plugins.contentnegotiation.ContentNegotiation
@@ -47,12 +52,18 @@ import io.ktor.serialization.kotlinx.json.json
 import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineExceptionHandler
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.SupervisorJob
-import kotlinx.coroutines.asExecutor
+import kotlinx.coroutines.async
 import kotlinx.coroutines.cancelChildren
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.job
+import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Semaphore
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executor
 
 /**
@@ -62,18 +73,25 @@ import java.util.concurrent.Executor
  * protocol, including request processing, event listening, and HTTP client management.
  * It acts as the main entry point for handling OpenID4VP requests and responses in the wallet.
  *
+ * Request resolution is single-flight: a request URI can be prefetched with [prefetchRequestUri]
+ * as soon as it is received, and [resolveRequestUri] reuses the in-flight resolution instead of
+ * fetching the request object again. Verifier artifacts fetched over HTTP, such as the client
+ * metadata and the JWKS, are cached following the HTTP caching headers of the verifier.
+ *
  * @property config The OpenID4VP configuration for the wallet.
  * @property requestProcessor The dispatcher that routes requests to the appropriate processor.
  * @property logger Optional logger for diagnostic output.
  * @property listenersExecutor Optional executor for event listeners.
  * @property ktorHttpClientFactory Optional factory for creating custom Ktor HTTP clients.
+ * @param eventsBufferCapacity the number of events buffered for slow collectors of [events]
  */
 class OpenId4VpManager(
     val config: OpenId4VpConfig,
     val requestProcessor: DcqlRequestProcessor,
     var logger: Logger? = null,
     var listenersExecutor: Executor? = null,
-    val ktorHttpClientFactory: (() -> HttpClient)? = null
+    val ktorHttpClientFactory: (() -> HttpClient)? = null,
+    eventsBufferCapacity: Int = TransferEventDispatcher.DEFAULT_BUFFER_CAPACITY,
 ) : TransferEvent.Listenable, ReaderTrustStoreAware {
 
     /**
@@ -86,8 +104,31 @@ class OpenId4VpManager(
         }
 
     /**
-     * Lazy initialization of the OpenID4VP protocol handler with logging and content negotiation.
-     * Uses the configuration and trust anchor from the request processor.
+     * The telemetry of the request resolution and response dispatch stages.
+     */
+    internal var telemetry: WalletTelemetry = WalletTelemetry.Disabled
+
+    /**
+     * Storage of the HTTP responses of the verifiers, i.e. client metadata and JWKS. Request
+     * objects are never stored.
+     */
+    private val httpCacheStorage = MetadataCacheStorage()
+
+    /**
+     * The HTTP client of the OpenID4VP protocol handlers, with logging, HTTP caching and content
+     * negotiation.
+     */
+    private val httpClient by lazy {
+        (ktorHttpClientFactory ?: DefaultHttpClientFactory)
+            .wrappedWithLogging(logger)
+            .wrappedWithHttpCache(httpCacheStorage)
+            .wrappedWithContentNegotiation()
+            .invoke()
+    }
+
+    /**
+     * Lazy initialization of the OpenID4VP protocol handler that dispatches the responses. Uses the
+     * configuration and trust anchor from the request processor.
      */
     private val openId4Vp by lazy {
         OpenId4Vp(
@@ -95,10 +136,7 @@ class OpenId4VpManager(
                 config,
                 requestProcessor.openid4VpX509CertificateTrust
             ),
-            httpClient = (ktorHttpClientFactory ?: DefaultHttpClientFactory)
-                .wrappedWithLogging(logger)
-                .wrappedWithContentNegotiation()
-                .invoke()
+            httpClient = httpClient
         )
     }
 
@@ -113,36 +151,46 @@ class OpenId4VpManager(
     private var activeRequestObject: ResolvedRequestObject? = null
 
     /**
-     * List of listeners for transfer events (request received, response sent, errors, etc).
+     * Listeners for transfer events (request received, response sent, errors, etc).
+     */
+    private val transferEvents = TransferEventDispatcher(
+        executor = { listenersExecutor },
+        bufferCapacity = eventsBufferCapacity,
+    )
+
+    /**
+     * The transfer events of the manager, as a hot flow. The events of the sessions opened with
+     * [openSession] are not included.
      */
-    private val transferEventListeners: MutableList<TransferEvent.Listener> = mutableListOf()
+    val events: SharedFlow<TransferEvent>
+        get() = transferEvents.events
 
     /**
      * Registers a new transfer event listener.
      */
     override fun addTransferEventListener(listener: TransferEvent.Listener) = apply {
-        transferEventListeners.add(listener)
+        transferEvents.add(listener)
     }
 
     /**
      * Removes a transfer event listener.
      */
     override fun removeTransferEventListener(listener: TransferEvent.Listener) = apply {
-        transferEventListeners.remove(listener)
+        transferEvents.remove(listener)
     }
 
     /**
      * Removes all transfer event listeners.
      */
     override fun removeAllTransferEventListeners() = apply {
-        transferEventListeners.clear()
+        transferEvents.clear()
     }
 
     /**
      * Handles uncaught exceptions in coroutines by notifying all transfer event listeners.
      */
     private val exceptionHandler = CoroutineExceptionHandler { _, e ->
-        transferEventListeners.onTransferEvent(TransferEvent.Error(e))
+        emit(TransferEvent.Error(e))
     }
 
     /**
@@ -150,63 +198,229 @@ class OpenId4VpManager(
      * Uses IO dispatcher, supervisor job, and the exception handler above.
      */
     private val scope = CoroutineScope(Dispatchers.IO + SupervisorJob() + exceptionHandler)
+
+    /**
+     * Guards [resolveRequestUriJob] and [resolvingRequestUri], which are read and written from the
+     * caller's thread and from [stop].
+     */
+    private val resolveLock = Any()
+
+    @Volatile
     private var resolveRequestUriJob: Job? = null
+
+    @Volatile
+    private var resolvingRequestUri: String? = null
+
     private var sendResponseJob: Job? = null
 
+    /**
+     * Resolutions that have been started by [prefetchRequestUri] and not yet consumed by
+     * [resolveRequestUri], keyed by request URI, each with its own reader trust result.
+     */
+    private val pendingResolutions = ConcurrentHashMap<String, PendingResolution>()
+
+    /**
+     * The sessions opened with [openSession] that are not closed yet, by id.
+     */
+    private val sessions = ConcurrentHashMap<String, OpenId4VpSession>()
+
+    /**
+     * Limits the sessions opened with [openSession] that are open at the same time.
+     */
+    private val sessionPermits: Semaphore by lazy {
+        Semaphore(config.maxConcurrentSessions.coerceAtLeast(1))
+    }
+
+    /**
+     * The resolution of a request, with the result of the validation of the certificate chain of
+     * its verifier.
+     */
+    private class RequestResolution(
+        val resolution: Resolution,
+        val readerTrustResult: ReaderTrustResult,
+    )
+
+    private class PendingResolution(
+        val resolution: Deferred<RequestResolution>,
+        val startedAt: Long = System.currentTimeMillis(),
+    ) {
+        val isExpired: Boolean
+            get() = System.currentTimeMillis() - startedAt > PREFETCH_TTL_MILLIS
+    }
+
+    /**
+     * Starts resolving a request URI in the background, fetching the request object and the
+     * verifier artifacts, without emitting any [TransferEvent]. A subsequent call to
+     * [resolveRequestUri] with the same URI reuses the result, so the fetches can start as soon
+     * as the deep link or QR code is received, while the UI is still being prepared.
+     *
+     * A prefetched resolution that is not consumed within one minute is discarded. It keeps the
+     * result of the validation of the certificate chain of its own verifier, so prefetching a
+     * request does not change the trust result of the requests being processed.
+     *
+     * @param uri the request URI
+     */
+    fun prefetchRequestUri(uri: String) {
+        if (!isSupportedScheme(uri)) {
+            logger?.d(TAG, "Ignoring prefetch of request URI with unsupported scheme")
+            return
+        }
+        pendingResolutionFor(uri)
+    }
+
     /**
      * Resolves a request URI. This method is asynchronous and the result is emitted through the
-     * [TransferEvent.Listener] interface. Every time it is called it cancels any previous request
-     * that is being resolved. This will lead to the [TransferEvent.Disconnected] event being emitted.
+     * [TransferEvent.Listener] interface. If the same URI is already being resolved, the call is
+     * ignored and the running resolution emits the result. Otherwise, it cancels any previous
+     * request that is being resolved. This will lead to the [TransferEvent.Disconnected] event
+     * being emitted. If the URI was prefetched with [prefetchRequestUri], the prefetched
+     * resolution is used.
      * @see eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpManager.addTransferEventListener
      *
      */
-    fun resolveRequestUri(uri: String) {
+    fun resolveRequestUri(uri: String): Unit = synchronized(resolveLock) {
+        if (resolvingRequestUri == uri && resolveRequestUriJob?.isActive == true) {
+            logger?.d(TAG, "Request URI is already being resolved")
+            return
+        }
         activeRequestObject = null
         resolveRequestUriJob?.cancel()
+        resolvingRequestUri = uri
         resolveRequestUriJob = scope.launch {
             try {
-                require(config.schemes.contains(Uri.parse(uri).scheme)) {
-                    "Not supported scheme for OpenId4Vp"
-                }
-                when (val resolution = openId4Vp.resolveRequestUri(uri)) {
-                    is Resolution.Invalid -> {
+                resolve(uri, ::emit) { activeRequestObject = it.resolvedRequestObject }
+            } catch (e: Throwable) {
+                logger?.e(TAG, "Failed to resolve request URL", e)
+                emit(failureEvent(e))
+            }
+        }
+    }
 
-                        val error = resolution.error
-                        logger?.e(TAG, "Invalid resolution: $error")
+    /**
+     * Opens a session for the given request URI and starts resolving it. Unlike
+     * [resolveRequestUri], the request is handled independently of the other requests: the
+     * events of the session are emitted only to the listeners of the session, and its response or
+     * rejection is sent with [OpenId4VpSession.sendResponse] or [OpenId4VpSession.reject].
+     *
+     * Several sessions can be open at the same time, up to [OpenId4VpConfig.maxConcurrentSessions].
+     * A session is open from this call until it is completed, failed or cancelled, including while
+     * it waits for the consent of the user.
+     *
+     * @param uri the request URI
+     * @param listener the listener of the events of the session
+     * @return the session
+     * @throws IllegalStateException if [OpenId4VpConfig.maxConcurrentSessions] sessions are open
+     */
+    fun openSession(uri: String, listener: TransferEvent.Listener): OpenId4VpSession {
+        check(sessionPermits.tryAcquire()) {
+            "At most ${config.maxConcurrentSessions} sessions can be open at the same time"
+        }
+        val session = OpenId4VpSession(
+            requestUri = uri,
+            manager = this,
+            parentJob = scope.coroutineContext.job,
+        )
+        session.addTransferEventListener(listener)
+        sessions[session.id] = session
+        session.invokeOnClose {
+            sessions.remove(session.id)
+            sessionPermits.release()
+        }
+        session.start()
+        return session
+    }
 
-                        val details = resolution.dispatchDetails
-                        if (details != null) {
-                            dispatchErrorResponse(error, details)
-                        }
+    /**
+     * Returns the sessions opened with [openSession] that are not completed, failed or cancelled.
+     */
+    fun getSessions(): List<OpenId4VpSession> = sessions.values.toList()
 
-                        transferEventListeners.onTransferEvent(
-                            TransferEvent.Error(error.asException())
-                        )
-                    }
+    /**
+     * Resolves the given request URI, emitting [TransferEvent.RequestReceived] if the request is
+     * valid or [TransferEvent.Error] otherwise. If the URI was prefetched with
+     * [prefetchRequestUri], the prefetched resolution is used.
+     *
+     * @param onResolved called with the resolved request before it is processed
+     * @return the resolved request object, or null if the request is invalid
+     */
+    @JvmSynthetic
+    internal suspend fun resolve(
+        uri: String,
+        emit: (TransferEvent) -> Unit,
+        onResolved: (OpenId4VpRequest) -> Unit = {},
+    ): ResolvedRequestObject? {
+        require(isSupportedScheme(uri)) {
+            "Not supported scheme for OpenId4Vp"
+        }
+        val pending = pendingResolutionFor(uri)
+        pendingResolutions.remove(uri, pending)
+        // The resolution is not a child of the calling job, so it is cancelled explicitly
+        currentCoroutineContext().job.invokeOnCompletion { cause ->
+            if (cause != null) pending.resolution.cancel()
+        }
+        val requestResolution = pending.resolution.await()
+        return when (val resolution = requestResolution.resolution) {
+            is Resolution.Invalid -> {
 
-                    is Resolution.Success -> {
-                        logger?.d(TAG, "Resolution.Success")
-                        val resolvedRequest = resolution.requestObject
-                        activeRequestObject = resolvedRequest
-                        logger?.i(TAG, "${resolvedRequest::class.simpleName} received")
-                        val request = OpenId4VpRequest(resolvedRequest)
-                        val processedRequest = requestProcessor.process(request)
-                        transferEventListeners.onTransferEvent(
-                            TransferEvent.RequestReceived(processedRequest, request)
-                        )
-                    }
-                }
-            } catch (e: Throwable) {
-                logger?.e(TAG, "Failed to resolve request URL", e)
-                val event = when (e) {
-                    is CancellationException -> TransferEvent.Disconnected
-                    else -> TransferEvent.Error(e)
+                val error = resolution.error
+                logger?.e(TAG, "Invalid resolution: $error")
+
+                val details = resolution.dispatchDetails
+                if (details != null) {
+                    dispatchErrorResponse(error, details)
                 }
-                transferEventListeners.onTransferEvent(event)
+
+                emit(TransferEvent.Error(error.asException()))
+                null
+            }
+
+            is Resolution.Success -> {
+                logger?.d(TAG, "Resolution.Success")
+                val resolvedRequest = resolution.requestObject
+                val request = OpenId4VpRequest(resolvedRequest, requestResolution.readerTrustResult)
+                onResolved(request)
+                logger?.i(TAG, "${resolvedRequest::class.simpleName} received")
+                val processedRequest = requestProcessor.process(request)
+                emit(TransferEvent.RequestReceived(processedRequest, request))
+                resolvedRequest
             }
         }
     }
 
+    private fun isSupportedScheme(uri: String): Boolean =
+        config.schemes.contains(Uri.parse(uri).scheme)
+
+    /**
+     * Returns the pending resolution of the given URI, starting a new one if there is none or the
+     * existing one has expired.
+     */
+    private fun pendingResolutionFor(uri: String): PendingResolution =
+        pendingResolutions.compute(uri) { _, existing ->
+            existing?.takeUnless { it.isExpired || it.resolution.isCancelled }
+                ?: run {
+                    existing?.resolution?.cancel()
+                    PendingResolution(scope.async {
+                        telemetry.trace(WalletStage.PRESENTATION_REQUEST_RESOLUTION) {
+                            resolveWithReaderTrust(uri)
+                        }
+                    })
+                }
+        }!!
+
+    /**
+     * Resolves the given request URI with a protocol handler of its own, so the result of the
+     * validation of the certificate chain of the verifier belongs to this request only, even when
+     * other requests are resolved at the same time.
+     */
+    private suspend fun resolveWithReaderTrust(uri: String): RequestResolution {
+        val trust = RequestReaderTrust(requestProcessor.openid4VpX509CertificateTrust)
+        val resolution = OpenId4Vp(
+            openId4VPConfig = makeOpenId4VPConfig(config, trust),
+            httpClient = httpClient
+        ).resolveRequestUri(uri)
+        return RequestResolution(resolution, trust.result)
+    }
+
     /**
      * Dispatches a protocol-level error to the Verifier.
      *
@@ -264,41 +478,64 @@ class OpenId4VpManager(
                     return@launch
                 }
 
-                val wrapper = OpenId4VpRequest(request)
-                val encParams = wrapper.responseEncryptionParameters
-
-                logger?.d(TAG, "User rejected the request. Dispatching error.")
+                dispatchRejection(request, ::emit)
+                activeRequestObject = null
+            }  catch (e: Throwable) {
+                logger?.e(TAG, "Failed to send rejection response", e)
+                emit(failureEvent(e))
+            }
+        }
+    }
 
-                // Dispatch openid4vp NegativeConsensus case
-                val outcome = openId4Vp.dispatch(
-                    request = request,
-                    consensus = Consensus.NegativeConsensus,
-                    encryptionParameters = encParams
-                )
+    /**
+     * Dispatches the negative consensus for the given request, emitting
+     * [TransferEvent.Redirect] or [TransferEvent.ResponseSent] if the verifier accepts it, or
+     * [TransferEvent.Error] otherwise.
+     *
+     * @return whether the verifier accepted the rejection
+     */
+    @JvmSynthetic
+    internal suspend fun dispatchRejection(
+        request: ResolvedRequestObject,
+        emit: (TransferEvent) -> Unit,
+    ): Boolean {
+        val wrapper = OpenId4VpRequest(request)
+        val encParams = wrapper.responseEncryptionParameters
+
+        logger?.d(TAG, "User rejected the request. Dispatching error.")
+
+        // Dispatch openid4vp NegativeConsensus case
+        val outcome = openId4Vp.dispatch(
+            request = request,
+            consensus = Consensus.NegativeConsensus,
+            encryptionParameters = encParams
+        )
 
-                if (outcome is DispatchOutcome.VerifierResponse.Accepted) {
-                    logger?.d(TAG, "Rejection accepted by verifier.")
+        return when (outcome) {
+            is DispatchOutcome.VerifierResponse.Accepted -> {
+                logger?.d(TAG, "Rejection accepted by verifier.")
 
-                    val redirectUri = outcome.redirectURI
-                    if (redirectUri != null) {
-                        // Verifier wants us to redirect
-                        transferEventListeners.onTransferEvent(TransferEvent.Redirect(redirectUri))
-                    } else {
-                        // Verifier just said OK
-                        transferEventListeners.onTransferEvent(TransferEvent.ResponseSent)
-                    }
+                val redirectUri = outcome.redirectURI
+                if (redirectUri != null) {
+                    // Verifier wants us to redirect
+                    emit(TransferEvent.Redirect(redirectUri))
                 } else {
-                    logger?.d(TAG, "Outcome is $outcome")
+                    // Verifier just said OK
+                    emit(TransferEvent.ResponseSent)
                 }
+                true
+            }
 
-                activeRequestObject = null
-            }  catch (e: Throwable) {
-                logger?.e(TAG, "Failed to send rejection response", e)
-                val event = when (e) {
-                    is CancellationException -> TransferEvent.Disconnected
-                    else -> TransferEvent.Error(e)
-                }
-                transferEventListeners.onTransferEvent(event)
+            is DispatchOutcome.RedirectURI -> {
+                logger?.d(TAG, "Verifier respond with RedirectURI: ${outcome.value}")
+                emit(TransferEvent.ResponseSent)
+                true
+            }
+
+            DispatchOutcome.VerifierResponse.Rejected -> {
+                logger?.e(TAG, "Verifier rejected the rejection")
+                emit(TransferEvent.Error(IllegalStateException("Verifier rejected the rejection")))
+                false
             }
         }
     }
@@ -317,72 +554,98 @@ class OpenId4VpManager(
         sendResponseJob?.cancel()
         sendResponseJob = scope.launch {
             try {
-                require(response is OpenId4VpResponse) {
-                    "Response must be an OpenId4VpResponse"
-                }
+                dispatchResponse(response, ::emit)
+            } catch (e: Throwable) {
+                logger?.e(TAG, "Failed to send response", e)
+                emit(failureEvent(e))
+            }
+        }
+    }
 
-                logger?.let { response.debugLog(it, TAG) }
+    /**
+     * Dispatches the given response to the verifier, emitting [TransferEvent.ResponseSent] or
+     * [TransferEvent.Redirect] if the verifier accepts it, or [TransferEvent.Error] otherwise.
+     *
+     * @return whether the verifier accepted the response
+     */
+    @JvmSynthetic
+    internal suspend fun dispatchResponse(
+        response: Response,
+        emit: (TransferEvent) -> Unit,
+    ): Boolean {
+        require(response is OpenId4VpResponse) {
+            "Response must be an OpenId4VpResponse"
+        }
 
-                when (val outcome = openId4Vp.dispatch(
-                    request = response.resolvedRequestObject,
-                    consensus = response.vpToken,
-                    encryptionParameters = response.encryptionParameters,
-                )) {
-                    is DispatchOutcome.RedirectURI -> {
-                        logger?.d(TAG, "Verifier respond with RedirectURI: ${outcome.value}")
-                        transferEventListeners.onTransferEvent(TransferEvent.ResponseSent)
-                    }
+        logger?.let { response.debugLog(it, TAG) }
 
-                    is DispatchOutcome.VerifierResponse.Accepted -> {
-                        logger?.d(TAG, "Verifier accepted the response")
-                        when (val uri = outcome.redirectURI) {
-                            null -> transferEventListeners.onTransferEvent(TransferEvent.ResponseSent)
-                            else -> {
-                                logger?.d(TAG, "Redirecting to: $uri")
-                                transferEventListeners.onTransferEvent(TransferEvent.Redirect(uri))
-                            }
-                        }
-                    }
+        val outcome = telemetry.trace(WalletStage.PRESENTATION_DISPATCH) {
+            openId4Vp.dispatch(
+                request = response.resolvedRequestObject,
+                consensus = response.vpToken,
+                encryptionParameters = response.encryptionParameters,
+            )
+        }
+        return when (outcome) {
+            is DispatchOutcome.RedirectURI -> {
+                logger?.d(TAG, "Verifier respond with RedirectURI: ${outcome.value}")
+                emit(TransferEvent.ResponseSent)
+                true
+            }
 
-                    DispatchOutcome.VerifierResponse.Rejected -> {
-                        logger?.e(TAG, "Verifier rejected the response")
-                        transferEventListeners.onTransferEvent(
-                            TransferEvent.Error(
-                                IllegalStateException("Verifier rejected the response")
-                            )
-                        )
+            is DispatchOutcome.VerifierResponse.Accepted -> {
+                logger?.d(TAG, "Verifier accepted the response")
+                when (val uri = outcome.redirectURI) {
+                    null -> emit(TransferEvent.ResponseSent)
+                    else -> {
+                        logger?.d(TAG, "Redirecting to: $uri")
+                        emit(TransferEvent.Redirect(uri))
                     }
                 }
-            } catch (e: Throwable) {
-                logger?.e(TAG, "Failed to send response", e)
-                val event = when (e) {
-                    is CancellationException -> TransferEvent.Disconnected
-                    else -> TransferEvent.Error(e)
-                }
-                transferEventListeners.onTransferEvent(event)
+                true
+            }
+
+            DispatchOutcome.VerifierResponse.Rejected -> {
+                logger?.e(TAG, "Verifier rejected the response")
+                emit(
+                    TransferEvent.Error(
+                        IllegalStateException("Verifier rejected the response")
+                    )
+                )
+                false
             }
         }
     }
 
     /**
-     * Stops the manager and cancels all running connections made by the manager.
-     * When a connection is cancelled, the [TransferEvent.Disconnected] event is emitted.
+     * Stops the manager and cancels all running connections made by the manager, including the
+     * open sessions. When a connection is cancelled, the [TransferEvent.Disconnected] event is
+     * emitted.
      */
     fun stop() {
         logger?.d(TAG, "Stopping OpenId4VpManager")
         activeRequestObject = null
+        synchronized(resolveLock) { resolvingRequestUri = null }
+        pendingResolutions.clear()
         scope.coroutineContext.cancelChildren()
+        sessions.clear()
     }
 
-    private fun List<TransferEvent.Listener>.onTransferEvent(
-        event: TransferEvent,
-    ) {
-        val executor = listenersExecutor ?: Dispatchers.Main.asExecutor()
-        transferEventListeners.forEach { executor.execute { it.onTransferEvent(event) } }
-    }
+    private fun emit(event: TransferEvent) = transferEvents.dispatch(event)
 
     companion object {
         private const val TAG = "OpenId4VpManager"
+        private const val PREFETCH_TTL_MILLIS = 60_000L
+
+        /**
+         * Returns the event of a failed operation: [TransferEvent.Disconnected] if it was
+         * cancelled, or [TransferEvent.Error] otherwise.
+         */
+        @JvmSynthetic
+        internal fun failureEvent(e: Throwable): TransferEvent = when (e) {
+            is CancellationException -> TransferEvent.Disconnected
+            else -> TransferEvent.Error(e)
+        }
 
         private val DefaultHttpClientFactory: () -> HttpClient = {
             HttpClient {
@@ -18,26 +18,48 @@ package eu.europa.ec.eudi.wallet.transfer.openId4vp
 
 import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
 import eu.europa.ec.eudi.openid4vp.X509CertificateTrust
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import java.security.cert.X509Certificate
 
 interface OpenId4VpReaderTrust : X509CertificateTrust {
     var readerTrustStore: ReaderTrustStore?
-    val result: ReaderTrustResult
 }
 
 class OpenId4VpReaderTrustImpl(
     override var readerTrustStore: ReaderTrustStore? = null
 ) : OpenId4VpReaderTrust {
 
-    private var _result: ReaderTrustResult = ReaderTrustResult.Pending
-    override val result: ReaderTrustResult
-        get() = _result
+    internal var telemetry: WalletTelemetry = WalletTelemetry.Disabled
 
-    override fun isTrusted(chain: List<X509Certificate>): Boolean {
-        val validationResult = readerTrustStore?.validateCertificationTrustPath(chain) != false
-        _result = ReaderTrustResult.Processed(chain, validationResult)
-        return validationResult
-    }
+    override fun isTrusted(chain: List<X509Certificate>): Boolean =
+        telemetry.trace(WalletStage.PRESENTATION_TRUST_VALIDATION) { span ->
+            val validationResult = readerTrustStore?.validateCertificationTrustPath(chain) != false
+            span.setAttribute("trusted", validationResult.toString())
+            validationResult
+        }
+}
+
+/**
+ * Validates the certificate chain of a single request with the given [trust] and keeps the
+ * result, so that the result is carried with the request that was resolved.
+ *
+ * @property trust the trust the chain is validated with
+ */
+internal class RequestReaderTrust(
+    private val trust: X509CertificateTrust,
+) : X509CertificateTrust {
+
+    /**
+     * The result of the validation of the chain of the request, or [ReaderTrustResult.Pending]
+     * if no chain was validated.
+     */
+    @Volatile
+    var result: ReaderTrustResult = ReaderTrustResult.Pending
+        private set
+
+    override fun isTrusted(chain: List<X509Certificate>): Boolean =
+        trust.isTrusted(chain).also { result = ReaderTrustResult.Processed(chain, it) }
 }
 
 sealed interface ReaderTrustResult {
@@ -22,8 +22,16 @@ import eu.europa.ec.eudi.openid4vp.EncryptionParameters
 import eu.europa.ec.eudi.openid4vp.ResolvedRequestObject
 import eu.europa.ec.eudi.wallet.internal.generateJarmNonce
 
-data class OpenId4VpRequest(
-    val resolvedRequestObject: ResolvedRequestObject
+/**
+ * An OpenID4VP request.
+ *
+ * @property resolvedRequestObject the resolved request object
+ * @property readerTrustResult the result of the validation of the certificate chain of the
+ * verifier, made while the request was resolved
+ */
+data class OpenId4VpRequest @JvmOverloads constructor(
+    val resolvedRequestObject: ResolvedRequestObject,
+    val readerTrustResult: ReaderTrustResult = ReaderTrustResult.Pending,
 ) : Request {
     /**
      * Computes the encryption parameters required to send a response (Success or Error)
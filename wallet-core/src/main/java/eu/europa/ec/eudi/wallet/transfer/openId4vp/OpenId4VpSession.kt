@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.transfer.openId4vp
+
+import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
+import eu.europa.ec.eudi.iso18013.transfer.response.Response
+import eu.europa.ec.eudi.wallet.internal.TransferEventDispatcher
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpManager.Companion.failureEvent
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import java.util.UUID
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * A remote presentation of a single request, opened with [OpenId4VpManager.openSession].
+ *
+ * Each session has its own state, listeners and cancellation, so several requests can be
+ * resolved, wait for the consent of the user and have their responses dispatched at the same
+ * time, without affecting each other or the requests handled with
+ * [OpenId4VpManager.resolveRequestUri].
+ *
+ * A session counts towards [OpenId4VpConfig.maxConcurrentSessions] from the moment it is opened
+ * until it is closed, i.e. completed, failed or cancelled.
+ *
+ * The events of the session are emitted only to its own listeners: [TransferEvent.RequestReceived]
+ * when the request is resolved, [TransferEvent.ResponseSent] or [TransferEvent.Redirect] when the
+ * response or the rejection is accepted, [TransferEvent.Error] when the session fails and
+ * [TransferEvent.Disconnected] when it is cancelled.
+ *
+ * @property id the identifier of the session
+ * @property requestUri the request URI of the session
+ */
+class OpenId4VpSession internal constructor(
+    val requestUri: String,
+    private val manager: OpenId4VpManager,
+    parentJob: Job,
+) : TransferEvent.Listenable {
+
+    /**
+     * The state of a session.
+     */
+    enum class State {
+        /** The request is being resolved. */
+        RESOLVING,
+
+        /** The request is resolved and waits for [sendResponse] or [reject]. */
+        PENDING_CONSENT,
+
+        /** The response or the rejection is being dispatched. */
+        DISPATCHING,
+
+        /** The response or the rejection was accepted by the verifier. */
+        COMPLETED,
+
+        /** The request could not be resolved or the response was not accepted. */
+        FAILED,
+
+        /** The session was cancelled. */
+        CANCELLED;
+
+        /**
+         * Whether the session is closed.
+         */
+        val isClosed: Boolean
+            get() = this == COMPLETED || this == FAILED || this == CANCELLED
+    }
+
+    val id: String = UUID.randomUUID().toString()
+
+    private val stateRef = AtomicReference(State.RESOLVING)
+
+    /**
+     * The current state of the session.
+     */
+    val state: State
+        get() = stateRef.get()
+
+    /**
+     * The resolved request, once the session is [State.PENDING_CONSENT].
+     */
+    @Volatile
+    var request: OpenId4VpRequest? = null
+        private set
+
+    private val job = SupervisorJob(parentJob)
+    private val scope = CoroutineScope(Dispatchers.IO + job)
+    private val transferEvents = TransferEventDispatcher(executor = { manager.listenersExecutor })
+    private val onCloseCallbacks = CopyOnWriteArrayList<() -> Unit>()
+    private val onResponseCallbacks = CopyOnWriteArrayList<(Response) -> Unit>()
+
+    init {
+        job.invokeOnCompletion { onCancelled() }
+    }
+
+    override fun addTransferEventListener(listener: TransferEvent.Listener) = apply {
+        transferEvents.add(listener)
+    }
+
+    override fun removeTransferEventListener(listener: TransferEvent.Listener) = apply {
+        transferEvents.remove(listener)
+    }
+
+    override fun removeAllTransferEventListeners() = apply {
+        transferEvents.clear()
+    }
+
+    /**
+     * Sends the response to the verifier. The session must be [State.PENDING_CONSENT] and the
+     * response must be created from the request of the session; otherwise [TransferEvent.Error]
+     * is emitted and the session is left as it is.
+     *
+     * @param response the response, created from the request of the session
+     */
+    fun sendResponse(response: Response) {
+        val resolvedRequest = request?.resolvedRequestObject
+        val responseRequest = (response as? OpenId4VpResponse)?.resolvedRequestObject
+        if (resolvedRequest != null && responseRequest !== resolvedRequest) {
+            emit(
+                TransferEvent.Error(
+                    IllegalArgumentException("The response was not created for the request of the session")
+                )
+            )
+            return
+        }
+        if (!transition(State.PENDING_CONSENT, State.DISPATCHING)) {
+            emit(TransferEvent.Error(IllegalStateException("Cannot send a response in state $state")))
+            return
+        }
+        onResponseCallbacks.forEach { it(response) }
+        launch {
+            val accepted = manager.dispatchResponse(response, ::emit)
+            close(if (accepted) State.COMPLETED else State.FAILED)
+        }
+    }
+
+    /**
+     * Rejects the request, dispatching the negative consensus to the verifier. The session must be
+     * [State.PENDING_CONSENT]. The session is completed if the verifier accepts the rejection, or
+     * failed otherwise.
+     */
+    fun reject() {
+        val resolvedRequest = request?.resolvedRequestObject
+        if (resolvedRequest == null || !transition(State.PENDING_CONSENT, State.DISPATCHING)) {
+            emit(TransferEvent.Error(IllegalStateException("Cannot reject the request in state $state")))
+            return
+        }
+        launch {
+            val accepted = manager.dispatchRejection(resolvedRequest, ::emit)
+            close(if (accepted) State.COMPLETED else State.FAILED)
+        }
+    }
+
+    /**
+     * Cancels the session and its running operations. [TransferEvent.Disconnected] is emitted if the
+     * session was not closed already.
+     */
+    fun cancel() {
+        job.cancel()
+    }
+
+    /**
+     * Starts resolving the request of the session.
+     */
+    @JvmSynthetic
+    internal fun start() = launch {
+        val resolvedRequest = manager.resolve(requestUri, ::emit) { resolved ->
+            request = resolved
+            transition(State.RESOLVING, State.PENDING_CONSENT)
+        }
+        if (resolvedRequest == null) close(State.FAILED)
+    }
+
+    /**
+     * Registers a callback called once when the session is closed.
+     */
+    @JvmSynthetic
+    internal fun invokeOnClose(callback: () -> Unit) {
+        val called = AtomicBoolean(false)
+        val callOnce = { if (called.compareAndSet(false, true)) callback() }
+        onCloseCallbacks += callOnce
+        if (state.isClosed) callOnce()
+    }
+
+    /**
+     * Registers a callback called with the response of the session when it is handed over for
+     * dispatch with [sendResponse].
+     */
+    @JvmSynthetic
+    internal fun invokeOnResponse(callback: (Response) -> Unit) {
+        onResponseCallbacks += callback
+    }
+
+    private fun launch(block: suspend CoroutineScope.() -> Unit) = scope.launch {
+        try {
+            block()
+        } catch (e: Throwable) {
+            when (e) {
+                is CancellationException -> onCancelled()
+                else -> {
+                    emit(failureEvent(e))
+                    close(State.FAILED)
+                }
+            }
+        }
+    }
+
+    private fun onCancelled() {
+        if (close(State.CANCELLED)) emit(TransferEvent.Disconnected)
+    }
+
+    private fun transition(from: State, to: State): Boolean = stateRef.compareAndSet(from, to)
+
+    /**
+     * Closes the session with the given state, unless it is closed already.
+     *
+     * @return whether the session was closed by this call
+     */
+    private fun close(closedState: State): Boolean {
+        while (true) {
+            val current = stateRef.get()
+            if (current.isClosed) return false
+            if (stateRef.compareAndSet(current, closedState)) break
+        }
+        onCloseCallbacks.forEach { it() }
+        // The session is closed, so its job is released
+        job.cancel()
+        return true
+    }
+
+    private fun emit(event: TransferEvent) = transferEvents.dispatch(event)
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql
+
+import eu.europa.ec.eudi.openid4vp.dcql.QueryId
+import eu.europa.ec.eudi.wallet.document.DocumentId
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+
+/**
+ * A combination of credential queries that satisfies all the `credential_sets` of a DCQL query.
+ *
+ * A combination contains one satisfiable option of every required credential set and, when one
+ * exists, one satisfiable option of every optional credential set.
+ *
+ * @property queryIds the ids of the credential queries in the combination
+ * @property cost the cost of the combination as computed by the [CombinationCost] used for ranking
+ */
+data class CredentialSetsCombination(
+    val queryIds: Set<QueryId>,
+    val cost: Double,
+)
+
+/**
+ * Cost function used to rank the [CredentialSetsCombination]s that satisfy a DCQL query.
+ * Combinations with a lower cost are ranked first. Combinations with the same cost keep the order
+ * of the options in the request, i.e. the verifier's preference.
+ *
+ * Implementations can take wallet preferences into account, e.g. prefer the credentials that
+ * were issued most recently, using the documents matched by each credential query.
+ */
+fun interface CombinationCost {
+
+    /**
+     * Computes the cost of a combination.
+     *
+     * @param matches the credential queries in the combination, each with the wallet documents
+     * that match it; a document holds its credentials
+     * @return the cost of the combination
+     */
+    fun cost(matches: Map<QueryId, List<IssuedDocument>>): Double
+
+    companion object {
+
+        /**
+         * Keeps the order of the options in the request, i.e. the verifier's preference.
+         */
+        @JvmField
+        val VerifierPreference: CombinationCost = CombinationCost { 0.0 }
+
+        /**
+         * Prefers the combinations that present the fewest credentials, counting the distinct
+         * documents needed to answer all the credential queries; a document that matches several
+         * queries of the combination is counted once.
+         */
+        @JvmField
+        val FewestCredentials: CombinationCost = CombinationCost { distinctDocumentsOf(it).toDouble() }
+    }
+}
+
+/**
+ * Counts the documents needed to answer all the given credential queries, taking first the
+ * document that answers the most queries not answered yet. Finding the smallest number is a set
+ * cover problem, so this is an approximation, exact when no document matches several queries.
+ */
+private fun distinctDocumentsOf(matches: Map<QueryId, List<IssuedDocument>>): Int {
+    val queriesByDocument = HashMap<DocumentId, MutableSet<QueryId>>()
+    matches.forEach { (queryId, documents) ->
+        documents.forEach { queriesByDocument.getOrPut(it.id) { HashSet() }.add(queryId) }
+    }
+    val unanswered = matches.filterValues { it.isNotEmpty() }.keys.toMutableSet()
+    var count = 0
+    while (unanswered.isNotEmpty()) {
+        unanswered.removeAll(queriesByDocument.values.maxBy { queryIds -> queryIds.count { it in unanswered } })
+        count++
+    }
+    return count
+}
@@ -1,12 +1,27 @@
 package eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql
 
 import eu.europa.ec.eudi.openid4vp.dcql.CredentialQuery
-import eu.europa.ec.eudi.openid4vp.dcql.CredentialSetQuery
 import eu.europa.ec.eudi.openid4vp.dcql.CredentialSets
 import eu.europa.ec.eudi.openid4vp.dcql.Credentials
 import eu.europa.ec.eudi.openid4vp.dcql.QueryId
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.internal.d
+import eu.europa.ec.eudi.wallet.logging.Logger
+import java.util.BitSet
+import java.util.PriorityQueue
 
-class CredentialSetsMatcher {
+/**
+ * Matches the `credential_sets` rules of a DCQL query against the credentials available in the wallet.
+ *
+ * Credential query ids are mapped to bit positions and every option of every credential set is
+ * evaluated with bitmask operations, so queries with many alternatives are solved without
+ * building intermediate collections.
+ *
+ * @property logger Optional logger for logging events
+ */
+class CredentialSetsMatcher(
+    private val logger: Logger? = null,
+) {
 
     /**
      * Determines the final map of requested documents based on the DCQL query and
@@ -27,72 +42,216 @@ class CredentialSetsMatcher {
         credentialSets: CredentialSets?,
         availableWalletCredentialIds: Set<QueryId>
     ): Map<QueryId, CredentialQuery> {
-        // Create a lookup map for quick access to credential details by their ID.
-        val credentialsMap = credentials.value.associateBy { it.id }
-
-        // The 'credential_sets' array is missing or empty.
-        // In this case, all credentials in the 'credentials' list are considered required.
-        if (credentialSets == null || credentialSets.value.isEmpty()) {
-            val allRequiredIds = credentialsMap.keys
-            // Check if the wallet has ALL the required credentials.
-            return if (availableWalletCredentialIds.containsAll(allRequiredIds)) {
-                // If yes, return all of them.
-                credentialsMap
-            } else {
-                // If the wallet is missing even one, return nothing.
-                println("Error: Wallet is missing some required credentials when credential_sets is not provided. Aborting.")
-                emptyMap()
-            }
+        val compiled = compile(credentials, credentialSets)
+        val selected = compiled.firstCombination(availableWalletCredentialIds)
+        if (selected == null) {
+            logger?.d(TAG, "Wallet cannot satisfy the required credentials of the request")
+            return emptyMap()
         }
+        return credentials.value
+            .filter { it.id in selected }
+            .associateBy { it.id }
+    }
 
-        // The 'credential_sets' array is present. Process the new logic.
-        val (requiredSets, optionalSets) = credentialSets.value.partition { it.required ?: true }
-        val satisfyingDocs = mutableSetOf<QueryId>()
-
-        // Verify all required sets can be satisfied
-        for (set in requiredSets) {
-            // Find the first option in the set that the wallet can fully satisfy.
-            val satisfyingOption = findSatisfyingOption(set, availableWalletCredentialIds)
-
-            if (satisfyingOption != null) {
-                // If a valid option is found, add its credentials to our results.
-                satisfyingDocs.addAll(satisfyingOption)
-            } else {
-                // Even if only one required set cannot be satisfied,
-                // the wallet must not return any credentials at all.
-                return emptyMap()
-            }
-        }
+    /**
+     * Finds every combination of credential queries that satisfies the `credential_sets` rules
+     * of the DCQL query, ranked by the given cost function.
+     *
+     * @param credentials The list of all possible credentials defined in the request.
+     * @param credentialSets The credential_sets rules from the request, which may be null.
+     * @param matchedDocuments The wallet documents that match each credential query; the queries
+     * without documents cannot be satisfied.
+     * @param cost The cost function used to rank the combinations, lowest cost first.
+     * @param maxCombinations The maximum number of combinations to return.
+     * @return The satisfying combinations, ranked by cost. Empty if the request cannot be satisfied.
+     */
+    @JvmOverloads
+    fun findSatisfyingCombinations(
+        credentials: Credentials,
+        credentialSets: CredentialSets?,
+        matchedDocuments: Map<QueryId, List<IssuedDocument>>,
+        cost: CombinationCost = CombinationCost.VerifierPreference,
+        maxCombinations: Int = DEFAULT_MAX_COMBINATIONS,
+    ): List<CredentialSetsCombination> {
+        return compile(credentials, credentialSets)
+            .rankedCombinations(matchedDocuments, cost, maxCombinations)
+    }
+
+    companion object {
+        private const val TAG = "CredentialSetsMatcher"
+
+        /**
+         * The default maximum number of combinations returned by [findSatisfyingCombinations].
+         */
+        const val DEFAULT_MAX_COMBINATIONS = 64
 
-        // Add any optional sets that can be satisfied
-        for (set in optionalSets) {
-            val satisfyingOption = findSatisfyingOption(set, availableWalletCredentialIds)
-            if (satisfyingOption != null) {
-                satisfyingDocs.addAll(satisfyingOption)
+        /**
+         * Compiles the credential queries and `credential_sets` rules into their bitset form.
+         *
+         * @param credentials The list of all possible credentials defined in the request.
+         * @param credentialSets The credential_sets rules from the request, which may be null.
+         * @return The compiled credential sets.
+         */
+        @JvmSynthetic
+        internal fun compile(
+            credentials: Credentials,
+            credentialSets: CredentialSets?,
+        ): CompiledCredentialSets {
+            val queryIds = credentials.value.map { it.id }
+            val positions = queryIds.withIndex().associate { (index, id) -> id to index }
+            val (requiredSets, optionalSets) = credentialSets?.value.orEmpty()
+                .partition { it.required ?: true }
+            val toBitSets = { options: List<List<QueryId>> ->
+                options.map { ids ->
+                    // An option that references an unknown credential query can never be satisfied
+                    if (ids.any { it !in positions }) null
+                    else BitSet(queryIds.size).apply { ids.forEach { set(positions.getValue(it)) } }
+                }
             }
+            return CompiledCredentialSets(
+                queryIds = queryIds,
+                requiredSets = requiredSets.map { set -> toBitSets(set.options.map { it.value }) },
+                optionalSets = optionalSets.map { set -> toBitSets(set.options.map { it.value }) },
+            )
         }
+    }
+}
+
+/**
+ * Bitset form of the `credential_sets` rules of a DCQL query.
+ *
+ * Bit `i` of every bitset refers to the credential query at position `i` of [queryIds]. An option
+ * that references an unknown credential query is compiled to null and is never satisfied.
+ *
+ * @property queryIds the ids of the credential queries, in the order of the request
+ */
+internal class CompiledCredentialSets(
+    val queryIds: List<QueryId>,
+    private val requiredSets: List<List<BitSet?>>,
+    private val optionalSets: List<List<BitSet?>>,
+) {
 
-        // Build the final map from the collected document IDs ---
-        return credentialsMap.filterKeys { it in satisfyingDocs }
+    private val hasCredentialSets = requiredSets.isNotEmpty() || optionalSets.isNotEmpty()
+
+    /**
+     * Selects the first satisfiable option of each required set, plus the first satisfiable option
+     * of each optional set. Without `credential_sets`, all credential queries are required.
+     *
+     * @param availableQueryIds the ids of the credential queries the wallet can satisfy
+     * @return the selected ids, or null if a required set cannot be satisfied
+     */
+    fun firstCombination(availableQueryIds: Set<QueryId>): Set<QueryId>? {
+        val available = maskOf(availableQueryIds)
+        if (!hasCredentialSets) {
+            return if (available.cardinality() == queryIds.size) queryIds.toSet() else null
+        }
+        val selected = BitSet(queryIds.size)
+        for (options in requiredSets) {
+            selected.or(options.satisfiedBy(available).firstOrNull() ?: return null)
+        }
+        for (options in optionalSets) {
+            options.satisfiedBy(available).firstOrNull()?.let { selected.or(it) }
+        }
+        return idsOf(selected)
     }
 
     /**
-     * Helper function to find the first valid "option" within a CredentialSetQuery.
-     * An option is valid if the wallet holds all credentials listed in it.
+     * Enumerates the combinations of satisfiable options across all credential sets, cheapest
+     * first. The options of every set are deduplicated and sorted by their own cost, and the
+     * combinations are explored best-first from the cheapest options, so the search stops after
+     * [maxCombinations] results without enumerating the rest. The result is the cheapest overall
+     * when replacing an option with a costlier option of the same set never lowers the cost of a
+     * combination. Combinations with the same cost keep the order of the options in the request,
+     * and combinations that select the same credential queries are reported once.
      *
-     * @param credentialSet The set to check.
-     * @param availableWalletCredentialIds The credentials the user has.
-     * @return The list of QueryIds for the first matching option, or null if no option can be satisfied.
+     * @param matchedDocuments the wallet documents that match each credential query
+     * @param cost the cost function used for ranking
+     * @param maxCombinations the maximum number of combinations to return
+     * @return the ranked combinations, empty if a required set cannot be satisfied
      */
-    private fun findSatisfyingOption(
-        credentialSet: CredentialSetQuery,
-        availableWalletCredentialIds: Set<QueryId>
-    ): List<QueryId>? {
-        // credentialSet.options is a List<CredentialQueryIds>. We need to find the first
-        // CredentialQueryIds object where the wallet has all the IDs in its inner list (.value).
-        return credentialSet.options.firstOrNull { option ->
-            // An option is satisfied if the wallet contains ALL of the IDs in that option's list.
-            availableWalletCredentialIds.containsAll(option.value)
-        }?.value // Return the inner List<QueryId> of the matching option.
+    fun rankedCombinations(
+        matchedDocuments: Map<QueryId, List<IssuedDocument>>,
+        cost: CombinationCost,
+        maxCombinations: Int,
+    ): List<CredentialSetsCombination> {
+        require(maxCombinations > 0) { "maxCombinations must be greater than 0" }
+        val availableQueryIds = matchedDocuments.filterValues { it.isNotEmpty() }.keys
+        val costOf = { ids: Set<QueryId> -> cost.cost(ids.associateWith { matchedDocuments.getValue(it) }) }
+        val available = maskOf(availableQueryIds)
+        if (!hasCredentialSets) {
+            return firstCombination(availableQueryIds)
+                ?.let { listOf(CredentialSetsCombination(it, costOf(it))) }
+                ?: emptyList()
+        }
+        val candidates = (requiredSets.map { options ->
+            options.satisfiedBy(available).ifEmpty { return emptyList() }
+        } + optionalSets.map { options ->
+            // An optional set that cannot be satisfied is skipped
+            options.satisfiedBy(available).ifEmpty { listOf(BitSet(0)) }
+        }).map { options ->
+            // sortedBy is stable, so options with the same cost keep the verifier's order
+            options.distinct().sortedBy { costOf(idsOf(it)) }
+        }
+
+        val frontier = PriorityQueue(compareBy<Candidate> { it.cost }.thenComparator { a, b ->
+            compareIndices(a.indices, b.indices)
+        })
+        val visited = HashSet<List<Int>>()
+        fun offer(indices: List<Int>) {
+            if (!visited.add(indices)) return
+            val selected = BitSet(queryIds.size)
+            indices.forEachIndexed { setIndex, optionIndex -> selected.or(candidates[setIndex][optionIndex]) }
+            val ids = idsOf(selected)
+            frontier.add(Candidate(indices, selected, ids, costOf(ids)))
+        }
+        offer(List(candidates.size) { 0 })
+
+        // Different options can add up to the same credential queries, so the number of
+        // combinations explored is bounded as well as the number of combinations returned
+        val maxExplored = maxCombinations.toLong() * (candidates.size + 1)
+        var explored = 0L
+        val combinations = LinkedHashMap<BitSet, CredentialSetsCombination>()
+        while (combinations.size < maxCombinations && explored < maxExplored) {
+            val next = frontier.poll() ?: break
+            explored++
+            combinations.getOrPut(next.selected) { CredentialSetsCombination(next.ids, next.cost) }
+            for (setIndex in next.indices.indices) {
+                if (next.indices[setIndex] + 1 < candidates[setIndex].size) {
+                    offer(next.indices.toMutableList().apply { this[setIndex]++ })
+                }
+            }
+        }
+        return combinations.values.toList()
+    }
+
+    private class Candidate(
+        val indices: List<Int>,
+        val selected: BitSet,
+        val ids: Set<QueryId>,
+        val cost: Double,
+    )
+
+    private fun compareIndices(a: List<Int>, b: List<Int>): Int {
+        for (i in a.indices) {
+            val result = a[i].compareTo(b[i])
+            if (result != 0) return result
+        }
+        return 0
+    }
+
+    private fun maskOf(ids: Set<QueryId>): BitSet = BitSet(queryIds.size).apply {
+        queryIds.forEachIndexed { index, id -> if (id in ids) set(index) }
+    }
+
+    private fun idsOf(mask: BitSet): Set<QueryId> = buildSet {
+        var index = mask.nextSetBit(0)
+        while (index >= 0) {
+            add(queryIds[index])
+            index = mask.nextSetBit(index + 1)
+        }
+    }
+
+    private fun List<BitSet?>.satisfiedBy(available: BitSet): List<BitSet> = filterNotNull().filter { option ->
+        (option.clone() as BitSet).apply { andNot(available) }.isEmpty
     }
-}
\ No newline at end of file
+}
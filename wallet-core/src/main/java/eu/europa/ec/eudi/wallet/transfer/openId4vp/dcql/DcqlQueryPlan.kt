@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql
+
+import eu.europa.ec.eudi.iso18013.transfer.response.DocItem
+import eu.europa.ec.eudi.iso18013.transfer.response.device.MsoMdocItem
+import eu.europa.ec.eudi.openid4vp.Format
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialQuery
+import eu.europa.ec.eudi.openid4vp.dcql.DCQL
+import eu.europa.ec.eudi.openid4vp.dcql.QueryId
+import eu.europa.ec.eudi.openid4vp.dcql.metaMsoMdoc
+import eu.europa.ec.eudi.openid4vp.dcql.metaSdJwtVc
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.format.DocumentFormat
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocClaim
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.document.format.SdJwtVcClaim
+import eu.europa.ec.eudi.wallet.document.format.SdJwtVcFormat
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.SdJwtVcItem
+
+/**
+ * Compiled form of a [DCQL] query.
+ *
+ * A plan holds everything that can be derived from the query alone, so that repeated requests
+ * with a structurally identical query skip the compilation step:
+ * - the document formats each credential query matches against
+ * - the requested items of each credential query
+ * - the `credential_sets` options as bitsets over the credential query positions, see [CompiledCredentialSets]
+ *
+ * A plan holds no document data, so it stays valid when documents are stored or deleted. Items
+ * for credential queries without claims depend on the matched document and are derived for every
+ * request, see [CompiledCredentialQuery.requestedItemsFor].
+ *
+ * @property queries the compiled credential queries, in the order of the DCQL request
+ */
+internal class DcqlQueryPlan private constructor(
+    val queries: List<CompiledCredentialQuery>,
+    private val credentialSets: CompiledCredentialSets,
+) {
+
+    /**
+     * All document formats referenced by the plan.
+     */
+    val documentFormats: Set<DocumentFormat> =
+        queries.flatMapTo(mutableSetOf()) { it.documentFormats }
+
+    /**
+     * Returns every combination of credential queries that satisfies the `credential_sets` rules,
+     * ranked by the given cost function.
+     *
+     * @param matchedDocuments the wallet documents that match each credential query
+     * @param cost the cost function used for ranking
+     * @param maxCombinations the maximum number of combinations to return
+     * @return the ranked combinations, empty if the request cannot be satisfied
+     */
+    fun combinations(
+        matchedDocuments: Map<QueryId, List<IssuedDocument>>,
+        cost: CombinationCost,
+        maxCombinations: Int = CredentialSetsMatcher.DEFAULT_MAX_COMBINATIONS,
+    ): List<CredentialSetsCombination> =
+        credentialSets.rankedCombinations(matchedDocuments, cost, maxCombinations)
+
+    /**
+     * Compiled form of a single [CredentialQuery].
+     *
+     * @property id the id of the credential query
+     * @property format the format identifier of the credential query (e.g. "mso_mdoc", "dc+sd-jwt")
+     * @property documentFormats the document formats of the wallet documents that match the query
+     * @property requestedItems the requested items with their intent to retain flag, or null
+     * if the query requests all the claims of the matched documents
+     */
+    class CompiledCredentialQuery(
+        val id: QueryId,
+        val format: String,
+        val documentFormats: List<DocumentFormat>,
+        private val requestedItems: Map<DocItem, Boolean>?,
+    ) {
+
+        /**
+         * Returns the items requested from the given document. For a query without claims, these
+         * are all the claims of the document, derived from the document on each call.
+         *
+         * @param document the matched document
+         * @return the requested items with their intent to retain flag
+         */
+        fun requestedItemsFor(document: IssuedDocument): Map<DocItem, Boolean> {
+            return requestedItems ?: allClaimsItemsOf(document)
+        }
+
+        private fun allClaimsItemsOf(document: IssuedDocument): Map<DocItem, Boolean> {
+            return when (document.format) {
+                is MsoMdocFormat -> document.data.claims
+                    .filterIsInstance<MsoMdocClaim>()
+                    .associate {
+                        MsoMdocItem(
+                            namespace = it.nameSpace,
+                            elementIdentifier = it.identifier
+                        ) to false
+                    }
+
+                is SdJwtVcFormat -> collectAllPaths(
+                    claims = document.data.claims.filterIsInstance<SdJwtVcClaim>(),
+                    basePath = emptyList()
+                ).associate { path -> SdJwtVcItem(path) to false }
+            }
+        }
+    }
+
+    companion object {
+
+        /**
+         * Compiles the given [DCQL] query into a [DcqlQueryPlan].
+         *
+         * @param dcql the query to compile
+         * @return the compiled plan
+         * @throws IllegalArgumentException if a credential query is missing its format specific
+         * metadata or uses an unsupported format
+         */
+        fun compile(dcql: DCQL): DcqlQueryPlan {
+            return DcqlQueryPlan(
+                queries = dcql.credentials.value.map { compile(it) },
+                credentialSets = CredentialSetsMatcher.compile(dcql.credentials, dcql.credentialSets),
+            )
+        }
+
+        private fun compile(query: CredentialQuery): CompiledCredentialQuery {
+            return when (val format = query.format) {
+                Format.MsoMdoc -> {
+                    val docTypeValue = query.metaMsoMdoc?.doctypeValue
+                    requireNotNull(docTypeValue) {
+                        "DocType is missing for query with id ${query.id}"
+                    }
+                    CompiledCredentialQuery(
+                        id = query.id,
+                        format = format.value,
+                        documentFormats = listOf(MsoMdocFormat(docTypeValue.value)),
+                        requestedItems = query.claims?.associate { claim ->
+                            MsoMdocItem(
+                                namespace = claim.path.value.first().toString(),
+                                elementIdentifier = claim.path.value.last().toString()
+                            ) to (claim.intentToRetain == true)
+                        }
+                    )
+                }
+
+                Format.SdJwtVc -> {
+                    val vctValues = query.metaSdJwtVc!!.vctValues
+                    require(vctValues.isNotEmpty()) {
+                        "VctValues are missing or is empty for query with id ${query.id}"
+                    }
+                    CompiledCredentialQuery(
+                        id = query.id,
+                        format = format.value,
+                        documentFormats = vctValues.map { SdJwtVcFormat(it) },
+                        requestedItems = query.claims?.associate { claim ->
+                            SdJwtVcItem(path = claim.path.value.map { it.toString() }) to
+                                    (claim.intentToRetain == true)
+                        }
+                    )
+                }
+
+                else -> throw IllegalArgumentException("Not supported format ${format.value}")
+            }
+        }
+
+        /**
+         * Recursively collects all paths from the given SdJwtVcClaims.
+         *
+         * @param claims The SdJwtVcClaim objects to process
+         * @param basePath The base path prefix for each claim
+         * @return List of all complete claim paths
+         */
+        private fun collectAllPaths(
+            claims: List<SdJwtVcClaim>,
+            basePath: List<String>,
+        ): List<List<String>> {
+            val result = mutableListOf<List<String>>()
+            for (claim in claims) {
+                val currentPath = basePath + claim.identifier
+                result.add(currentPath)
+                if (claim.children.isNotEmpty()) {
+                    result.addAll(collectAllPaths(claim.children, currentPath))
+                }
+            }
+            return result
+        }
+    }
+}
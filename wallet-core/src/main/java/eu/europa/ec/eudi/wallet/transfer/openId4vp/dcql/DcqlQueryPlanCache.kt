@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql
+
+import eu.europa.ec.eudi.openid4vp.dcql.DCQL
+
+/**
+ * Least-recently-used cache of compiled DCQL query plans used by [DcqlRequestProcessor].
+ *
+ * Verifiers usually send structurally identical DCQL queries, so the compiled plan of a query is
+ * reused for every request with an equal [DCQL] object. [DCQL] and its members are value types,
+ * so two queries are considered equal when they have the same content, regardless of the order
+ * of the keys in their JSON representation.
+ *
+ * Plans depend on the query alone, so they stay valid when documents are stored or deleted.
+ *
+ * @property maxSize the maximum number of plans kept in the cache
+ */
+class DcqlQueryPlanCache(val maxSize: Int = DEFAULT_MAX_SIZE) {
+
+    init {
+        require(maxSize > 0) { "maxSize must be greater than 0" }
+    }
+
+    private val plans = object : LinkedHashMap<DCQL, DcqlQueryPlan>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<DCQL, DcqlQueryPlan>?): Boolean {
+            return size > maxSize
+        }
+    }
+
+    /**
+     * Returns the cached plan for the given query or compiles and caches a new one.
+     *
+     * @param dcql the query
+     * @return the compiled plan
+     * @throws IllegalArgumentException if the query cannot be compiled
+     */
+    @JvmSynthetic
+    internal fun getOrCompile(dcql: DCQL): DcqlQueryPlan {
+        synchronized(plans) { plans[dcql] }?.let { return it }
+        val plan = DcqlQueryPlan.compile(dcql)
+        return synchronized(plans) { plans.getOrPut(dcql) { plan } }
+    }
+
+    /**
+     * Removes all cached plans.
+     */
+    fun invalidate() {
+        synchronized(plans) { plans.clear() }
+    }
+
+    /**
+     * The number of plans currently in the cache.
+     */
+    val size: Int
+        get() = synchronized(plans) { plans.size }
+
+    companion object {
+        const val DEFAULT_MAX_SIZE = 32
+    }
+}
@@ -30,9 +30,12 @@ import eu.europa.ec.eudi.wallet.document.DocumentManager
 import eu.europa.ec.eudi.wallet.document.IssuedDocument
 import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
 import eu.europa.ec.eudi.wallet.document.format.SdJwtVcFormat
+import eu.europa.ec.eudi.wallet.internal.ParsedSdJwtCache
 import eu.europa.ec.eudi.wallet.internal.getSessionTranscriptBytes
 import eu.europa.ec.eudi.wallet.internal.verifiablePresentationForMsoMdoc
 import eu.europa.ec.eudi.wallet.internal.verifiablePresentationForSdJwtVc
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.FORMAT_MSO_MDOC
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.FORMAT_SD_JWT_VC
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpResponse
@@ -56,13 +59,51 @@ import org.multipaz.crypto.Algorithm
  * @property documentManager Manager to access and handle wallet documents
  * @property queryMap Mapping from query IDs to requested documents, organized by format
  * @property msoMdocNonce Random nonce used for MSO mdoc format presentations for security
+ * @property combinations The ranked combinations of credential queries that satisfy the request's
+ * `credential_sets`; [queryMap] contains the documents of the first one
+ * @property potentialQueryMap Mapping from query IDs to all the matching documents, used to switch
+ * to another of the [combinations]
  */
 class ProcessedDcqlRequest(
     val resolvedRequestObject: ResolvedRequestObject,
     private val documentManager: DocumentManager,
     private val queryMap: RequestedDocumentsByQueryId,
     val msoMdocNonce: String,
+    val combinations: List<CredentialSetsCombination> = emptyList(),
+    private val potentialQueryMap: RequestedDocumentsByQueryId = queryMap,
 ) : RequestProcessor.ProcessedRequest.Success(RequestedDocuments(queryMap.flatMap { it.value.requestedDocuments })) {
+
+    internal var telemetry: WalletTelemetry = WalletTelemetry.Disabled
+
+    /**
+     * The cache of the parsed SD-JWTs of the wallet, or null if the SD-JWTs are parsed each time.
+     */
+    internal var parsedSdJwtCache: ParsedSdJwtCache? = null
+
+    /**
+     * Returns a processed request that requests the documents of the given combination instead of
+     * the top ranked one. This allows offering the user the alternatives of a request with
+     * `credential_sets`.
+     *
+     * @param combination One of [combinations]
+     * @return A [ProcessedDcqlRequest] for the given combination, sharing the same nonce
+     * @throws IllegalArgumentException If the combination is not one of [combinations]
+     */
+    fun withCombination(combination: CredentialSetsCombination): ProcessedDcqlRequest {
+        require(combination in combinations) { "Combination is not one of the request's combinations" }
+        return ProcessedDcqlRequest(
+            resolvedRequestObject = resolvedRequestObject,
+            documentManager = documentManager,
+            queryMap = potentialQueryMap.filterKeys { it in combination.queryIds },
+            msoMdocNonce = msoMdocNonce,
+            combinations = combinations,
+            potentialQueryMap = potentialQueryMap,
+        ).also {
+            it.telemetry = telemetry
+            it.parsedSdJwtCache = parsedSdJwtCache
+        }
+    }
+
     /**
      * Generates an OpenID4VP response with verifiable presentations for the selected documents.
      *
@@ -82,7 +123,11 @@ class ProcessedDcqlRequest(
     override fun generateResponse(
         disclosedDocuments: DisclosedDocuments,
         signatureAlgorithm: Algorithm?,
-    ): ResponseResult {
+    ): ResponseResult = telemetry.trace(
+        WalletStage.PRESENTATION_VP_GENERATION,
+        failureOf = { result -> runCatching { result.getOrThrow() }.exceptionOrNull() },
+    ) { span ->
+        span.setAttribute("documents", disclosedDocuments.size.toString())
         val result = try {
             // Set to track all the documents that will be included in the response
             val respondedDocumentsMap =
@@ -131,7 +176,7 @@ class ProcessedDcqlRequest(
             ResponseResult.Failure(e)
         }
 
-        return result
+        result
     }
 
     /**
@@ -187,7 +232,9 @@ class ProcessedDcqlRequest(
                     resolvedRequestObject = resolvedRequestObject,
                     document = document,
                     disclosedDocument = disclosedDocument,
-                    signatureAlgorithm = signatureAlgorithm
+                    signatureAlgorithm = signatureAlgorithm,
+                    telemetry = telemetry,
+                    parsedSdJwtCache = parsedSdJwtCache,
                 )
             }
 
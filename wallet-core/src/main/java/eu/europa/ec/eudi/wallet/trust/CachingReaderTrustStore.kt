@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.trust
+
+import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
+import java.security.MessageDigest
+import java.security.cert.X509Certificate
+import java.time.Clock
+import java.time.Instant
+import java.util.Base64
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.toJavaDuration
+
+/**
+ * A [ReaderTrustStore] that caches the trust results of its [delegate], keyed by the SHA-256
+ * fingerprint of the reader certificate chain.
+ *
+ * Validating a chain requires building the certification path up to a trust anchor, which is
+ * repeated for every request of the same verifier. This store keeps successful results so that
+ * subsequent requests with the same chain skip path building. Each entry expires after [ttl], or
+ * earlier when a certificate of the chain expires. Failed validations are never cached.
+ *
+ * The wallet wraps its reader trust store with this class, so the same cache is shared by the
+ * proximity, OpenID4VP and DCAPI presentations. Setting a new trust store through
+ * [eu.europa.ec.eudi.wallet.EudiWallet.setReaderTrustStore] or
+ * [eu.europa.ec.eudi.wallet.EudiWallet.setTrustedReaderCertificates] replaces the cache.
+ *
+ * @property delegate the trust store that performs the actual validation
+ * @property ttl the maximum time a result is cached
+ * @property maxSize the maximum number of cached chains
+ * @param clock the clock used to expire the entries
+ */
+class CachingReaderTrustStore(
+    val delegate: ReaderTrustStore,
+    val ttl: Duration = DEFAULT_TTL,
+    val maxSize: Int = DEFAULT_MAX_SIZE,
+    private val clock: Clock = Clock.systemUTC(),
+) : ReaderTrustStore {
+
+    init {
+        require(ttl.isPositive()) { "ttl must be positive" }
+        require(maxSize > 0) { "maxSize must be greater than 0" }
+    }
+
+    private class Entry(val expiresAt: Instant) {
+        @Volatile
+        var trustPath: List<X509Certificate>? = null
+
+        @Volatile
+        var isTrusted: Boolean = false
+    }
+
+    private val entries = object : LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>?): Boolean {
+            return size > maxSize
+        }
+    }
+
+    override fun createCertificationTrustPath(
+        chainToDocumentSigner: List<X509Certificate>,
+    ): List<X509Certificate>? {
+        val entry = entryFor(chainToDocumentSigner)
+            ?: return delegate.createCertificationTrustPath(chainToDocumentSigner)
+        entry.trustPath?.let { return it }
+        return delegate.createCertificationTrustPath(chainToDocumentSigner)
+            ?.also { entry.trustPath = it }
+    }
+
+    override fun validateCertificationTrustPath(
+        chainToDocumentSigner: List<X509Certificate>,
+    ): Boolean {
+        val entry = entryFor(chainToDocumentSigner)
+            ?: return delegate.validateCertificationTrustPath(chainToDocumentSigner)
+        if (entry.isTrusted) return true
+        return delegate.validateCertificationTrustPath(chainToDocumentSigner)
+            .also { if (it) entry.isTrusted = true }
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    fun clear() {
+        synchronized(entries) { entries.clear() }
+    }
+
+    /**
+     * Returns the cache entry for the given chain, creating a new one if there is no entry or the
+     * existing one has expired. Returns null if the chain is empty or already expired.
+     */
+    private fun entryFor(chain: List<X509Certificate>): Entry? {
+        if (chain.isEmpty()) return null
+        val now = clock.instant()
+        val notAfter = chain.minOf { it.notAfter.toInstant() }
+        if (!notAfter.isAfter(now)) return null
+
+        val fingerprint = fingerprintOf(chain)
+        return synchronized(entries) {
+            entries[fingerprint]?.takeIf { it.expiresAt.isAfter(now) }
+                ?: Entry(minOf(now.plus(ttl.toJavaDuration()), notAfter))
+                    .also { entries[fingerprint] = it }
+        }
+    }
+
+    private fun fingerprintOf(chain: List<X509Certificate>): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        chain.forEach { digest.update(it.encoded) }
+        return Base64.getEncoder().encodeToString(digest.digest())
+    }
+
+    companion object {
+        /**
+         * The default time a trust result is cached.
+         */
+        val DEFAULT_TTL: Duration = 10.minutes
+
+        /**
+         * The default maximum number of cached chains.
+         */
+        const val DEFAULT_MAX_SIZE = 64
+    }
+}
+
+/**
+ * Wraps the [ReaderTrustStore] with a [CachingReaderTrustStore], unless caching is disabled
+ * with a non-positive [ttl] or the store is already a [CachingReaderTrustStore].
+ *
+ * @param ttl the maximum time a result is cached
+ * @return the caching trust store, or this trust store if caching is disabled
+ */
+@JvmSynthetic
+internal fun ReaderTrustStore.withTrustCache(ttl: Duration): ReaderTrustStore = when {
+    this is CachingReaderTrustStore -> this
+    !ttl.isPositive() -> this
+    else -> CachingReaderTrustStore(delegate = this, ttl = ttl)
+}
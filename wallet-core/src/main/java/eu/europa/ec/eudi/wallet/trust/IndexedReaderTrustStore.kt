@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.trust
+
+import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
+import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStoreImpl
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier
+import org.bouncycastle.asn1.x509.Extension
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils
+import org.bouncycastle.util.encoders.Hex
+import java.security.cert.X509Certificate
+import java.util.concurrent.ConcurrentHashMap
+import javax.security.auth.x500.X500Principal
+
+/**
+ * A [ReaderTrustStore] that indexes its trust anchors by subject DN and Subject Key Identifier.
+ *
+ * Instead of building the certification path against every trusted certificate, the store looks
+ * up the anchors that can have issued the reader certificate chain and validates the chain
+ * against those anchors only. The lookup uses the Authority Key Identifier of the chain
+ * certificates when present and falls back to the issuer DN, so it takes constant time regardless
+ * of the number of trusted certificates.
+ *
+ * The validation itself is delegated to a [ReaderTrustStore] created by [trustStoreFactory] for
+ * the matched anchors, so the validation rules (e.g. reader profile validation) are the same as
+ * those of the store the factory creates. The delegates are created once per set of anchors.
+ *
+ * @param trustedCertificates the trusted reader CA certificates
+ * @param trustStoreFactory creates the [ReaderTrustStore] that validates a chain against the
+ * matched anchors; by default a [ReaderTrustStoreImpl] without profile validation
+ */
+class IndexedReaderTrustStore @JvmOverloads constructor(
+    trustedCertificates: Collection<X509Certificate>,
+    private val trustStoreFactory: (List<X509Certificate>) -> ReaderTrustStore = { anchors ->
+        ReaderTrustStoreImpl(anchors, profileValidation = { _, _ -> true })
+    },
+) : ReaderTrustStore {
+
+    /**
+     * The trusted certificates, without duplicates.
+     */
+    val trustedCertificates: List<X509Certificate> = trustedCertificates.distinct()
+
+    private val bySubject: Map<X500Principal, List<X509Certificate>> =
+        this.trustedCertificates.groupBy { it.subjectX500Principal }
+
+    private val bySubjectKeyIdentifier: Map<String, List<X509Certificate>> =
+        this.trustedCertificates
+            .mapNotNull { certificate -> certificate.subjectKeyIdentifier?.let { it to certificate } }
+            .groupBy({ it.first }, { it.second })
+
+    private val delegates = ConcurrentHashMap<List<X509Certificate>, ReaderTrustStore>()
+
+    override fun createCertificationTrustPath(
+        chainToDocumentSigner: List<X509Certificate>,
+    ): List<X509Certificate>? {
+        val anchors = findAnchors(chainToDocumentSigner).ifEmpty { return null }
+        return delegateFor(anchors).createCertificationTrustPath(chainToDocumentSigner)
+    }
+
+    override fun validateCertificationTrustPath(
+        chainToDocumentSigner: List<X509Certificate>,
+    ): Boolean {
+        val anchors = findAnchors(chainToDocumentSigner).ifEmpty { return false }
+        return delegateFor(anchors).validateCertificationTrustPath(chainToDocumentSigner)
+    }
+
+    /**
+     * Finds the trusted certificates that are part of the chain or have issued one of its
+     * certificates. The chain is expected to be ordered from the reader certificate up to the
+     * root, so the lookup starts from the end of the chain.
+     *
+     * @param chain the reader certificate chain
+     * @return the matching trusted certificates, empty if none matches
+     */
+    @JvmSynthetic
+    internal fun findAnchors(chain: List<X509Certificate>): List<X509Certificate> {
+        val anchors = LinkedHashSet<X509Certificate>()
+        for (certificate in chain.asReversed()) {
+            // The certificate itself is trusted
+            bySubject[certificate.subjectX500Principal]
+                ?.filter { it == certificate }
+                ?.let { anchors.addAll(it) }
+            anchors.addAll(issuersOf(certificate))
+        }
+        return anchors.toList()
+    }
+
+    private fun issuersOf(certificate: X509Certificate): List<X509Certificate> {
+        val issuerDnMatches = bySubject[certificate.issuerX500Principal].orEmpty()
+        val authorityKeyIdentifier = certificate.authorityKeyIdentifier
+            ?: return issuerDnMatches
+        return bySubjectKeyIdentifier[authorityKeyIdentifier]
+            // Anchors without a Subject Key Identifier can only be found by their subject DN
+            ?: issuerDnMatches.filter { it.subjectKeyIdentifier == null }
+    }
+
+    private fun delegateFor(anchors: List<X509Certificate>): ReaderTrustStore =
+        delegates.getOrPut(anchors) { trustStoreFactory(anchors) }
+
+    private companion object {
+
+        val X509Certificate.subjectKeyIdentifier: String?
+            get() = getExtensionValue(Extension.subjectKeyIdentifier.id)?.let { value ->
+                runCatching {
+                    SubjectKeyIdentifier.getInstance(JcaX509ExtensionUtils.parseExtensionValue(value))
+                        .keyIdentifier
+                        .let { Hex.toHexString(it) }
+                }.getOrNull()
+            }
+
+        val X509Certificate.authorityKeyIdentifier: String?
+            get() = getExtensionValue(Extension.authorityKeyIdentifier.id)?.let { value ->
+                runCatching {
+                    AuthorityKeyIdentifier.getInstance(JcaX509ExtensionUtils.parseExtensionValue(value))
+                        .keyIdentifier
+                        ?.let { Hex.toHexString(it) }
+                }.getOrNull()
+            }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.trust
+
+import android.content.Context
+import androidx.annotation.RawRes
+import eu.europa.ec.eudi.wallet.internal.e
+import eu.europa.ec.eudi.wallet.internal.getCertificate
+import eu.europa.ec.eudi.wallet.logging.Logger
+import java.io.File
+import java.security.MessageDigest
+import java.security.cert.CertificateFactory
+import java.security.cert.X509Certificate
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Cache of the reader certificates parsed from raw resources.
+ *
+ * Raw resources may be PEM encoded and are opened one by one, which is slow for trusted lists
+ * with hundreds of certificates. The parsed certificates are kept in memory and persisted as a
+ * single DER file in [directory], so later calls, and later processes, read them in one pass.
+ * The file is named after a hash of the resource ids and the time the app was last updated,
+ * because raw resources only change with an app update. Writing the file of a resource set
+ * deletes the files of its older versions, and leaves the files of other resource sets.
+ *
+ * @property directory the directory of the persisted cache files
+ */
+internal class ParsedCertificateCache(private val directory: File) {
+
+    private val memory = ConcurrentHashMap<String, List<X509Certificate>>()
+
+    /**
+     * Returns the certificates of the given raw resources, in the order of the resources.
+     *
+     * @param context the context used to read the resources
+     * @param rawRes the raw resource ids of the certificates
+     * @param logger optional logger for the failures to read or write the cache file
+     * @return the parsed certificates
+     */
+    fun getCertificates(
+        context: Context,
+        @RawRes vararg rawRes: Int,
+        logger: Logger? = null,
+    ): List<X509Certificate> {
+        val key = Key(resourcesHashOf(rawRes), lastUpdateTimeOf(context))
+        return memory.getOrPut(key.name) {
+            read(key, logger)?.takeIf { it.size == rawRes.size }
+                ?: rawRes.map { context.getCertificate(it) }.also { write(key, it, logger) }
+        }
+    }
+
+    /**
+     * The name of the cache file of a version of a resource set.
+     *
+     * @property resourcesHash the hash of the resource ids
+     * @property lastUpdateTime the time the app was last updated
+     */
+    private class Key(val resourcesHash: String, val lastUpdateTime: Long) {
+        val name: String = "$FILE_PREFIX${resourcesHash}_$lastUpdateTime"
+    }
+
+    private fun read(key: Key, logger: Logger?): List<X509Certificate>? = runCatching {
+        val file = fileOf(key)
+        if (!file.exists()) return null
+        file.inputStream().buffered().use { input ->
+            CertificateFactory.getInstance("X509")
+                .generateCertificates(input)
+                .map { it as X509Certificate }
+        }
+    }.onFailure { error ->
+        logger?.e(TAG, "Failed to read the reader certificates cache ${key.name}", error)
+    }.getOrNull()
+
+    private fun write(key: Key, certificates: List<X509Certificate>, logger: Logger?) {
+        runCatching {
+            directory.mkdirs()
+            deleteOlderVersions(key, logger)
+            val temp = File(directory, "${key.name}.tmp")
+            temp.outputStream().buffered().use { output ->
+                certificates.forEach { output.write(it.encoded) }
+            }
+            check(temp.renameTo(fileOf(key))) { "Cannot rename ${temp.name}" }
+        }.onFailure { error ->
+            logger?.e(TAG, "Failed to write the reader certificates cache ${key.name}", error)
+        }
+    }
+
+    /**
+     * Deletes the files of the same resource set written before the last app update.
+     */
+    private fun deleteOlderVersions(key: Key, logger: Logger?) {
+        val prefix = "$FILE_PREFIX${key.resourcesHash}_"
+        directory.listFiles { file -> file.name.startsWith(prefix) }
+            ?.filter { file ->
+                val lastUpdateTime = file.name.removePrefix(prefix).substringBefore('.').toLongOrNull()
+                lastUpdateTime != null && lastUpdateTime < key.lastUpdateTime
+            }
+            ?.forEach { file ->
+                if (!file.delete()) logger?.e(TAG, "Failed to delete the reader certificates cache ${file.name}")
+            }
+    }
+
+    private fun fileOf(key: Key) = File(directory, "${key.name}.der")
+
+    private fun lastUpdateTimeOf(context: Context): Long = runCatching {
+        context.packageManager.getPackageInfo(context.packageName, 0).lastUpdateTime
+    }.getOrDefault(0L)
+
+    private fun resourcesHashOf(rawRes: IntArray): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        rawRes.forEach { digest.update(it.toString().toByteArray()); digest.update(0.toByte()) }
+        return digest.digest().joinToString("") { "%02x".format(it) }.take(32)
+    }
+
+    companion object {
+        private const val TAG = "ParsedCertificateCache"
+        private const val DIRECTORY = "eudi-reader-trust"
+        private const val FILE_PREFIX = "reader_trust_anchors_"
+
+        @Volatile
+        private var instance: ParsedCertificateCache? = null
+
+        /**
+         * Returns the cache shared by the wallet instances of the application.
+         *
+         * @param context the context used to locate the no-backup files directory
+         * @return the shared cache
+         */
+        fun getInstance(context: Context): ParsedCertificateCache = instance ?: synchronized(this) {
+            instance ?: ParsedCertificateCache(File(context.noBackupFilesDir, DIRECTORY))
+                .also { instance = it }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.DocumentManagerWithMeta
 import eu.europa.ec.eudi.wallet.logging.Logger
 import eu.europa.ec.eudi.wallet.presentation.PresentationManager
 import eu.europa.ec.eudi.wallet.presentation.PresentationManagerImpl
+import eu.europa.ec.eudi.wallet.provider.DefaultWalletKeyManager
 import eu.europa.ec.eudi.wallet.statium.DocumentStatusResolver
 import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLogger
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.ClientIdScheme
@@ -31,6 +32,7 @@ import eu.europa.ec.eudi.wallet.transfer.openId4vp.EncryptionAlgorithm
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.EncryptionMethod
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.Format
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpConfig
+import eu.europa.ec.eudi.wallet.trust.CachingReaderTrustStore
 import io.ktor.client.HttpClient
 import io.mockk.every
 import io.mockk.mockk
@@ -45,6 +47,7 @@ import kotlin.test.Test
 import kotlin.test.assertEquals
 import kotlin.test.assertIs
 import kotlin.test.assertNotNull
+import kotlin.test.assertSame
 
 class EudiWalletBuilderTest {
 
@@ -205,9 +208,10 @@ class EudiWalletBuilderTest {
         val builder = spyk(EudiWallet.Builder(context, config, null)) {
             every { getDefaultDocumentManager(any(), any()) } returns documentManager
             every { getTransferManager(any(), any()) } answers {
-                // Verify reader trust store is passed to transfer manager
+                // Verify reader trust store is passed to transfer manager, wrapped with the trust cache
                 val readerTrustStore = secondArg<ReaderTrustStore?>()
-                assertEquals(customReaderTrustStore, readerTrustStore)
+                assertIs<CachingReaderTrustStore>(readerTrustStore)
+                assertEquals(customReaderTrustStore, readerTrustStore.delegate)
                 transferManager
             }
             every { getDocumentStatusResolver() } returns mockk(relaxed = true)
@@ -219,7 +223,9 @@ class EudiWalletBuilderTest {
 
         // Verify
         assertIs<EudiWalletImpl>(wallet)
-        verify(exactly = 1) { builder.getTransferManager(any(), customReaderTrustStore) }
+        verify(exactly = 1) {
+            builder.getTransferManager(any(), match { (it as CachingReaderTrustStore).delegate == customReaderTrustStore })
+        }
     }
 
     @Test
@@ -450,4 +456,40 @@ class EudiWalletBuilderTest {
         assertIs<PresentationManagerImpl>(wallet.presentationManager)
         assertNotNull(wallet.presentationManager.openId4vpManager)
     }
+
+    @Test
+    fun `shared storage profile keeps all the wallet state in the storage of the documents`() {
+        // Setup
+        val context: Context = mockk {
+            every { applicationContext } returns this
+            every { noBackupFilesDir } returns File("no-backup")
+        }
+
+        val capabilities = mockk<AndroidKeystoreSecureArea.Capabilities> {
+            every { secureLockScreenSetup } returns true
+            every { strongBoxSupported } returns true
+        }
+
+        val config = EudiWalletConfig {
+            configureStorageProfile(EudiWalletConfig.StorageProfile.SHARED)
+        }
+        val customStorage: Storage = mockk()
+
+        val builder = spyk(EudiWallet.Builder(context, config, null)) {
+            every { getDefaultDocumentManager(any(), any()) } returns mockk(relaxed = true)
+            every { getTransferManager(any(), any()) } returns mockk(relaxed = true)
+            every { getDocumentStatusResolver() } returns mockk(relaxed = true)
+            every { this@spyk.capabilities } returns capabilities
+        }
+
+        // Execute
+        val wallet = builder.withStorage(customStorage).build()
+
+        // Verify
+        assertIs<EudiWalletImpl>(wallet)
+        verify(exactly = 1) { builder.getDefaultDocumentManager(customStorage, null) }
+        assertSame(customStorage, wallet.issuanceMetadataStorage)
+        assertSame(customStorage, wallet.walletStorage)
+        assertIs<DefaultWalletKeyManager>(wallet.walletKeyManager)
+    }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.budget
+
+import androidx.credentials.ExperimentalDigitalCredentialApi
+import androidx.credentials.GetDigitalCredentialOption
+import androidx.credentials.provider.ProviderGetCredentialRequest
+import com.upokecenter.cbor.CBORObject
+import eu.europa.ec.eudi.iso18013.transfer.response.DisclosedDocument
+import eu.europa.ec.eudi.iso18013.transfer.response.DisclosedDocuments
+import eu.europa.ec.eudi.iso18013.transfer.response.RequestedDocument
+import eu.europa.ec.eudi.iso18013.transfer.response.RequestedDocuments
+import eu.europa.ec.eudi.iso18013.transfer.response.ResponseResult
+import eu.europa.ec.eudi.iso18013.transfer.response.device.DeviceResponse
+import eu.europa.ec.eudi.iso18013.transfer.response.device.MsoMdocItem
+import eu.europa.ec.eudi.iso18013.transfer.response.device.ProcessedDeviceRequest
+import eu.europa.ec.eudi.wallet.dcapi.DCAPIResponse
+import eu.europa.ec.eudi.wallet.dcapi.ProcessedDCPAPIRequest
+import eu.europa.ec.eudi.wallet.dcapi.getDCAPIIsoMdocSessionTranscript
+import eu.europa.ec.eudi.wallet.dcapi.toBase64
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.presentation.PresentationManagerImpl
+import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLog
+import eu.europa.ec.eudi.wallet.transactionLogging.presentation.TransactionsListener
+import eu.europa.ec.eudi.wallet.transactionLogging.presentation.parsing.getResourceAsByteArrayFromBase64Url
+import io.mockk.every
+import io.mockk.mockk
+import kotlinx.coroutines.test.runTest
+import org.json.JSONArray
+import org.json.JSONObject
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.multipaz.crypto.Algorithm
+import org.robolectric.RobolectricTestRunner
+import java.math.BigInteger
+import java.security.KeyPairGenerator
+import java.security.interfaces.ECPublicKey
+import java.security.spec.ECGenParameterSpec
+import kotlin.test.assertEquals
+import kotlin.test.assertIs
+
+/**
+ * Latency and allocation budget of the Digital Credentials API presentation flow, from the
+ * `org-iso-mdoc` request of the credential provider to the encrypted [DCAPIResponse] and its
+ * transaction log.
+ *
+ * The device response is generated by the iso18013 library from the issuer signed data of a
+ * real credential, which is not available in unit tests, so it is replaced by a recorded device
+ * response. The device signature is made by the library, so the flow has no secure area
+ * operation budget. The session transcript, the parsing of the request and the HPKE encryption
+ * of the response are not replaced.
+ */
+@OptIn(ExperimentalDigitalCredentialApi::class)
+@RunWith(RobolectricTestRunner::class)
+class DcapiBudgetTest {
+
+    private val transactionLogs = mutableListOf<TransactionLog>()
+
+    private lateinit var processedRequest: ProcessedDCPAPIRequest
+    private lateinit var listener: TransactionsListener
+
+    private val disclosedDocuments = DisclosedDocuments(
+        DisclosedDocument(
+            documentId = DOCUMENT_ID,
+            disclosedItems = listOf(
+                MsoMdocItem("eu.europa.ec.eudi.pid.1", "family_name"),
+                MsoMdocItem("eu.europa.ec.eudi.pid.1", "given_name"),
+            ),
+            keyUnlockData = null
+        )
+    )
+
+    @Before
+    fun setup() {
+        val encryptionInfo = encryptionInfo()
+        val deviceResponseBytes = getResourceAsByteArrayFromBase64Url("mso_mdoc_response.txt")
+        val processedDeviceRequest = mockk<ProcessedDeviceRequest> {
+            every { generateResponse(any(), any()) } answers {
+                val sessionTranscript = getDCAPIIsoMdocSessionTranscript(encryptionInfo, ORIGIN)
+                ResponseResult.Success(
+                    DeviceResponse(deviceResponseBytes, sessionTranscript, listOf(DOCUMENT_ID))
+                )
+            }
+        }
+        val requestJson = JSONObject().put(
+            "requests",
+            JSONArray().put(
+                JSONObject()
+                    .put("protocol", "org-iso-mdoc")
+                    .put(
+                        "data",
+                        JSONObject()
+                            .put("deviceRequest", getResourceAsByteArrayFromBase64Url("mso_mdoc_request.txt").toBase64())
+                            .put("encryptionInfo", encryptionInfo)
+                    )
+            )
+        ).toString()
+        val providerGetCredentialRequest = mockk<ProviderGetCredentialRequest> {
+            every { credentialOptions } returns listOf(GetDigitalCredentialOption(requestJson))
+        }
+
+        processedRequest = ProcessedDCPAPIRequest(
+            processedDeviceRequest = processedDeviceRequest,
+            providerGetCredentialRequest = providerGetCredentialRequest,
+            origin = ORIGIN,
+            requestedDocuments = RequestedDocuments(
+                listOf(RequestedDocument(documentId = DOCUMENT_ID, requestedItems = emptyMap(), readerAuth = null))
+            ),
+        )
+        val documentManager = mockk<DocumentManager> {
+            every { getDocumentById(any()) } returns null
+        }
+        listener = TransactionsListener({ transactionLogs.add(it) }, documentManager, null)
+    }
+
+    @Test
+    fun `presentation of a DCAPI request is within budget`() {
+        val measurement = measureFlow(FLOW) {
+            val result = processedRequest.generateResponse(disclosedDocuments, Algorithm.ESP256)
+            val response = assertIs<DCAPIResponse>(result.getOrThrow())
+            listener.logResponse(response)
+        }
+
+        assertEquals(TransactionLog.Status.Completed, transactionLogs.last().status)
+        measurement.assertWithin(PerformanceBudget.forFlow(FLOW, DEFAULT_BUDGET))
+    }
+
+    @Test
+    fun `presentation manager generates the DCAPI response in a coroutine`() = runTest {
+        val presentationManager = PresentationManagerImpl(mockk(relaxed = true))
+
+        val result = presentationManager.generateResponse(processedRequest, disclosedDocuments, Algorithm.ESP256)
+
+        val response = assertIs<DCAPIResponse>(result.getOrThrow())
+        assertEquals(listOf(DOCUMENT_ID), response.documentIds)
+    }
+
+    /**
+     * Returns the base64url encoded EncryptionInfo of the request, with the public key of a new
+     * P-256 key pair as the recipient public key.
+     */
+    private fun encryptionInfo(): String {
+        val publicKey = KeyPairGenerator.getInstance("EC").apply {
+            initialize(ECGenParameterSpec("secp256r1"))
+        }.generateKeyPair().public as ECPublicKey
+        val coseKey = CBORObject.NewMap()
+            .Add(1, 2)
+            .Add(-1, 1)
+            .Add(-2, publicKey.w.affineX.toCoordinate())
+            .Add(-3, publicKey.w.affineY.toCoordinate())
+        val encryptionParameters = CBORObject.NewMap()
+            .Add("nonce", ByteArray(16) { it.toByte() })
+            .Add("recipientPublicKey", coseKey)
+        return CBORObject.NewArray()
+            .Add("dcapi")
+            .Add(encryptionParameters)
+            .EncodeToBytes()
+            .toBase64()
+    }
+
+    private fun BigInteger.toCoordinate(): ByteArray {
+        val bytes = toByteArray().takeLast(COORDINATE_SIZE).toByteArray()
+        return ByteArray(COORDINATE_SIZE - bytes.size) + bytes
+    }
+
+    private companion object {
+        const val FLOW = "dcapi"
+        const val DOCUMENT_ID = "document-0"
+        const val ORIGIN = "https://verifier.example.com"
+        const val COORDINATE_SIZE = 32
+
+        val DEFAULT_BUDGET = PerformanceBudget(
+            maxWallTimeMillis = 250,
+            maxAllocatedBytes = 16L * 1024 * 1024,
+        )
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.budget
+
+import com.nimbusds.jose.JWSAlgorithm
+import eu.europa.ec.eudi.openid4vci.AuthorizedRequest
+import eu.europa.ec.eudi.openid4vci.CredentialConfigurationIdentifier
+import eu.europa.ec.eudi.openid4vci.IssuanceRequestPayload
+import eu.europa.ec.eudi.openid4vci.Issuer
+import eu.europa.ec.eudi.openid4vci.KeyAttestationRequirement
+import eu.europa.ec.eudi.openid4vci.MsoMdocCredential
+import eu.europa.ec.eudi.openid4vci.ProofTypeMeta
+import eu.europa.ec.eudi.openid4vci.ProofTypesSupported
+import eu.europa.ec.eudi.openid4vci.ProofsSpecification
+import eu.europa.ec.eudi.openid4vci.SubmissionOutcome
+import eu.europa.ec.eudi.wallet.document.CreateDocumentSettings
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.UnsignedDocument
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.issue.openid4vci.Offer
+import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager
+import eu.europa.ec.eudi.wallet.issue.openid4vci.SubmitRequest
+import io.mockk.coEvery
+import io.mockk.every
+import io.mockk.mockk
+import kotlinx.coroutines.runBlocking
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.multipaz.crypto.Algorithm
+import org.multipaz.securearea.SecureArea
+import org.multipaz.securearea.SecureAreaRepository
+import org.multipaz.securearea.software.SoftwareCreateKeySettings
+import org.multipaz.securearea.software.SoftwareSecureArea
+import org.multipaz.storage.ephemeral.EphemeralStorage
+import org.robolectric.RobolectricTestRunner
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+/**
+ * Latency and allocation budget of the credential request of the OpenID4VCI issuance flow, for a
+ * batch of [BATCH_SIZE] credentials.
+ *
+ * The credential issuer is a local mock of [Issuer] that, like a real issuer, has the wallet sign
+ * one JWT proof per key through the [ProofsSpecification] it receives. The document and its
+ * proof of possession signers are created by a real [DocumentManager] on a counted software
+ * secure area, so the wallet side of the request runs unchanged and the secure area operations
+ * are those of the real implementations.
+ */
+@RunWith(RobolectricTestRunner::class)
+class IssuanceBudgetTest {
+
+    private val counter = SecureAreaOperationCounter()
+
+    private lateinit var secureArea: SecureArea
+    private lateinit var submitRequest: SubmitRequest
+    private lateinit var offeredDocuments: Map<UnsignedDocument, Offer.OfferedDocument>
+
+    @Before
+    fun setup() {
+        secureArea = counter.counting(runBlocking { SoftwareSecureArea.create(EphemeralStorage()) })
+        val documentManager = DocumentManager {
+            setStorage(EphemeralStorage())
+            setSecureAreaRepository(SecureAreaRepository.Builder().add(secureArea).build())
+            setIdentifier("budget")
+        }
+        val unsignedDocument = documentManager.createDocument(
+            format = MsoMdocFormat(DOC_TYPE),
+            createSettings = CreateDocumentSettings(
+                secureAreaIdentifier = secureArea.identifier,
+                createKeySettings = SoftwareCreateKeySettings.Builder().setAlgorithm(Algorithm.ESP256).build(),
+                numberOfCredentials = BATCH_SIZE,
+                credentialPolicy = CreateDocumentSettings.CredentialPolicy.RotateUse,
+            ),
+            issuerMetadata = null,
+        ).kotlinResult.getOrThrow()
+        val configuration = mockk<MsoMdocCredential>(relaxed = true) {
+            every { proofTypesSupported } returns ProofTypesSupported(
+                setOf(ProofTypeMeta.Jwt(listOf(JWSAlgorithm.ES256), KeyAttestationRequirement.NotRequired))
+            )
+            every { docType } returns DOC_TYPE
+        }
+        offeredDocuments = mapOf(
+            unsignedDocument to Offer.OfferedDocument(
+                offer = mockk(relaxed = true),
+                configurationIdentifier = CredentialConfigurationIdentifier("eu.europa.ec.eudi.pid_mso_mdoc"),
+                configuration = configuration,
+            )
+        )
+
+        val authorizedRequest = mockk<AuthorizedRequest>(relaxed = true)
+        val issuer = mockk<Issuer> {
+            coEvery {
+                with(this@mockk) {
+                    any<AuthorizedRequest>().request(any<IssuanceRequestPayload>(), any<ProofsSpecification>())
+                }
+            } coAnswers {
+                val (proofsSigner) = args.filterIsInstance<ProofsSpecification.JwtProofs.NoKeyAttestation>().single()
+                val signOperation = proofsSigner.authenticate()
+                signOperation.operations.forEach { operation ->
+                    operation.function.sign(PROOF_SIGNING_INPUT)
+                }
+                proofsSigner.release(signOperation)
+                Result.success(authorizedRequest to mockk<SubmissionOutcome.Success>(relaxed = true))
+            }
+        }
+        submitRequest = SubmitRequest(
+            config = mockk {
+                every { clientAuthenticationType } returns OpenId4VciManager.ClientAuthenticationType.None("wallet-dev")
+            },
+            walletAttestationsProvider = null,
+            issuer = issuer,
+            authorizedRequest = authorizedRequest,
+        )
+    }
+
+    @Test
+    fun `credential request for a batch of credentials is within budget`() {
+        val measurement = measureFlow(FLOW, counter) {
+            val response = runBlocking { submitRequest.request(offeredDocuments) }
+            val result = response.values.single()
+            assertTrue(result.outcome.isSuccess, "Request failed: ${result.outcome.exceptionOrNull()}")
+            assertEquals(BATCH_SIZE, result.keyAliases.size)
+        }
+
+        measurement.assertWithin(PerformanceBudget.forFlow(FLOW, DEFAULT_BUDGET))
+    }
+
+    private companion object {
+        const val FLOW = "issuance"
+        const val BATCH_SIZE = 10
+        const val DOC_TYPE = "eu.europa.ec.eudi.pid.1"
+        val PROOF_SIGNING_INPUT = "eyJhbGciOiJFUzI1NiIsInR5cCI6Im9wZW5pZDR2Y2ktcHJvb2Yrand0In0.eyJub25jZSI6ImMifQ"
+            .encodeToByteArray()
+
+        /**
+         * One proof of possession signature per credential of the batch.
+         */
+        val DEFAULT_BUDGET = PerformanceBudget(
+            maxWallTimeMillis = 500,
+            maxAllocatedBytes = 32L * 1024 * 1024,
+            maxSecureAreaOperations = BATCH_SIZE,
+        )
+    }
+}
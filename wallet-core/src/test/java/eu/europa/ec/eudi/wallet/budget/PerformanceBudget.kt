@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.budget
+
+import io.mockk.coEvery
+import io.mockk.spyk
+import org.multipaz.securearea.SecureArea
+import java.lang.management.ManagementFactory
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertTrue
+
+/**
+ * The budget of a flow measured by the budget tests.
+ *
+ * The secure area operations are counted on real secure areas and are always checked. The wall
+ * time and allocations depend on the machine, so they are checked only when the system property
+ * `eudi.budget.enforce` is `true`, e.g. with `./gradlew test -Peudi.budget.enforce=true` on a
+ * dedicated machine.
+ *
+ * The defaults of each flow can be overridden with the system properties
+ * `eudi.budget.<flow>.wallTimeMillis`, `eudi.budget.<flow>.allocatedBytes` and
+ * `eudi.budget.<flow>.secureAreaOperations`, and the time and allocation budgets of all flows
+ * can be scaled with `eudi.budget.scale`. The build passes the `eudi.budget.*` Gradle properties
+ * to the unit tests.
+ *
+ * @property maxWallTimeMillis the maximum median wall time of a run
+ * @property maxAllocatedBytes the maximum median bytes allocated by all threads in a run
+ * @property maxSecureAreaOperations the maximum number of secure area operations of a run, or
+ * null if the flow does not use a real secure area
+ */
+data class PerformanceBudget(
+    val maxWallTimeMillis: Long,
+    val maxAllocatedBytes: Long,
+    val maxSecureAreaOperations: Int? = null,
+) {
+    companion object {
+        private const val PREFIX = "eudi.budget"
+
+        /**
+         * Whether the wall time and allocation budgets are checked.
+         */
+        val isEnforced: Boolean
+            get() = System.getProperty("$PREFIX.enforce").toBoolean()
+
+        /**
+         * Returns the budget of the given flow, applying the overrides of the system properties.
+         */
+        fun forFlow(flow: String, default: PerformanceBudget): PerformanceBudget {
+            val scale = System.getProperty("$PREFIX.scale")?.toDoubleOrNull() ?: 1.0
+            fun property(name: String) = System.getProperty("$PREFIX.$flow.$name")?.toLongOrNull()
+            return PerformanceBudget(
+                maxWallTimeMillis = ((property("wallTimeMillis") ?: default.maxWallTimeMillis) * scale).toLong(),
+                maxAllocatedBytes = ((property("allocatedBytes") ?: default.maxAllocatedBytes) * scale).toLong(),
+                maxSecureAreaOperations = property("secureAreaOperations")?.toInt()
+                    ?: default.maxSecureAreaOperations,
+            )
+        }
+    }
+}
+
+/**
+ * The measurement of a flow.
+ *
+ * @property flow the name of the flow
+ * @property wallTimeMillis the median wall time of a run
+ * @property allocatedBytes the median bytes allocated by all threads in a run, or -1 if the JVM
+ * does not support measuring thread allocations
+ * @property secureAreaOperations the maximum number of secure area operations of a run, or -1 if
+ * they were not counted
+ */
+data class FlowMeasurement(
+    val flow: String,
+    val wallTimeMillis: Long,
+    val allocatedBytes: Long,
+    val secureAreaOperations: Int,
+) {
+    /**
+     * Fails if the measurement exceeds the given budget. The wall time and allocations are
+     * checked only when the budgets are [enforced][PerformanceBudget.isEnforced].
+     */
+    fun assertWithin(budget: PerformanceBudget) {
+        budget.maxSecureAreaOperations?.let { maxOperations ->
+            assertTrue(secureAreaOperations in 0..maxOperations) {
+                "$flow performed $secureAreaOperations secure area operations, budget is $maxOperations"
+            }
+        }
+        if (!PerformanceBudget.isEnforced) return
+        assertTrue(wallTimeMillis <= budget.maxWallTimeMillis) {
+            "$flow took $wallTimeMillis ms, budget is ${budget.maxWallTimeMillis} ms"
+        }
+        assertTrue(allocatedBytes <= budget.maxAllocatedBytes) {
+            "$flow allocated $allocatedBytes bytes, budget is ${budget.maxAllocatedBytes} bytes"
+        }
+    }
+}
+
+/**
+ * Counts the key creation and signing operations of the secure areas it wraps.
+ */
+class SecureAreaOperationCounter {
+
+    private val count = AtomicInteger()
+
+    /**
+     * The number of operations counted so far.
+     */
+    val operations: Int
+        get() = count.get()
+
+    /**
+     * Returns a secure area that delegates to the given one and counts its operations.
+     */
+    fun counting(secureArea: SecureArea): SecureArea = spyk(secureArea) {
+        coEvery { createKey(any(), any()) } coAnswers {
+            count.incrementAndGet()
+            callOriginal()
+        }
+        coEvery { sign(any(), any(), any()) } coAnswers {
+            count.incrementAndGet()
+            callOriginal()
+        }
+    }
+}
+
+/**
+ * Runs the flow [block] on the current thread and measures it.
+ *
+ * The flow runs [warmupRuns] times to load classes and warm up the JIT, and then [measuredRuns]
+ * times. Allocations are summed over all the threads that are alive at the end of a run, so the
+ * allocations of threads that terminate during the run are not counted.
+ *
+ * @param flow the name of the flow
+ * @param counter the counter of the secure area used by the flow, or null if the flow does not
+ * use a real secure area
+ * @param block the flow
+ * @return the measurement
+ */
+fun measureFlow(
+    flow: String,
+    counter: SecureAreaOperationCounter? = null,
+    warmupRuns: Int = 5,
+    measuredRuns: Int = 11,
+    block: () -> Unit,
+): FlowMeasurement {
+    repeat(warmupRuns) { block() }
+
+    val threadMXBean = (ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean)
+        ?.takeIf { it.isThreadAllocatedMemorySupported && it.isThreadAllocatedMemoryEnabled }
+
+    val wallTimes = LongArray(measuredRuns)
+    val allocations = LongArray(measuredRuns)
+    var secureAreaOperations = -1
+    repeat(measuredRuns) { run ->
+        val operationsBefore = counter?.operations
+        val allocatedBefore = threadMXBean?.allocatedBytesByThread()
+        val start = System.nanoTime()
+        block()
+        wallTimes[run] = (System.nanoTime() - start) / 1_000_000
+        allocations[run] = threadMXBean?.allocatedBytesByThread()
+            ?.entries
+            ?.sumOf { (threadId, allocated) -> allocated - (allocatedBefore?.get(threadId) ?: 0L) }
+            ?: -1L
+        if (counter != null && operationsBefore != null) {
+            secureAreaOperations = maxOf(secureAreaOperations, counter.operations - operationsBefore)
+        }
+    }
+    return FlowMeasurement(
+        flow = flow,
+        wallTimeMillis = wallTimes.sorted()[measuredRuns / 2],
+        allocatedBytes = allocations.sorted()[measuredRuns / 2],
+        secureAreaOperations = secureAreaOperations,
+    )
+}
+
+private fun com.sun.management.ThreadMXBean.allocatedBytesByThread(): Map<Long, Long> {
+    val threadIds = allThreadIds
+    val allocated = getThreadAllocatedBytes(threadIds)
+    return threadIds.indices
+        .filter { allocated[it] >= 0 }
+        .associate { threadIds[it] to allocated[it] }
+}
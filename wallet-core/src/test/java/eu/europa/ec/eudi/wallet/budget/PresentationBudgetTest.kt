@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.budget
+
+import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
+import eu.europa.ec.eudi.iso18013.transfer.response.DisclosedDocument
+import eu.europa.ec.eudi.iso18013.transfer.response.DisclosedDocuments
+import eu.europa.ec.eudi.iso18013.transfer.response.ResponseResult
+import eu.europa.ec.eudi.iso18013.transfer.response.device.DeviceResponse
+import eu.europa.ec.eudi.iso18013.transfer.response.device.MsoMdocItem
+import eu.europa.ec.eudi.iso18013.transfer.response.device.ProcessedDeviceRequest
+import eu.europa.ec.eudi.openid4vp.Client
+import eu.europa.ec.eudi.openid4vp.ResolvedRequestObject
+import eu.europa.ec.eudi.openid4vp.ResponseMode
+import eu.europa.ec.eudi.openid4vp.dcql.ClaimPath
+import eu.europa.ec.eudi.openid4vp.dcql.ClaimPathElement
+import eu.europa.ec.eudi.openid4vp.dcql.ClaimsQuery
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialQuery
+import eu.europa.ec.eudi.openid4vp.dcql.Credentials
+import eu.europa.ec.eudi.openid4vp.dcql.DCQL
+import eu.europa.ec.eudi.openid4vp.dcql.DCQLMetaMsoMdocExtensions
+import eu.europa.ec.eudi.openid4vp.dcql.MsoMdocDocType
+import eu.europa.ec.eudi.openid4vp.dcql.QueryId
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLog
+import eu.europa.ec.eudi.wallet.transactionLogging.presentation.TransactionsListener
+import eu.europa.ec.eudi.wallet.transactionLogging.presentation.parsing.getResourceAsByteArrayFromBase64Url
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpRequest
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpResponse
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.DcqlRequestProcessor
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.ProcessedDcqlRequest
+import io.mockk.coEvery
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.mockkConstructor
+import io.mockk.unmockkConstructor
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.multipaz.credential.SecureAreaBoundCredential
+import org.multipaz.crypto.Algorithm
+import org.robolectric.RobolectricTestRunner
+import java.net.URL
+import kotlin.test.assertEquals
+import kotlin.test.assertIs
+
+/**
+ * Latency and allocation budget of the OpenID4VP presentation flow, from a resolved DCQL request
+ * to the [OpenId4VpResponse] and its transaction log, against a wallet of [DOCUMENT_COUNT]
+ * documents.
+ *
+ * The device response of the disclosed mso_mdoc document is generated by the iso18013 library
+ * from the issuer signed data of a real credential, which is not available in unit tests, so it
+ * is replaced by a recorded device response. The device signature is made by the library, so
+ * the flow has no secure area operation budget.
+ */
+@RunWith(RobolectricTestRunner::class)
+class PresentationBudgetTest {
+
+    private val transactionLogs = mutableListOf<TransactionLog>()
+
+    private lateinit var processor: DcqlRequestProcessor
+    private lateinit var listener: TransactionsListener
+    private lateinit var request: OpenId4VpRequest
+
+    @Before
+    fun setup() {
+        val deviceResponseBytes = getResourceAsByteArrayFromBase64Url("mso_mdoc_response.txt")
+        mockkConstructor(ProcessedDeviceRequest::class)
+        every {
+            anyConstructed<ProcessedDeviceRequest>().generateResponse(any(), any())
+        } answers {
+            val disclosedDocuments = firstArg<DisclosedDocuments>()
+            ResponseResult.Success(
+                DeviceResponse(
+                    deviceResponseBytes,
+                    ByteArray(0),
+                    disclosedDocuments.map { it.documentId }
+                )
+            )
+        }
+
+        val credential = mockk<SecureAreaBoundCredential>()
+        val documents = (0 until DOCUMENT_COUNT).map { index ->
+            mockk<IssuedDocument> {
+                every { id } returns "document-$index"
+                every { format } returns MsoMdocFormat(DOC_TYPES[index % DOC_TYPES.size])
+                every { issuerMetadata } returns null
+                coEvery { findCredential() } returns credential
+            }
+        }
+        val documentManager = mockk<DocumentManager> {
+            every { getDocuments(any()) } returns documents
+            every { getDocumentById(any()) } answers { documents.find { it.id == firstArg() } }
+        }
+
+        processor = DcqlRequestProcessor(documentManager, readerTrustStore = null)
+        listener = TransactionsListener({ transactionLogs.add(it) }, documentManager, null)
+        request = OpenId4VpRequest(
+            mockk<ResolvedRequestObject>(relaxed = true) {
+                every { query } returns pidQuery()
+                every { transactionData } returns null
+                every { client } returns mockk<Client.Preregistered>(relaxed = true)
+                every { nonce } returns "budget-nonce"
+                every { responseMode } returns ResponseMode.DirectPost(URL("https://verifier.example.com/post"))
+                every { responseEncryptionSpecification } returns null
+            }
+        )
+    }
+
+    @After
+    fun tearDown() {
+        unmockkConstructor(ProcessedDeviceRequest::class)
+    }
+
+    @Test
+    fun `presentation of a DCQL request is within budget`() {
+        val measurement = measureFlow(FLOW) {
+            val processedRequest = processor.process(request)
+            assertIs<ProcessedDcqlRequest>(processedRequest)
+            listener.onTransferEvent(
+                TransferEvent.RequestReceived(processedRequest = processedRequest, request = request)
+            )
+
+            val documentId = processedRequest.requestedDocuments.first().documentId
+            val result = processedRequest.generateResponse(
+                DisclosedDocuments(
+                    DisclosedDocument(
+                        documentId = documentId,
+                        disclosedItems = CLAIMS.map { MsoMdocItem(PID_NAMESPACE, it) },
+                        keyUnlockData = null
+                    )
+                ),
+                Algorithm.ESP256
+            )
+            val response = assertIs<OpenId4VpResponse>(result.getOrThrow())
+            listener.logResponse(response)
+        }
+
+        assertEquals(TransactionLog.Status.Completed, transactionLogs.last().status)
+        measurement.assertWithin(PerformanceBudget.forFlow(FLOW, DEFAULT_BUDGET))
+    }
+
+    private fun pidQuery() = DCQL(
+        credentials = Credentials(
+            listOf(
+                CredentialQuery.mdoc(
+                    id = QueryId("pid"),
+                    msoMdocMeta = DCQLMetaMsoMdocExtensions(doctypeValue = MsoMdocDocType(PID_DOC_TYPE)),
+                    claims = CLAIMS.map { identifier ->
+                        ClaimsQuery.mdoc(
+                            path = ClaimPath(
+                                listOf(
+                                    ClaimPathElement.Claim(PID_NAMESPACE),
+                                    ClaimPathElement.Claim(identifier)
+                                )
+                            )
+                        )
+                    }
+                )
+            )
+        )
+    )
+
+    private companion object {
+        const val FLOW = "presentation"
+        const val DOCUMENT_COUNT = 100
+        const val PID_DOC_TYPE = "eu.europa.ec.eudi.pid.1"
+        const val PID_NAMESPACE = "eu.europa.ec.eudi.pid.1"
+        val CLAIMS = listOf("family_name", "given_name", "birth_date")
+        val DOC_TYPES = listOf(PID_DOC_TYPE, "org.iso.18013.5.1.mDL", "org.iso.23220.photoid.1")
+
+        val DEFAULT_BUDGET = PerformanceBudget(
+            maxWallTimeMillis = 250,
+            maxAllocatedBytes = 32L * 1024 * 1024,
+        )
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.dcapi
+
+import android.content.pm.Signature
+import androidx.credentials.provider.CallingAppInfo
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import java.security.MessageDigest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+class DCAPIOriginResolverTest {
+
+    private fun callingAppInfo(packageName: String, certificate: ByteArray, vararg origins: String?) =
+        mockk<CallingAppInfo> {
+            every { this@mockk.packageName } returns packageName
+            every { signingInfoCompat.signingCertificateHistory } returns listOf(
+                mockk<Signature> { every { toByteArray() } returns certificate }
+            )
+            every { isOriginPopulated() } returns (origins.firstOrNull() != null)
+            every { getOrigin(any()) } returnsMany origins.toList()
+        }
+
+    private fun appOrigin(certificate: ByteArray) =
+        getAppOriginFromHash(MessageDigest.getInstance("SHA-256").digest(certificate))
+
+    @Test
+    fun `origin of a browser is resolved for each request`() {
+        val resolver = DCAPIOriginResolver(privilegedAllowlist = "{}")
+        val browser = callingAppInfo(
+            "com.example.browser",
+            byteArrayOf(1, 2, 3),
+            "https://first.example.com",
+            "https://second.example.com",
+        )
+
+        assertEquals("https://first.example.com", resolver.resolve(browser))
+        assertEquals("https://second.example.com", resolver.resolve(browser))
+        verify(exactly = 2) { browser.getOrigin("{}") }
+    }
+
+    @Test
+    fun `origin of an app is derived from its signing certificate`() {
+        val resolver = DCAPIOriginResolver(privilegedAllowlist = "{}")
+        val certificate = byteArrayOf(4, 5, 6)
+        val app = callingAppInfo("com.example.app", certificate, null)
+
+        assertEquals(appOrigin(certificate), resolver.resolve(app))
+        verify(exactly = 0) { app.getOrigin(any()) }
+    }
+
+    @Test
+    fun `callers with the same package and another certificate are resolved separately`() {
+        val resolver = DCAPIOriginResolver(privilegedAllowlist = "{}")
+        val genuine = callingAppInfo("com.example.browser", byteArrayOf(1), "https://verifier.example.com")
+        val impostor = callingAppInfo("com.example.browser", byteArrayOf(2), null)
+
+        assertEquals("https://verifier.example.com", resolver.resolve(genuine))
+        assertEquals(appOrigin(byteArrayOf(2)), resolver.resolve(impostor))
+    }
+}
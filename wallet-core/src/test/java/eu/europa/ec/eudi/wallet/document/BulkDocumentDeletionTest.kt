@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.document
+
+import eu.europa.ec.eudi.wallet.dcapi.DCAPIRegistration
+import eu.europa.ec.eudi.wallet.dcapi.DocumentManagerWithDCAPI
+import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.DocumentManagerWithMetadataCleanup
+import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.IssuanceMetadata
+import io.mockk.coVerify
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import kotlinx.coroutines.runBlocking
+import kotlinx.io.bytestring.ByteString
+import org.multipaz.storage.ephemeral.EphemeralStorage
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class BulkDocumentDeletionTest {
+
+    private val failure = IllegalStateException("not found")
+    private val delegate = mockk<DocumentManager>(relaxed = true) {
+        every { deleteDocumentById(any()) } returns Outcome.success(null)
+        every { deleteDocumentById("missing") } returns Outcome.failure(failure)
+    }
+
+    @Test
+    fun `documents are deleted one by one when the manager has no bulk deletion`() = runBlocking {
+        val result = delegate.deleteDocumentsInBulk(listOf("doc1", "missing", "doc2", "doc1"))
+
+        assertEquals(setOf("doc1", "doc2"), result.deleted.keys)
+        assertEquals(mapOf("missing" to failure), result.failed)
+        assertFalse(result.isSuccess)
+        verify(exactly = 1) { delegate.deleteDocumentById("doc1") }
+    }
+
+    @Test
+    fun `metadata of the deleted documents is removed and credentials are registered once`() = runBlocking {
+        val storage = EphemeralStorage()
+        val table = storage.getTable(IssuanceMetadata.STORAGE_TABLE_SPEC)
+        listOf("doc1", "doc2", "missing").forEach { table.insert(it, ByteString(byteArrayOf(1))) }
+        val registration = mockk<DCAPIRegistration>(relaxed = true)
+        val manager = DocumentManagerWithDCAPI(
+            delegate = DocumentManagerWithMetadataCleanup(delegate, storage),
+            dcapiRegistration = registration,
+        )
+
+        val result = manager.deleteDocumentsInBulk(listOf("doc1", "doc2", "missing"))
+
+        assertEquals(setOf("doc1", "doc2"), result.deleted.keys)
+        assertEquals(setOf("missing"), result.failed.keys)
+        assertNull(table.get("doc1"))
+        assertNull(table.get("doc2"))
+        assertNotNull(table.get("missing"))
+
+        // Wait for the background registration (runs on Dispatchers.IO)
+        Thread.sleep(500)
+
+        coVerify(exactly = 1) { registration.registerCredentials() }
+    }
+}
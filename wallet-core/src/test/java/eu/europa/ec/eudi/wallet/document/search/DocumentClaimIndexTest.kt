@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.document.search
+
+import eu.europa.ec.eudi.wallet.document.Document
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.Outcome
+import eu.europa.ec.eudi.wallet.document.deleteDocumentsInBulk
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocClaim
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocData
+import io.mockk.coEvery
+import io.mockk.every
+import io.mockk.mockk
+import kotlinx.coroutines.runBlocking
+import kotlinx.io.bytestring.ByteString
+import org.multipaz.storage.ephemeral.EphemeralStorage
+import java.time.Instant
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+class DocumentClaimIndexTest {
+
+    private val storage = EphemeralStorage()
+    private val documents = mutableListOf<Document>()
+    private val delegate = mockk<DocumentManager>(relaxed = true) {
+        every { getDocuments(any()) } answers { documents.toList() }
+        every { deleteDocumentById(any()) } answers {
+            documents.removeAll { it.id == firstArg<String>() }
+            Outcome.success(null)
+        }
+    }
+
+    private fun issuedDocument(id: String, validUntil: Long?, vararg claims: Pair<String, Any?>) =
+        mockk<IssuedDocument>(relaxed = true) {
+            every { this@mockk.id } returns id
+            every { data } returns mockk<MsoMdocData> {
+                every { this@mockk.claims } returns claims.map { (identifier, value) ->
+                    mockk<MsoMdocClaim> {
+                        every { nameSpace } returns PID_NAMESPACE
+                        every { this@mockk.identifier } returns identifier
+                        every { this@mockk.value } returns value
+                    }
+                }
+            }
+            coEvery { findCredential() } returns mockk(relaxed = true) {
+                every { validFrom } returns mockk { every { toEpochMilliseconds() } returns 0L }
+                every { this@mockk.validUntil } returns validUntil?.let { millis ->
+                    mockk { every { toEpochMilliseconds() } returns millis }
+                }
+            }
+        }.also { documents += it }
+
+    @Test
+    fun `documents are found by exact value, prefix and range`() = runBlocking {
+        issuedDocument("doc1", null, "family_name" to "Müller", "birth_date" to "1990-05-01")
+        issuedDocument("doc2", null, "family_name" to " MÜLLER-Schmidt ", "birth_date" to "2005-01-20")
+        issuedDocument("doc3", null, "given_name" to "Müller", "portrait" to byteArrayOf(1, 2))
+        val index = DocumentClaimIndex(delegate, storage)
+
+        assertEquals(setOf("doc1"), index.findByValue(listOf(PID_NAMESPACE, "family_name"), "müller"))
+        assertEquals(setOf("doc1", "doc3"), index.findByValue(null, "MÜLLER"))
+        assertEquals(setOf("doc1", "doc2"), index.findByPrefix(listOf(PID_NAMESPACE, "family_name"), "Mül"))
+        assertEquals(
+            setOf("doc1"),
+            index.findByRange(listOf(PID_NAMESPACE, "birth_date"), null, "2000-01-01")
+        )
+        assertEquals(emptySet(), index.findByRange(null, "z", "a"))
+    }
+
+    @Test
+    fun `numbers are compared by their numeric value`() = runBlocking {
+        issuedDocument("doc1", null, "age_in_years" to 9)
+        issuedDocument("doc2", null, "age_in_years" to 10L)
+        issuedDocument("doc3", null, "age_in_years" to 100.0)
+        val index = DocumentClaimIndex(delegate, storage)
+        val path = listOf(PID_NAMESPACE, "age_in_years")
+
+        assertEquals(setOf("doc1", "doc2"), index.findByRange(path, 5, 50))
+        assertEquals(setOf("doc2", "doc3"), index.findByRange(path, 10, null))
+        assertEquals(setOf("doc3"), index.findByValue(path, 100))
+        assertEquals(setOf("doc2"), index.findByValue(path, "10"))
+    }
+
+    @Test
+    fun `entries of an older version are indexed again`() = runBlocking {
+        issuedDocument("doc1", null, "age_in_years" to 9)
+        val table = storage.getTable(DocumentClaimIndex.STORAGE_TABLE_SPEC)
+        val outdated = DocumentClaimIndex.IndexedDocument(
+            claims = listOf(DocumentClaimIndex.IndexedClaim(listOf(PID_NAMESPACE, "age_in_years"), "9")),
+        )
+        table.insert(key = "doc1", data = ByteString(outdated.toByteArray()))
+        val index = DocumentClaimIndex(delegate, storage)
+
+        assertEquals(setOf("doc1"), index.findByRange(listOf(PID_NAMESPACE, "age_in_years"), 5, 50))
+    }
+
+    @Test
+    fun `nested values are indexed under the path of their keys`() = runBlocking {
+        issuedDocument(
+            "doc1", null,
+            "address" to mapOf("country" to "GR", "locality" to "Athens"),
+            "nationalities" to listOf("GR", "FR"),
+        )
+        val index = DocumentClaimIndex(delegate, storage)
+
+        assertEquals(setOf("doc1"), index.findByValue(listOf(PID_NAMESPACE, "address", "country"), "gr"))
+        assertEquals(setOf("doc1"), index.findByValue(listOf(PID_NAMESPACE, "nationalities"), "fr"))
+        assertEquals(emptySet(), index.findByValue(listOf(PID_NAMESPACE, "address"), "gr"))
+    }
+
+    @Test
+    fun `documents are found by expiration`() = runBlocking {
+        issuedDocument("doc1", 1_000L)
+        issuedDocument("doc2", 5_000L)
+        issuedDocument("doc3", null)
+        val index = DocumentClaimIndex(delegate, storage)
+
+        assertEquals(
+            setOf("doc1"),
+            index.findExpiringBetween(Instant.ofEpochMilli(0), Instant.ofEpochMilli(2_000))
+        )
+        assertEquals(setOf("doc2", "doc3"), index.findValidAt(Instant.ofEpochMilli(2_000)))
+    }
+
+    @Test
+    fun `index is updated when documents are stored and deleted`() = runBlocking {
+        val index = DocumentClaimIndex(delegate, storage)
+        val manager = DocumentManagerWithClaimIndex(delegate, index)
+        assertEquals(emptySet(), index.findByValue(null, "Athens"))
+
+        val stored = issuedDocument("doc1", null, "resident_city" to "Athens")
+        every { delegate.storeIssuedDocument(any(), any()) } returns Outcome.success(stored)
+        manager.storeIssuedDocument(mockk(relaxed = true), emptyList())
+        assertEquals(setOf("doc1"), index.findByValue(null, "athens"))
+
+        manager.deleteDocumentsInBulk(listOf("doc1"))
+        assertEquals(emptySet(), index.findByValue(null, "athens"))
+    }
+
+    @Test
+    fun `index is restored from the storage and reconciled with the documents`() = runBlocking {
+        issuedDocument("doc1", null, "family_name" to "Doe")
+        issuedDocument("doc2", null, "family_name" to "Doe")
+        DocumentClaimIndex(delegate, storage).rebuild()
+        val table = storage.getTable(DocumentClaimIndex.STORAGE_TABLE_SPEC)
+        assertEquals(setOf("doc1", "doc2"), table.enumerate().toSet())
+
+        // doc2 was deleted and doc3 stored while the index was not in use
+        documents.removeAll { it.id == "doc2" }
+        issuedDocument("doc3", null, "family_name" to "Doe")
+        val restored = DocumentClaimIndex(delegate, storage)
+
+        assertEquals(setOf("doc1", "doc3"), restored.findByValue(null, "doe"))
+        assertEquals(setOf("doc1", "doc3"), table.enumerate().toSet())
+    }
+
+    private companion object {
+        const val PID_NAMESPACE = "eu.europa.ec.eudi.pid.1"
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import com.upokecenter.cbor.CBORObject
+import org.bouncycastle.util.encoders.Hex
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class CborCodecTest {
+
+    @Test
+    fun `writer produces the same encoding as CBORObject`() {
+        val bytes = ByteArray(300) { it.toByte() }
+        val expected = CBORObject.NewArray().apply {
+            Add(CBORObject.Null)
+            Add("text")
+            Add(bytes)
+            Add(23)
+            Add(24)
+            Add(65536)
+            Add(-1)
+            Add(-500)
+            Add(Long.MAX_VALUE)
+            Add(true)
+            Add(false)
+            Add(CBORObject.FromObjectAndTag(CBORObject.FromObject(byteArrayOf(1, 2)), 24))
+        }.EncodeToBytes()
+
+        val actual = encodeCbor {
+            writeArrayHeader(12)
+            writeNull()
+            writeString("text")
+            writeBytes(bytes)
+            writeLong(23)
+            writeLong(24)
+            writeLong(65536)
+            writeLong(-1)
+            writeLong(-500)
+            writeLong(Long.MAX_VALUE)
+            writeBoolean(true)
+            writeBoolean(false)
+            writeTag(24)
+            writeBytes(byteArrayOf(1, 2))
+        }
+
+        assertEquals(Hex.toHexString(expected), Hex.toHexString(actual))
+    }
+
+    @Test
+    fun `reader reads the items written by CBORObject`() {
+        val encoded = CBORObject.NewArray().apply {
+            Add("text")
+            Add(byteArrayOf(1, 2, 3))
+            Add(-500)
+            Add(CBORObject.Null)
+        }.EncodeToBytes()
+
+        val reader = CborReader(encoded)
+
+        assertEquals(4, reader.readArrayHeader())
+        assertEquals("text", reader.readString())
+        assertContentEquals(byteArrayOf(1, 2, 3), reader.readBytes())
+        assertEquals(-500, reader.readLong())
+        assertTrue(reader.peekNull())
+        reader.readNull()
+        assertFalse(reader.hasMore)
+    }
+
+    @Test
+    fun `findInMap skips nested entries and returns the raw value`() {
+        val value = CBORObject.NewMap().Add("x", 1).Add("y", CBORObject.NewArray().Add(1.5))
+        val encoded = CBORObject.NewMap()
+            .Add("first", CBORObject.NewMap().Add("nested", CBORObject.NewArray().Add("a").Add(2.0)))
+            .Add("second", value)
+            .EncodeToBytes()
+
+        val reader = CborReader(encoded)
+
+        assertTrue(reader.findInMap("second"))
+        assertContentEquals(value.EncodeToBytes(), reader.readRaw())
+        assertFalse(CborReader(encoded).findInMap("missing"))
+    }
+
+    @Test
+    fun `reader skips and reads indefinite length items`() {
+        // [_ "a", (_ h'01', h'02')] followed by 1
+        val encoded = Hex.decode("9f61615f41014102ffff01")
+
+        val reader = CborReader(encoded)
+        reader.skip()
+        assertEquals(1, reader.readLong())
+
+        val nested = CborReader(encoded, offset = 3)
+        assertContentEquals(byteArrayOf(1, 2), nested.readBytes())
+    }
+
+    @Test
+    fun `reader reads indefinite length arrays and maps`() {
+        // [_ 1, {_ "a": 2, "b": [_ ]}]
+        val encoded = Hex.decode("9f01bf61610261629fffffff")
+
+        val values = mutableListOf<Any>()
+        val reader = CborReader(encoded)
+        reader.readArray {
+            when (reader.peekMajorType()) {
+                CborWriter.MAJOR_TYPE_MAP -> reader.readMap {
+                    values += reader.readString()
+                    reader.skip()
+                }
+
+                else -> values += reader.readLong()
+            }
+        }
+
+        assertEquals(listOf<Any>(1L, "a", "b"), values)
+        assertFalse(reader.hasMore)
+        assertEquals(CborReader.INDEFINITE, CborReader(encoded).readArrayHeader())
+    }
+
+    @Test
+    fun `findInMap finds entries of indefinite length maps`() {
+        // {_ 1: "x", "first": 1, "second": 2}
+        val encoded = Hex.decode("bf01617865666972737401667365636f6e6402ff")
+
+        val reader = CborReader(encoded)
+
+        assertTrue(reader.findInMap("second"))
+        assertEquals(2, reader.readLong())
+        val missing = CborReader(encoded)
+        assertFalse(missing.findInMap("missing"))
+        assertFalse(missing.hasMore)
+    }
+
+    @Test
+    fun `findInMap compares the decoded keys`() {
+        // {"a": 1} with the key encoded with a one byte length, and as an indefinite length string
+        assertTrue(CborReader(Hex.decode("a178016101")).findInMap("a"))
+        assertTrue(CborReader(Hex.decode("a17f6161ff01")).findInMap("a"))
+    }
+
+    @Test
+    fun `reader fails on truncated data`() {
+        assertFailsWith<IllegalArgumentException> {
+            CborReader(Hex.decode("6461")).readString()
+        }
+    }
+
+    @Test
+    fun `reader fails on items nested too deeply`() {
+        // 100000 nested arrays of one element, ending with 0
+        val encoded = ByteArray(100_000) { 0x81.toByte() } + byteArrayOf(0)
+        assertFailsWith<IllegalArgumentException> {
+            CborReader(encoded).skip()
+        }
+
+        val allowed = ByteArray(CborReader.MAX_DEPTH - 1) { 0x81.toByte() } + byteArrayOf(0)
+        CborReader(allowed).skip()
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import io.ktor.client.plugins.cache.storage.CachedResponseData
+import io.ktor.http.HttpHeaders
+import io.ktor.http.HttpProtocolVersion
+import io.ktor.http.HttpStatusCode
+import io.ktor.http.Url
+import io.ktor.http.headersOf
+import io.ktor.util.date.GMTDate
+import kotlinx.coroutines.test.runTest
+import kotlin.test.Test
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class MetadataCacheStorageTest {
+
+    @Test
+    fun `JSON metadata responses are stored`() = runTest {
+        val storage = MetadataCacheStorage()
+        val url = Url("https://verifier.example.com/jwks")
+
+        storage.store(url, response(url, "application/jwk-set+json"))
+
+        assertNotNull(storage.find(url, emptyMap()))
+    }
+
+    @Test
+    fun `request objects are never stored`() = runTest {
+        val storage = MetadataCacheStorage()
+        val url = Url("https://verifier.example.com/request/123")
+
+        storage.store(url, response(url, "application/oauth-authz-req+jwt"))
+
+        assertNull(storage.find(url, emptyMap()))
+    }
+
+    @Test
+    fun `least recently used URL is evicted beyond the maximum`() = runTest {
+        val storage = MetadataCacheStorage(maxEntries = 2)
+        val first = Url("https://verifier.example.com/1")
+        val second = Url("https://verifier.example.com/2")
+        val third = Url("https://verifier.example.com/3")
+
+        storage.store(first, response(first, "application/json"))
+        storage.store(second, response(second, "application/json"))
+        storage.find(first, emptyMap())
+        storage.store(third, response(third, "application/json"))
+
+        assertNotNull(storage.find(first, emptyMap()))
+        assertNull(storage.find(second, emptyMap()))
+        assertNotNull(storage.find(third, emptyMap()))
+    }
+
+    private fun response(url: Url, contentType: String) = CachedResponseData(
+        url = url,
+        statusCode = HttpStatusCode.OK,
+        requestTime = GMTDate(),
+        responseTime = GMTDate(),
+        version = HttpProtocolVersion.HTTP_1_1,
+        expires = GMTDate(Long.MAX_VALUE),
+        headers = headersOf(HttpHeaders.ContentType, contentType),
+        varyKeys = emptyMap(),
+        body = ByteArray(0),
+    )
+}
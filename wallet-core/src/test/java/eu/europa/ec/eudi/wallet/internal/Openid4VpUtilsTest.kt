@@ -76,7 +76,7 @@ class Openid4VpUtilsTest {
             nonce = nonce,
             jwkThumbprint = JWK.parse(jwk).computeThumbprint().decode(),
             responseOrRedirectUri = responseUri
-        ).EncodeToBytes()
+        )
         assertEquals(OPENID4VP_1_0_HANDOVER, Hex.toHexString(openid4VpHandover).lowercase())
     }
 
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import eu.europa.ec.eudi.sdjwt.DefaultSdJwtOps
+import eu.europa.ec.eudi.sdjwt.SdJwt
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.mockkObject
+import io.mockk.unmockkObject
+import io.mockk.verify
+import kotlinx.serialization.json.JsonObject
+import org.junit.After
+import org.junit.Before
+import org.multipaz.credential.Credential
+import kotlin.test.Test
+import kotlin.test.assertSame
+
+class ParsedSdJwtCacheTest {
+
+    @Before
+    fun setup() {
+        mockkObject(DefaultSdJwtOps)
+        every { DefaultSdJwtOps.unverifiedIssuanceFrom(any()) } answers {
+            Result.success(SdJwt(jwt = firstArg<String>() to JsonObject(emptyMap()), disclosures = emptyList()))
+        }
+    }
+
+    @After
+    fun tearDown() {
+        unmockkObject(DefaultSdJwtOps)
+    }
+
+    private fun credential(identifier: String, data: String) = mockk<Credential> {
+        every { this@mockk.identifier } returns identifier
+        every { issuerProvidedData } returns data.toByteArray(Charsets.US_ASCII)
+    }
+
+    @Test
+    fun `get parses a credential once`() {
+        val cache = ParsedSdJwtCache()
+        val credential = credential("credential", "sd-jwt")
+
+        val first = cache.get("document", credential).getOrThrow()
+        val second = cache.get("document", credential).getOrThrow()
+
+        assertSame(first, second)
+        verify(exactly = 1) { DefaultSdJwtOps.unverifiedIssuanceFrom("sd-jwt") }
+    }
+
+    @Test
+    fun `get parses a credential again when its data changed`() {
+        val cache = ParsedSdJwtCache()
+
+        cache.get("document", credential("credential", "sd-jwt-1"))
+        cache.get("document", credential("credential", "sd-jwt-2"))
+
+        verify(exactly = 1) { DefaultSdJwtOps.unverifiedIssuanceFrom("sd-jwt-1") }
+        verify(exactly = 1) { DefaultSdJwtOps.unverifiedIssuanceFrom("sd-jwt-2") }
+    }
+
+    @Test
+    fun `evictDocument evicts the credentials of the document only`() {
+        val cache = ParsedSdJwtCache()
+        val credential1 = credential("credential1", "sd-jwt-1")
+        val credential2 = credential("credential2", "sd-jwt-2")
+        cache.get("document1", credential1)
+        cache.get("document2", credential2)
+
+        cache.evictDocument("document1")
+        cache.get("document1", credential1)
+        cache.get("document2", credential2)
+
+        verify(exactly = 2) { DefaultSdJwtOps.unverifiedIssuanceFrom("sd-jwt-1") }
+        verify(exactly = 1) { DefaultSdJwtOps.unverifiedIssuanceFrom("sd-jwt-2") }
+    }
+
+    @Test
+    fun `least recently used credentials are evicted when the cache is full`() {
+        val cache = ParsedSdJwtCache(maxEntries = 2)
+        val credentials = (1..3).map { credential("credential$it", "sd-jwt-$it") }
+
+        credentials.forEach { cache.get("document", it) }
+        cache.get("document", credentials[0])
+
+        verify(exactly = 2) { DefaultSdJwtOps.unverifiedIssuanceFrom("sd-jwt-1") }
+    }
+
+    @Test
+    fun `evictCredential evicts the given credential only`() {
+        val cache = ParsedSdJwtCache()
+        val credential1 = credential("credential1", "sd-jwt-1")
+        val credential2 = credential("credential2", "sd-jwt-2")
+        cache.get("document", credential1)
+        cache.get("document", credential2)
+
+        cache.evictCredential("credential1")
+        cache.get("document", credential1)
+        cache.get("document", credential2)
+
+        verify(exactly = 2) { DefaultSdJwtOps.unverifiedIssuanceFrom("sd-jwt-1") }
+        verify(exactly = 1) { DefaultSdJwtOps.unverifiedIssuanceFrom("sd-jwt-2") }
+    }
+
+    @Test
+    fun `document manager evicts the parsed SD-JWTs of deleted documents`() {
+        val cache = ParsedSdJwtCache()
+        val credential = credential("credential", "sd-jwt")
+        val manager = DocumentManagerWithParsedSdJwtCache(
+            delegate = mockk(relaxed = true),
+            parsedSdJwtCache = cache
+        )
+        cache.get("document", credential)
+
+        manager.deleteDocumentById("document")
+        cache.get("document", credential)
+
+        verify(exactly = 2) { DefaultSdJwtOps.unverifiedIssuanceFrom("sd-jwt") }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import com.nimbusds.jose.JOSEObjectType
+import com.nimbusds.jose.JWSAlgorithm
+import com.nimbusds.jose.crypto.ECDSAVerifier
+import com.nimbusds.jose.jwk.ECKey
+import com.nimbusds.jose.jwk.JWK
+import com.nimbusds.jwt.SignedJWT
+import eu.europa.ec.eudi.wallet.telemetry.WalletMetrics
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import kotlinx.coroutines.test.runTest
+import org.multipaz.credential.SecureAreaBoundCredential
+import org.multipaz.crypto.Algorithm
+import org.multipaz.securearea.software.SoftwareCreateKeySettings
+import org.multipaz.securearea.software.SoftwareSecureArea
+import org.multipaz.storage.ephemeral.EphemeralStorage
+import java.util.Date
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class SdJwtKeyBindingSignerTest {
+
+    @Test
+    fun `sign creates a key binding JWT signed with the key of the credential`() = runTest {
+        val secureArea = SoftwareSecureArea.create(EphemeralStorage())
+        val keyInfo = secureArea.createKey(
+            null,
+            SoftwareCreateKeySettings.Builder().setAlgorithm(Algorithm.ESP256).build()
+        )
+        val credential = mockk<SecureAreaBoundCredential> {
+            every { this@mockk.secureArea } returns secureArea
+            every { alias } returns keyInfo.alias
+        }
+        val metrics = mockk<WalletMetrics>(relaxed = true)
+        val issueDate = Date(1_700_000_000_000)
+
+        val serialized = SdJwtKeyBindingSigner(
+            credential = credential,
+            keyUnlockData = null,
+            signatureAlgorithm = Algorithm.ESP256,
+            telemetry = WalletTelemetry(metrics),
+        ).sign(sdHash = "digest", audience = "verifier", nonce = "nonce", issueDate = issueDate)
+
+        val jwt = SignedJWT.parse(serialized)
+        val publicKey = JWK.parse(keyInfo.publicKey.toJwk().toString()) as ECKey
+        assertTrue(jwt.verify(ECDSAVerifier(publicKey)))
+        assertEquals(JWSAlgorithm.ES256, jwt.header.algorithm)
+        assertEquals(JOSEObjectType("kb+jwt"), jwt.header.type)
+        assertEquals(listOf("verifier"), jwt.jwtClaimsSet.audience)
+        assertEquals("nonce", jwt.jwtClaimsSet.getStringClaim("nonce"))
+        assertEquals("digest", jwt.jwtClaimsSet.getStringClaim("sd_hash"))
+        assertEquals(issueDate, jwt.jwtClaimsSet.issueTime)
+        verify(exactly = 1) {
+            metrics.incrementCounter(WalletMetrics.COUNTER_SECURE_AREA_SIGNATURES, 1)
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
+import eu.europa.ec.eudi.iso18013.transfer.TransferManager
+import eu.europa.ec.eudi.wallet.presentation.PresentationManagerImpl
+import io.mockk.every
+import io.mockk.mockk
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.async
+import kotlinx.coroutines.flow.take
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
+import java.util.concurrent.Executor
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class TransferEventDispatcherTest {
+
+    private val executed = mutableListOf<Runnable>()
+    private val executor = Executor { executed += it }
+
+    private class RecordingListener : TransferEvent.Listener {
+        val events = mutableListOf<TransferEvent>()
+        override fun onTransferEvent(event: TransferEvent) {
+            events += event
+        }
+    }
+
+    @Test
+    fun `each event is posted once to the executor for all the listeners`() {
+        val dispatcher = TransferEventDispatcher(executor = { executor })
+        val listeners = List(3) { RecordingListener() }
+        listeners.forEach { dispatcher.add(it) }
+
+        dispatcher.dispatch(TransferEvent.Connected)
+
+        assertEquals(1, executed.size)
+        executed.single().run()
+        listeners.forEach { assertEquals(listOf<TransferEvent>(TransferEvent.Connected), it.events) }
+    }
+
+    @Test
+    fun `nothing is posted when there are no listeners`() {
+        val dispatcher = TransferEventDispatcher(executor = { executor })
+
+        dispatcher.dispatch(TransferEvent.Connected)
+
+        assertTrue(executed.isEmpty())
+    }
+
+    @Test
+    fun `listeners can be removed while an event is dispatched`() {
+        val dispatcher = TransferEventDispatcher(executor = { executor })
+        val second = RecordingListener()
+        val first = object : TransferEvent.Listener {
+            override fun onTransferEvent(event: TransferEvent) {
+                dispatcher.remove(second)
+            }
+        }
+        dispatcher.add(first)
+        dispatcher.add(second)
+
+        dispatcher.dispatch(TransferEvent.Connected)
+        executed.single().run()
+        dispatcher.dispatch(TransferEvent.Disconnected)
+        executed.last().run()
+
+        assertEquals(listOf<TransferEvent>(TransferEvent.Connected), second.events)
+    }
+
+    @Test
+    fun `events are emitted to the flow`() = runBlocking {
+        val dispatcher = TransferEventDispatcher(executor = { executor })
+        val collected = async(start = CoroutineStart.UNDISPATCHED) {
+            dispatcher.events.take(2).toList()
+        }
+
+        dispatcher.dispatch(TransferEvent.Connected)
+        dispatcher.dispatch(TransferEvent.Disconnected)
+
+        assertEquals(listOf(TransferEvent.Connected, TransferEvent.Disconnected), collected.await())
+    }
+
+    @Test
+    fun `presentation manager registers one listener to the transfer manager`() {
+        val registered = mutableListOf<TransferEvent.Listener>()
+        val transferManager = mockk<TransferManager>(relaxed = true) {
+            every { addTransferEventListener(any()) } answers {
+                registered += firstArg<TransferEvent.Listener>()
+                this@mockk
+            }
+        }
+        val presentationManager = PresentationManagerImpl(transferManager)
+        val listeners = List(3) { RecordingListener() }
+        listeners.forEach { presentationManager.addTransferEventListener(it) }
+
+        assertEquals(1, registered.size)
+        registered.single().onTransferEvent(TransferEvent.Connected)
+
+        listeners.forEach { assertEquals(listOf<TransferEvent>(TransferEvent.Connected), it.events) }
+    }
+}
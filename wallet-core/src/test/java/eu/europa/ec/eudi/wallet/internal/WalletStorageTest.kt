@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.internal
+
+import android.content.Context
+import io.mockk.every
+import io.mockk.mockk
+import java.io.File
+import kotlin.test.Test
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+
+class WalletStorageTest {
+
+    private val context: Context = mockk {
+        every { noBackupFilesDir } returns File("no-backup")
+    }
+
+    @Test
+    fun `a database is opened once`() {
+        assertSame(WalletStorage.open(context, "test.db"), WalletStorage.open(context, "test.db"))
+        assertSame(
+            WalletStorage.open(context, "test.db"),
+            WalletStorage.open(File("no-backup", "test.db").path)
+        )
+        assertNotSame(WalletStorage.open(context, "test.db"), WalletStorage.open(context, "other.db"))
+    }
+}
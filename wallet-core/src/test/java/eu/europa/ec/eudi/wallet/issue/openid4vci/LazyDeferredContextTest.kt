@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.issue.openid4vci
+
+import eu.europa.ec.eudi.openid4vci.AccessToken
+import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.StoredDeferredContext
+import eu.europa.ec.eudi.wallet.provider.WalletKeyManager
+import io.mockk.coVerify
+import io.mockk.mockk
+import kotlinx.coroutines.runBlocking
+import kotlinx.serialization.json.Json
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertIs
+import kotlin.test.assertSame
+
+class LazyDeferredContextTest {
+
+    private val walletKeyManager = mockk<WalletKeyManager>()
+
+    private val stored = StoredDeferredContext(
+        credentialIssuerId = "https://issuer.example.com",
+        deferredEndpoint = "https://issuer.example.com/deferred",
+        tokenEndpoint = "https://auth.example.com/token",
+        authorizationServerId = "https://auth.example.com",
+        clientId = "wallet-client",
+        popKeyAliases = listOf("key-1", "key-2"),
+        dPoPKeyAlias = "dpop-key-alias",
+        clientAttestationPopKeyId = "pop-key-1",
+        clientAttestationJwt = "eyJhbGciOiJFUzI1NiJ9.test",
+        transactionId = "tx-123",
+        accessToken = "access-token",
+        accessTokenType = "DPoP",
+        refreshToken = "refresh-token",
+        replacesDocumentId = "old-doc",
+    )
+
+    private fun bytesOf(context: StoredDeferredContext) = Json.encodeToString(context).toByteArray()
+
+    @Test
+    fun `cheap fields are read without creating the signers`() {
+        val context = LazyDeferredContext(bytesOf(stored))
+
+        assertEquals("https://issuer.example.com", context.credentialIssuerId)
+        assertEquals("tx-123", context.transactionId)
+        assertEquals("tx-123", context.authorizedTransaction.transactionId.value)
+        assertIs<AccessToken.DPoP>(context.authorizedTransaction.authorizedRequest.accessToken)
+        assertEquals(listOf("key-1", "key-2"), context.keyAliases)
+        assertEquals("old-doc", context.replacesDocumentId)
+        assertFalse(context.hasExpired)
+
+        coVerify(exactly = 0) { walletKeyManager.getWalletAttestationKey(any()) }
+    }
+
+    @Test
+    fun `context is created from the parsed transaction`() = runBlocking {
+        val context = LazyDeferredContext(
+            bytesOf(stored.copy(clientAttestationJwt = null, clientAttestationPopKeyId = null))
+        )
+
+        val materialized = context.materialize(walletKeyManager, dpopConfig = null)
+
+        assertSame(context.authorizedTransaction, materialized.issuanceContext.authorizedTransaction)
+        assertEquals("old-doc", materialized.replacesDocumentId)
+    }
+}
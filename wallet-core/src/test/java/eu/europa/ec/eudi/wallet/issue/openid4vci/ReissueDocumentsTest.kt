@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.issue.openid4vci
+
+import android.content.Context
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.provider.WalletKeyManager
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.multipaz.storage.ephemeral.EphemeralStorage
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertIs
+import kotlin.test.assertTrue
+
+class ReissueDocumentsTest {
+
+    private val documentManager = mockk<DocumentManager>(relaxed = true)
+    private val config = mockk<OpenId4VciManager.Config> {
+        every { issuanceMetadataStorage } returns EphemeralStorage()
+    }
+    private val manager = DefaultOpenId4VciManager(
+        context = mockk<Context>(relaxed = true),
+        documentManager = documentManager,
+        walletProvider = null,
+        walletAttestationKeyManager = mockk<WalletKeyManager>(relaxed = true),
+        config = config,
+    )
+
+    private fun reissue(documentIds: List<String>): List<IssueEvent> {
+        val events = mutableListOf<IssueEvent>()
+        val finished = CountDownLatch(1)
+        manager.reissueDocuments(documentIds, Executor { it.run() }) { event ->
+            events += event
+            if (event is IssueEvent.Finished || event is IssueEvent.Failure) finished.countDown()
+        }
+        assertTrue(finished.await(5, TimeUnit.SECONDS))
+        return events
+    }
+
+    @Test
+    fun `documents without issuance metadata fail without stopping the batch`() {
+        val events = reissue(listOf("doc1", "doc2", "doc1"))
+
+        assertEquals(IssueEvent.Started(2), events.first())
+        val failed = events.filterIsInstance<IssueEvent.DocumentReissueFailed>()
+        assertEquals(listOf("doc1", "doc2"), failed.map { it.documentId })
+        assertIs<IllegalStateException>(failed.first().cause)
+        assertEquals(IssueEvent.Finished(emptyList()), events.last())
+        verify(exactly = 0) { documentManager.deleteDocumentById(any()) }
+    }
+
+    @Test
+    fun `empty list finishes immediately`() {
+        val events = reissue(emptyList())
+
+        assertEquals(listOf(IssueEvent.Started(0), IssueEvent.Finished(emptyList())), events)
+    }
+}
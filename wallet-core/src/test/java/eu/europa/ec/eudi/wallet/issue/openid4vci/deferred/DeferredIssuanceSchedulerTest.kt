@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.issue.openid4vci.deferred
+
+import eu.europa.ec.eudi.wallet.document.DeferredDocument
+import eu.europa.ec.eudi.wallet.document.Document
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.issue.openid4vci.DeferredIssueResult
+import eu.europa.ec.eudi.wallet.issue.openid4vci.reissue.StoredDeferredContext
+import io.ktor.client.HttpClient
+import io.mockk.every
+import io.mockk.mockk
+import kotlinx.coroutines.runBlocking
+import kotlinx.serialization.json.Json
+import org.multipaz.storage.ephemeral.EphemeralStorage
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.Duration.Companion.seconds
+
+class DeferredIssuanceSchedulerTest {
+
+    private val storage = EphemeralStorage()
+    private val documents = mutableListOf<Document>()
+    private val documentManager = mockk<DocumentManager> {
+        every { getDocuments(any()) } answers { documents.toList() }
+    }
+    private var now = 1_000_000L
+    private val polled = mutableListOf<Pair<String, HttpClient?>>()
+    private val results = mutableListOf<DeferredIssueResult>()
+    private val createdClients = mutableListOf<HttpClient>()
+
+    /** The outcome of each poll by document id, pending with the given interval by default. */
+    private val outcomes = mutableMapOf<String, (DeferredDocument) -> Pair<DeferredIssueResult, Duration?>>()
+
+    private fun scheduler(policy: DeferredIssuanceScheduler.Policy = DeferredIssuanceScheduler.Policy()) =
+        DeferredIssuanceScheduler(
+            documentManager = documentManager,
+            scheduleStorage = storage,
+            policy = policy,
+            executor = null,
+            logger = null,
+            httpClientFactory = { mockk<HttpClient>(relaxed = true).also { createdClients += it } },
+            query = { document, httpClient, callback ->
+                polled += document.id to httpClient
+                val (result, interval) = outcomes[document.id]?.invoke(document)
+                    ?: (DeferredIssueResult.DocumentNotReady(document) to null)
+                callback(result)
+                interval
+            },
+            clock = { now },
+            onResult = { results += it },
+        )
+
+    private fun addDeferredDocument(id: String, issuer: String) {
+        documents += mockk<DeferredDocument>(relaxed = true) {
+            every { this@mockk.id } returns id
+            every { name } returns id
+            every { format } returns MsoMdocFormat("org.iso.18013.5.1.mDL")
+            every { relatedData } returns Json.encodeToString(
+                StoredDeferredContext(
+                    credentialIssuerId = issuer,
+                    deferredEndpoint = "$issuer/deferred",
+                    tokenEndpoint = "$issuer/token",
+                    authorizationServerId = issuer,
+                    clientId = "wallet-client",
+                    popKeyAliases = listOf("key-1"),
+                    transactionId = "tx-$id",
+                    accessToken = "access-token",
+                )
+            ).toByteArray()
+        }
+    }
+
+    @Test
+    fun `new documents are polled at once and then after the interval of the issuer`() = runBlocking {
+        addDeferredDocument("doc1", "https://issuer1.example.com")
+        outcomes["doc1"] = { DeferredIssueResult.DocumentNotReady(it) to 30.seconds }
+        val scheduler = scheduler()
+
+        assertEquals(30.seconds, scheduler.pollDueDocuments())
+        assertEquals(listOf("doc1"), polled.map { it.first })
+
+        now += 10.seconds.inWholeMilliseconds
+        assertEquals(20.seconds, scheduler.pollDueDocuments())
+        assertEquals(1, polled.size)
+
+        now += 20.seconds.inWholeMilliseconds
+        scheduler.pollDueDocuments()
+        assertEquals(2, polled.size)
+        assertTrue(results.all { it is DeferredIssueResult.DocumentNotReady })
+    }
+
+    @Test
+    fun `backoff grows when the issuer returns no interval`() = runBlocking {
+        addDeferredDocument("doc1", "https://issuer1.example.com")
+        val scheduler = scheduler(DeferredIssuanceScheduler.Policy(initialInterval = 1.minutes, maxInterval = 3.minutes))
+
+        assertEquals(1.minutes, scheduler.pollDueDocuments())
+        now += 1.minutes.inWholeMilliseconds
+        assertEquals(2.minutes, scheduler.pollDueDocuments())
+        now += 2.minutes.inWholeMilliseconds
+        assertEquals(3.minutes, scheduler.pollDueDocuments())
+    }
+
+    @Test
+    fun `documents of the same issuer are polled together with one client`() = runBlocking {
+        addDeferredDocument("doc1", "https://issuer1.example.com")
+        addDeferredDocument("doc2", "https://issuer1.example.com")
+        addDeferredDocument("doc3", "https://issuer2.example.com")
+        outcomes["doc1"] = { DeferredIssueResult.DocumentNotReady(it) to 10.seconds }
+        outcomes["doc2"] = { DeferredIssueResult.DocumentNotReady(it) to 40.seconds }
+        outcomes["doc3"] = { DeferredIssueResult.DocumentNotReady(it) to 10.minutes }
+        val scheduler = scheduler(DeferredIssuanceScheduler.Policy(coalesceWindow = 1.minutes))
+
+        scheduler.pollDueDocuments()
+        assertEquals(2, createdClients.size)
+        assertEquals(polled[0].second, polled[1].second)
+
+        // doc1 is due, doc2 is due within the coalesce window and is polled with it
+        polled.clear()
+        now += 10.seconds.inWholeMilliseconds
+        scheduler.pollDueDocuments()
+        assertEquals(setOf("doc1", "doc2"), polled.map { it.first }.toSet())
+        assertEquals(2, createdClients.size)
+    }
+
+    @Test
+    fun `issued and deleted documents are removed from the schedule`() = runBlocking {
+        addDeferredDocument("doc1", "https://issuer1.example.com")
+        addDeferredDocument("doc2", "https://issuer1.example.com")
+        val issued = mockk<IssuedDocument>(relaxed = true) {
+            every { id } returns "doc1"
+            every { format } returns MsoMdocFormat("org.iso.18013.5.1.mDL")
+        }
+        outcomes["doc1"] = { DeferredIssueResult.DocumentIssued(issued) to null }
+        val scheduler = scheduler()
+
+        scheduler.pollDueDocuments()
+        documents.removeAll { it.id == "doc2" }
+
+        assertEquals(null, scheduler.pollDueDocuments())
+        assertEquals(emptyList<String>(), storage.getTable(DeferredIssuanceScheduler.STORAGE_TABLE_SPEC).enumerate())
+    }
+
+    @Test
+    fun `schedule survives a restart`() = runBlocking {
+        addDeferredDocument("doc1", "https://issuer1.example.com")
+        outcomes["doc1"] = { DeferredIssueResult.DocumentNotReady(it) to 5.minutes }
+        scheduler().pollDueDocuments()
+
+        now += 1.minutes.inWholeMilliseconds
+        val restarted = scheduler()
+
+        assertEquals(4.minutes, restarted.pollDueDocuments())
+        assertEquals(1, polled.size)
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.issue.openid4vci.reissue
+
+import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
+import eu.europa.ec.eudi.wallet.document.CreateDocumentSettings
+import eu.europa.ec.eudi.wallet.document.CreateDocumentSettings.CredentialPolicy
+import eu.europa.ec.eudi.wallet.document.DeferredDocument
+import eu.europa.ec.eudi.wallet.document.Document
+import eu.europa.ec.eudi.wallet.document.DocumentManager
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.issue.openid4vci.IssueEvent
+import eu.europa.ec.eudi.wallet.issue.openid4vci.Offer
+import eu.europa.ec.eudi.wallet.issue.openid4vci.OpenId4VciManager
+import io.mockk.coEvery
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import kotlinx.coroutines.runBlocking
+import kotlinx.io.bytestring.ByteString
+import kotlinx.serialization.json.Json
+import org.junit.Before
+import org.multipaz.credential.SecureAreaBoundCredential
+import org.multipaz.crypto.Algorithm
+import org.multipaz.storage.ephemeral.EphemeralStorage
+import kotlin.test.Test
+import kotlin.time.Duration
+
+class CredentialReplenisherTest {
+
+    private val storage = EphemeralStorage()
+    private val documents = mutableListOf<Document>()
+    private val documentManager = mockk<DocumentManager> {
+        every { getDocuments(any()) } answers { documents.toList() }
+        every { getDocumentById(any()) } answers { documents.find { it.id == firstArg() } }
+    }
+    private val openId4VciManager = mockk<OpenId4VciManager>(relaxed = true)
+    private val settings = mockk<CreateDocumentSettings>()
+
+    @Before
+    fun setup() {
+        storeMetadata("doc1", issuer = "https://issuer1.example.com")
+        storeMetadata("doc2", issuer = "https://issuer1.example.com")
+        storeMetadata("doc3", issuer = "https://issuer2.example.com", refreshToken = null)
+    }
+
+    private fun storeMetadata(documentId: String, issuer: String, refreshToken: String? = "refresh") {
+        val metadata = IssuanceMetadata(
+            credentialIssuerId = issuer,
+            credentialConfigurationIdentifier = "org.iso.18013.5.1.mDL",
+            credentialEndpoint = "$issuer/credential",
+            tokenEndpoint = "$issuer/token",
+            authorizationServerId = issuer,
+            clientId = "wallet-client",
+            popKeyAliases = listOf("key-alias-1"),
+            accessToken = "access",
+            accessTokenType = "Bearer",
+            refreshToken = refreshToken,
+            tokenTimestamp = 1700000000L,
+            grantType = "authorization_code",
+        )
+        runBlocking {
+            storage.getTable(IssuanceMetadata.STORAGE_TABLE_SPEC)
+                .insert(key = documentId, data = ByteString(metadata.toByteArray()))
+        }
+    }
+
+    private fun addDocument(
+        documentId: String,
+        vararg usageCounts: Int,
+        credentialPolicy: CredentialPolicy = CredentialPolicy.OneTimeUse,
+    ) {
+        documents += mockk<IssuedDocument> {
+            every { id } returns documentId
+            every { this@mockk.credentialPolicy } returns credentialPolicy
+            coEvery { getCredentials() } returns usageCounts.map { count ->
+                mockk<SecureAreaBoundCredential> { every { usageCount } returns count }
+            }
+        }
+    }
+
+    private fun addDeferredReplacement(documentId: String, replacesDocumentId: String) {
+        val context = StoredDeferredContext(
+            credentialIssuerId = "https://issuer1.example.com",
+            deferredEndpoint = "https://issuer1.example.com/deferred",
+            tokenEndpoint = "https://issuer1.example.com/token",
+            authorizationServerId = "https://issuer1.example.com",
+            clientId = "wallet-client",
+            popKeyAliases = listOf("key-alias-2"),
+            transactionId = "transaction",
+            accessToken = "access",
+            replacesDocumentId = replacesDocumentId,
+        )
+        documents += mockk<DeferredDocument> {
+            every { id } returns documentId
+            every { relatedData } returns Json.encodeToString(context).toByteArray()
+        }
+    }
+
+    private fun replenisher(policy: CredentialReplenisher.Policy) = CredentialReplenisher(
+        openId4VciManager = openId4VciManager,
+        documentManager = documentManager,
+        issuanceMetadataStorage = storage,
+        createDocumentSettingsProvider = { settings },
+        policy = policy,
+    )
+
+    @Test
+    fun `documents at the low watermark are re-issued without authorization fallback`() {
+        addDocument("doc1", 1, 1, 0)
+        val replenisher = replenisher(CredentialReplenisher.Policy(lowWatermark = 1, minIssuerInterval = Duration.ZERO))
+
+        replenisher.onTransferEvent(TransferEvent.ResponseSent)
+
+        verify(timeout = 2000) {
+            openId4VciManager.reissueDocument("doc1", false, any(), any())
+        }
+    }
+
+    @Test
+    fun `documents above the low watermark are not re-issued`() {
+        addDocument("doc1", 1, 0, 0)
+        val replenisher = replenisher(CredentialReplenisher.Policy(lowWatermark = 1, minIssuerInterval = Duration.ZERO))
+
+        runBlocking { replenisher.replenishLowDocuments() }
+
+        verify(exactly = 0) { openId4VciManager.reissueDocument(any(), any(), any(), any()) }
+    }
+
+    @Test
+    fun `documents without refresh token are not re-issued`() {
+        addDocument("doc3", 1)
+        val replenisher = replenisher(CredentialReplenisher.Policy(lowWatermark = 1, minIssuerInterval = Duration.ZERO))
+
+        runBlocking { replenisher.replenishLowDocuments() }
+
+        verify(exactly = 0) { openId4VciManager.reissueDocument(any(), any(), any(), any()) }
+    }
+
+    @Test
+    fun `re-issuance is rate limited per issuer`() {
+        addDocument("doc1", 1)
+        addDocument("doc2", 1)
+        val replenisher = replenisher(CredentialReplenisher.Policy(lowWatermark = 1))
+
+        runBlocking { replenisher.replenishLowDocuments() }
+
+        verify(exactly = 1) { openId4VciManager.reissueDocument(any(), any(), any(), any()) }
+    }
+
+    @Test
+    fun `create settings are provided and user authentication is cancelled`() {
+        addDocument("doc1", 1)
+        val listener = slot<OpenId4VciManager.OnIssueEvent>()
+        every { openId4VciManager.reissueDocument("doc1", false, any(), capture(listener)) } returns Unit
+        val replenisher = replenisher(CredentialReplenisher.Policy(lowWatermark = 1, minIssuerInterval = Duration.ZERO))
+        runBlocking { replenisher.replenishLowDocuments() }
+
+        val resume = mockk<(CreateDocumentSettings) -> Unit>(relaxed = true)
+        val offeredDocument = mockk<Offer.OfferedDocument>()
+        listener.captured.onResult(IssueEvent.DocumentRequiresCreateSettings(offeredDocument, resume, {}))
+        val cancel = mockk<(String?) -> Unit>(relaxed = true)
+        listener.captured.onResult(
+            IssueEvent.DocumentRequiresUserAuth(mockk(relaxed = true), Algorithm.ESP256, emptyMap(), {}, cancel)
+        )
+
+        verify { resume(settings) }
+        verify { cancel(any()) }
+    }
+
+    @Test
+    fun `documents that rotate their credentials are not re-issued`() {
+        addDocument("doc1", 1, 1, credentialPolicy = CredentialPolicy.RotateUse)
+        val replenisher = replenisher(CredentialReplenisher.Policy(lowWatermark = 1, minIssuerInterval = Duration.ZERO))
+
+        runBlocking { replenisher.replenishLowDocuments() }
+
+        verify(exactly = 0) { openId4VciManager.reissueDocument(any(), any(), any(), any()) }
+    }
+
+    @Test
+    fun `documents with a pending deferred replacement are not re-issued`() {
+        addDocument("doc1", 1)
+        addDeferredReplacement("deferred1", replacesDocumentId = "doc1")
+        val replenisher = replenisher(CredentialReplenisher.Policy(lowWatermark = 1, minIssuerInterval = Duration.ZERO))
+
+        runBlocking { replenisher.replenishLowDocuments() }
+
+        verify(exactly = 0) { openId4VciManager.reissueDocument(any(), any(), any(), any()) }
+    }
+
+    @Test
+    fun `no document is checked after close`() {
+        addDocument("doc1", 1)
+        val replenisher = replenisher(CredentialReplenisher.Policy(lowWatermark = 1, minIssuerInterval = Duration.ZERO))
+
+        replenisher.close()
+        replenisher.checkDocuments()
+        replenisher.checkDocument("doc1")
+
+        verify(exactly = 0) { openId4VciManager.reissueDocument(any(), any(), any(), any()) }
+    }
+}
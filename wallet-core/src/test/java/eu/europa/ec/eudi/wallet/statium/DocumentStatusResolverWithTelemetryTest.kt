@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.statium
+
+import eu.europa.ec.eudi.statium.Status
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.format.SdJwtVcFormat
+import eu.europa.ec.eudi.wallet.telemetry.WalletMetrics
+import eu.europa.ec.eudi.wallet.telemetry.WalletStage
+import eu.europa.ec.eudi.wallet.telemetry.WalletTelemetry
+import io.mockk.coEvery
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+import kotlin.test.assertEquals
+
+class DocumentStatusResolverWithTelemetryTest {
+
+    private val document = mockk<IssuedDocument> {
+        every { format } returns SdJwtVcFormat("urn:eu.europa.ec.eudi:pid:1")
+    }
+
+    @Test
+    fun `resolveStatus records the status fetch stage and returns the status of the delegate`() = runTest {
+        val metrics = mockk<WalletMetrics>(relaxed = true)
+        val delegate = mockk<DocumentStatusResolver> {
+            coEvery { resolveStatus(document) } returns Result.success(Status.Valid)
+        }
+        val resolver = DocumentStatusResolverWithTelemetry(delegate, WalletTelemetry(metrics))
+
+        val result = resolver.resolveStatus(document)
+
+        assertEquals(Status.Valid, result.getOrNull())
+        verify(exactly = 1) { metrics.recordDuration(WalletStage.STATUS_FETCH, any(), true) }
+    }
+
+    @Test
+    fun `resolveStatus records a failed status fetch`() = runTest {
+        val metrics = mockk<WalletMetrics>(relaxed = true)
+        val delegate = mockk<DocumentStatusResolver> {
+            coEvery { resolveStatus(document) } returns Result.failure(IllegalStateException())
+        }
+        val resolver = DocumentStatusResolverWithTelemetry(delegate, WalletTelemetry(metrics))
+
+        resolver.resolveStatus(document)
+
+        verify(exactly = 1) { metrics.recordDuration(WalletStage.STATUS_FETCH, any(), false) }
+    }
+}
@@ -40,6 +40,7 @@ import io.mockk.unmockkAll
 import io.mockk.verify
 import kotlinx.coroutines.test.runTest
 import org.junit.After
+import org.junit.Assert.assertArrayEquals
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
 import org.junit.Before
@@ -98,27 +99,21 @@ class MsoMdocStatusReferenceExtractorTest {
 
         // Mock COSE Message
         val mockSign1Message = mockk<Sign1Message> {
-            every { GetContent() } returns ByteArray(3)
+            every { GetContent() } returns CBORObject
+                .FromObjectAndTag(CBORObject.FromObject(expectedCborMap), 24)
+                .EncodeToBytes()
         }
 
         mockkStatic(Message::class)
         every { Message.DecodeFromBytes(any(), MessageTag.Sign1) } returns mockSign1Message
 
-        // Mock CBOR decoding
-        mockkStatic(CBORObject::class)
-        every { CBORObject.DecodeFromBytes(any()) } returnsMany listOf(
-            CBORObject.FromObject(ByteArray(2)),
-            expectedCborMap
-        )
-
         // Execute
         val result = statusListExtractor.parseMso(mockDocument)
 
         // Verify
-        assertEquals(expectedCborMap, result)
+        assertArrayEquals(expectedCborMap, result)
         verify { StaticAuthDataParser(mockCredential.issuerProvidedData) }
         verify { Message.DecodeFromBytes(any(), MessageTag.Sign1) }
-        verify(exactly = 2) { CBORObject.DecodeFromBytes(any()) }
     }
 
     @Test(expected = IllegalArgumentException::class)
@@ -211,6 +206,23 @@ class MsoMdocStatusReferenceExtractorTest {
         assertEquals(statusIdx, statusData.index.value)
     }
 
+    @Test
+    fun `extractStatusList reads indefinite length maps`() {
+        fun encode(value: Any) = CBORObject.FromObject(value).EncodeToBytes()
+        // {_ "status": {_ "status_list": {_ "uri": ..., "idx": 42}}}
+        val mso = byteArrayOf(0xBF.toByte()) + encode("docType") + encode("eu.europa.ec.eudi.pid.1") +
+                encode(STATUS) + byteArrayOf(0xBF.toByte()) +
+                encode(STATUS_LIST) + byteArrayOf(0xBF.toByte()) +
+                encode(URI) + encode("https://example.com/status") +
+                encode(IDX) + encode(42) +
+                byteArrayOf(0xFF.toByte(), 0xFF.toByte(), 0xFF.toByte())
+
+        val statusReference = statusListExtractor.extractStatusList(mso)
+
+        assertEquals("https://example.com/status", statusReference.uri)
+        assertEquals(42, statusReference.index.value)
+    }
+
     @Test
     fun `extractRevocationStatusData returns failure when status is missing`() = runTest {
         // Setup CBOR data without status info
@@ -277,7 +289,7 @@ class MsoMdocStatusReferenceExtractorTest {
 
     // Helper methods to create test data
 
-    private fun createMockCborMapWithStatus(statusUri: String, statusIdx: Int): CBORObject {
+    private fun createMockCborMapWithStatus(statusUri: String, statusIdx: Int): ByteArray {
         return CBORObject.NewMap()
             .Add(
                 STATUS, CBORObject.NewMap()
@@ -287,14 +299,16 @@ class MsoMdocStatusReferenceExtractorTest {
                             .Add(IDX, statusIdx)
                     )
             )
+            .EncodeToBytes()
     }
 
-    private fun createMockCborMapWithoutStatus(): CBORObject {
+    private fun createMockCborMapWithoutStatus(): ByteArray {
         return CBORObject.NewMap()
             .Add("other_field", "value")
+            .EncodeToBytes()
     }
 
-    private fun createMockCborMapWithMissingUri(statusIdx: Int): CBORObject {
+    private fun createMockCborMapWithMissingUri(statusIdx: Int): ByteArray {
         return CBORObject.NewMap()
             .Add(
                 STATUS, CBORObject.NewMap()
@@ -303,9 +317,10 @@ class MsoMdocStatusReferenceExtractorTest {
                             .Add(IDX, statusIdx)
                     )
             )
+            .EncodeToBytes()
     }
 
-    private fun createMockCborMapWithMissingIndex(statusUri: String): CBORObject {
+    private fun createMockCborMapWithMissingIndex(statusUri: String): ByteArray {
         return CBORObject.NewMap()
             .Add(
                 STATUS, CBORObject.NewMap()
@@ -314,6 +329,7 @@ class MsoMdocStatusReferenceExtractorTest {
                             .Add(URI, statusUri)
                     )
             )
+            .EncodeToBytes()
     }
 }
 
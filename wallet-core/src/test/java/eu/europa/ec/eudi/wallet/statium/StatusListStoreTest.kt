@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2023-2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.statium
+
+import eu.europa.ec.eudi.statium.Status
+import eu.europa.ec.eudi.statium.StatusIndex
+import eu.europa.ec.eudi.wallet.statium.StatusListStore.StatusListToken
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.nio.file.Files
+import java.util.zip.DeflaterOutputStream
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertIs
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.hours
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.Instant
+
+class StatusListStoreTest {
+
+    private val directory: File = Files.createTempDirectory("status-lists").toFile()
+    private val uri = "https://example.com/statuslists/1"
+    private val now = Instant.fromEpochSeconds(1_700_000_000)
+
+    @AfterTest
+    fun tearDown() {
+        directory.deleteRecursively()
+    }
+
+    private fun token(
+        bits: Int,
+        list: ByteArray,
+        issuedAt: Instant = now,
+        expiresAt: Instant? = null,
+        timeToLive: Duration? = null,
+    ) = StatusListToken(
+        bits = bits,
+        compressedList = ByteArrayOutputStream().also { out ->
+            DeflaterOutputStream(out).use { it.write(list) }
+        }.toByteArray(),
+        issuedAt = issuedAt,
+        expiresAt = expiresAt,
+        timeToLive = timeToLive,
+    )
+
+    @Test
+    fun `statuses of a one bit list are read at their bit offset`() {
+        // Example of the token status list specification
+        val statusList = StatusListStore(directory).put(uri, token(1, byteArrayOf(0xB9.toByte(), 0xA3.toByte())), now)
+
+        val expected = listOf(1, 0, 0, 1, 1, 1, 0, 1, 1, 1, 0, 0, 0, 1, 0, 1)
+        expected.forEachIndexed { index, value ->
+            assertEquals(if (value == 1) Status.Invalid else Status.Valid, statusList.status(StatusIndex(index)))
+        }
+        assertEquals(16L, statusList.size)
+    }
+
+    @Test
+    fun `statuses of a two bits list are read at their bit offset`() {
+        // Example of the token status list specification
+        val statusList = StatusListStore(directory)
+            .put(uri, token(2, byteArrayOf(0xC9.toByte(), 0x44, 0xF9.toByte())), now)
+
+        assertEquals(Status.Invalid, statusList.status(StatusIndex(0)))
+        assertEquals(Status.Suspended, statusList.status(StatusIndex(1)))
+        assertEquals(Status.Valid, statusList.status(StatusIndex(2)))
+        assertIs<Status.ApplicationSpecific>(statusList.status(StatusIndex(3)))
+        assertEquals(Status.Suspended, statusList.status(StatusIndex(9)))
+        assertFailsWith<IndexOutOfBoundsException> { statusList.status(StatusIndex(12)) }
+    }
+
+    @Test
+    fun `a large list is stored and read without loading it`() {
+        val list = ByteArray(4 * 1024 * 1024).also { it[it.size - 1] = 0x80.toByte() }
+        val store = StatusListStore(directory)
+
+        val statusList = store.put(uri, token(1, list), now)
+
+        assertEquals(Status.Valid, statusList.status(StatusIndex(0)))
+        assertEquals(Status.Invalid, statusList.status(StatusIndex(list.size * 8 - 1)))
+    }
+
+    @Test
+    fun `stored list is used until the time to live of its token`() {
+        val store = StatusListStore(directory)
+        store.put(uri, token(1, byteArrayOf(1), timeToLive = 10.minutes), now)
+
+        assertNotNull(store.find(uri, now + 9.minutes))
+        assertNull(store.find(uri, now + 10.minutes))
+    }
+
+    @Test
+    fun `stored list is used until the expiration of its token`() {
+        val store = StatusListStore(directory, defaultTimeToLive = 1.hours)
+        store.put(uri, token(1, byteArrayOf(1), expiresAt = now + 5.minutes), now)
+
+        assertNotNull(store.find(uri, now + 4.minutes))
+        assertNull(store.find(uri, now + 5.minutes))
+    }
+
+    @Test
+    fun `stored list is reloaded from its file`() {
+        StatusListStore(directory).put(uri, token(1, byteArrayOf(2)), now)
+
+        val statusList = assertNotNull(StatusListStore(directory).find(uri, now))
+
+        assertEquals(Status.Invalid, statusList.status(StatusIndex(1)))
+        assertEquals(now, statusList.issuedAt)
+    }
+
+    @Test
+    fun `list is replaced by a newer token`() {
+        val store = StatusListStore(directory)
+        store.put(uri, token(1, byteArrayOf(0)), now)
+
+        store.put(uri, token(1, byteArrayOf(1), issuedAt = now + 1.hours), now + 1.hours)
+
+        assertEquals(Status.Invalid, assertNotNull(store.find(uri, now + 1.hours)).status(StatusIndex(0)))
+    }
+
+    @Test
+    fun `same token only extends the time the list is used`() {
+        val store = StatusListStore(directory, defaultTimeToLive = 1.hours)
+        store.put(uri, token(1, byteArrayOf(1)), now)
+
+        store.put(uri, token(1, byteArrayOf(1)), now + 1.hours)
+
+        assertNotNull(store.find(uri, now + 90.minutes))
+        assertNotNull(StatusListStore(directory).find(uri, now + 90.minutes))
+    }
+
+    @Test
+    fun `clear removes the stored lists`() {
+        val store = StatusListStore(directory)
+        store.put(uri, token(1, byteArrayOf(1)), now)
+
+        store.clear()
+
+        assertNull(store.find(uri, now))
+        assertEquals(0, directory.listFiles()?.size ?: 0)
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.telemetry
+
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class WalletTelemetryTest {
+
+    private class RecordingMetrics : WalletMetrics {
+        val durations = mutableListOf<Pair<WalletStage, Boolean>>()
+        val counters = mutableMapOf<String, Long>()
+
+        override fun recordDuration(stage: WalletStage, durationNanos: Long, success: Boolean) {
+            assertTrue(durationNanos >= 0)
+            durations.add(stage to success)
+        }
+
+        override fun incrementCounter(name: String, amount: Long) {
+            counters[name] = (counters[name] ?: 0) + amount
+        }
+    }
+
+    @Test
+    fun `trace records the duration and ends the span of a successful stage`() {
+        val metrics = RecordingMetrics()
+        val span = mockk<WalletSpan>(relaxed = true)
+        val telemetry = WalletTelemetry(metrics, WalletTracer { span })
+
+        val result = telemetry.trace(WalletStage.STATUS_FETCH) { "ok" }
+
+        assertEquals("ok", result)
+        assertEquals(listOf(WalletStage.STATUS_FETCH to true), metrics.durations)
+        verify(exactly = 1) { span.end(null) }
+    }
+
+    @Test
+    fun `trace records a failed stage and rethrows the exception`() {
+        val metrics = RecordingMetrics()
+        val span = mockk<WalletSpan>(relaxed = true)
+        val telemetry = WalletTelemetry(metrics, WalletTracer { span })
+        val error = IllegalStateException("failed")
+
+        val thrown = assertFailsWith<IllegalStateException> {
+            telemetry.trace(WalletStage.ISSUANCE_AUTHORIZATION) { throw error }
+        }
+
+        assertSame(error, thrown)
+        assertEquals(listOf(WalletStage.ISSUANCE_AUTHORIZATION to false), metrics.durations)
+        verify(exactly = 1) { span.end(error) }
+    }
+
+    @Test
+    fun `traceResult records a failure result as a failed stage`() {
+        val metrics = RecordingMetrics()
+        val telemetry = WalletTelemetry(metrics)
+
+        val result = telemetry.traceResult(WalletStage.STATUS_FETCH) {
+            Result.failure<Unit>(IllegalArgumentException())
+        }
+
+        assertTrue(result.isFailure)
+        assertEquals(listOf(WalletStage.STATUS_FETCH to false), metrics.durations)
+    }
+
+    @Test
+    fun `trace records a result reported as failed without throwing as a failed stage`() {
+        val metrics = RecordingMetrics()
+        val span = mockk<WalletSpan>(relaxed = true)
+        val telemetry = WalletTelemetry(metrics, WalletTracer { span })
+        val error = IllegalStateException("failed")
+
+        val result = telemetry.trace(
+            WalletStage.PRESENTATION_VP_GENERATION,
+            failureOf = { it.exceptionOrNull() },
+        ) { Result.failure<Unit>(error) }
+
+        assertTrue(result.isFailure)
+        assertEquals(listOf(WalletStage.PRESENTATION_VP_GENERATION to false), metrics.durations)
+        verify(exactly = 1) { span.end(error) }
+    }
+
+    @Test
+    fun `sign measures the secure area stage and counts the signature`() {
+        val metrics = RecordingMetrics()
+        val telemetry = WalletTelemetry(metrics)
+
+        telemetry.sign { byteArrayOf(1) }
+        telemetry.sign { byteArrayOf(2) }
+
+        assertEquals(2, metrics.durations.count { it.first == WalletStage.SECURE_AREA_SIGN })
+        assertEquals(2L, metrics.counters[WalletMetrics.COUNTER_SECURE_AREA_SIGNATURES])
+    }
+
+    @Test
+    fun `telemetry without metrics and tracer is disabled`() {
+        val telemetry = WalletTelemetry()
+
+        assertFalse(telemetry.isEnabled)
+        assertEquals(1, telemetry.trace(WalletStage.STATUS_FETCH) { 1 })
+        assertTrue(WalletTelemetry(tracer = WalletTracer { WalletSpan.NoOp }).isEnabled)
+    }
+
+    @Test
+    fun `exceptions of the metrics and the tracer do not fail the stage`() {
+        val metrics = mockk<WalletMetrics> {
+            every { recordDuration(any(), any(), any()) } throws RuntimeException()
+            every { incrementCounter(any(), any()) } throws RuntimeException()
+        }
+        val telemetry = WalletTelemetry(metrics, WalletTracer { throw RuntimeException() })
+
+        assertEquals("ok", telemetry.trace(WalletStage.PRESENTATION_DISPATCH) { "ok" })
+        telemetry.increment(WalletMetrics.COUNTER_DOCUMENTS_MATCHED)
+    }
+
+    @Test
+    fun `sampled tracer traces all or none of the stages at the edge rates`() {
+        val tracer = mockk<WalletTracer> {
+            every { startSpan(any()) } returns WalletSpan.NoOp
+        }
+
+        assertSame(WalletTracer.NoOp, WalletTracer.sampled(tracer, 0.0))
+        assertSame(tracer, WalletTracer.sampled(tracer, 1.0))
+        assertFailsWith<IllegalArgumentException> { WalletTracer.sampled(tracer, 1.5) }
+
+        val sampled = WalletTracer.sampled(tracer, 0.5)
+        repeat(100) { sampled.startSpan(WalletStage.STATUS_FETCH) }
+        verify(atLeast = 1, atMost = 99) { tracer.startSpan(WalletStage.STATUS_FETCH) }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.transactionLogging
+
+import com.upokecenter.cbor.CBORObject
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.jsonObject
+import kotlinx.serialization.json.jsonPrimitive
+import kotlinx.serialization.json.long
+import java.io.ByteArrayOutputStream
+import java.util.Base64
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class TransactionLogExporterTest {
+
+    private val transactions = List(7) { index ->
+        TransactionLog(
+            // two transactions share each timestamp, so pages also split on the key
+            timestamp = 1_000L * (index / 2 + 1),
+            status = TransactionLog.Status.Completed,
+            type = TransactionLog.Type.Presentation,
+            relyingParty = TransactionLog.RelyingParty("Verifier", true, listOf("cert"), null),
+            rawRequest = null,
+            rawResponse = byteArrayOf(index.toByte()),
+            dataFormat = TransactionLog.DataFormat.Cbor,
+            sessionTranscript = null,
+            metadata = null,
+        )
+    }
+
+    private val entries = transactions.mapIndexed { index, transaction ->
+        TransactionLogReader.Entry(key = index + 1L, transaction = transaction)
+    }
+
+    private val pages = mutableListOf<Pair<TransactionLogReader.Cursor?, Int>>()
+
+    private val reader = TransactionLogReader { from, to, after, limit ->
+        pages += after to limit
+        entries
+            .filter { it.transaction.timestamp in from until to }
+            .filter { entry ->
+                after == null || entry.transaction.timestamp > after.timestamp ||
+                        (entry.transaction.timestamp == after.timestamp && entry.key > after.key)
+            }
+            .take(limit)
+    }
+
+    @Test
+    fun `transactions are read in pages and written as NDJSON`() = runBlocking {
+        val output = ByteArrayOutputStream()
+
+        val exported = TransactionLogExporter(reader, pageSize = 3)
+            .export(output, TransactionLogExporter.Format.NDJSON)
+
+        assertEquals(7, exported)
+        assertEquals(
+            listOf(
+                null to 3,
+                TransactionLogReader.Cursor(timestamp = 2_000L, key = 3L) to 3,
+                TransactionLogReader.Cursor(timestamp = 3_000L, key = 6L) to 3,
+            ),
+            pages
+        )
+        val lines = output.toString(Charsets.UTF_8.name()).lines().filter { it.isNotEmpty() }
+        assertEquals(transactions.map { it.timestamp }, lines.map {
+            Json.parseToJsonElement(it).jsonObject["timestamp"]!!.jsonPrimitive.long
+        })
+        val rawResponse = Json.parseToJsonElement(lines[2]).jsonObject["rawResponse"]!!.jsonPrimitive.content
+        assertContentEquals(byteArrayOf(2), Base64.getUrlDecoder().decode(rawResponse))
+    }
+
+    @Test
+    fun `transactions are written as a CBOR sequence`() = runBlocking {
+        val output = ByteArrayOutputStream()
+
+        TransactionLogExporter(reader, pageSize = 10)
+            .export(output, TransactionLogExporter.Format.CBOR_SEQUENCE)
+
+        val records = CBORObject.DecodeSequenceFromBytes(output.toByteArray())
+        assertEquals(7, records.size)
+        assertEquals(4_000L, records[6]["timestamp"].AsInt64Value())
+        assertEquals("Verifier", records[6]["relyingParty"]["name"].AsString())
+        assertContentEquals(byteArrayOf(6), records[6]["rawResponse"].GetByteString())
+    }
+
+    @Test
+    fun `only transactions in the time range are exported`() = runBlocking {
+        val output = ByteArrayOutputStream()
+
+        val exported = TransactionLogExporter(reader, pageSize = 2)
+            .export(output, TransactionLogExporter.Format.NDJSON, fromTimestamp = 2_000L, toTimestamp = 4_000L)
+
+        assertEquals(4, exported)
+        assertTrue(pages.all { it.second == 2 })
+    }
+
+    @Test
+    fun `responses that cannot be decoded are exported with the error`() = runBlocking {
+        val output = ByteArrayOutputStream()
+
+        TransactionLogExporter(reader, pageSize = 10)
+            .export(output, TransactionLogExporter.Format.NDJSON, decodeResponses = true)
+
+        val record = Json.parseToJsonElement(output.toString(Charsets.UTF_8.name()).lines().first()).jsonObject
+        assertTrue("decodingError" in record)
+    }
+
+    @Test
+    fun `export stops when cancelled`() = runBlocking {
+        lateinit var job: Job
+        val cancellingReader = TransactionLogReader { from, to, after, limit ->
+            if (after != null) job.cancel()
+            reader.readTransactions(from, to, after, limit)
+        }
+        val output = ByteArrayOutputStream()
+        var exported: Int? = null
+
+        job = launch(Dispatchers.Unconfined) {
+            try {
+                exported = TransactionLogExporter(cancellingReader, pageSize = 2, Dispatchers.Unconfined)
+                    .export(output, TransactionLogExporter.Format.NDJSON)
+            } catch (_: CancellationException) {
+            }
+        }
+        job.join()
+
+        assertEquals(null, exported)
+        assertEquals(2, output.toString(Charsets.UTF_8.name()).lines().count { it.isNotEmpty() })
+    }
+}
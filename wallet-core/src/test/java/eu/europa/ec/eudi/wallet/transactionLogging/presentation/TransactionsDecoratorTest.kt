@@ -26,6 +26,7 @@ import eu.europa.ec.eudi.wallet.logging.Logger
 import eu.europa.ec.eudi.wallet.presentation.PresentationManager
 import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLog
 import eu.europa.ec.eudi.wallet.transactionLogging.TransactionLogger
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpSession
 import io.mockk.Runs
 import io.mockk.every
 import io.mockk.just
@@ -212,6 +213,33 @@ class TransactionsDecoratorTest {
         }
     }
 
+    @Test
+    fun `remote presentation sessions are logged by their own listener`() {
+        // Arrange
+        val session = mockk<OpenId4VpSession>()
+        val onResponse = slot<(Response) -> Unit>()
+        every { session.invokeOnResponse(capture(onResponse)) } just Runs
+        val sessionListener = slot<TransferEvent.Listener>()
+        every {
+            presentationManager.openRemotePresentationSession(any(), capture(sessionListener))
+        } returns session
+        val listener = mockk<TransferEvent.Listener>(relaxed = true)
+
+        // Act
+        val opened = transactionsDecorator.openRemotePresentationSession(mockk(), listener)
+        onResponse.captured(createMockResponse())
+
+        // Assert
+        assertEquals(session, opened)
+        verify(exactly = 1) { transactionLogger.log(any()) }
+        assertNotNull(transactionLogSlot.captured.rawResponse)
+        assertEquals(TransactionLog.Status.Incomplete, transactionsDecorator.transactionListener.log.status)
+
+        // Events of the session reach both the transaction log and the listener of the session
+        sessionListener.captured.onTransferEvent(TransferEvent.Disconnected)
+        verify(exactly = 1) { listener.onTransferEvent(TransferEvent.Disconnected) }
+    }
+
     private fun createMockResponse(): Response {
         return DeviceResponse(
             deviceResponseBytes = ByteArray(0),
@@ -17,18 +17,25 @@
 package eu.europa.ec.eudi.wallet.transfer
 
 import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
+import eu.europa.ec.eudi.iso18013.transfer.response.Request
 import eu.europa.ec.eudi.openid4vp.Consensus
 import eu.europa.ec.eudi.openid4vp.DispatchOutcome
 import eu.europa.ec.eudi.openid4vp.EncryptionParameters
+import eu.europa.ec.eudi.openid4vp.OpenId4VPConfig
 import eu.europa.ec.eudi.openid4vp.ResolvedRequestObject
 import eu.europa.ec.eudi.openid4vp.OpenId4Vp
+import eu.europa.ec.eudi.openid4vp.Resolution
+import eu.europa.ec.eudi.openid4vp.X509CertificateTrust
 import eu.europa.ec.eudi.wallet.internal.makeOpenId4VPConfig
 import eu.europa.ec.eudi.wallet.logging.Logger
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpConfig
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpManager
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpRequest
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.OpenId4VpResponse
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.ReaderTrustResult
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.DcqlRequestProcessor
 import io.mockk.coEvery
+import io.mockk.coVerify
 import io.mockk.every
 import io.mockk.mockk
 import io.mockk.mockkObject
@@ -48,8 +55,11 @@ import org.junit.After
 import org.junit.Before
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
+import java.security.cert.X509Certificate
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.test.Ignore
 import kotlin.test.Test
+import kotlin.test.assertEquals
 import kotlin.test.assertTrue
 import kotlin.time.Duration.Companion.minutes
 
@@ -150,6 +160,89 @@ class OpenId4VpManagerTest {
         ) { listener.onTransferEvent(ofType(TransferEvent.Disconnected::class)) }
     }
 
+    @Test
+    fun `resolveRequestUri reuses the prefetched resolution`() = runTest(timeout = 1.minutes) {
+        every { config.schemes } returns listOf("http")
+        coEvery { openId4Vp.resolveRequestUri(any()) } returns
+                Resolution.Success(mockk<ResolvedRequestObject>(relaxed = true))
+
+        val manager = OpenId4VpManager(config, requestProcessor, logger)
+        manager.addTransferEventListener(listener)
+
+        manager.prefetchRequestUri("http://example.com")
+        manager.resolveRequestUri("http://example.com")
+
+        verify(timeout = 2000L) {
+            listener.onTransferEvent(ofType(TransferEvent.RequestReceived::class))
+        }
+        coVerify(exactly = 1) { openId4Vp.resolveRequestUri("http://example.com") }
+    }
+
+    @Test
+    fun `prefetched resolutions keep the reader trust result of their own request`() =
+        runTest(timeout = 1.minutes) {
+            every { config.schemes } returns listOf("http")
+            val chains = mapOf(
+                "http://first.example.com" to listOf(mockk<X509Certificate>()),
+                "http://second.example.com" to listOf(mockk<X509Certificate>()),
+            )
+            val trusts = ConcurrentHashMap<OpenId4VPConfig, X509CertificateTrust>()
+            every { makeOpenId4VPConfig(any(), any()) } answers {
+                mockk<OpenId4VPConfig>().also { trusts[it] = secondArg() }
+            }
+            every { OpenId4Vp(any(), any()) } answers {
+                val trust = trusts.getValue(firstArg())
+                mockk {
+                    coEvery { resolveRequestUri(any()) } answers {
+                        trust.isTrusted(chains.getValue(firstArg()))
+                        Resolution.Success(mockk<ResolvedRequestObject>(relaxed = true))
+                    }
+                }
+            }
+            every { requestProcessor.openid4VpX509CertificateTrust } returns mockk(relaxed = true) {
+                every { isTrusted(any()) } returns true
+            }
+            val requests = mutableListOf<Request>()
+            every { requestProcessor.process(capture(requests)) } returns mockk(relaxed = true)
+
+            val manager = OpenId4VpManager(config, requestProcessor, logger)
+            manager.addTransferEventListener(listener)
+
+            manager.prefetchRequestUri("http://first.example.com")
+            manager.prefetchRequestUri("http://second.example.com")
+            manager.resolveRequestUri("http://first.example.com")
+
+            verify(timeout = 2000L) {
+                listener.onTransferEvent(ofType(TransferEvent.RequestReceived::class))
+            }
+            assertEquals(
+                ReaderTrustResult.Processed(chains.getValue("http://first.example.com"), true),
+                (requests.single() as OpenId4VpRequest).readerTrustResult
+            )
+        }
+
+    @Test
+    fun `resolveRequestUri with the same uri joins the running resolution`() =
+        runTest(timeout = 1.minutes) {
+            every { config.schemes } returns listOf("http")
+            coEvery { openId4Vp.resolveRequestUri(any()) } coAnswers {
+                delay(200)
+                Resolution.Success(mockk<ResolvedRequestObject>(relaxed = true))
+            }
+
+            val manager = OpenId4VpManager(config, requestProcessor, logger)
+            manager.addTransferEventListener(listener)
+
+            manager.resolveRequestUri("http://example.com")
+            manager.resolveRequestUri("http://example.com")
+
+            verify(timeout = 2000L) {
+                listener.onTransferEvent(ofType(TransferEvent.RequestReceived::class))
+            }
+            verify(exactly = 0) { listener.onTransferEvent(ofType(TransferEvent.Disconnected::class)) }
+            coVerify(exactly = 1) { openId4Vp.resolveRequestUri("http://example.com") }
+        }
+
     @Test
     fun `test stop cancels sendResponse coroutine`() = runTest(timeout = 1.minutes) {
 
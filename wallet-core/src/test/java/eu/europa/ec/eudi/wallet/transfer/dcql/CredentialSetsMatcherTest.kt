@@ -1,5 +1,6 @@
 package eu.europa.ec.eudi.wallet.transfer.dcql
 
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.CombinationCost
 import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.CredentialSetsMatcher
 import kotlin.test.*
 import org.junit.Before
@@ -13,6 +14,8 @@ import eu.europa.ec.eudi.openid4vp.dcql.Credentials
 import eu.europa.ec.eudi.openid4vp.dcql.QueryId
 import eu.europa.ec.eudi.openid4vp.Format
 import eu.europa.ec.eudi.openid4vp.dcql.CredentialQueryIds
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import io.mockk.every
 
 class CredentialSetsMatcherTest {
 
@@ -28,6 +31,14 @@ class CredentialSetsMatcherTest {
         )
     }
 
+    // Helper function to match every given query with its own document.
+    private fun matchedDocuments(ids: Iterable<QueryId>): Map<QueryId, List<IssuedDocument>> =
+        ids.associateWith { listOf(issuedDocument("document_${it.value}")) }
+
+    private fun issuedDocument(id: String): IssuedDocument = mockk {
+        every { this@mockk.id } returns id
+    }
+
     @Before
     fun setup() {
         matcher = CredentialSetsMatcher()
@@ -269,4 +280,182 @@ class CredentialSetsMatcherTest {
 
         assertTrue(result.isEmpty(), "Expected an empty map because query_0 is not whitelisted and query_1 is not available.")
     }
-}
\ No newline at end of file
+
+    /**
+     * Scenario: One required set with two alternatives ('query_0' alone, or 'query_1' with 'query_2')
+     * and one optional set asking for 'query_3'.
+     * Wallet State: The wallet has every document.
+     * Expected Result: Both alternatives are returned, each with the optional 'query_3', in the
+     * verifier's order by default and cheapest first when ranked by fewest credentials.
+     */
+    @Test
+    fun `findSatisfyingCombinations returns every alternative ranked by cost`() {
+
+        val credentials = Credentials((0..3).map { createCredentialQuery("query_$it") })
+        val requiredSet = CredentialSetQuery(
+            options = listOf(
+                CredentialQueryIds(listOf(QueryId("query_1"), QueryId("query_2"))),
+                CredentialQueryIds(listOf(QueryId("query_0"))),
+            ),
+            required = true
+        )
+        val optionalSet = CredentialSetQuery(
+            options = listOf(CredentialQueryIds(listOf(QueryId("query_3")))),
+            required = false
+        )
+        val credentialSets = CredentialSets(listOf(requiredSet, optionalSet))
+        val availableWalletIds = (0..3).map { QueryId("query_$it") }.toSet()
+
+        val byVerifier = matcher.findSatisfyingCombinations(
+            credentials, credentialSets, matchedDocuments(availableWalletIds)
+        )
+        assertEquals(
+            listOf(
+                setOf(QueryId("query_1"), QueryId("query_2"), QueryId("query_3")),
+                setOf(QueryId("query_0"), QueryId("query_3")),
+            ),
+            byVerifier.map { it.queryIds }
+        )
+
+        val byFewest = matcher.findSatisfyingCombinations(
+            credentials, credentialSets, matchedDocuments(availableWalletIds), CombinationCost.FewestCredentials
+        )
+        assertEquals(setOf(QueryId("query_0"), QueryId("query_3")), byFewest.first().queryIds)
+        assertEquals(2.0, byFewest.first().cost)
+    }
+
+    /**
+     * Scenario: A required set that cannot be satisfied by any of its options.
+     * Expected Result: No combination is returned.
+     */
+    @Test
+    fun `findSatisfyingCombinations returns no combination when a required set is unsatisfied`() {
+
+        val credentials = Credentials(listOf(createCredentialQuery("query_0"), createCredentialQuery("query_1")))
+        val requiredSet = CredentialSetQuery(
+            options = listOf(CredentialQueryIds(listOf(QueryId("query_1")))),
+            required = true
+        )
+
+        val result = matcher.findSatisfyingCombinations(
+            credentials, CredentialSets(listOf(requiredSet)), matchedDocuments(setOf(QueryId("query_0")))
+        )
+
+        assertTrue(result.isEmpty())
+    }
+
+    /**
+     * Scenario: Many optional sets with two satisfiable options each.
+     * Expected Result: The enumeration stops at the requested maximum.
+     */
+    @Test
+    fun `findSatisfyingCombinations is bounded by maxCombinations`() {
+
+        val credentials = Credentials((0..19).map { createCredentialQuery("query_$it") })
+        val optionalSets = (0..9).map { i ->
+            CredentialSetQuery(
+                options = listOf(
+                    CredentialQueryIds(listOf(QueryId("query_${2 * i}"))),
+                    CredentialQueryIds(listOf(QueryId("query_${2 * i + 1}"))),
+                ),
+                required = false
+            )
+        }
+        val availableWalletIds = (0..19).map { QueryId("query_$it") }.toSet()
+
+        val result = matcher.findSatisfyingCombinations(
+            credentials, CredentialSets(optionalSets), matchedDocuments(availableWalletIds), maxCombinations = 16
+        )
+
+        assertEquals(16, result.size)
+    }
+
+    /**
+     * Scenario: More combinations than the maximum, with the cheapest one made of the last option
+     * of every set.
+     * Expected Result: The cheapest combination overall is ranked first.
+     */
+    @Test
+    fun `findSatisfyingCombinations returns the cheapest combination beyond maxCombinations`() {
+
+        val credentials = Credentials((0..20).map { createCredentialQuery("query_$it") })
+        val optionalSets = (0..6).map { i ->
+            CredentialSetQuery(
+                options = listOf(
+                    CredentialQueryIds(listOf(QueryId("query_${3 * i}"), QueryId("query_${3 * i + 1}"))),
+                    CredentialQueryIds(listOf(QueryId("query_${3 * i + 2}"))),
+                ),
+                required = false
+            )
+        }
+        val availableWalletIds = (0..20).map { QueryId("query_$it") }.toSet()
+
+        val result = matcher.findSatisfyingCombinations(
+            credentials, CredentialSets(optionalSets), matchedDocuments(availableWalletIds), CombinationCost.FewestCredentials
+        )
+
+        assertEquals(CredentialSetsMatcher.DEFAULT_MAX_COMBINATIONS, result.size)
+        assertEquals((0..6).map { QueryId("query_${3 * it + 2}") }.toSet(), result.first().queryIds)
+        assertEquals(7.0, result.first().cost)
+        assertEquals(result.sortedBy { it.cost }, result)
+    }
+
+    /**
+     * Scenario: Many sets that repeat the same option.
+     * Expected Result: The duplicate options are enumerated once.
+     */
+    @Test
+    fun `findSatisfyingCombinations deduplicates the options`() {
+
+        val credentials = Credentials(listOf(createCredentialQuery("query_0")))
+        val requiredSets = (0..39).map {
+            CredentialSetQuery(
+                options = List(8) { CredentialQueryIds(listOf(QueryId("query_0"))) },
+                required = true
+            )
+        }
+
+        val result = matcher.findSatisfyingCombinations(
+            credentials, CredentialSets(requiredSets), matchedDocuments(setOf(QueryId("query_0")))
+        )
+
+        assertEquals(listOf(setOf(QueryId("query_0"))), result.map { it.queryIds })
+    }
+
+    /**
+     * Scenario: One required set with two alternatives of two credential queries each, where both
+     * queries of the second alternative are matched by the same document.
+     * Expected Result: Ranked by fewest credentials, the second alternative comes first, as it
+     * presents a single document.
+     */
+    @Test
+    fun `FewestCredentials counts a document matched by several queries once`() {
+
+        val credentials = Credentials((0..3).map { createCredentialQuery("query_$it") })
+        val requiredSet = CredentialSetQuery(
+            options = listOf(
+                CredentialQueryIds(listOf(QueryId("query_0"), QueryId("query_1"))),
+                CredentialQueryIds(listOf(QueryId("query_2"), QueryId("query_3"))),
+            ),
+            required = true
+        )
+        val pid = issuedDocument("pid")
+        val matchedDocuments = matchedDocuments((0..1).map { QueryId("query_$it") }) + mapOf(
+            QueryId("query_2") to listOf(pid),
+            QueryId("query_3") to listOf(issuedDocument("mdl"), pid),
+        )
+
+        val result = matcher.findSatisfyingCombinations(
+            credentials, CredentialSets(listOf(requiredSet)), matchedDocuments, CombinationCost.FewestCredentials
+        )
+
+        assertEquals(
+            listOf(
+                setOf(QueryId("query_2"), QueryId("query_3")),
+                setOf(QueryId("query_0"), QueryId("query_1")),
+            ),
+            result.map { it.queryIds }
+        )
+        assertEquals(listOf(1.0, 2.0), result.map { it.cost })
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.transfer.dcql
+
+import eu.europa.ec.eudi.iso18013.transfer.response.device.MsoMdocItem
+import eu.europa.ec.eudi.openid4vp.dcql.ClaimPath
+import eu.europa.ec.eudi.openid4vp.dcql.ClaimPathElement
+import eu.europa.ec.eudi.openid4vp.dcql.ClaimsQuery
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialQuery
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialQueryIds
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialSetQuery
+import eu.europa.ec.eudi.openid4vp.dcql.CredentialSets
+import eu.europa.ec.eudi.openid4vp.dcql.Credentials
+import eu.europa.ec.eudi.openid4vp.dcql.DCQL
+import eu.europa.ec.eudi.openid4vp.dcql.DCQLMetaMsoMdocExtensions
+import eu.europa.ec.eudi.openid4vp.dcql.MsoMdocDocType
+import eu.europa.ec.eudi.openid4vp.dcql.QueryId
+import eu.europa.ec.eudi.wallet.document.IssuedDocument
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocClaim
+import eu.europa.ec.eudi.wallet.document.format.MsoMdocFormat
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.CombinationCost
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.DcqlQueryPlan
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.DcqlQueryPlanCache
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class DcqlQueryPlanCacheTest {
+
+    private fun mdocQuery(id: String, docType: String, vararg claims: Pair<String, String>) =
+        CredentialQuery.mdoc(
+            id = QueryId(id),
+            msoMdocMeta = DCQLMetaMsoMdocExtensions(doctypeValue = MsoMdocDocType(docType)),
+            claims = claims.map { (nameSpace, identifier) ->
+                ClaimsQuery.mdoc(
+                    path = ClaimPath(
+                        listOf(
+                            ClaimPathElement.Claim(nameSpace),
+                            ClaimPathElement.Claim(identifier)
+                        )
+                    )
+                )
+            }.takeIf { it.isNotEmpty() }
+        )
+
+    private fun mdocClaim(nameSpace: String, identifier: String) = mockk<MsoMdocClaim> {
+        every { this@mockk.nameSpace } returns nameSpace
+        every { this@mockk.identifier } returns identifier
+    }
+
+    private fun matchedDocuments(vararg queryIds: String) =
+        queryIds.associate { QueryId(it) to listOf(mockk<IssuedDocument>()) }
+
+    private fun DcqlQueryPlan.selectedQueryIds(matchedDocuments: Map<QueryId, List<IssuedDocument>>) =
+        combinations(matchedDocuments, CombinationCost.VerifierPreference).firstOrNull()?.queryIds.orEmpty()
+
+    private fun pidAndMdlQuery(credentialSets: CredentialSets? = null) = DCQL(
+        credentials = Credentials(
+            listOf(
+                mdocQuery("pid", "eu.europa.ec.eudi.pid.1", "eu.europa.ec.eudi.pid.1" to "family_name"),
+                mdocQuery("mdl", "org.iso.18013.5.1.mDL", "org.iso.18013.5.1" to "document_number"),
+            )
+        ),
+        credentialSets = credentialSets
+    )
+
+    @Test
+    fun `structurally identical queries share the same compiled plan`() {
+        val cache = DcqlQueryPlanCache()
+
+        val first = cache.getOrCompile(pidAndMdlQuery())
+        val second = cache.getOrCompile(pidAndMdlQuery())
+
+        assertSame(first, second)
+        assertEquals(1, cache.size)
+    }
+
+    @Test
+    fun `invalidate removes all compiled plans`() {
+        val cache = DcqlQueryPlanCache()
+        val first = cache.getOrCompile(pidAndMdlQuery())
+
+        cache.invalidate()
+
+        assertEquals(0, cache.size)
+        assertNotSame(first, cache.getOrCompile(pidAndMdlQuery()))
+    }
+
+    @Test
+    fun `cache evicts the least recently used plan when full`() {
+        val cache = DcqlQueryPlanCache(maxSize = 1)
+        val first = cache.getOrCompile(pidAndMdlQuery())
+
+        cache.getOrCompile(DCQL(Credentials(listOf(mdocQuery("pid", "eu.europa.ec.eudi.pid.1")))))
+
+        assertEquals(1, cache.size)
+        assertNotSame(first, cache.getOrCompile(pidAndMdlQuery()))
+    }
+
+    @Test
+    fun `plan compiles format filters and requested items`() {
+        val plan = DcqlQueryPlanCache().getOrCompile(pidAndMdlQuery())
+
+        assertEquals(
+            setOf(MsoMdocFormat("eu.europa.ec.eudi.pid.1"), MsoMdocFormat("org.iso.18013.5.1.mDL")),
+            plan.documentFormats
+        )
+        val items = plan.queries.first().requestedItemsFor(mockk<IssuedDocument>())
+        assertEquals(
+            mapOf(MsoMdocItem("eu.europa.ec.eudi.pid.1", "family_name") to false),
+            items
+        )
+    }
+
+    @Test
+    fun `plan without credential sets requires all credential queries`() {
+        val plan = DcqlQueryPlanCache().getOrCompile(pidAndMdlQuery())
+
+        assertEquals(
+            setOf(QueryId("pid"), QueryId("mdl")),
+            plan.selectedQueryIds(matchedDocuments("pid", "mdl"))
+        )
+        assertTrue(plan.selectedQueryIds(matchedDocuments("pid")).isEmpty())
+    }
+
+    @Test
+    fun `plan selects first satisfiable option of required and optional sets`() {
+        val credentialSets = CredentialSets(
+            listOf(
+                CredentialSetQuery(
+                    options = listOf(
+                        CredentialQueryIds(listOf(QueryId("mdl"))),
+                        CredentialQueryIds(listOf(QueryId("pid"))),
+                    ),
+                    required = true
+                ),
+                CredentialSetQuery(
+                    options = listOf(CredentialQueryIds(listOf(QueryId("unknown")))),
+                    required = false
+                ),
+            )
+        )
+        val plan = DcqlQueryPlanCache().getOrCompile(pidAndMdlQuery(credentialSets))
+
+        assertEquals(setOf(QueryId("pid")), plan.selectedQueryIds(matchedDocuments("pid")))
+        assertTrue(plan.selectedQueryIds(matchedDocuments()).isEmpty())
+    }
+
+    @Test
+    fun `plan derives the items of a query without claims from the current claims of the document`() {
+        val docType = "eu.europa.ec.eudi.pid.1"
+        val plan = DcqlQueryPlanCache().getOrCompile(
+            DCQL(credentials = Credentials(listOf(mdocQuery("pid", docType))))
+        )
+        val claims = mutableListOf(mdocClaim(docType, "family_name"))
+        val document = mockk<IssuedDocument> {
+            every { id } returns "pid"
+            every { format } returns MsoMdocFormat(docType)
+            every { data.claims } answers { claims.toList() }
+        }
+
+        assertEquals(
+            mapOf(MsoMdocItem(docType, "family_name") to false),
+            plan.queries.single().requestedItemsFor(document)
+        )
+
+        claims += mdocClaim(docType, "given_name")
+
+        assertEquals(
+            setOf(MsoMdocItem(docType, "family_name"), MsoMdocItem(docType, "given_name")),
+            plan.queries.single().requestedItemsFor(document).keys
+        )
+    }
+
+    @Test
+    fun `invalid max size is rejected`() {
+        assertFailsWith<IllegalArgumentException> { DcqlQueryPlanCache(maxSize = 0) }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.transfer.openId4vp
+
+import android.net.Uri
+import eu.europa.ec.eudi.iso18013.transfer.TransferEvent
+import eu.europa.ec.eudi.openid4vp.Consensus
+import eu.europa.ec.eudi.openid4vp.DispatchOutcome
+import eu.europa.ec.eudi.openid4vp.OpenId4VPConfig
+import eu.europa.ec.eudi.openid4vp.OpenId4Vp
+import eu.europa.ec.eudi.openid4vp.Resolution
+import eu.europa.ec.eudi.openid4vp.ResolvedRequestObject
+import eu.europa.ec.eudi.openid4vp.X509CertificateTrust
+import eu.europa.ec.eudi.wallet.internal.makeOpenId4VPConfig
+import eu.europa.ec.eudi.wallet.transfer.openId4vp.dcql.DcqlRequestProcessor
+import io.mockk.coEvery
+import io.mockk.coVerify
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.mockkObject
+import io.mockk.mockkStatic
+import io.mockk.unmockkAll
+import kotlinx.coroutines.CompletableDeferred
+import org.junit.After
+import org.junit.Before
+import java.security.cert.X509Certificate
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class OpenId4VpSessionTest {
+
+    private val requestProcessor = mockk<DcqlRequestProcessor>(relaxed = true)
+    private val config = mockk<OpenId4VpConfig>(relaxed = true) {
+        every { schemes } returns listOf("openid4vp")
+        every { maxConcurrentSessions } returns 4
+    }
+    private val openId4Vp = mockk<OpenId4Vp>(relaxed = true)
+    private val requests = ConcurrentHashMap<String, ResolvedRequestObject>()
+
+    @Before
+    fun setUp() {
+        mockkObject(OpenId4Vp)
+        every { OpenId4Vp(any(), any()) } returns openId4Vp
+        mockkStatic(::makeOpenId4VPConfig)
+        every { makeOpenId4VPConfig(any(), any()) } returns mockk()
+        mockkStatic(Uri::class)
+        every { Uri.parse(any()) } answers {
+            mockk { every { scheme } returns firstArg<String>().substringBefore(':') }
+        }
+        coEvery { openId4Vp.resolveRequestUri(any()) } answers {
+            Resolution.Success(requestFor(firstArg()))
+        }
+    }
+
+    @After
+    fun tearDown() {
+        unmockkAll()
+    }
+
+    private fun requestFor(uri: String) = requests.getOrPut(uri) {
+        mockk(relaxed = true) { every { responseEncryptionSpecification } returns null }
+    }
+
+    private fun manager() = OpenId4VpManager(
+        config = config,
+        requestProcessor = requestProcessor,
+        listenersExecutor = Executor { it.run() },
+    )
+
+    private class RecordingListener : TransferEvent.Listener {
+        val events: MutableList<TransferEvent> = Collections.synchronizedList(mutableListOf())
+
+        override fun onTransferEvent(event: TransferEvent) {
+            events += event
+        }
+
+        fun awaitEvent(predicate: (TransferEvent) -> Boolean) {
+            val deadline = System.currentTimeMillis() + 2_000
+            while (events.none(predicate)) {
+                check(System.currentTimeMillis() < deadline) { "Event not received: $events" }
+                Thread.sleep(10)
+            }
+        }
+    }
+
+    private fun awaitState(session: OpenId4VpSession, state: OpenId4VpSession.State) {
+        val deadline = System.currentTimeMillis() + 2_000
+        while (session.state != state) {
+            check(System.currentTimeMillis() < deadline) { "Session is ${session.state}, expected $state" }
+            Thread.sleep(10)
+        }
+    }
+
+    @Test
+    fun `sessions are resolved and rejected independently`() {
+        coEvery { openId4Vp.dispatch(any(), any(), any()) } returns DispatchOutcome.VerifierResponse.Accepted(null)
+        val manager = manager()
+        val listener1 = RecordingListener()
+        val listener2 = RecordingListener()
+
+        val session1 = manager.openSession("openid4vp://request1", listener1)
+        val session2 = manager.openSession("openid4vp://request2", listener2)
+        awaitState(session1, OpenId4VpSession.State.PENDING_CONSENT)
+        awaitState(session2, OpenId4VpSession.State.PENDING_CONSENT)
+        assertEquals(2, manager.getSessions().size)
+
+        session1.reject()
+        listener1.awaitEvent { it is TransferEvent.ResponseSent }
+        awaitState(session1, OpenId4VpSession.State.COMPLETED)
+
+        assertEquals(OpenId4VpSession.State.PENDING_CONSENT, session2.state)
+        assertTrue(listener2.events.none { it is TransferEvent.ResponseSent })
+        assertEquals(listOf(session2), manager.getSessions())
+        coVerify(exactly = 1) {
+            openId4Vp.dispatch(requests.getValue("openid4vp://request1"), Consensus.NegativeConsensus, any())
+        }
+        coVerify(exactly = 0) { openId4Vp.dispatch(requests.getValue("openid4vp://request2"), any(), any()) }
+    }
+
+    @Test
+    fun `open sessions are limited, including the sessions waiting for consent`() {
+        every { config.maxConcurrentSessions } returns 1
+        val manager = manager()
+        val listener1 = RecordingListener()
+
+        val session1 = manager.openSession("openid4vp://request1", listener1)
+        awaitState(session1, OpenId4VpSession.State.PENDING_CONSENT)
+
+        assertFailsWith<IllegalStateException> {
+            manager.openSession("openid4vp://request2", RecordingListener())
+        }
+        coVerify(exactly = 0) { openId4Vp.resolveRequestUri("openid4vp://request2") }
+
+        session1.cancel()
+        listener1.awaitEvent { it is TransferEvent.Disconnected }
+        val session2 = manager.openSession("openid4vp://request2", RecordingListener())
+        awaitState(session2, OpenId4VpSession.State.PENDING_CONSENT)
+    }
+
+    @Test
+    fun `cancelled session emits Disconnected and is closed`() {
+        val manager = manager()
+        val listener = RecordingListener()
+        val session = manager.openSession("openid4vp://request1", listener)
+        awaitState(session, OpenId4VpSession.State.PENDING_CONSENT)
+
+        session.cancel()
+
+        listener.awaitEvent { it is TransferEvent.Disconnected }
+        assertEquals(OpenId4VpSession.State.CANCELLED, session.state)
+        assertEquals(emptyList(), manager.getSessions())
+        assertEquals(1, listener.events.count { it is TransferEvent.Disconnected })
+    }
+
+    @Test
+    fun `sessions keep the reader trust result of their own request`() {
+        val chains = mapOf(
+            "openid4vp://request1" to listOf(mockk<X509Certificate>()),
+            "openid4vp://request2" to listOf(mockk<X509Certificate>()),
+        )
+        val trusts = ConcurrentHashMap<OpenId4VPConfig, X509CertificateTrust>()
+        every { makeOpenId4VPConfig(any(), any()) } answers {
+            mockk<OpenId4VPConfig>().also { trusts[it] = secondArg() }
+        }
+        every { OpenId4Vp(any(), any()) } answers {
+            val trust = trusts.getValue(firstArg())
+            mockk {
+                coEvery { resolveRequestUri(any()) } answers {
+                    trust.isTrusted(chains.getValue(firstArg()))
+                    Resolution.Success(requestFor(firstArg()))
+                }
+            }
+        }
+        every { requestProcessor.openid4VpX509CertificateTrust } returns mockk(relaxed = true) {
+            every { isTrusted(any()) } answers { firstArg<List<X509Certificate>>() == chains["openid4vp://request1"] }
+        }
+        val manager = manager()
+
+        val sessions = chains.keys.map { manager.openSession(it, RecordingListener()) }
+        sessions.forEach { awaitState(it, OpenId4VpSession.State.PENDING_CONSENT) }
+
+        assertEquals(
+            ReaderTrustResult.Processed(chains.getValue("openid4vp://request1"), true),
+            sessions[0].request?.readerTrustResult
+        )
+        assertEquals(
+            ReaderTrustResult.Processed(chains.getValue("openid4vp://request2"), false),
+            sessions[1].request?.readerTrustResult
+        )
+    }
+
+    @Test
+    fun `session fails when the verifier does not accept the rejection`() {
+        coEvery { openId4Vp.dispatch(any(), any(), any()) } returns DispatchOutcome.VerifierResponse.Rejected
+        val manager = manager()
+        val listener = RecordingListener()
+        val session = manager.openSession("openid4vp://request1", listener)
+        awaitState(session, OpenId4VpSession.State.PENDING_CONSENT)
+
+        session.reject()
+
+        listener.awaitEvent { it is TransferEvent.Error }
+        awaitState(session, OpenId4VpSession.State.FAILED)
+        assertTrue(listener.events.none { it is TransferEvent.ResponseSent })
+    }
+
+    @Test
+    fun `response of another request is not sent`() {
+        val manager = manager()
+        val listener = RecordingListener()
+        val session = manager.openSession("openid4vp://request1", listener)
+        awaitState(session, OpenId4VpSession.State.PENDING_CONSENT)
+
+        session.sendResponse(mockk<OpenId4VpResponse> {
+            every { resolvedRequestObject } returns requestFor("openid4vp://request2")
+        })
+
+        listener.awaitEvent { it is TransferEvent.Error }
+        assertEquals(OpenId4VpSession.State.PENDING_CONSENT, session.state)
+        coVerify(exactly = 0) { openId4Vp.dispatch(any(), any(), any()) }
+        session.cancel()
+    }
+
+    @Test
+    fun `response cannot be sent before the request is resolved`() {
+        coEvery { openId4Vp.resolveRequestUri(any()) } coAnswers { CompletableDeferred<Resolution>().await() }
+        val manager = manager()
+        val listener = RecordingListener()
+        val session = manager.openSession("openid4vp://request1", listener)
+
+        session.sendResponse(mockk<OpenId4VpResponse>())
+
+        listener.awaitEvent { it is TransferEvent.Error }
+        assertEquals(OpenId4VpSession.State.RESOLVING, session.state)
+        session.cancel()
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.trust
+
+import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.bouncycastle.jce.provider.BouncyCastleProvider
+import org.junit.Before
+import org.junit.Test
+import java.security.Security
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZoneOffset
+import kotlin.test.assertFalse
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.days
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.toJavaDuration
+
+class CachingReaderTrustStoreTest {
+
+    private class MutableClock(var now: Instant = Instant.now()) : Clock() {
+        override fun getZone(): ZoneId = ZoneOffset.UTC
+        override fun withZone(zone: ZoneId?): Clock = this
+        override fun instant(): Instant = now
+    }
+
+    private val chain = listOf(ecLeafSignedByIntermediateCertificate, ecIntermediateCertificate)
+
+    @Before
+    fun setup() {
+        Security.addProvider(BouncyCastleProvider())
+    }
+
+    @Test
+    fun `successful validation is cached for the same chain`() {
+        val delegate = mockk<ReaderTrustStore> {
+            every { validateCertificationTrustPath(any()) } returns true
+        }
+        val store = CachingReaderTrustStore(delegate)
+
+        assertTrue(store.validateCertificationTrustPath(chain))
+        assertTrue(store.validateCertificationTrustPath(chain.toList()))
+
+        verify(exactly = 1) { delegate.validateCertificationTrustPath(any()) }
+    }
+
+    @Test
+    fun `failed validation is not cached`() {
+        val delegate = mockk<ReaderTrustStore> {
+            every { validateCertificationTrustPath(any()) } returns false
+        }
+        val store = CachingReaderTrustStore(delegate)
+
+        assertFalse(store.validateCertificationTrustPath(chain))
+        assertFalse(store.validateCertificationTrustPath(chain))
+
+        verify(exactly = 2) { delegate.validateCertificationTrustPath(any()) }
+    }
+
+    @Test
+    fun `cached result expires after ttl`() {
+        val clock = MutableClock()
+        val delegate = mockk<ReaderTrustStore> {
+            every { validateCertificationTrustPath(any()) } returns true
+        }
+        val store = CachingReaderTrustStore(delegate, ttl = 5.minutes, clock = clock)
+
+        store.validateCertificationTrustPath(chain)
+        clock.now = clock.now.plus(6.minutes.toJavaDuration())
+        store.validateCertificationTrustPath(chain)
+
+        verify(exactly = 2) { delegate.validateCertificationTrustPath(any()) }
+    }
+
+    @Test
+    fun `cached result expires with the earliest certificate of the chain`() {
+        val clock = MutableClock()
+        val delegate = mockk<ReaderTrustStore> {
+            every { validateCertificationTrustPath(any()) } returns true
+        }
+        val store = CachingReaderTrustStore(delegate, ttl = 365.days, clock = clock)
+
+        store.validateCertificationTrustPath(chain)
+        clock.now = chain.minOf { it.notAfter.toInstant() }.plusSeconds(1)
+        store.validateCertificationTrustPath(chain)
+
+        verify(exactly = 2) { delegate.validateCertificationTrustPath(any()) }
+    }
+
+    @Test
+    fun `clear removes cached results`() {
+        val delegate = mockk<ReaderTrustStore> {
+            every { validateCertificationTrustPath(any()) } returns true
+        }
+        val store = CachingReaderTrustStore(delegate)
+
+        store.validateCertificationTrustPath(chain)
+        store.clear()
+        store.validateCertificationTrustPath(chain)
+
+        verify(exactly = 2) { delegate.validateCertificationTrustPath(any()) }
+    }
+
+    @Test
+    fun `trust path is cached for the same chain`() {
+        val path = chain + rsaTrustedRootCertificate
+        val delegate = mockk<ReaderTrustStore> {
+            every { createCertificationTrustPath(any()) } returns path
+        }
+        val store = CachingReaderTrustStore(delegate)
+
+        store.createCertificationTrustPath(chain)
+        assertSame(path, store.createCertificationTrustPath(chain))
+
+        verify(exactly = 1) { delegate.createCertificationTrustPath(any()) }
+    }
+
+    @Test
+    fun `withTrustCache does not wrap twice and is disabled with zero ttl`() {
+        val delegate = mockk<ReaderTrustStore>()
+        val cached = delegate.withTrustCache(5.minutes)
+
+        assertTrue(cached is CachingReaderTrustStore)
+        assertSame(cached, cached.withTrustCache(5.minutes))
+        assertSame(delegate, delegate.withTrustCache(Duration.ZERO))
+    }
+}
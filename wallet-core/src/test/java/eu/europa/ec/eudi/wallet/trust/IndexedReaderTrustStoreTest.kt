@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.trust
+
+import eu.europa.ec.eudi.iso18013.transfer.readerauth.ReaderTrustStore
+import io.mockk.every
+import io.mockk.mockk
+import org.bouncycastle.asn1.x500.X500Name
+import org.bouncycastle.asn1.x509.BasicConstraints
+import org.bouncycastle.asn1.x509.Extension
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder
+import org.bouncycastle.jce.provider.BouncyCastleProvider
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder
+import org.junit.Before
+import org.junit.Test
+import java.math.BigInteger
+import java.security.KeyPairGenerator
+import java.security.Security
+import java.security.cert.X509Certificate
+import java.security.spec.ECGenParameterSpec
+import java.time.Instant
+import java.util.Date
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class IndexedReaderTrustStoreTest {
+
+    private val chain = listOf(ecLeafSignedByIntermediateCertificate, ecIntermediateCertificate)
+
+    private val otherAnchors: List<X509Certificate> by lazy {
+        (1..20).map { selfSignedCertificate("CN=Other Root CA $it") }
+    }
+
+    @Before
+    fun setup() {
+        Security.addProvider(BouncyCastleProvider())
+    }
+
+    @Test
+    fun `finds the anchor that issued the chain among many anchors`() {
+        val store = IndexedReaderTrustStore(otherAnchors + rsaTrustedRootCertificate)
+
+        assertEquals(listOf(rsaTrustedRootCertificate), store.findAnchors(chain))
+    }
+
+    @Test
+    fun `finds an anchor that is part of the chain`() {
+        val store = IndexedReaderTrustStore(otherAnchors + ecIntermediateCertificate)
+
+        assertEquals(listOf(ecIntermediateCertificate), store.findAnchors(chain))
+    }
+
+    @Test
+    fun `anchor with same subject but different key identifier does not match`() {
+        val impostor = selfSignedCertificate("CN=RSA Root CA")
+        val store = IndexedReaderTrustStore(otherAnchors + impostor)
+
+        assertTrue(store.findAnchors(chain).isEmpty())
+    }
+
+    @Test
+    fun `validates the chain against the matched anchor only`() {
+        val factoryCalls = mutableListOf<List<X509Certificate>>()
+        val store = IndexedReaderTrustStore(otherAnchors + rsaTrustedRootCertificate) { anchors ->
+            factoryCalls.add(anchors)
+            mockk<ReaderTrustStore> {
+                every { validateCertificationTrustPath(any()) } returns true
+            }
+        }
+
+        assertTrue(store.validateCertificationTrustPath(chain))
+        assertTrue(store.validateCertificationTrustPath(chain))
+
+        assertEquals(listOf(listOf(rsaTrustedRootCertificate)), factoryCalls)
+    }
+
+    @Test
+    fun `chain without a matching anchor is not trusted`() {
+        var factoryCalled = false
+        val store = IndexedReaderTrustStore(otherAnchors) {
+            factoryCalled = true
+            mockk()
+        }
+
+        assertFalse(store.validateCertificationTrustPath(chain))
+        assertEquals(null, store.createCertificationTrustPath(chain))
+        assertFalse(factoryCalled)
+    }
+
+    @Test
+    fun `default delegate validates RSA root to EC leaf chain`() {
+        val store = IndexedReaderTrustStore(otherAnchors + rsaTrustedRootCertificate)
+
+        assertTrue(store.validateCertificationTrustPath(chain))
+    }
+
+    private fun selfSignedCertificate(subject: String): X509Certificate {
+        val keyPair = KeyPairGenerator.getInstance("EC").apply {
+            initialize(ECGenParameterSpec("secp256r1"))
+        }.generateKeyPair()
+        val notBefore = Date.from(Instant.now().minusSeconds(86400))
+        val builder = JcaX509v3CertificateBuilder(
+            X500Name(subject),
+            BigInteger.valueOf(System.nanoTime()),
+            notBefore,
+            Date(notBefore.time + 30 * 86400000L),
+            X500Name(subject),
+            keyPair.public
+        ).apply {
+            addExtension(Extension.basicConstraints, true, BasicConstraints(true))
+            addExtension(
+                Extension.subjectKeyIdentifier,
+                false,
+                JcaX509ExtensionUtils().createSubjectKeyIdentifier(keyPair.public)
+            )
+        }
+        val signer = JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.private)
+        return JcaX509CertificateConverter().getCertificate(builder.build(signer))
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2025 European Commission
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.europa.ec.eudi.wallet.trust
+
+import android.content.Context
+import android.content.pm.PackageInfo
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.File
+import java.nio.file.Files
+import kotlin.test.assertEquals
+
+@RunWith(RobolectricTestRunner::class)
+class ParsedCertificateCacheTest {
+
+    private val directory: File = Files.createTempDirectory("reader-trust").toFile()
+    private val certificates = mapOf(
+        1 to rsaTrustedRootCertificate,
+        2 to ecIntermediateCertificate,
+    )
+
+    @After
+    fun tearDown() {
+        directory.deleteRecursively()
+    }
+
+    private fun context(lastUpdateTime: Long, readable: Boolean = true) = mockk<Context> {
+        every { packageName } returns "eu.europa.ec.eudi.wallet.test"
+        every { packageManager.getPackageInfo("eu.europa.ec.eudi.wallet.test", 0) } returns
+                PackageInfo().apply { this.lastUpdateTime = lastUpdateTime }
+        every { resources.openRawResource(any()) } answers {
+            check(readable) { "Resources are not read" }
+            certificates.getValue(firstArg()).encoded.inputStream()
+        }
+    }
+
+    private fun cacheFiles() = directory.listFiles().orEmpty().map { it.name }
+
+    @Test
+    fun `certificates are read from the cache file by another instance`() {
+        val parsed = ParsedCertificateCache(directory).getCertificates(context(1), 1, 2)
+
+        val cached = ParsedCertificateCache(directory).getCertificates(context(1, readable = false), 1, 2)
+
+        assertEquals(listOf(rsaTrustedRootCertificate, ecIntermediateCertificate), parsed)
+        assertEquals(parsed, cached)
+    }
+
+    @Test
+    fun `writing a resource set deletes its older versions only`() {
+        ParsedCertificateCache(directory).apply {
+            getCertificates(context(1), 1)
+            getCertificates(context(1), 2)
+        }
+        val resourceSets = cacheFiles().map { it.removeSuffix("_1.der") }.toSet()
+        assertEquals(2, resourceSets.size)
+
+        ParsedCertificateCache(directory).getCertificates(context(2), 1)
+
+        val files = cacheFiles()
+        assertEquals(2, files.size)
+        val updated = files.single { it.endsWith("_2.der") }.removeSuffix("_2.der")
+        val kept = files.single { it.endsWith("_1.der") }.removeSuffix("_1.der")
+        assertEquals(resourceSets, setOf(updated, kept))
+    }
+}